@@ -14,6 +14,7 @@ import io.crate.expression.reference.file.FileLineReferenceResolver;
 import io.crate.metadata.Functions;
 import io.crate.metadata.Reference;
 import io.crate.metadata.TransactionContext;
+import io.crate.operation.collect.files.CSVLineParser;
 import io.crate.types.DataTypes;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
@@ -27,8 +28,10 @@ import org.openjdk.jmh.infra.Blackhole;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
@@ -49,6 +52,8 @@ public class CsvReaderBenchmark {
         new SessionSettings("dummyUser",
                             SearchPath.createSearchPathFrom("dummySchema")));
     File tempFile;
+    private CSVLineParser csvLineParser;
+    private byte[] csvLines;
 
     @Setup
     public void create_temp_file_and_uri() throws IOException {
@@ -94,6 +99,28 @@ public class CsvReaderBenchmark {
         }
     }
 
+    @Setup
+    public void create_csv_lines() throws IOException {
+        csvLineParser = new CSVLineParser();
+        csvLineParser.parseHeader(new BufferedReader(new StringReader("name,id,description\n")));
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            lines.append("Arthur,").append(i).append(",\"Don't panic, \"\"42\"\"\"\n");
+        }
+        csvLines = lines.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark()
+    public void measureCSVLineParser(Blackhole blackhole) throws IOException {
+        int lineStart = 0;
+        for (int i = 0; i < csvLines.length; i++) {
+            if (csvLines[i] == '\n') {
+                blackhole.consume(csvLineParser.parse(csvLines, lineStart, i - lineStart));
+                lineStart = i + 1;
+            }
+        }
+    }
+
     @Benchmark()
     public void measureFileReadingIteratorForCSV(Blackhole blackhole) {
         Reference raw = createReference("_raw", DataTypes.STRING);
@@ -34,19 +34,21 @@ import org.apache.lucene.util.LongBitSet;
  * order to further optimize performance by growing the capacity of the backing array
  * by double each time size is reached.
  */
-class LuceneLongBitSetWrapper {
+public class LuceneLongBitSetWrapper {
     private long size = 1024;
     private LongBitSet bitSet = new LongBitSet(size);
 
-    void set(long idx) {
+    public void set(long idx) {
         if (idx >= size) {
-            size *= 2;
+            while (idx >= size) {
+                size *= 2;
+            }
             bitSet = LongBitSet.ensureCapacity(bitSet, size);
         }
         bitSet.set(idx);
     }
 
-    boolean get(long idx) {
-        return bitSet.get(idx);
+    public boolean get(long idx) {
+        return idx < size && bitSet.get(idx);
     }
 }
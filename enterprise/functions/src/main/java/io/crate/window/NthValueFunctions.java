@@ -44,6 +44,7 @@ public class NthValueFunctions implements WindowFunction {
 
     private final FunctionInfo info;
     private final BiFunction<WindowFrameState, Input[], Integer> frameIndexSupplier;
+    private int seenFrameLowerBound = -1;
     private int seenFrameUpperBound = -1;
     private Object resultForCurrentFrame = null;
 
@@ -62,9 +63,16 @@ public class NthValueFunctions implements WindowFunction {
                           WindowFrameState currentFrame,
                           List<? extends CollectExpression<Row, ?>> expressions,
                           Input... args) {
-        if (idxInPartition == 0 || currentFrame.upperBoundExclusive() > seenFrameUpperBound) {
+        if (idxInPartition == 0
+            || currentFrame.lowerBound() != seenFrameLowerBound
+            || currentFrame.upperBoundExclusive() != seenFrameUpperBound) {
+            seenFrameLowerBound = currentFrame.lowerBound();
             seenFrameUpperBound = currentFrame.upperBoundExclusive();
-            Object[] nthRowCells = currentFrame.getRowAtIndexOrNull(frameIndexSupplier.apply(currentFrame, args));
+            // the frame index is relative to the start of the frame
+            int idxInFrame = frameIndexSupplier.apply(currentFrame, args);
+            Object[] nthRowCells = idxInFrame < 0
+                ? null
+                : currentFrame.getRowAtIndexOrNull(currentFrame.lowerBound() + idxInFrame);
             if (nthRowCells == null) {
                 resultForCurrentFrame = null;
                 return null;
@@ -52,6 +52,18 @@ public class NthValueFunctionsTest extends AbstractWindowFunctionTest {
         );
     }
 
+    @Test
+    public void testFirstValueOverSlidingFrame() throws Exception {
+        assertEvaluate("first_value(x) over(order by x rows between 1 preceding and current row)",
+            contains(new Object[] {1, 1, 2, 3}),
+            Collections.singletonMap(new ColumnIdent("x"), 0),
+            new Object[] {1},
+            new Object[] {2},
+            new Object[] {3},
+            new Object[] {4}
+        );
+    }
+
     @Test
     public void testLastValueWithOrderByClause() throws Exception {
         Map<ColumnIdent, Integer> mapping = new HashMap<>();
@@ -201,6 +201,48 @@ public class BigArrays implements Releasable {
 
     }
 
+    private static class LongArrayWrapper extends AbstractArrayWrapper implements LongArray {
+
+        private final long[] array;
+
+        LongArrayWrapper(BigArrays bigArrays, long[] array, long size, Recycler.V<long[]> releasable, boolean clearOnResize) {
+            super(bigArrays, size, releasable, clearOnResize);
+            this.array = array;
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            return SHALLOW_SIZE + RamUsageEstimator.sizeOf(array);
+        }
+
+        @Override
+        public long get(long index) {
+            assert indexIsInt(index);
+            return array[(int) index];
+        }
+
+        @Override
+        public long set(long index, long value) {
+            assert indexIsInt(index);
+            final long ret = array[(int) index];
+            array[(int) index] = value;
+            return ret;
+        }
+
+        @Override
+        public long increment(long index, long inc) {
+            assert indexIsInt(index);
+            return array[(int) index] += inc;
+        }
+
+        @Override
+        public void fill(long fromIndex, long toIndex, long value) {
+            assert indexIsInt(fromIndex);
+            assert indexIsInt(toIndex);
+            Arrays.fill(array, (int) fromIndex, (int) toIndex, value);
+        }
+    }
+
     private static class ObjectArrayWrapper<T> extends AbstractArrayWrapper implements ObjectArray<T> {
 
         private final Object[] array;
@@ -455,6 +497,57 @@ public class BigArrays implements Releasable {
         return resize(array, newSize);
     }
 
+    /**
+     * Allocate a new {@link LongArray}.
+     * @param size          the initial length of the array
+     * @param clearOnResize whether values should be set to 0 on initialization and resize
+     */
+    public LongArray newLongArray(long size, boolean clearOnResize) {
+        if (size > LONG_PAGE_SIZE) {
+            // when allocating big arrays, we want to first ensure we have the capacity by
+            // checking with the circuit breaker before attempting to allocate
+            adjustBreaker(BigLongArray.estimateRamBytes(size), false);
+            return new BigLongArray(size, this, clearOnResize);
+        } else if (size >= LONG_PAGE_SIZE / 2 && recycler != null) {
+            final Recycler.V<long[]> page = recycler.longPage(clearOnResize);
+            return validate(new LongArrayWrapper(this, page.v(), size, page, clearOnResize));
+        } else {
+            return validate(new LongArrayWrapper(this, new long[(int) size], size, null, clearOnResize));
+        }
+    }
+
+    /**
+     * Allocate a new {@link LongArray}.
+     * @param size          the initial length of the array
+     */
+    public LongArray newLongArray(long size) {
+        return newLongArray(size, true);
+    }
+
+    /** Resize the array to the exact provided size. */
+    public LongArray resize(LongArray array, long size) {
+        if (array instanceof BigLongArray) {
+            return resizeInPlace((BigLongArray) array, size);
+        } else {
+            AbstractArray arr = (AbstractArray) array;
+            final LongArray newArray = newLongArray(size, arr.clearOnResize);
+            for (long i = 0, end = Math.min(size, array.size()); i < end; ++i) {
+                newArray.set(i, array.get(i));
+            }
+            array.close();
+            return newArray;
+        }
+    }
+
+    /** Grow an array to a size that is larger than <code>minSize</code>, preserving content, and potentially reusing part of the provided array. */
+    public LongArray grow(LongArray array, long minSize) {
+        if (minSize <= array.size()) {
+            return array;
+        }
+        final long newSize = overSize(minSize, LONG_PAGE_SIZE, Long.BYTES);
+        return resize(array, newSize);
+    }
+
     /**
      * Allocate a new {@link ObjectArray}.
      * @param size          the initial length of the array
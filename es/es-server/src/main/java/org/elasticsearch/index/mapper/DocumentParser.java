@@ -20,6 +20,7 @@
 package org.elasticsearch.index.mapper;
 
 import org.elasticsearch.Version;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.joda.FormatDateTimeFormatter;
@@ -60,6 +61,10 @@ final class DocumentParser {
         validateType(source);
 
         final Mapping mapping = docMapper.mapping();
+        final FieldMapper[] valueMappers = valueMappers(mapping, source);
+        if (valueMappers != null) {
+            return parseFieldValues(source, metadataFieldsMappers, valueMappers);
+        }
         final ParseContext.InternalParseContext context;
         final XContentType xContentType = source.getXContentType();
 
@@ -80,6 +85,95 @@ final class DocumentParser {
         return parsedDocument(source, context, createDynamicUpdate(mapping, docMapper, context.getDynamicMappers()));
     }
 
+    /**
+     * Creates the document from the typed field values of the source, without parsing the source.
+     * The mappers create the same fields from the values as from the parsed source, see {@link #valueMappers}.
+     */
+    private ParsedDocument parseFieldValues(SourceToParse source,
+                                            MetadataFieldMapper[] metadataFieldsMappers,
+                                            FieldMapper[] valueMappers) {
+        // none of the mappers reads from the parser if an external value is set
+        final ParseContext.InternalParseContext context =
+            new ParseContext.InternalParseContext(indexSettings, docMapperParser, docMapper, source, null);
+        final Object[] values = source.fieldValues();
+        try {
+            for (MetadataFieldMapper metadataMapper : metadataFieldsMappers) {
+                metadataMapper.preParse(context);
+            }
+            for (int i = 0; i < valueMappers.length; i++) {
+                Object value = values[i];
+                if (value == null) {
+                    // same as a parsed null value, the mappers have no null_value
+                    continue;
+                }
+                FieldMapper mapper = valueMappers[i];
+                ParseContext valueContext = context.createExternalValueContext(value);
+                mapper.parse(valueContext);
+                parseCopyFields(valueContext, mapper.copyTo().copyToFields());
+            }
+            for (MetadataFieldMapper metadataMapper : metadataFieldsMappers) {
+                metadataMapper.postParse(context);
+            }
+        } catch (Exception e) {
+            throw wrapInMapperParsingException(source, e);
+        }
+        return parsedDocument(source, context, null);
+    }
+
+    /**
+     * Returns the mappers of the typed field values of the source, or null if the source has no field values or if
+     * they can't be indexed without parsing the source. That is the case if a field isn't mapped yet or if a mapper,
+     * one of its multi fields or copy_to targets would create different fields from a typed value.
+     */
+    @Nullable
+    private FieldMapper[] valueMappers(Mapping mapping, SourceToParse source) {
+        final String[] fieldNames = source.fieldNames();
+        if (fieldNames == null || mapping.root.isEnabled() == false) {
+            return null;
+        }
+        final FieldMapper[] mappers = new FieldMapper[fieldNames.length];
+        for (int i = 0; i < fieldNames.length; i++) {
+            Mapper mapper = mapping.root.getMapper(fieldNames[i]);
+            if (mapper instanceof FieldMapper == false || acceptsExternalValue((FieldMapper) mapper) == false) {
+                return null;
+            }
+            FieldMapper fieldMapper = (FieldMapper) mapper;
+            for (String copyToField : fieldMapper.copyTo().copyToFields()) {
+                Mapper copyToMapper = docMapper.mappers().getMapper(copyToField);
+                if (copyToMapper instanceof FieldMapper == false || acceptsExternalValue((FieldMapper) copyToMapper) == false) {
+                    return null;
+                }
+            }
+            mappers[i] = fieldMapper;
+        }
+        return mappers;
+    }
+
+    /**
+     * Returns true if the mapper and its multi fields create the same fields from a non null external value as from
+     * the equivalent parsed value.
+     */
+    private static boolean acceptsExternalValue(FieldMapper mapper) {
+        Class<?> mapperClass = mapper.getClass();
+        if (mapperClass != KeywordFieldMapper.class
+            && mapperClass != TextFieldMapper.class
+            && mapperClass != NumberFieldMapper.class
+            && mapperClass != DateFieldMapper.class
+            && mapperClass != BooleanFieldMapper.class
+            && mapperClass != IpFieldMapper.class) {
+            return false;
+        }
+        if (mapper.fieldType().nullValue() != null) {
+            return false;
+        }
+        for (Mapper multiField : mapper) {
+            if (multiField instanceof FieldMapper == false || acceptsExternalValue((FieldMapper) multiField) == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static void internalParseDocument(Mapping mapping, MetadataFieldMapper[] metadataFieldsMappers,
                                               ParseContext.InternalParseContext context, XContentParser parser) throws IOException {
         final boolean emptyDoc = isEmptyDoc(mapping, parser);
@@ -40,7 +40,28 @@ public class SourceToParse {
 
     private final XContentType xContentType;
 
+    private final @Nullable String[] fieldNames;
+
+    private final @Nullable Object[] fieldValues;
+
     public SourceToParse(String index, String type, String id, BytesReference source, XContentType xContentType, @Nullable String routing) {
+        this(index, type, id, source, xContentType, routing, null, null);
+    }
+
+    /**
+     * @param fieldNames  names of the top level fields of the source, or null
+     * @param fieldValues values of the top level fields, already converted to the types of their fields.
+     *                    If all fields are mapped to simple field mappers, the document is created from these values
+     *                    instead of parsing the source.
+     */
+    public SourceToParse(String index,
+                         String type,
+                         String id,
+                         BytesReference source,
+                         XContentType xContentType,
+                         @Nullable String routing,
+                         @Nullable String[] fieldNames,
+                         @Nullable Object[] fieldValues) {
         this.index = Objects.requireNonNull(index);
         this.type = Objects.requireNonNull(type);
         this.id = Objects.requireNonNull(id);
@@ -49,6 +70,10 @@ public class SourceToParse {
         this.source = new BytesArray(Objects.requireNonNull(source).toBytesRef());
         this.xContentType = Objects.requireNonNull(xContentType);
         this.routing = routing;
+        assert (fieldNames == null) == (fieldValues == null) : "fieldNames and fieldValues must be set together";
+        assert fieldNames == null || fieldNames.length == fieldValues.length : "there must be a value for each field";
+        this.fieldNames = fieldNames;
+        this.fieldValues = fieldValues;
     }
 
     public SourceToParse(String index, String type, String id, BytesReference source, XContentType xContentType) {
@@ -79,6 +104,14 @@ public class SourceToParse {
         return this.xContentType;
     }
 
+    public @Nullable String[] fieldNames() {
+        return this.fieldNames;
+    }
+
+    public @Nullable Object[] fieldValues() {
+        return this.fieldValues;
+    }
+
     public enum Origin {
         PRIMARY,
         REPLICA
@@ -39,6 +39,7 @@ import io.crate.sql.tree.AlterTableOpenClose;
 import io.crate.sql.tree.AlterTableRename;
 import io.crate.sql.tree.AlterTableReroute;
 import io.crate.sql.tree.AlterUser;
+import io.crate.sql.tree.AnalyzeStatement;
 import io.crate.sql.tree.AnalyzerElement;
 import io.crate.sql.tree.ArithmeticExpression;
 import io.crate.sql.tree.ArrayComparisonExpression;
@@ -655,6 +656,14 @@ class AstBuilder extends SqlBaseBaseVisitor<Node> {
             getUnquotedText(context.pattern));
     }
 
+    @Override
+    public Node visitAnalyze(SqlBaseParser.AnalyzeContext context) {
+        if (context.qname() == null) {
+            return new AnalyzeStatement();
+        }
+        return new AnalyzeStatement(new Table(getQualifiedName(context.qname())));
+    }
+
     @Override
     public Node visitRefreshTable(SqlBaseParser.RefreshTableContext context) {
         return new RefreshStatement(visitCollection(context.tableWithPartitions().tableWithPartition(), Table.class));
@@ -26,6 +26,7 @@ import com.google.common.base.Charsets;
 import com.google.common.io.Resources;
 import io.crate.sql.Literals;
 import io.crate.sql.SqlFormatter;
+import io.crate.sql.tree.AnalyzeStatement;
 import io.crate.sql.tree.ArrayComparisonExpression;
 import io.crate.sql.tree.ArrayLikePredicate;
 import io.crate.sql.tree.ArrayLiteral;
@@ -303,6 +304,20 @@ public class TestStatementBuilder {
         assertTrue(stmt.equals(new KillStatement()));
     }
 
+    @Test
+    public void testAnalyzeStmtBuilder() {
+        printStatement("analyze");
+        printStatement("analyze t");
+        printStatement("analyze table doc.t");
+    }
+
+    @Test
+    public void testAnalyzeTable() {
+        AnalyzeStatement stmt = (AnalyzeStatement) SqlParser.createStatement("ANALYZE doc.t");
+        assertThat(stmt.table().isPresent(), is(true));
+        assertThat(stmt.table().get().getName(), is(QualifiedName.of("doc", "t")));
+    }
+
     @Test
     public void testDeallocateStmtBuilder() {
         printStatement("deallocate all");
@@ -52,6 +52,7 @@ public class SQLOperations {
 
     private final Analyzer analyzer;
     private final Planner planner;
+    private final StatementCache statementCache;
     private final Provider<DependencyCarrier> executorProvider;
     private final JobsLogs jobsLogs;
     private final ClusterService clusterService;
@@ -62,6 +63,7 @@ public class SQLOperations {
     @Inject
     public SQLOperations(Analyzer analyzer,
                          Planner planner,
+                         StatementCache statementCache,
                          Provider<DependencyCarrier> executorProvider,
                          JobsLogs jobsLogs,
                          Settings settings,
@@ -69,6 +71,7 @@ public class SQLOperations {
                          Provider<UserManager> userManagerProvider) {
         this.analyzer = analyzer;
         this.planner = planner;
+        this.statementCache = statementCache;
         this.executorProvider = executorProvider;
         this.jobsLogs = jobsLogs;
         this.clusterService = clusterService;
@@ -83,6 +86,7 @@ public class SQLOperations {
         return new Session(
             analyzer,
             planner,
+            statementCache,
             jobsLogs,
             isReadOnly,
             executorProvider.get(),
@@ -0,0 +1,109 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.action.sql;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import io.crate.sql.parser.SqlParser;
+import io.crate.sql.tree.Statement;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+
+/**
+ * Node wide cache of parsed statements, keyed by the statement text.
+ * <p>
+ * Clients like ingestion pipelines send the same parameterized statements over and over again,
+ * this cache saves the parsing of them. The {@link Statement} tree is immutable and doesn't depend
+ * on the session, user or cluster state, so it can be shared between sessions without invalidation.
+ * Analysis and planning still happen per execution as their result depends on all of those.
+ * <p>
+ * The cache is bounded by the number of entries. To keep its memory usage predictable, statements
+ * which are longer than {@link #STATEMENT_CACHE_MAX_STATEMENT_LENGTH_SETTING} characters, like
+ * bulk inserts with inlined values, are parsed without being cached.
+ */
+@Singleton
+public class StatementCache {
+
+    public static final Setting<Integer> STATEMENT_CACHE_SIZE_SETTING = Setting.intSetting(
+        "node.sql.statement_cache.size",
+        1000,
+        0,
+        Setting.Property.NodeScope);
+
+    public static final Setting<Integer> STATEMENT_CACHE_MAX_STATEMENT_LENGTH_SETTING = Setting.intSetting(
+        "node.sql.statement_cache.max_statement_length",
+        10_000,
+        0,
+        Setting.Property.NodeScope);
+
+    private final Cache<String, Statement> statements;
+    private final boolean enabled;
+    private final int maxStatementLength;
+
+    @Inject
+    public StatementCache(Settings settings) {
+        this(STATEMENT_CACHE_SIZE_SETTING.get(settings),
+             STATEMENT_CACHE_MAX_STATEMENT_LENGTH_SETTING.get(settings));
+    }
+
+    @VisibleForTesting
+    StatementCache(int maxSize, int maxStatementLength) {
+        enabled = maxSize > 0;
+        this.maxStatementLength = maxStatementLength;
+        statements = CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Returns the cached statement or parses it with {@link SqlParser#createStatement(String)}.
+     * Statements which fail to parse or which are longer than the configured maximum statement length
+     * are not cached.
+     */
+    public Statement parse(String query) {
+        if (!enabled || query.length() > maxStatementLength) {
+            return SqlParser.createStatement(query);
+        }
+        Statement statement = statements.getIfPresent(query);
+        if (statement == null) {
+            statement = SqlParser.createStatement(query);
+            statements.put(query, statement);
+        }
+        return statement;
+    }
+
+    public StatementCacheStats stats() {
+        CacheStats stats = statements.stats();
+        return new StatementCacheStats(
+            statements.size(),
+            stats.hitCount(),
+            stats.missCount(),
+            stats.evictionCount()
+        );
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.analyze;
+
+import io.crate.action.sql.SessionContext;
+import io.crate.exceptions.OperationOnInaccessibleRelationException;
+import io.crate.metadata.Schemas;
+import io.crate.metadata.doc.DocTableInfo;
+import io.crate.metadata.table.Operation;
+import io.crate.metadata.table.TableInfo;
+import io.crate.sql.tree.AnalyzeStatement;
+import io.crate.sql.tree.Table;
+
+import java.util.Locale;
+import java.util.Optional;
+
+class AnalyzeStatementAnalyzer {
+
+    private final Schemas schemas;
+
+    AnalyzeStatementAnalyzer(Schemas schemas) {
+        this.schemas = schemas;
+    }
+
+    public AnalyzeAnalyzedStatement analyze(AnalyzeStatement node, SessionContext sessionContext) {
+        Optional<Table> table = node.table();
+        if (table.isEmpty()) {
+            return new AnalyzeAnalyzedStatement(null);
+        }
+        TableInfo tableInfo = schemas.resolveTableInfo(table.get().getName(), Operation.READ, sessionContext.searchPath());
+        if (!(tableInfo instanceof DocTableInfo)) {
+            throw new OperationOnInaccessibleRelationException(
+                tableInfo.ident(),
+                String.format(Locale.ENGLISH,
+                    "The relation \"%s\" doesn't support or allow ANALYZE operations.", tableInfo.ident().fqn()));
+        }
+        return new AnalyzeAnalyzedStatement(tableInfo.ident());
+    }
+}
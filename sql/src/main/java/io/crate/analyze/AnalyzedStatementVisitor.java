@@ -151,6 +151,10 @@ public class AnalyzedStatementVisitor<C, R> {
         return visitAnalyzedStatement(analysis, context);
     }
 
+    public R visitAnalyzeAnalyzedStatement(AnalyzeAnalyzedStatement analysis, C context) {
+        return visitAnalyzedStatement(analysis, context);
+    }
+
     public R visitDeallocateAnalyzedStatement(DeallocateAnalyzedStatement analysis, C context) {
         return visitAnalyzedStatement(analysis, context);
     }
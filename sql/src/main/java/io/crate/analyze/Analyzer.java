@@ -42,6 +42,7 @@ import io.crate.sql.tree.AlterTableOpenClose;
 import io.crate.sql.tree.AlterTableRename;
 import io.crate.sql.tree.AlterTableReroute;
 import io.crate.sql.tree.AlterUser;
+import io.crate.sql.tree.AnalyzeStatement;
 import io.crate.sql.tree.AstVisitor;
 import io.crate.sql.tree.BeginStatement;
 import io.crate.sql.tree.CommitStatement;
@@ -117,6 +118,7 @@ public class Analyzer {
     private final DropBlobTableAnalyzer dropBlobTableAnalyzer;
     private final RefreshTableAnalyzer refreshTableAnalyzer;
     private final OptimizeTableAnalyzer optimizeTableAnalyzer;
+    private final AnalyzeStatementAnalyzer analyzeStatementAnalyzer;
     private final AlterTableAnalyzer alterTableAnalyzer;
     private final AlterBlobTableAnalyzer alterBlobTableAnalyzer;
     private final AlterTableAddColumnAnalyzer alterTableAddColumnAnalyzer;
@@ -195,6 +197,7 @@ public class Analyzer {
         this.dropAnalyzerStatementAnalyzer = new DropAnalyzerStatementAnalyzer(fulltextAnalyzerResolver);
         this.refreshTableAnalyzer = new RefreshTableAnalyzer(schemas);
         this.optimizeTableAnalyzer = new OptimizeTableAnalyzer(schemas);
+        this.analyzeStatementAnalyzer = new AnalyzeStatementAnalyzer(schemas);
         this.alterTableAnalyzer = new AlterTableAnalyzer(schemas);
         this.alterBlobTableAnalyzer = new AlterBlobTableAnalyzer(schemas);
         this.alterTableAddColumnAnalyzer = new AlterTableAddColumnAnalyzer(schemas, fulltextAnalyzerResolver, functions);
@@ -393,6 +396,11 @@ public class Analyzer {
             return SetStatementAnalyzer.analyze(node);
         }
 
+        @Override
+        public AnalyzedStatement visitAnalyzeStatement(AnalyzeStatement node, Analysis context) {
+            return analyzeStatementAnalyzer.analyze(node, context.sessionContext());
+        }
+
         @Override
         public AnalyzedStatement visitKillStatement(KillStatement node, Analysis context) {
             return KillAnalyzer.analyze(node, context.parameterContext());
@@ -78,17 +78,21 @@ import java.util.function.Predicate;
 class CopyAnalyzer {
 
     private static final Setting<String> COMPRESSION_SETTING =
-        Setting.simpleString("compression", Validators.stringValidator("compression","gzip"), Setting.Property.Dynamic);
+        Setting.simpleString("compression", Validators.stringValidator("compression","gzip", "lz4", "zstd"), Setting.Property.Dynamic);
 
     private static final Setting<String> OUTPUT_FORMAT_SETTING =
-        Setting.simpleString("format", Validators.stringValidator("format","json_object", "json_array"), Setting.Property.Dynamic);
+        Setting.simpleString("format", Validators.stringValidator("format","json_object", "json_array", "columnar"), Setting.Property.Dynamic);
 
     private static final Setting<String> INPUT_FORMAT_SETTING =
-        new Setting<>("format", "json", (s) -> s, Validators.stringValidator("format","json", "csv"), Setting.Property.Dynamic);
+        new Setting<>("format", "json", (s) -> s, Validators.stringValidator("format","json", "csv", "columnar"), Setting.Property.Dynamic);
+
+    private static final Setting<Integer> NUM_WRITERS_SETTING =
+        Setting.intSetting("num_writers", 1, 1, Setting.Property.Dynamic);
 
     private static final ImmutableMap<String, Setting> OUTPUT_SETTINGS = ImmutableMap.<String, Setting>builder()
         .put(COMPRESSION_SETTING.getKey(), COMPRESSION_SETTING)
         .put(OUTPUT_FORMAT_SETTING.getKey(), OUTPUT_FORMAT_SETTING)
+        .put(NUM_WRITERS_SETTING.getKey(), NUM_WRITERS_SETTING)
         .build();
 
     private final Schemas schemas;
@@ -139,6 +143,9 @@ class CopyAnalyzer {
 
         FileUriCollectPhase.InputFormat inputFormat =
             settingAsEnum(FileUriCollectPhase.InputFormat.class, settings.get(INPUT_FORMAT_SETTING.getKey(), INPUT_FORMAT_SETTING.getDefault(Settings.EMPTY)));
+        if (inputFormat == FileUriCollectPhase.InputFormat.COLUMNAR && settings.get(COMPRESSION_SETTING.getKey()) != null) {
+            throw new UnsupportedFeatureException("Compression is not supported for the columnar format.");
+        }
 
         if (node.isReturnSummary()) {
             return new CopyFromReturnSummaryAnalyzedStatement(tableInfo, settings, uri, partitionIdent, nodeFilters, inputFormat);
@@ -236,9 +243,13 @@ class CopyAnalyzer {
         WriterProjection.OutputFormat outputFormat =
             settingAsEnum(WriterProjection.OutputFormat.class, OUTPUT_FORMAT_SETTING.get(settings));
 
-        if (!columnsDefined && outputFormat == WriterProjection.OutputFormat.JSON_ARRAY) {
+        if (!columnsDefined && (outputFormat == WriterProjection.OutputFormat.JSON_ARRAY
+                                || outputFormat == WriterProjection.OutputFormat.COLUMNAR)) {
             throw new UnsupportedFeatureException("Output format not supported without specifying columns.");
         }
+        if (outputFormat == WriterProjection.OutputFormat.COLUMNAR && compressionType != null) {
+            throw new UnsupportedFeatureException("Compression is not supported for the columnar format.");
+        }
 
         QuerySpec querySpec = new QuerySpec()
             .outputs(outputs)
@@ -252,7 +263,8 @@ class CopyAnalyzer {
             );
         QueriedTable<DocTableRelation> subRelation = new QueriedTable<>(false, tableRelation, querySpec);
         return new CopyToAnalyzedStatement(
-            subRelation, settings, uri, compressionType, outputFormat, outputNames, columnsDefined, overwrites);
+            subRelation, settings, uri, compressionType, outputFormat, outputNames, columnsDefined, overwrites,
+            NUM_WRITERS_SETTING.get(settings));
     }
 
     private static <E extends Enum<E>> E settingAsEnum(Class<E> settingsEnum, String settingValue) {
@@ -43,6 +43,7 @@ public class CopyToAnalyzedStatement extends AbstractCopyAnalyzedStatement {
     private final WriterProjection.OutputFormat outputFormat;
     @Nullable
     private final List<String> outputNames;
+    private final int numWriters;
 
     /*
      * add values that should be added or overwritten
@@ -57,7 +58,8 @@ public class CopyToAnalyzedStatement extends AbstractCopyAnalyzedStatement {
                                    @Nullable WriterProjection.OutputFormat outputFormat,
                                    @Nullable List<String> outputNames,
                                    boolean columnsDefined,
-                                   @Nullable Map<ColumnIdent, Symbol> overwrites) {
+                                   @Nullable Map<ColumnIdent, Symbol> overwrites,
+                                   int numWriters) {
         super(settings, uri);
         this.subQueryRelation = subQueryRelation;
         this.columnsDefined = columnsDefined;
@@ -65,6 +67,7 @@ public class CopyToAnalyzedStatement extends AbstractCopyAnalyzedStatement {
         this.outputNames = outputNames;
         this.outputFormat = outputFormat;
         this.overwrites = MoreObjects.firstNonNull(overwrites, ImmutableMap.<ColumnIdent, Symbol>of());
+        this.numWriters = numWriters;
     }
 
     public QueriedTable<?> subQueryRelation() {
@@ -75,6 +78,13 @@ public class CopyToAnalyzedStatement extends AbstractCopyAnalyzedStatement {
         return columnsDefined;
     }
 
+    /**
+     * The number of files each shard writes concurrently
+     */
+    public int numWriters() {
+        return numWriters;
+    }
+
     @Nullable
     public WriterProjection.CompressionType compressionType() {
         return compressionType;
@@ -33,6 +33,7 @@ import org.elasticsearch.common.io.stream.Writeable;
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.Objects;
+import java.util.function.Function;
 
 public class FrameBoundDefinition implements Writeable {
 
@@ -65,6 +66,13 @@ public class FrameBoundDefinition implements Writeable {
         return value;
     }
 
+    public FrameBoundDefinition map(Function<? super Symbol, ? extends Symbol> mapper) {
+        if (value == null) {
+            return this;
+        }
+        return new FrameBoundDefinition(type, mapper.apply(value));
+    }
+
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeEnum(type);
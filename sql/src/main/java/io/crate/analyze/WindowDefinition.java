@@ -76,11 +76,12 @@ public class WindowDefinition implements Writeable {
     }
 
     public WindowDefinition map(Function<? super Symbol, ? extends Symbol> mapSymbolsFunction) {
-        if (!partitions.isEmpty() || orderBy != null) {
+        WindowFrameDefinition newWindowFrameDefinition = windowFrameDefinition.map(mapSymbolsFunction);
+        if (!partitions.isEmpty() || orderBy != null || newWindowFrameDefinition != windowFrameDefinition) {
             return new WindowDefinition(
                 Lists2.map(partitions, mapSymbolsFunction),
                 orderBy != null ? orderBy.copyAndReplace(mapSymbolsFunction) : null,
-                windowFrameDefinition
+                newWindowFrameDefinition
             );
         } else {
             return this;
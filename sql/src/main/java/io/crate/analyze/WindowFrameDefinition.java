@@ -22,6 +22,7 @@
 
 package io.crate.analyze;
 
+import io.crate.expression.symbol.Symbol;
 import io.crate.sql.tree.WindowFrame.Type;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -30,6 +31,7 @@ import org.elasticsearch.common.io.stream.Writeable;
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.Objects;
+import java.util.function.Function;
 
 public class WindowFrameDefinition implements Writeable {
 
@@ -63,6 +65,15 @@ public class WindowFrameDefinition implements Writeable {
         return end;
     }
 
+    public WindowFrameDefinition map(Function<? super Symbol, ? extends Symbol> mapper) {
+        FrameBoundDefinition newStart = start.map(mapper);
+        FrameBoundDefinition newEnd = end == null ? null : end.map(mapper);
+        if (newStart == start && newEnd == end) {
+            return this;
+        }
+        return new WindowFrameDefinition(type, newStart, newEnd);
+    }
+
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeEnum(type);
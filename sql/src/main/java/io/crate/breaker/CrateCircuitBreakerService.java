@@ -64,6 +64,10 @@ public class CrateCircuitBreakerService extends CircuitBreakerService {
     public static final CrateSetting<Double> OPERATIONS_LOG_CIRCUIT_BREAKER_OVERHEAD_SETTING = CrateSetting.of(Setting.doubleSetting(
         "stats.breaker.log.operations.overhead", 1.0d, 0.0d, Setting.Property.Dynamic, Setting.Property.NodeScope), DataTypes.DOUBLE);
 
+    public static final String QUERY_RESULT_CACHE = "query_result_cache";
+    public static final CrateSetting<ByteSizeValue> QUERY_RESULT_CACHE_CIRCUIT_BREAKER_LIMIT_SETTING = CrateSetting.of(Setting.memorySizeSetting(
+        "indices.breaker.query_result_cache.limit", "1%", Setting.Property.NodeScope), DataTypes.STRING);
+
     static final String BREAKING_EXCEPTION_MESSAGE =
         "[query] Data too large, data for [%s] would be larger than limit of [%d/%s]";
 
@@ -97,6 +101,10 @@ public class CrateCircuitBreakerService extends CircuitBreakerService {
         registerBreaker(queryBreakerSettings);
         registerBreaker(logJobsBreakerSettings);
         registerBreaker(logOperationsBreakerSettings);
+        registerBreaker(new BreakerSettings(QUERY_RESULT_CACHE,
+            QUERY_RESULT_CACHE_CIRCUIT_BREAKER_LIMIT_SETTING.setting().get(settings).getBytes(),
+            1.0d,
+            CircuitBreaker.Type.MEMORY));
 
         clusterSettings.addSettingsUpdateConsumer(QUERY_CIRCUIT_BREAKER_LIMIT_SETTING.setting(), QUERY_CIRCUIT_BREAKER_OVERHEAD_SETTING.setting(),
             (newLimit, newOverhead) ->
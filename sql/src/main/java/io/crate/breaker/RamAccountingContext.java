@@ -91,6 +91,22 @@ public class RamAccountingContext implements RamAccounting {
         }
     }
 
+    /**
+     * Subtract bytes which have been added before but are no longer in use.
+     * Bytes which have already been flushed are given back to the breaker right away.
+     *
+     * @param bytes bytes to be subtracted
+     */
+    public void releaseBytes(long bytes) {
+        if (closed || bytes == 0) {
+            return;
+        }
+        long currentFlushBuffer = flushBuffer.addAndGet(-bytes);
+        if (currentFlushBuffer < 0) {
+            flushWithoutBreaking(currentFlushBuffer);
+        }
+    }
+
     /**
      * Flush the {@code bytes} to the breaker, incrementing the total
      * bytes and adjusting the buffer.
@@ -189,6 +205,15 @@ public class RamAccountingContext implements RamAccounting {
         return tripped;
     }
 
+    /**
+     * Returns true if the used bytes of the breaker, including the not yet flushed bytes of this context,
+     * reached the given fraction of the breaker limit
+     */
+    public boolean reachedBreakerLimitFraction(double fraction) {
+        long limit = breaker.getLimit();
+        return limit > 0 && breaker.getUsed() + flushBuffer.get() >= limit * fraction;
+    }
+
     /**
      * Returns true if the limit of the breaker was already reached
      * but the breaker did not trip (e.g. when adding bytes without breaking)
@@ -0,0 +1,61 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+
+package io.crate.breaker;
+
+/**
+ * {@link RamAccounting} which adds the bytes to a shared {@link RamAccountingContext}, but only releases the bytes
+ * that have been added through this instance.
+ * <p>
+ * This allows to release the memory of buffered rows while other users of the same context keep their bytes accounted.
+ */
+public final class ScopedRamAccounting implements RamAccounting {
+
+    private final RamAccountingContext ramAccountingContext;
+    private long accountedBytes = 0;
+
+    public ScopedRamAccounting(RamAccountingContext ramAccountingContext) {
+        this.ramAccountingContext = ramAccountingContext;
+    }
+
+    @Override
+    public void addBytes(long bytes) {
+        accountedBytes += bytes;
+        ramAccountingContext.addBytes(bytes);
+    }
+
+    @Override
+    public void release() {
+        ramAccountingContext.releaseBytes(accountedBytes);
+        accountedBytes = 0;
+    }
+
+    @Override
+    public void close() {
+        release();
+    }
+
+    public long accountedBytes() {
+        return accountedBytes;
+    }
+}
@@ -25,6 +25,7 @@ package io.crate.execution;
 import io.crate.cluster.decommission.TransportDecommissionNodeAction;
 import io.crate.execution.dml.delete.TransportShardDeleteAction;
 import io.crate.execution.dml.upsert.TransportShardUpsertAction;
+import io.crate.execution.engine.collect.stats.TransportAnalyzeAction;
 import io.crate.execution.engine.fetch.TransportFetchNodeAction;
 import io.crate.execution.engine.profile.TransportCollectProfileNodeAction;
 import io.crate.execution.jobs.kill.TransportKillAllNodeAction;
@@ -63,6 +64,8 @@ public class TransportActionProvider {
 
     private final Provider<TransportDecommissionNodeAction> transportDecommissionNodeActionProvider;
 
+    private final Provider<TransportAnalyzeAction> transportAnalyzeActionProvider;
+
     @Inject
     public TransportActionProvider(Provider<TransportFetchNodeAction> transportFetchNodeActionProvider,
                                    Provider<TransportCollectProfileNodeAction> transportCollectProfileNodeActionProvider,
@@ -78,7 +81,8 @@ public class TransportActionProvider {
                                    Provider<TransportCreateSnapshotAction> transportCreateSnapshotActionProvider,
                                    Provider<TransportRestoreSnapshotAction> transportRestoreSnapshotActionProvider,
                                    Provider<TransportGetSnapshotsAction> transportGetSnapshotsActionPovider,
-                                   Provider<TransportDecommissionNodeAction> transportDecommissionNodeActionProvider) {
+                                   Provider<TransportDecommissionNodeAction> transportDecommissionNodeActionProvider,
+                                   Provider<TransportAnalyzeAction> transportAnalyzeActionProvider) {
         this.transportDeleteIndexActionProvider = transportDeleteIndexActionProvider;
         this.transportClusterUpdateSettingsActionProvider = transportClusterUpdateSettingsActionProvider;
         this.transportShardDeleteActionProvider = transportShardDeleteActionProvider;
@@ -94,6 +98,7 @@ public class TransportActionProvider {
         this.transportRestoreSnapshotActionProvider = transportRestoreSnapshotActionProvider;
         this.transportGetSnapshotsActionProvider = transportGetSnapshotsActionPovider;
         this.transportDecommissionNodeActionProvider = transportDecommissionNodeActionProvider;
+        this.transportAnalyzeActionProvider = transportAnalyzeActionProvider;
     }
 
     public TransportCreatePartitionsAction transportBulkCreateIndicesAction() {
@@ -155,4 +160,8 @@ public class TransportActionProvider {
     public TransportDecommissionNodeAction transportDecommissionNodeAction() {
         return transportDecommissionNodeActionProvider.get();
     }
+
+    public TransportAnalyzeAction transportAnalyzeAction() {
+        return transportAnalyzeActionProvider.get();
+    }
 }
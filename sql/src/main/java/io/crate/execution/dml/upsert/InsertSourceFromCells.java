@@ -22,6 +22,7 @@
 
 package io.crate.execution.dml.upsert;
 
+import io.crate.Constants;
 import io.crate.collections.Lists2;
 import io.crate.common.collections.Maps;
 import io.crate.data.ArrayRow;
@@ -40,14 +41,21 @@ import io.crate.metadata.Functions;
 import io.crate.metadata.Reference;
 import io.crate.metadata.RowGranularity;
 import io.crate.metadata.doc.DocTableInfo;
+import io.crate.types.DataTypes;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.mapper.SourceToParse;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public final class InsertSourceFromCells implements InsertSourceGen {
 
@@ -55,6 +63,14 @@ public final class InsertSourceFromCells implements InsertSourceGen {
     private final ArrayRow row = new ArrayRow();
     private final CheckConstraints<Row, CollectExpression<Row, ?>> checks;
     private final GeneratedColumns<Row> generatedColumns;
+    private final List<Map.Entry<Reference, Input<?>>> toInject = new ArrayList<>();
+
+    /**
+     * Names of the top level columns of the source if all of them are of a primitive type, otherwise null.
+     * Their values are passed on typed, so that the document is created from them instead of parsing the source.
+     */
+    @Nullable
+    private final String[] fieldNames;
 
     InsertSourceFromCells(TransactionContext txnCtx,
                           Functions functions,
@@ -78,6 +94,33 @@ public final class InsertSourceFromCells implements InsertSourceGen {
             );
         }
         checks = new CheckConstraints<>(txnCtx, inputFactory, referenceResolver, table);
+        for (Map.Entry<Reference, Input<?>> entry : generatedColumns.toInject()) {
+            toInject.add(entry);
+        }
+        fieldNames = typedFieldNames(targets, toInject);
+    }
+
+    @Nullable
+    private static String[] typedFieldNames(List<Reference> targets, List<Map.Entry<Reference, Input<?>>> toInject) {
+        List<Reference> columns = new ArrayList<>(targets.size() + toInject.size());
+        for (Reference target : targets) {
+            // partitioned columns must not be included in the source
+            if (target.granularity() == RowGranularity.DOC) {
+                columns.add(target);
+            }
+        }
+        for (Map.Entry<Reference, Input<?>> entry : toInject) {
+            columns.add(entry.getKey());
+        }
+        Set<String> names = new HashSet<>();
+        for (Reference column : columns) {
+            if (column.column().isTopLevel() == false
+                || DataTypes.isPrimitive(column.valueType()) == false
+                || names.add(column.column().name()) == false) {
+                return null;
+            }
+        }
+        return names.isEmpty() ? null : Lists2.map(columns, c -> c.column().name()).toArray(new String[0]);
     }
 
     public void checkConstraints(Object[] values) {
@@ -85,7 +128,28 @@ public final class InsertSourceFromCells implements InsertSourceGen {
         checks.validate(row);
     }
 
+    @Override
+    public SourceToParse generateSourceToParse(String indexName, String id, Object[] values) throws IOException {
+        if (fieldNames == null) {
+            return InsertSourceGen.super.generateSourceToParse(indexName, id, values);
+        }
+        Object[] fieldValues = fieldValues(values);
+        return new SourceToParse(
+            indexName,
+            Constants.DEFAULT_MAPPING_TYPE,
+            id,
+            toSource(fieldValues),
+            XContentType.JSON,
+            null,
+            fieldNames,
+            fieldValues
+        );
+    }
+
     public BytesReference generateSource(Object[] values) throws IOException {
+        if (fieldNames != null) {
+            return toSource(fieldValues(values));
+        }
         HashMap<String, Object> source = new HashMap<>();
 
         row.cells(values);
@@ -101,7 +165,7 @@ public final class InsertSourceFromCells implements InsertSourceGen {
                 generatedColumns.validateValue(target, value);
             }
         }
-        for (Map.Entry<Reference, Input<?>> entry : generatedColumns.toInject()) {
+        for (Map.Entry<Reference, Input<?>> entry : toInject) {
             ColumnIdent column = entry.getKey().column();
             Maps.mergeInto(source, column.name(), column.path(), entry.getValue().value());
         }
@@ -109,6 +173,38 @@ public final class InsertSourceFromCells implements InsertSourceGen {
         return BytesReference.bytes(XContentFactory.jsonBuilder().map(source));
     }
 
+    /**
+     * Returns the values of the columns in {@link #fieldNames}: the values of the targets followed by the values
+     * of the generated columns.
+     */
+    private Object[] fieldValues(Object[] values) {
+        assert fieldNames != null : "fieldValues must only be used if all columns are top level primitives";
+        Object[] fieldValues = new Object[fieldNames.length];
+        int idx = 0;
+        row.cells(values);
+        generatedColumns.setNextRow(row);
+        for (int i = 0; i < targets.size(); i++) {
+            Reference target = targets.get(i);
+            if (target.granularity() == RowGranularity.DOC) {
+                Object value = values[i];
+                fieldValues[idx++] = value;
+                generatedColumns.validateValue(target, value);
+            }
+        }
+        for (Map.Entry<Reference, Input<?>> entry : toInject) {
+            fieldValues[idx++] = entry.getValue().value();
+        }
+        return fieldValues;
+    }
+
+    private BytesReference toSource(Object[] fieldValues) throws IOException {
+        XContentBuilder builder = XContentFactory.jsonBuilder().startObject();
+        for (int i = 0; i < fieldNames.length; i++) {
+            builder.field(fieldNames[i], fieldValues[i]);
+        }
+        return BytesReference.bytes(builder.endObject());
+    }
+
     private static class ReferencesFromInputRow implements ReferenceResolver<CollectExpression<Row, ?>> {
         private final List<Reference> targets;
         private final List<Reference> partitionedBy;
@@ -22,12 +22,15 @@
 
 package io.crate.execution.dml.upsert;
 
+import io.crate.Constants;
 import io.crate.metadata.TransactionContext;
 import io.crate.metadata.Functions;
 import io.crate.metadata.Reference;
 import io.crate.metadata.doc.DocSysColumns;
 import io.crate.metadata.doc.DocTableInfo;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.mapper.SourceToParse;
 
 import java.io.IOException;
 import java.util.List;
@@ -38,6 +41,15 @@ public interface InsertSourceGen {
 
     BytesReference generateSource(Object[] values) throws IOException;
 
+    /**
+     * Generates the source to index for the given values.
+     * Implementations may include the typed values of the top level columns, so that the document can be created
+     * from them without parsing the source again.
+     */
+    default SourceToParse generateSourceToParse(String indexName, String id, Object[] values) throws IOException {
+        return new SourceToParse(indexName, Constants.DEFAULT_MAPPING_TYPE, id, generateSource(values), XContentType.JSON);
+    }
+
 
     static InsertSourceGen of(TransactionContext txnCtx,
                               Functions functions,
@@ -276,6 +276,7 @@ public class TransportShardUpsertAction extends TransportShardAction<ShardUpsert
         final long seqNo;
         final long primaryTerm;
         final long version;
+        final SourceToParse sourceToParse;
         if (tryInsertFirst) {
             version = request.duplicateKeyAction() == DuplicateKeyAction.OVERWRITE
                 ? Versions.MATCH_ANY
@@ -284,10 +285,13 @@ public class TransportShardUpsertAction extends TransportShardAction<ShardUpsert
             primaryTerm = SequenceNumbers.UNASSIGNED_PRIMARY_TERM;
             try {
                 insertSourceGen.checkConstraints(item.insertValues());
-                item.source(insertSourceGen.generateSource(item.insertValues()));
+                // may carry the typed values, so that the document is created without parsing the source
+                sourceToParse = insertSourceGen.generateSourceToParse(
+                    indexShard.shardId().getIndexName(), item.id(), item.insertValues());
             } catch (IOException e) {
                 throw ExceptionsHelper.convertToElastic(e);
             }
+            item.source(sourceToParse.source());
         } else {
             Doc currentDoc = getDocument(indexShard, item.id(), item.version(), item.seqNo(), item.primaryTerm());
             BytesReference updatedSource = updateSourceGen.generateSource(
@@ -299,12 +303,12 @@ public class TransportShardUpsertAction extends TransportShardAction<ShardUpsert
             seqNo = item.seqNo();
             primaryTerm = item.primaryTerm();
             version = Versions.MATCH_ANY;
+            sourceToParse = new SourceToParse(indexShard.shardId().getIndexName(),
+                                              Constants.DEFAULT_MAPPING_TYPE,
+                                              item.id(),
+                                              item.source(),
+                                              XContentType.JSON);
         }
-        SourceToParse sourceToParse = new SourceToParse(indexShard.shardId().getIndexName(),
-                                                        Constants.DEFAULT_MAPPING_TYPE,
-                                                        item.id(),
-                                                        item.source(),
-                                                        XContentType.JSON);
         Engine.IndexResult indexResult = executeOnPrimaryHandlingMappingUpdate(
             indexShard.shardId(),
             () -> indexShard.applyIndexOperationOnPrimary(
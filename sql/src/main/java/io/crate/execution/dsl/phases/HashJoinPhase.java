@@ -43,8 +43,10 @@ public class HashJoinPhase extends JoinPhase {
     private final List<Symbol> rightJoinConditionInputs;
 
     private final Collection<DataType> leftOutputTypes;
+    private final Collection<DataType> rightOutputTypes;
     private final long estimatedRowSizeForLeft;
     private final long numberOfRowsForLeft;
+    private final int runtimeFilterColumn;
 
     public HashJoinPhase(UUID jobId,
                          int executionNodeId,
@@ -55,12 +57,15 @@ public class HashJoinPhase extends JoinPhase {
                          int numLeftOutputs,
                          int numRightOutputs,
                          Collection<String> executionNodes,
+                         JoinType joinType,
                          @Nullable Symbol joinCondition,
                          List<Symbol> leftJoinConditionInputs,
                          List<Symbol> rightJoinConditionInputs,
                          Collection<DataType> leftOutputTypes,
+                         Collection<DataType> rightOutputTypes,
                          long estimatedRowSizeForLeft,
-                         long numberOfRowsForLeft) {
+                         long numberOfRowsForLeft,
+                         int runtimeFilterColumn) {
         super(
             jobId,
             executionNodeId,
@@ -71,14 +76,18 @@ public class HashJoinPhase extends JoinPhase {
             numLeftOutputs,
             numRightOutputs,
             executionNodes,
-            JoinType.INNER,
+            joinType,
             joinCondition);
         assert joinCondition != null : "JoinCondition for HashJoin cannot be null";
+        assert joinType != JoinType.CROSS && joinType != JoinType.RIGHT
+            : "HashJoin doesn't support " + joinType + " joins, RIGHT joins must be executed as LEFT joins";
         this.leftJoinConditionInputs = leftJoinConditionInputs;
         this.rightJoinConditionInputs = rightJoinConditionInputs;
         this.leftOutputTypes = leftOutputTypes;
+        this.rightOutputTypes = rightOutputTypes;
         this.estimatedRowSizeForLeft = estimatedRowSizeForLeft;
         this.numberOfRowsForLeft = numberOfRowsForLeft;
+        this.runtimeFilterColumn = runtimeFilterColumn;
     }
 
     public HashJoinPhase(StreamInput in) throws IOException {
@@ -87,9 +96,11 @@ public class HashJoinPhase extends JoinPhase {
         leftJoinConditionInputs = Symbols.listFromStream(in);
         rightJoinConditionInputs = Symbols.listFromStream(in);
         leftOutputTypes = DataTypes.listFromStream(in);
+        rightOutputTypes = DataTypes.listFromStream(in);
 
         estimatedRowSizeForLeft = in.readZLong();
         numberOfRowsForLeft = in.readZLong();
+        runtimeFilterColumn = in.readInt();
     }
 
     @Override
@@ -99,9 +110,11 @@ public class HashJoinPhase extends JoinPhase {
         Symbols.toStream(leftJoinConditionInputs, out);
         Symbols.toStream(rightJoinConditionInputs, out);
         DataTypes.toStream(leftOutputTypes, out);
+        DataTypes.toStream(rightOutputTypes, out);
 
         out.writeZLong(estimatedRowSizeForLeft);
         out.writeZLong(numberOfRowsForLeft);
+        out.writeInt(runtimeFilterColumn);
     }
 
     @Override
@@ -126,6 +139,10 @@ public class HashJoinPhase extends JoinPhase {
         return leftOutputTypes;
     }
 
+    public Collection<DataType> rightOutputTypes() {
+        return rightOutputTypes;
+    }
+
     public long estimatedRowSizeForLeft() {
         return estimatedRowSizeForLeft;
     }
@@ -133,4 +150,13 @@ public class HashJoinPhase extends JoinPhase {
     public long numberOfRowsForLeft() {
         return numberOfRowsForLeft;
     }
+
+    /**
+     * The column of the left side which the right side is distributed by, or -1.
+     * If set, a {@link io.crate.execution.engine.distribution.RuntimeFilter} is created from the values of this column
+     * and sent to the upstreams of the right side, so that they skip rows which can't have a match.
+     */
+    public int runtimeFilterColumn() {
+        return runtimeFilterColumn;
+    }
 }
@@ -45,10 +45,22 @@ public class WindowAggProjection extends Projection {
     private final List<Symbol> standaloneWithInputs;
     private final LinkedHashMap<WindowFunction, List<Symbol>> functionsWithInputs;
     private final ArrayList<Symbol> outputs;
+    private final boolean sourceIsSorted;
 
     public WindowAggProjection(WindowDefinition windowDefinition,
                                LinkedHashMap<WindowFunction, List<Symbol>> functionsWithInputs,
                                List<Symbol> standaloneWithInputs) {
+        this(windowDefinition, functionsWithInputs, standaloneWithInputs, false);
+    }
+
+    /**
+     * @param sourceIsSorted true if the input rows are already sorted by the PARTITION BY and ORDER BY symbols of the
+     *                       window definition. This allows to compute the window functions one partition at a time.
+     */
+    public WindowAggProjection(WindowDefinition windowDefinition,
+                               LinkedHashMap<WindowFunction, List<Symbol>> functionsWithInputs,
+                               List<Symbol> standaloneWithInputs,
+                               boolean sourceIsSorted) {
         Set<WindowFunction> windowFunctions = functionsWithInputs.keySet();
         assert windowFunctions.stream().noneMatch(Symbols.IS_COLUMN)
             : "Cannot operate on Reference or Field: " + windowFunctions;
@@ -57,6 +69,7 @@ public class WindowAggProjection extends Projection {
         this.windowDefinition = windowDefinition;
         this.functionsWithInputs = functionsWithInputs;
         this.standaloneWithInputs = standaloneWithInputs;
+        this.sourceIsSorted = sourceIsSorted;
         outputs = new ArrayList<>(windowFunctions);
         outputs.addAll(standaloneWithInputs);
     }
@@ -71,6 +84,7 @@ public class WindowAggProjection extends Projection {
             List<Symbol> inputs = Symbols.listFromStream(in);
             functionsWithInputs.put(function, inputs);
         }
+        sourceIsSorted = in.readBoolean();
         outputs = new ArrayList<>(functionsWithInputs.keySet());
     }
 
@@ -86,18 +100,23 @@ public class WindowAggProjection extends Projection {
         return standaloneWithInputs;
     }
 
+    public boolean sourceIsSorted() {
+        return sourceIsSorted;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         WindowAggProjection that = (WindowAggProjection) o;
-        return Objects.equals(windowDefinition, that.windowDefinition) &&
+        return sourceIsSorted == that.sourceIsSorted &&
+               Objects.equals(windowDefinition, that.windowDefinition) &&
                Objects.equals(functionsWithInputs, that.functionsWithInputs);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(super.hashCode(), windowDefinition, functionsWithInputs);
+        return Objects.hash(super.hashCode(), windowDefinition, functionsWithInputs, sourceIsSorted);
     }
 
     @Override
@@ -124,6 +143,7 @@ public class WindowAggProjection extends Projection {
             Symbols.toStream(functionWithInputs.getKey(), out);
             Symbols.toStream(functionWithInputs.getValue(), out);
         }
+        out.writeBoolean(sourceIsSorted);
     }
 
     @Override
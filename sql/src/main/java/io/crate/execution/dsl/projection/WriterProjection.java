@@ -78,12 +78,18 @@ public class WriterProjection extends Projection {
     );
 
 
-    public static final Symbol DIRECTORY_TO_FILENAME = new Function(new FunctionInfo(
-        new FunctionIdent(FormatFunction.NAME, Arrays.<DataType>asList(StringType.INSTANCE,
-            StringType.INSTANCE, StringType.INSTANCE, StringType.INSTANCE)),
-        StringType.INSTANCE),
-        Arrays.asList(Literal.of("%s_%s_%s.json"), TABLE_NAME_REF, SHARD_ID_REF, PARTITION_IDENT_REF)
-    );
+    public static final Symbol DIRECTORY_TO_FILENAME = directoryToFileName("json");
+
+    public static final Symbol DIRECTORY_TO_COLUMNAR_FILENAME = directoryToFileName("columnar");
+
+    private static Symbol directoryToFileName(String extension) {
+        return new Function(new FunctionInfo(
+            new FunctionIdent(FormatFunction.NAME, Arrays.<DataType>asList(StringType.INSTANCE,
+                StringType.INSTANCE, StringType.INSTANCE, StringType.INSTANCE)),
+            StringType.INSTANCE),
+            Arrays.asList(Literal.of("%s_%s_%s." + extension), TABLE_NAME_REF, SHARD_ID_REF, PARTITION_IDENT_REF)
+        );
+    }
 
     private final Symbol uri;
     private final List<Symbol> inputs;
@@ -101,27 +107,47 @@ public class WriterProjection extends Projection {
 
     public enum OutputFormat {
         JSON_OBJECT,
-        JSON_ARRAY
+        JSON_ARRAY,
+        COLUMNAR
     }
 
     private final CompressionType compressionType;
 
     public enum CompressionType {
-        GZIP
+        GZIP(".gz"),
+        LZ4(".lz4"),
+        ZSTD(".zst");
+
+        private final String fileExtension;
+
+        CompressionType(String fileExtension) {
+            this.fileExtension = fileExtension;
+        }
+
+        public String fileExtension() {
+            return fileExtension;
+        }
     }
 
+    /**
+     * The number of files each shard writes concurrently
+     */
+    private final int numWriters;
+
     public WriterProjection(List<Symbol> inputs,
                             Symbol uri,
                             @Nullable CompressionType compressionType,
                             Map<ColumnIdent, Symbol> overwrites,
                             @Nullable List<String> outputNames,
-                            OutputFormat outputFormat) {
+                            OutputFormat outputFormat,
+                            int numWriters) {
         this.inputs = inputs;
         this.uri = uri;
         this.overwrites = overwrites;
         this.outputNames = outputNames;
         this.outputFormat = outputFormat;
         this.compressionType = compressionType;
+        this.numWriters = numWriters;
     }
 
     public WriterProjection(StreamInput in) throws IOException {
@@ -144,6 +170,7 @@ public class WriterProjection extends Projection {
         int compressionTypeOrdinal = in.readInt();
         compressionType = compressionTypeOrdinal >= 0 ? CompressionType.values()[compressionTypeOrdinal] : null;
         outputFormat = OutputFormat.values()[in.readInt()];
+        numWriters = in.readVInt();
     }
 
     @Override
@@ -185,6 +212,10 @@ public class WriterProjection extends Projection {
         return compressionType;
     }
 
+    public int numWriters() {
+        return numWriters;
+    }
+
     @Override
     public <C, R> R accept(ProjectionVisitor<C, R> visitor, C context) {
         return visitor.visitWriterProjection(this, context);
@@ -211,6 +242,7 @@ public class WriterProjection extends Projection {
         }
         out.writeInt(compressionType != null ? compressionType.ordinal() : -1);
         out.writeInt(outputFormat.ordinal());
+        out.writeVInt(numWriters);
     }
 
     @Override
@@ -227,6 +259,7 @@ public class WriterProjection extends Projection {
         if (!Objects.equals(compressionType, that.compressionType))
             return false;
         if (!outputFormat.equals(that.outputFormat)) return false;
+        if (numWriters != that.numWriters) return false;
 
         return true;
     }
@@ -239,6 +272,7 @@ public class WriterProjection extends Projection {
         result = 31 * result + overwrites.hashCode();
         result = 31 * result + (compressionType != null ? compressionType.hashCode() : 0);
         result = 31 * result + outputFormat.hashCode();
+        result = 31 * result + numWriters;
         return result;
     }
 
@@ -249,6 +283,7 @@ public class WriterProjection extends Projection {
                ", outputNames=" + outputNames +
                ", compressionType=" + compressionType +
                ", outputFormat=" + outputFormat +
+               ", numWriters=" + numWriters +
                '}';
     }
 
@@ -261,7 +296,8 @@ public class WriterProjection extends Projection {
                 compressionType,
                 overwrites,
                 outputNames,
-                outputFormat
+                outputFormat,
+                numWriters
             );
         }
         return this;
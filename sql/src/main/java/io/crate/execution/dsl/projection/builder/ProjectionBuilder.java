@@ -151,8 +151,10 @@ public class ProjectionBuilder {
                                                     @Nullable WriterProjection.CompressionType compressionType,
                                                     Map<ColumnIdent, Symbol> overwrites,
                                                     @Nullable List<String> outputNames,
-                                                    WriterProjection.OutputFormat outputFormat) {
+                                                    WriterProjection.OutputFormat outputFormat,
+                                                    int numWriters) {
         return new WriterProjection(
-            InputColumn.mapToInputColumns(inputs), uri, compressionType, overwrites, outputNames, outputFormat);
+            InputColumn.mapToInputColumns(inputs), uri, compressionType, overwrites, outputNames, outputFormat,
+            numWriters);
     }
 }
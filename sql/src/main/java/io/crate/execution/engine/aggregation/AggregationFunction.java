@@ -82,4 +82,42 @@ public abstract class AggregationFunction<TPartial, TFinal> implements FunctionI
     public abstract TFinal terminatePartial(RamAccountingContext ramAccountingContext, TPartial state);
 
     public abstract DataType partialType();
+
+    /**
+     * Indicates if the values added to a state with {@link #iterate(RamAccountingContext, Object, Input[])} can be
+     * removed again using {@link #removeFromAggregatedState(RamAccountingContext, Object, Input[])}.
+     * <p>
+     * This is used to compute aggregations over sliding window frames without re-aggregating all rows of a frame.
+     * <p>
+     * Removing a value must restore the state exactly. Implementations must return false if the state
+     * would accumulate rounding errors, e.g. a floating point sum of float/double or long values.
+     */
+    public boolean isRemovableCumulative() {
+        return false;
+    }
+
+    /**
+     * The inverse of {@link #iterate(RamAccountingContext, Object, Input[])}; removes the given input values,
+     * which must have been added to the state before, from the state.
+     * Only supported if {@link #isRemovableCumulative()} is true.
+     *
+     * @return The new/changed state. This might be either a new instance or the same but mutated instance.
+     */
+    public TPartial removeFromAggregatedState(RamAccountingContext ramAccountingContext,
+                                              TPartial previousAggState,
+                                              Input... stateToRemove) {
+        throw new UnsupportedOperationException(
+            "Function " + info().ident().name() + " doesn't support removing values from the aggregated state");
+    }
+
+    /**
+     * Indicates if {@link #iterate(RamAccountingContext, Object, Input[])} and
+     * {@link #reduce(RamAccountingContext, Object, Object)} never mutate the given states.
+     * <p>
+     * States of such functions can be shared, which allows to pre-aggregate ranges of rows once and combine them
+     * multiple times.
+     */
+    public boolean hasImmutableState() {
+        return false;
+    }
 }
@@ -0,0 +1,207 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import io.crate.breaker.RamAccountingContext;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.common.util.ObjectArray;
+
+/**
+ * Open addressing hash table which maps a fixed number of keys, each normalized to a {@code long},
+ * to a group id and stores the aggregation states of each group.
+ *
+ * <pre>
+ *  slots:  [ 0 | 2 | 0 | 1 | ... ]     group id + 1 per slot, 0 marks an empty slot (linear probing)
+ *  keys:   [ k0, k1, nullMask | k0, k1, nullMask | ... ]     per group id
+ *  states: [ s0, s1 | s0, s1 | ... ]                         per group id
+ * </pre>
+ *
+ * All arrays are paged arrays which are allocated via {@link BigArrays#NON_RECYCLING_INSTANCE}. The memory is
+ * accounted via the given {@link RamAccountingContext} instead of the request circuit breaker, because the
+ * table is handed over to the consumer as part of the result and therefore cannot be released explicitly.
+ */
+final class FixedWidthKeysGroupTable {
+
+    private static final BigArrays BIG_ARRAYS = BigArrays.NON_RECYCLING_INSTANCE;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private final RamAccountingContext ramAccounting;
+    private final int numKeys;
+    private final int keyStride;
+    private final int numStates;
+
+    private IntArray slots;
+    private LongArray keys;
+    private ObjectArray<Object> states;
+    private long mask;
+    private long maxSize;
+    private long size = 0;
+    private long accountedBytes = 0;
+
+    FixedWidthKeysGroupTable(int numKeys, int numStates, RamAccountingContext ramAccounting) {
+        assert numKeys > 0 && numKeys < Long.SIZE : "numKeys must be between 1 and 63 to fit the null mask";
+        this.ramAccounting = ramAccounting;
+        this.numKeys = numKeys;
+        this.keyStride = numKeys + 1;
+        this.numStates = numStates;
+        this.slots = BIG_ARRAYS.newIntArray(INITIAL_CAPACITY);
+        this.keys = BIG_ARRAYS.newLongArray((long) INITIAL_CAPACITY * keyStride, false);
+        this.states = BIG_ARRAYS.newObjectArray((long) INITIAL_CAPACITY * numStates);
+        this.mask = INITIAL_CAPACITY - 1;
+        this.maxSize = (long) (INITIAL_CAPACITY * LOAD_FACTOR);
+        accountMemory();
+    }
+
+    /**
+     * @return the number of groups
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Lookup the group of the given key or add a new group if there is none.
+     *
+     * @param key      the normalized key values; must have a length of {@code numKeys}
+     * @param nullMask bit {@code i} is set if key {@code i} is null; the key value itself is ignored in that case
+     * @return the group id if the group already existed, {@code -1 - groupId} if it has been added.
+     */
+    long findOrAdd(long[] key, long nullMask) {
+        long slot = hash(key, nullMask) & mask;
+        while (true) {
+            int groupIdPlusOne = slots.get(slot);
+            if (groupIdPlusOne == 0) {
+                break;
+            }
+            long groupId = groupIdPlusOne - 1;
+            if (keyEquals(groupId, key, nullMask)) {
+                return groupId;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size >= Integer.MAX_VALUE - 1) {
+            throw new IllegalStateException("Cannot group by more than " + (Integer.MAX_VALUE - 1) + " distinct keys");
+        }
+        long groupId = size;
+        size++;
+        slots.set(slot, (int) (groupId + 1));
+        keys = BIG_ARRAYS.grow(keys, size * keyStride);
+        long offset = groupId * keyStride;
+        for (int i = 0; i < numKeys; i++) {
+            keys.set(offset + i, isNull(nullMask, i) ? 0L : key[i]);
+        }
+        keys.set(offset + numKeys, nullMask);
+        states = BIG_ARRAYS.grow(states, size * numStates);
+        if (size >= maxSize) {
+            rehash();
+        }
+        accountMemory();
+        return -1 - groupId;
+    }
+
+    long key(long groupId, int keyIdx) {
+        return keys.get(groupId * keyStride + keyIdx);
+    }
+
+    boolean isNullKey(long groupId, int keyIdx) {
+        return isNull(keys.get(groupId * keyStride + numKeys), keyIdx);
+    }
+
+    Object state(long groupId, int stateIdx) {
+        return states.get(groupId * numStates + stateIdx);
+    }
+
+    void setState(long groupId, int stateIdx, Object state) {
+        states.set(groupId * numStates + stateIdx, state);
+    }
+
+    private boolean keyEquals(long groupId, long[] key, long nullMask) {
+        long offset = groupId * keyStride;
+        if (keys.get(offset + numKeys) != nullMask) {
+            return false;
+        }
+        for (int i = 0; i < numKeys; i++) {
+            if (!isNull(nullMask, i) && keys.get(offset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        long newCapacity = (mask + 1) << 1;
+        IntArray newSlots = BIG_ARRAYS.newIntArray(newCapacity);
+        long newMask = newCapacity - 1;
+        long[] key = new long[numKeys];
+        for (long groupId = 0; groupId < size; groupId++) {
+            long offset = groupId * keyStride;
+            for (int i = 0; i < numKeys; i++) {
+                key[i] = keys.get(offset + i);
+            }
+            long slot = hash(key, keys.get(offset + numKeys)) & newMask;
+            while (newSlots.get(slot) != 0) {
+                slot = (slot + 1) & newMask;
+            }
+            newSlots.set(slot, (int) (groupId + 1));
+        }
+        slots.close();
+        slots = newSlots;
+        mask = newMask;
+        maxSize = (long) (newCapacity * LOAD_FACTOR);
+    }
+
+    private void accountMemory() {
+        long usedBytes = slots.ramBytesUsed() + keys.ramBytesUsed() + states.ramBytesUsed();
+        ramAccounting.addBytes(usedBytes - accountedBytes);
+        accountedBytes = usedBytes;
+    }
+
+    private long hash(long[] key, long nullMask) {
+        long h = mix(nullMask);
+        for (int i = 0; i < numKeys; i++) {
+            if (!isNull(nullMask, i)) {
+                h = 31 * h + mix(key[i]);
+            }
+        }
+        return mix(h);
+    }
+
+    private static boolean isNull(long nullMask, int keyIdx) {
+        return (nullMask & (1L << keyIdx)) != 0;
+    }
+
+    /**
+     * Finalization step of MurmurHash3 to spread sequential keys over the slots
+     */
+    private static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import io.crate.breaker.RamAccountingContext;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.expression.symbol.AggregateMode;
+import io.crate.types.BooleanType;
+import io.crate.types.ByteType;
+import io.crate.types.DataType;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.TimestampType;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.util.BigArrays;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * Collector implementation for group by operations on one or more keys which all have a fixed width type.
+ *
+ * The key values are normalized into {@code long}s and looked up in a {@link FixedWidthKeysGroupTable}, so that
+ * neither a composite key object nor a map entry has to be allocated per input row.
+ */
+public final class GroupByFixedWidthKeysCollector implements Collector<Row, FixedWidthKeysGroupTable, Iterable<Row>> {
+
+    private final CollectExpression<Row, ?>[] expressions;
+    private final AggregateMode mode;
+    private final AggregationFunction[] aggregations;
+    private final Input[][] inputs;
+    private final RamAccountingContext ramAccounting;
+    private final List<Input<?>> keyInputs;
+    private final int[] keyTypeIds;
+    private final Version indexVersionCreated;
+    private final BigArrays bigArrays;
+    private final BiConsumer<FixedWidthKeysGroupTable, Row> accumulator;
+    private final long[] keyBuffer;
+
+    GroupByFixedWidthKeysCollector(List<? extends DataType> keyTypes,
+                                   List<Input<?>> keyInputs,
+                                   CollectExpression<Row, ?>[] expressions,
+                                   AggregateMode mode,
+                                   AggregationFunction[] aggregations,
+                                   Input[][] inputs,
+                                   RamAccountingContext ramAccounting,
+                                   Version indexVersionCreated,
+                                   BigArrays bigArrays) {
+        assert keyTypes.size() == keyInputs.size() : "number of key types must match with number of key inputs";
+        if (!supportsKeyTypes(keyTypes)) {
+            throw new IllegalArgumentException(
+                "Fixed width keys collector is only supported for up to " + (Long.SIZE - 1) +
+                " keys of numeric, timestamp or boolean types, but received " + keyTypes);
+        }
+        this.keyTypeIds = new int[keyTypes.size()];
+        for (int i = 0; i < keyTypeIds.length; i++) {
+            keyTypeIds[i] = keyTypes.get(i).id();
+        }
+        this.keyInputs = keyInputs;
+        this.expressions = expressions;
+        this.mode = mode;
+        this.aggregations = aggregations;
+        this.inputs = inputs;
+        this.ramAccounting = ramAccounting;
+        this.indexVersionCreated = indexVersionCreated;
+        this.bigArrays = bigArrays;
+        this.keyBuffer = new long[keyInputs.size()];
+        this.accumulator = mode == AggregateMode.PARTIAL_FINAL ? this::reduce : this::iter;
+    }
+
+    /**
+     * @return true if all keys can be normalized into a {@code long} without losing information.
+     */
+    static boolean supportsKeyTypes(List<? extends DataType> keyTypes) {
+        if (keyTypes.isEmpty() || keyTypes.size() >= Long.SIZE) {
+            return false;
+        }
+        for (DataType keyType : keyTypes) {
+            switch (keyType.id()) {
+                case ByteType.ID:
+                case ShortType.ID:
+                case IntegerType.ID:
+                case LongType.ID:
+                case TimestampType.ID_WITH_TZ:
+                case TimestampType.ID_WITHOUT_TZ:
+                case FloatType.ID:
+                case DoubleType.ID:
+                case BooleanType.ID:
+                    break;
+
+                default:
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Supplier<FixedWidthKeysGroupTable> supplier() {
+        return () -> new FixedWidthKeysGroupTable(keyTypeIds.length, aggregations.length, ramAccounting);
+    }
+
+    @Override
+    public BiConsumer<FixedWidthKeysGroupTable, Row> accumulator() {
+        return accumulator;
+    }
+
+    @Override
+    public BinaryOperator<FixedWidthKeysGroupTable> combiner() {
+        return (state1, state2) -> {
+            throw new UnsupportedOperationException("Combine not supported");
+        };
+    }
+
+    @Override
+    public Function<FixedWidthKeysGroupTable, Iterable<Row>> finisher() {
+        return this::groupsToRows;
+    }
+
+    @Override
+    public Set<Characteristics> characteristics() {
+        return Collections.emptySet();
+    }
+
+    private void iter(FixedWidthKeysGroupTable groups, Row row) {
+        for (CollectExpression<Row, ?> expression : expressions) {
+            expression.setNextRow(row);
+        }
+        long groupId = groups.findOrAdd(keyBuffer, readKeys());
+        if (groupId < 0) {
+            groupId = -1 - groupId;
+            for (int i = 0; i < aggregations.length; i++) {
+                AggregationFunction aggregation = aggregations[i];
+                //noinspection unchecked
+                groups.setState(groupId, i, aggregation.iterate(
+                    ramAccounting,
+                    aggregation.newState(ramAccounting, indexVersionCreated, bigArrays),
+                    inputs[i]
+                ));
+            }
+        } else {
+            for (int i = 0; i < aggregations.length; i++) {
+                //noinspection unchecked
+                groups.setState(groupId, i, aggregations[i].iterate(ramAccounting, groups.state(groupId, i), inputs[i]));
+            }
+        }
+    }
+
+    private void reduce(FixedWidthKeysGroupTable groups, Row row) {
+        for (CollectExpression<Row, ?> expression : expressions) {
+            expression.setNextRow(row);
+        }
+        long groupId = groups.findOrAdd(keyBuffer, readKeys());
+        if (groupId < 0) {
+            groupId = -1 - groupId;
+            for (int i = 0; i < aggregations.length; i++) {
+                groups.setState(groupId, i, inputs[i][0].value());
+            }
+        } else {
+            for (int i = 0; i < aggregations.length; i++) {
+                //noinspection unchecked
+                groups.setState(groupId, i, aggregations[i].reduce(
+                    ramAccounting, groups.state(groupId, i), inputs[i][0].value()));
+            }
+        }
+    }
+
+    /**
+     * Writes the normalized key values into {@link #keyBuffer}
+     *
+     * @return the null mask of the keys
+     */
+    private long readKeys() {
+        long nullMask = 0L;
+        for (int i = 0; i < keyTypeIds.length; i++) {
+            Object value = keyInputs.get(i).value();
+            if (value == null) {
+                nullMask |= 1L << i;
+                keyBuffer[i] = 0L;
+            } else {
+                keyBuffer[i] = toLong(keyTypeIds[i], value);
+            }
+        }
+        return nullMask;
+    }
+
+    private static long toLong(int typeId, Object value) {
+        switch (typeId) {
+            case FloatType.ID:
+                // same equality semantics as Float.equals
+                return Float.floatToIntBits((Float) value);
+            case DoubleType.ID:
+                // same equality semantics as Double.equals
+                return Double.doubleToLongBits((Double) value);
+            case BooleanType.ID:
+                return ((Boolean) value) ? 1L : 0L;
+            default:
+                return ((Number) value).longValue();
+        }
+    }
+
+    private static Object fromLong(int typeId, long value) {
+        switch (typeId) {
+            case ByteType.ID:
+                return (byte) value;
+            case ShortType.ID:
+                return (short) value;
+            case IntegerType.ID:
+                return (int) value;
+            case FloatType.ID:
+                return Float.intBitsToFloat((int) value);
+            case DoubleType.ID:
+                return Double.longBitsToDouble(value);
+            case BooleanType.ID:
+                return value == 1L;
+            default:
+                return value;
+        }
+    }
+
+    private Iterable<Row> groupsToRows(FixedWidthKeysGroupTable groups) {
+        int numKeys = keyTypeIds.length;
+        return () -> new Iterator<>() {
+
+            final Object[] cells = new Object[numKeys + aggregations.length];
+            final Row row = new RowN(cells);
+            long groupId = 0;
+
+            @Override
+            public boolean hasNext() {
+                return groupId < groups.size();
+            }
+
+            @Override
+            public Row next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("Iterator is exhausted");
+                }
+                for (int i = 0; i < numKeys; i++) {
+                    cells[i] = groups.isNullKey(groupId, i) ? null : fromLong(keyTypeIds[i], groups.key(groupId, i));
+                }
+                for (int i = 0; i < aggregations.length; i++) {
+                    //noinspection unchecked
+                    cells[numKeys + i] = mode.finishCollect(ramAccounting, aggregations[i], groups.state(groupId, i));
+                }
+                groupId++;
+                return row;
+            }
+        };
+    }
+}
@@ -23,6 +23,7 @@
 package io.crate.execution.engine.aggregation;
 
 import com.google.common.collect.Iterables;
+import io.crate.Streamer;
 import io.crate.breaker.RamAccountingContext;
 import io.crate.breaker.SizeEstimator;
 import io.crate.breaker.SizeEstimatorFactory;
@@ -30,17 +31,23 @@ import io.crate.data.Input;
 import io.crate.data.Row;
 import io.crate.data.RowN;
 import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.spill.RowSpillFile;
 import io.crate.expression.symbol.AggregateMode;
 import io.crate.types.DataType;
 import org.elasticsearch.Version;
 import org.elasticsearch.common.util.BigArrays;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
@@ -52,9 +59,39 @@ import java.util.stream.Collector;
  * Collector implementation which uses {@link AggregateMode}s and {@code keyInputs}
  * to group rows by key and aggregate the grouped values.
  *
+ * <p>
+ * If a {@code spillPath} is given, the groups are spilled to disk once the used bytes of the circuit breaker
+ * reach the {@code spillThreshold} fraction of its limit:
+ * </p>
+ *
+ * <pre>
+ *  - The keys and partial states of all groups are written into one of {@link #NUM_SPILL_PARTITIONS} files,
+ *    picked by the hash of the key, and the memory of the groups is released.
+ *  - Once all rows are consumed the remaining groups are spilled as well.
+ *  - The partitions are merged one by one by reducing the partial states of the same key.
+ *    The results are written into a result file from which the rows are read.
+ *  - If the groups of a partition don't fit into memory either, the partition is split again into
+ *    {@link #NUM_SPILL_PARTITIONS} partitions using a hash with a different seed, up to {@link #MAX_PARTITION_LEVEL}.
+ * </pre>
+ *
+ * The spill files are deleted on {@link #releaseSpillFiles()}
+ *
  * @param <K> type of the key
  */
-public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, Iterable<Row>> {
+public class GroupingCollector<K> implements Collector<Row, GroupingCollector.Groups<K>, Iterable<Row>> {
+
+    static final int NUM_SPILL_PARTITIONS = 16;
+
+    /**
+     * Number of times a partition may be split up again while merging.
+     * Beyond that the keys of a partition are likely the same, so splitting it up further wouldn't help.
+     */
+    static final int MAX_PARTITION_LEVEL = 3;
+
+    /**
+     * Checking the circuit breaker is cheap, but not free, so only check it after this many groups have been added
+     */
+    private static final int SPILL_CHECK_INTERVAL = 1024;
 
     private final CollectExpression<Row, ?>[] expressions;
     private final AggregationFunction[] aggregations;
@@ -67,7 +104,13 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
     private final Function<Row, K> keyExtractor;
     private final Version indexVersionCreated;
     private final BigArrays bigArrays;
-    private final BiConsumer<Map<K, Object[]>, Row> accumulator;
+    private final BiConsumer<Groups<K>, Row> accumulator;
+    private final List<? extends DataType> keyTypes;
+    private final Function<Object[], K> keyFromCells;
+    private final double spillThreshold;
+    @Nullable
+    private final Path spillPath;
+    private final List<RowSpillFile> spillFiles = new ArrayList<>();
 
     static GroupingCollector<Object> singleKey(CollectExpression<Row, ?>[] expressions,
                                                AggregateMode mode,
@@ -77,7 +120,9 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
                                                Input<?> keyInput,
                                                DataType keyType,
                                                Version indexVersionCreated,
-                                               BigArrays bigArrays) {
+                                               BigArrays bigArrays,
+                                               double spillThreshold,
+                                               @Nullable Path spillPath) {
         return new GroupingCollector<>(
             expressions,
             aggregations,
@@ -89,7 +134,11 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
             SizeEstimatorFactory.create(keyType),
             row -> keyInput.value(),
             indexVersionCreated,
-            bigArrays
+            bigArrays,
+            Collections.singletonList(keyType),
+            cells -> cells[0],
+            spillThreshold,
+            spillPath
         );
     }
 
@@ -101,7 +150,10 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
                                                     List<Input<?>> keyInputs,
                                                     List<? extends DataType> keyTypes,
                                                     Version indexVersionCreated,
-                                                    BigArrays bigArrays) {
+                                                    BigArrays bigArrays,
+                                                    double spillThreshold,
+                                                    @Nullable Path spillPath) {
+        int numKeys = keyInputs.size();
         return new GroupingCollector<>(
             expressions,
             aggregations,
@@ -109,11 +161,15 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
             inputs,
             ramAccountingContext,
             GroupingCollector::applyKeysToCells,
-            keyInputs.size(),
+            numKeys,
             new MultiSizeEstimator(keyTypes),
             row -> evalKeyInputs(keyInputs),
             indexVersionCreated,
-            bigArrays
+            bigArrays,
+            keyTypes,
+            cells -> new ArrayList<>(Arrays.asList(cells).subList(0, numKeys)),
+            spillThreshold,
+            spillPath
         );
     }
 
@@ -141,7 +197,11 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
                               SizeEstimator<K> keySizeEstimator,
                               Function<Row, K> keyExtractor,
                               Version indexVersionCreated,
-                              BigArrays bigArrays) {
+                              BigArrays bigArrays,
+                              List<? extends DataType> keyTypes,
+                              Function<Object[], K> keyFromCells,
+                              double spillThreshold,
+                              @Nullable Path spillPath) {
         this.expressions = expressions;
         this.aggregations = aggregations;
         this.mode = mode;
@@ -153,29 +213,57 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
         this.keyExtractor = keyExtractor;
         this.indexVersionCreated = indexVersionCreated;
         this.bigArrays = bigArrays;
+        this.keyTypes = keyTypes;
+        this.keyFromCells = keyFromCells;
+        this.spillThreshold = spillThreshold;
+        this.spillPath = spillPath;
         this.accumulator = mode == AggregateMode.PARTIAL_FINAL ? this::reduce : this::iter;
     }
 
+    static final class Groups<K> {
+
+        private final Map<K, Object[]> statesByKey = new HashMap<>();
+
+        /**
+         * The bytes this collector added to the ramAccountingContext for the current in-memory groups.
+         * The context may be shared, so only these bytes are released on a spill.
+         */
+        private long reservedBytes = 0;
+
+        @Nullable
+        private RowSpillFile[] partitions;
+    }
+
     @Override
-    public Supplier<Map<K, Object[]>> supplier() {
-        return HashMap::new;
+    public Supplier<Groups<K>> supplier() {
+        return Groups::new;
     }
 
     @Override
-    public BiConsumer<Map<K, Object[]>, Row> accumulator() {
+    public BiConsumer<Groups<K>, Row> accumulator() {
         return accumulator;
     }
 
     @Override
-    public BinaryOperator<Map<K, Object[]>> combiner() {
+    public BinaryOperator<Groups<K>> combiner() {
         return (state1, state2) -> {
             throw new UnsupportedOperationException("combine not supported");
         };
     }
 
     @Override
-    public Function<Map<K, Object[]>, Iterable<Row>> finisher() {
-        return this::mapToRows;
+    public Function<Groups<K>, Iterable<Row>> finisher() {
+        return groups -> {
+            if (groups.partitions == null) {
+                return mapToRows(groups.statesByKey);
+            }
+            try {
+                spill(groups);
+                return mergePartitions(groups.partitions);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
     }
 
     @Override
@@ -183,50 +271,65 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
         return Collections.emptySet();
     }
 
-    private void reduce(Map<K, Object[]> statesByKey, Row row) {
+    private void reduce(Groups<K> groups, Row row) {
         for (CollectExpression<Row, ?> expression : expressions) {
             expression.setNextRow(row);
         }
         K key = keyExtractor.apply(row);
-        Object[] states = statesByKey.get(key);
+        Object[] states = groups.statesByKey.get(key);
         if (states == null) {
             states = new Object[aggregations.length];
             for (int i = 0; i < aggregations.length; i++) {
                 states[i] = inputs[i][0].value();
             }
-            addWithAccounting(statesByKey, key, states);
+            addWithAccounting(groups, key, states);
         } else {
+            long bytesBefore = ramAccountingContext.totalBytes();
             for (int i = 0; i < aggregations.length; i++) {
                 states[i] = aggregations[i].reduce(ramAccountingContext, states[i], inputs[i][0].value());
             }
+            groups.reservedBytes += ramAccountingContext.totalBytes() - bytesBefore;
         }
     }
 
-    private void addWithAccounting(Map<K, Object[]> statesByKey, K key, Object[] states) {
-        // key size + 32 bytes for entry + 4 bytes for increased capacity
-        ramAccountingContext.addBytes(RamAccountingContext.roundUp(keySizeEstimator.estimateSize(key) + 36L));
-        statesByKey.put(key, states);
+    private void addWithAccounting(Groups<K> groups, K key, Object[] states) {
+        long entryBytes = entryBytes(key);
+        ramAccountingContext.addBytes(entryBytes);
+        groups.reservedBytes += entryBytes;
+        groups.statesByKey.put(key, states);
+        if (spillPath != null
+            && groups.statesByKey.size() % SPILL_CHECK_INTERVAL == 0
+            && ramAccountingContext.reachedBreakerLimitFraction(spillThreshold)) {
+            try {
+                spill(groups);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
     }
 
-    private void iter(Map<K, Object[]> statesByKey, Row row) {
+    private void iter(Groups<K> groups, Row row) {
         for (CollectExpression<Row, ?> expression : expressions) {
             expression.setNextRow(row);
         }
         K key = keyExtractor.apply(row);
-        Object[] states = statesByKey.get(key);
+        Object[] states = groups.statesByKey.get(key);
         if (states == null) {
-            addNewEntry(statesByKey, key);
+            addNewEntry(groups, key);
         } else {
+            long bytesBefore = ramAccountingContext.totalBytes();
             for (int i = 0; i < aggregations.length; i++) {
                 //noinspection unchecked
                 states[i] = aggregations[i].iterate(ramAccountingContext, states[i], inputs[i]);
             }
+            groups.reservedBytes += ramAccountingContext.totalBytes() - bytesBefore;
         }
     }
 
-    private void addNewEntry(Map<K, Object[]> statesByKey, K key) {
+    private void addNewEntry(Groups<K> groups, K key) {
         Object[] states;
         states = new Object[aggregations.length];
+        long bytesBefore = ramAccountingContext.totalBytes();
         for (int i = 0; i < aggregations.length; i++) {
             AggregationFunction aggregation = aggregations[i];
             //noinspection unchecked
@@ -234,7 +337,178 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
                 ramAccountingContext,
                 aggregation.newState(ramAccountingContext, indexVersionCreated, bigArrays), inputs[i]);
         }
-        addWithAccounting(statesByKey, key, states);
+        groups.reservedBytes += ramAccountingContext.totalBytes() - bytesBefore;
+        addWithAccounting(groups, key, states);
+    }
+
+    private long entryBytes(K key) {
+        // key size + 32 bytes for entry + 4 bytes for increased capacity
+        return RamAccountingContext.roundUp(keySizeEstimator.estimateSize(key) + 36L);
+    }
+
+    /**
+     * Writes the keys and partial states of the in-memory groups into the partition files and releases their memory.
+     */
+    private void spill(Groups<K> groups) throws IOException {
+        assert spillPath != null : "spillPath must be set if groups are spilled";
+        if (groups.partitions == null) {
+            groups.partitions = newPartitions();
+        }
+        writeStates(groups.statesByKey, groups.partitions, 0);
+        groups.statesByKey.clear();
+        ramAccountingContext.releaseBytes(groups.reservedBytes);
+        groups.reservedBytes = 0;
+    }
+
+    private RowSpillFile[] newPartitions() throws IOException {
+        Streamer<?>[] streamers = spillStreamers();
+        RowSpillFile[] partitions = new RowSpillFile[NUM_SPILL_PARTITIONS];
+        for (int i = 0; i < NUM_SPILL_PARTITIONS; i++) {
+            partitions[i] = newSpillFile(streamers);
+        }
+        return partitions;
+    }
+
+    private void writeStates(Map<K, Object[]> statesByKey, RowSpillFile[] partitions, int level) throws IOException {
+        Object[] cells = new Object[numKeyColumns + aggregations.length];
+        for (Map.Entry<K, Object[]> entry : statesByKey.entrySet()) {
+            K key = entry.getKey();
+            applyKeyToCells.accept(key, cells);
+            System.arraycopy(entry.getValue(), 0, cells, numKeyColumns, aggregations.length);
+            partitions[partition(key, level)].add(cells);
+        }
+    }
+
+    private Iterable<Row> mergePartitions(RowSpillFile[] partitions) throws IOException {
+        Streamer<?>[] resultStreamers = new Streamer[numKeyColumns + aggregations.length];
+        for (int i = 0; i < numKeyColumns; i++) {
+            resultStreamers[i] = keyTypes.get(i).streamer();
+        }
+        for (int i = 0; i < aggregations.length; i++) {
+            resultStreamers[numKeyColumns + i] = mode.returnType(aggregations[i]).streamer();
+        }
+        RowSpillFile result = newSpillFile(resultStreamers);
+        mergePartitions(partitions, 0, result);
+        result.finishWriting();
+        return result;
+    }
+
+    private void mergePartitions(RowSpillFile[] partitions, int level, RowSpillFile result) throws IOException {
+        for (RowSpillFile partition : partitions) {
+            partition.finishWriting();
+            RowSpillFile[] subPartitions = mergePartition(partition, level, result);
+            partition.close();
+            if (subPartitions != null) {
+                mergePartitions(subPartitions, level + 1, result);
+            }
+        }
+    }
+
+    /**
+     * Reduces the states of the same keys of a partition and writes the final rows into the result.
+     *
+     * @return null if the partition has been merged, or the partitions of the next level into which the partition has
+     *         been split because its groups didn't fit into memory. These still need to be merged.
+     */
+    @Nullable
+    private RowSpillFile[] mergePartition(RowSpillFile partition, int level, RowSpillFile result) throws IOException {
+        Map<K, Object[]> statesByKey = new HashMap<>();
+        RowSpillFile[] subPartitions = null;
+        long reservedBytes = 0;
+        try {
+            for (Row row : partition) {
+                Object[] cells = row.materialize();
+                K key = keyFromCells.apply(cells);
+                if (subPartitions != null) {
+                    subPartitions[partition(key, level + 1)].add(cells);
+                    continue;
+                }
+                Object[] states = statesByKey.get(key);
+                long bytesBefore = ramAccountingContext.totalBytes();
+                if (states == null) {
+                    ramAccountingContext.addBytes(entryBytes(key));
+                    statesByKey.put(key, Arrays.copyOfRange(cells, numKeyColumns, cells.length));
+                } else {
+                    for (int i = 0; i < aggregations.length; i++) {
+                        //noinspection unchecked
+                        states[i] = aggregations[i].reduce(ramAccountingContext, states[i], cells[numKeyColumns + i]);
+                    }
+                }
+                reservedBytes += ramAccountingContext.totalBytes() - bytesBefore;
+                if (states == null
+                    && level < MAX_PARTITION_LEVEL
+                    && statesByKey.size() % SPILL_CHECK_INTERVAL == 0
+                    && ramAccountingContext.reachedBreakerLimitFraction(spillThreshold)) {
+                    subPartitions = newPartitions();
+                    writeStates(statesByKey, subPartitions, level + 1);
+                    statesByKey.clear();
+                    ramAccountingContext.releaseBytes(reservedBytes);
+                    reservedBytes = 0;
+                }
+            }
+            if (subPartitions == null) {
+                for (Row row : mapToRows(statesByKey)) {
+                    result.add(row);
+                }
+            }
+        } finally {
+            ramAccountingContext.releaseBytes(reservedBytes);
+        }
+        return subPartitions;
+    }
+
+    private Streamer<?>[] spillStreamers() {
+        Streamer<?>[] streamers = new Streamer[numKeyColumns + aggregations.length];
+        for (int i = 0; i < numKeyColumns; i++) {
+            streamers[i] = keyTypes.get(i).streamer();
+        }
+        for (int i = 0; i < aggregations.length; i++) {
+            streamers[numKeyColumns + i] = aggregations[i].partialType().streamer();
+        }
+        return streamers;
+    }
+
+    private RowSpillFile newSpillFile(Streamer<?>[] streamers) throws IOException {
+        RowSpillFile spillFile = RowSpillFile.create(spillPath, streamers);
+        spillFiles.add(spillFile);
+        return spillFile;
+    }
+
+    /**
+     * @param level the number of times the groups have been partitioned before; each level uses a different seed,
+     *              so that the keys of one partition are spread across all partitions of the next level.
+     */
+    static int partition(@Nullable Object key, int level) {
+        int h = Objects.hashCode(key) + level * 0x9e3779b9;
+        // spread the bits, keys are often sequential numbers
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        h *= 0xc2b2ae35;
+        h ^= (h >>> 16);
+        return Math.floorMod(h, NUM_SPILL_PARTITIONS);
+    }
+
+    /**
+     * Closes and deletes all files which have been created to spill groups.
+     */
+    void releaseSpillFiles() {
+        IOException failure = null;
+        for (RowSpillFile spillFile : spillFiles) {
+            try {
+                spillFile.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        spillFiles.clear();
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+    }
+
+    boolean spillEnabled() {
+        return spillPath != null;
     }
 
     private Iterable<Row> mapToRows(Map<K, Object[]> statesByKey) {
@@ -24,6 +24,7 @@ package io.crate.execution.engine.aggregation;
 
 import io.crate.breaker.RamAccountingContext;
 import io.crate.data.BatchIterator;
+import io.crate.data.BatchIterators;
 import io.crate.data.CollectingBatchIterator;
 import io.crate.data.Input;
 import io.crate.data.Projector;
@@ -37,6 +38,8 @@ import io.crate.types.DataTypes;
 import org.elasticsearch.Version;
 import org.elasticsearch.common.util.BigArrays;
 
+import javax.annotation.Nullable;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.stream.Collector;
 
@@ -54,7 +57,9 @@ public class GroupingProjector implements Projector {
                              AggregationContext[] aggregations,
                              RamAccountingContext ramAccountingContext,
                              Version indexVersionCreated,
-                             BigArrays bigArrays) {
+                             BigArrays bigArrays,
+                             double spillThreshold,
+                             @Nullable Path spillPath) {
         assert keys.size() == keyInputs.size() : "number of key types must match with number of key inputs";
         ensureAllTypesSupported(keys);
 
@@ -65,7 +70,26 @@ public class GroupingProjector implements Projector {
             functions[i] = aggregation.function();
             inputs[i] = aggregation.inputs();
         }
-        if (keys.size() == 1) {
+        List<DataType> keyTypes = typeView(keys);
+        if (spillPath != null) {
+            // Only the generic collector supports spilling. The single number and fixed width key collectors
+            // keep their groups in BigArrays-backed tables which can't be partitioned to disk, so with
+            // spilling enabled every GROUP BY uses the generic collector. It needs more memory per group,
+            // which is the trade-off for not failing queries whose groups don't fit into memory.
+            collector = createGroupingCollector(
+                keys,
+                keyInputs,
+                collectExpressions,
+                mode,
+                functions,
+                inputs,
+                ramAccountingContext,
+                indexVersionCreated,
+                bigArrays,
+                spillThreshold,
+                spillPath
+            );
+        } else if (keys.size() == 1) {
             Symbol key = keys.get(0);
             if (DataTypes.NUMERIC_PRIMITIVE_TYPES.contains(key.valueType()) &&
                 !key.valueType().equals(DataTypes.FLOAT) &&
@@ -81,33 +105,101 @@ public class GroupingProjector implements Projector {
                     indexVersionCreated,
                     bigArrays
                 );
-            } else {
-                collector = GroupingCollector.singleKey(
+            } else if (GroupByFixedWidthKeysCollector.supportsKeyTypes(keyTypes)) {
+                collector = new GroupByFixedWidthKeysCollector(
+                    keyTypes,
+                    keyInputs,
                     collectExpressions,
                     mode,
                     functions,
                     inputs,
                     ramAccountingContext,
-                    keyInputs.get(0),
-                    key.valueType(),
                     indexVersionCreated,
                     bigArrays
                 );
+            } else {
+                collector = createGroupingCollector(
+                    keys,
+                    keyInputs,
+                    collectExpressions,
+                    mode,
+                    functions,
+                    inputs,
+                    ramAccountingContext,
+                    indexVersionCreated,
+                    bigArrays,
+                    spillThreshold,
+                    null
+                );
             }
-        } else {
-            //noinspection unchecked
-            collector = (GroupingCollector<Object>) (GroupingCollector) GroupingCollector.manyKeys(
+        } else if (GroupByFixedWidthKeysCollector.supportsKeyTypes(keyTypes)) {
+            collector = new GroupByFixedWidthKeysCollector(
+                keyTypes,
+                keyInputs,
                 collectExpressions,
                 mode,
                 functions,
                 inputs,
                 ramAccountingContext,
-                keyInputs,
-                typeView(keys),
                 indexVersionCreated,
                 bigArrays
             );
+        } else {
+            collector = createGroupingCollector(
+                keys,
+                keyInputs,
+                collectExpressions,
+                mode,
+                functions,
+                inputs,
+                ramAccountingContext,
+                indexVersionCreated,
+                bigArrays,
+                spillThreshold,
+                null
+            );
+        }
+    }
+
+    private static GroupingCollector<?> createGroupingCollector(List<? extends Symbol> keys,
+                                                                List<Input<?>> keyInputs,
+                                                                CollectExpression<Row, ?>[] collectExpressions,
+                                                                AggregateMode mode,
+                                                                AggregationFunction[] functions,
+                                                                Input[][] inputs,
+                                                                RamAccountingContext ramAccountingContext,
+                                                                Version indexVersionCreated,
+                                                                BigArrays bigArrays,
+                                                                double spillThreshold,
+                                                                @Nullable Path spillPath) {
+        if (keys.size() == 1) {
+            return GroupingCollector.singleKey(
+                collectExpressions,
+                mode,
+                functions,
+                inputs,
+                ramAccountingContext,
+                keyInputs.get(0),
+                keys.get(0).valueType(),
+                indexVersionCreated,
+                bigArrays,
+                spillThreshold,
+                spillPath
+            );
         }
+        return GroupingCollector.manyKeys(
+            collectExpressions,
+            mode,
+            functions,
+            inputs,
+            ramAccountingContext,
+            keyInputs,
+            typeView(keys),
+            indexVersionCreated,
+            bigArrays,
+            spillThreshold,
+            spillPath
+        );
     }
 
     private static void ensureAllTypesSupported(Iterable<? extends Symbol> keys) {
@@ -121,6 +213,21 @@ public class GroupingProjector implements Projector {
 
     @Override
     public BatchIterator<Row> apply(BatchIterator<Row> batchIterator) {
+        if (collector instanceof GroupingCollector && ((GroupingCollector<?>) collector).spillEnabled()) {
+            GroupingCollector<?> spillingCollector = (GroupingCollector<?>) collector;
+            return CollectingBatchIterator.newInstance(
+                () -> {
+                    try {
+                        batchIterator.close();
+                    } finally {
+                        spillingCollector.releaseSpillFiles();
+                    }
+                },
+                batchIterator::kill,
+                () -> BatchIterators.collect(batchIterator, collector),
+                true
+            );
+        }
         return CollectingBatchIterator.newInstance(batchIterator, collector);
     }
 
@@ -91,6 +91,11 @@ public class ArbitraryAggregation extends AggregationFunction<Object, Object> {
         return state1;
     }
 
+    @Override
+    public boolean hasImmutableState() {
+        return true;
+    }
+
     @Override
     public Object terminatePartial(RamAccountingContext ramAccountingContext, Object state) {
         return state;
@@ -22,6 +22,7 @@
 package io.crate.execution.engine.aggregation.impl;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import io.crate.Streamer;
 import io.crate.breaker.RamAccountingContext;
 import io.crate.data.Input;
@@ -39,6 +40,7 @@ import org.elasticsearch.common.util.BigArrays;
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.List;
+import java.util.Set;
 
 public class AverageAggregation extends AggregationFunction<AverageAggregation.AverageState, Double> {
 
@@ -155,8 +157,15 @@ public class AverageAggregation extends AggregationFunction<AverageAggregation.A
         }
     }
 
+    private static final Set<DataType> REMOVABLE_TYPES = ImmutableSet.of(
+        DataTypes.BYTE, DataTypes.SHORT, DataTypes.INTEGER);
+
+    private final boolean isRemovableCumulative;
+
     AverageAggregation(FunctionInfo info) {
         this.info = info;
+        // The sum is kept as a double, which holds sums of integer values exactly but not of long values
+        this.isRemovableCumulative = REMOVABLE_TYPES.contains(info.ident().argumentTypes().get(0));
     }
 
     @Override
@@ -171,6 +180,25 @@ public class AverageAggregation extends AggregationFunction<AverageAggregation.A
         return state;
     }
 
+    @Override
+    public boolean isRemovableCumulative() {
+        return isRemovableCumulative;
+    }
+
+    @Override
+    public AverageState removeFromAggregatedState(RamAccountingContext ramAccountingContext,
+                                                  AverageState previousAggState,
+                                                  Input... stateToRemove) {
+        if (previousAggState != null) {
+            Number value = (Number) stateToRemove[0].value();
+            if (value != null) {
+                previousAggState.count--;
+                previousAggState.sum -= value.doubleValue();
+            }
+        }
+        return previousAggState;
+    }
+
     @Override
     public AverageState reduce(RamAccountingContext ramAccountingContext, AverageState state1, AverageState state2) {
         if (state1 == null) {
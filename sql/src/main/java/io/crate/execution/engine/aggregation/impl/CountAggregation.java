@@ -117,6 +117,21 @@ public class CountAggregation extends AggregationFunction<CountAggregation.LongS
         return state;
     }
 
+    @Override
+    public boolean isRemovableCumulative() {
+        return true;
+    }
+
+    @Override
+    public LongState removeFromAggregatedState(RamAccountingContext ramAccountingContext,
+                                               LongState previousAggState,
+                                               Input... stateToRemove) {
+        if (!hasArgs || stateToRemove[0].value() != null) {
+            return previousAggState.add(-1L);
+        }
+        return previousAggState;
+    }
+
     @Nullable
     @Override
     public LongState newState(RamAccountingContext ramAccountingContext,
@@ -140,6 +140,11 @@ public abstract class MaximumAggregation extends AggregationFunction<Comparable,
         return info().returnType();
     }
 
+    @Override
+    public boolean hasImmutableState() {
+        return true;
+    }
+
     @Override
     public Comparable iterate(RamAccountingContext ramAccountingContext, Comparable state, Input... args) throws CircuitBreakingException {
         Object value = args[0].value();
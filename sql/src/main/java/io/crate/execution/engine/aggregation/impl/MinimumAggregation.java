@@ -140,6 +140,11 @@ public abstract class MinimumAggregation extends AggregationFunction<Comparable,
         return info().returnType();
     }
 
+    @Override
+    public boolean hasImmutableState() {
+        return true;
+    }
+
     @Override
     public Comparable terminatePartial(RamAccountingContext ramAccountingContext, Comparable state) {
         return state;
@@ -51,27 +51,41 @@ public class SumAggregation<T extends Number> extends AggregationFunction<T, T>
             }
             return r;
         };
+        final BinaryOperator<Long> longSubImpl = (n1, n2) -> {
+            long r = n1 - n2;
+            // Overflow if the arguments have different signs and the sign of the result differs from the first one
+            if (((n1 ^ n2) & (n1 ^ r)) < 0) {
+                throw new ArithmeticException("long overflow");
+            }
+            return r;
+        };
 
         mod.register(new SumAggregation<Float>(DataTypes.FLOAT, (n1, n2) -> n1 + n2));
         mod.register(new SumAggregation<Double>(DataTypes.DOUBLE, (n1, n2) -> n1 + n2));
-        mod.register(new SumAggregation<>(DataTypes.BYTE, DataTypes.LONG, longAddImpl));
-        mod.register(new SumAggregation<>(DataTypes.SHORT, DataTypes.LONG, longAddImpl));
-        mod.register(new SumAggregation<>(DataTypes.INTEGER, DataTypes.LONG, longAddImpl));
-        mod.register(new SumAggregation<>(DataTypes.LONG, longAddImpl));
+        mod.register(new SumAggregation<>(DataTypes.BYTE, DataTypes.LONG, longAddImpl, longSubImpl));
+        mod.register(new SumAggregation<>(DataTypes.SHORT, DataTypes.LONG, longAddImpl, longSubImpl));
+        mod.register(new SumAggregation<>(DataTypes.INTEGER, DataTypes.LONG, longAddImpl, longSubImpl));
+        mod.register(new SumAggregation<>(DataTypes.LONG, DataTypes.LONG, longAddImpl, longSubImpl));
     }
 
     private final FunctionInfo info;
     private final BinaryOperator<T> addition;
+    @Nullable
+    private final BinaryOperator<T> subtraction;
     private final DataType<T> returnType;
     private final int bytesSize;
 
     @VisibleForTesting
     private SumAggregation(final DataType returnType, final BinaryOperator<T> addition) {
-        this(returnType, returnType, addition);
+        this(returnType, returnType, addition, null);
     }
 
-    private SumAggregation(final DataType inputType, final DataType returnType, final BinaryOperator<T> addition) {
+    private SumAggregation(final DataType inputType,
+                           final DataType returnType,
+                           final BinaryOperator<T> addition,
+                           @Nullable final BinaryOperator<T> subtraction) {
         this.addition = addition;
+        this.subtraction = subtraction;
         this.returnType = returnType;
 
         if (returnType == DataTypes.FLOAT) {
@@ -112,6 +126,23 @@ public class SumAggregation<T extends Number> extends AggregationFunction<T, T>
         return addition.apply(state1, state2);
     }
 
+    @Override
+    public boolean isRemovableCumulative() {
+        return subtraction != null;
+    }
+
+    @Override
+    public T removeFromAggregatedState(RamAccountingContext ramAccountingContext,
+                                       T previousAggState,
+                                       Input... stateToRemove) {
+        T value = returnType.value(stateToRemove[0].value());
+        if (value == null) {
+            return previousAggState;
+        }
+        assert previousAggState != null : "Cannot remove a value from an empty state";
+        return subtraction.apply(previousAggState, value);
+    }
+
     @Override
     public T terminatePartial(RamAccountingContext ramAccountingContext, T state) {
         return state;
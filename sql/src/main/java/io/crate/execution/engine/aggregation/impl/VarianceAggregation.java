@@ -22,6 +22,7 @@
 package io.crate.execution.engine.aggregation.impl;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import io.crate.Streamer;
 import io.crate.breaker.RamAccountingContext;
 import io.crate.data.Input;
@@ -41,6 +42,7 @@ import org.elasticsearch.common.util.BigArrays;
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.List;
+import java.util.Set;
 
 
 public class VarianceAggregation extends AggregationFunction<VarianceAggregation.VarianceState, Double> {
@@ -74,6 +76,10 @@ public class VarianceAggregation extends AggregationFunction<VarianceAggregation
             variance.increment(val);
         }
 
+        private void removeValue(double val) {
+            variance.decrement(val);
+        }
+
         private Double value() {
             double result = variance.result();
             return (Double.isNaN(result) ? null : result);
@@ -139,10 +145,15 @@ public class VarianceAggregation extends AggregationFunction<VarianceAggregation
         }
     }
 
+    private static final Set<DataType> REMOVABLE_TYPES = ImmutableSet.of(DataTypes.BYTE, DataTypes.SHORT);
+
     private final FunctionInfo info;
+    private final boolean isRemovableCumulative;
 
     public VarianceAggregation(FunctionInfo info) {
         this.info = info;
+        // The sum of squares is kept as a double, exact for squares of byte/short values only
+        this.isRemovableCumulative = REMOVABLE_TYPES.contains(info.ident().argumentTypes().get(0));
     }
 
 
@@ -166,6 +177,24 @@ public class VarianceAggregation extends AggregationFunction<VarianceAggregation
         return state;
     }
 
+    @Override
+    public boolean isRemovableCumulative() {
+        return isRemovableCumulative;
+    }
+
+    @Override
+    public VarianceState removeFromAggregatedState(RamAccountingContext ramAccountingContext,
+                                                   VarianceState previousAggState,
+                                                   Input... stateToRemove) {
+        if (previousAggState != null) {
+            Number value = (Number) stateToRemove[0].value();
+            if (value != null) {
+                previousAggState.removeValue(value.doubleValue());
+            }
+        }
+        return previousAggState;
+    }
+
     @Override
     public VarianceAggregation.VarianceState reduce(RamAccountingContext ramAccountingContext, VarianceAggregation.VarianceState state1, VarianceAggregation.VarianceState state2) {
         if (state1 == null) {
@@ -45,6 +45,16 @@ public class Variance implements Streamable {
         count++;
     }
 
+    /**
+     * Removes a value previously added with {@link #increment(double)}.
+     * The result is only exact if the value and its square can be represented as a double without rounding.
+     */
+    public void decrement(double value) {
+        sumOfSqrs -= (value * value);
+        sum -= value;
+        count--;
+    }
+
     public double result() {
         if (count == 0) {
             return Double.NaN;
@@ -22,8 +22,12 @@
 
 package io.crate.execution.engine.collect;
 
-import io.crate.breaker.BytesRefSizeEstimator;
+import com.google.common.annotations.VisibleForTesting;
+import com.carrotsearch.hppc.LongObjectHashMap;
+import com.carrotsearch.hppc.cursors.LongObjectCursor;
 import io.crate.breaker.RamAccountingContext;
+import io.crate.breaker.SizeEstimatorFactory;
+import io.crate.collections.Lists2;
 import io.crate.data.BatchIterator;
 import io.crate.data.CollectingBatchIterator;
 import io.crate.data.Row;
@@ -40,30 +44,42 @@ import io.crate.expression.InputRow;
 import io.crate.expression.reference.doc.lucene.CollectorContext;
 import io.crate.expression.reference.doc.lucene.LuceneCollectorExpression;
 import io.crate.expression.symbol.AggregateMode;
+import io.crate.expression.symbol.Aggregation;
 import io.crate.expression.symbol.InputColumn;
+import io.crate.expression.symbol.Literal;
 import io.crate.expression.symbol.Symbol;
+import io.crate.expression.symbol.SymbolVisitors;
 import io.crate.expression.symbol.Symbols;
 import io.crate.lucene.FieldTypeLookup;
 import io.crate.lucene.LuceneQueryBuilder;
 import io.crate.metadata.Reference;
 import io.crate.metadata.doc.DocSysColumns;
-import io.crate.types.DataTypes;
+import io.crate.types.ByteType;
+import io.crate.types.DataType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.StringType;
+import io.crate.types.TimestampType;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.index.SortedNumericDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.util.Bits;
-import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.Version;
-import org.elasticsearch.common.lucene.BytesRefs;
 import org.elasticsearch.common.util.BigArrays;
-import org.elasticsearch.common.util.ObjectArray;
 import org.elasticsearch.index.engine.Engine;
-import org.elasticsearch.index.fielddata.IndexOrdinalsFieldData;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.index.shard.IndexShard;
@@ -71,6 +87,8 @@ import org.elasticsearch.index.shard.ShardId;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -87,6 +105,7 @@ import static io.crate.execution.engine.collect.LuceneShardCollectorProvider.get
 final class GroupByOptimizedIterator {
 
     /**
+     * Threshold for the ratio between the estimated number of groups and the number of documents.
      * This was chosen after benchmarking different ratios with this optimization always enabled:
      *
      * Q: select count(*) from (select distinct x from t) t
@@ -102,28 +121,39 @@ final class GroupByOptimizedIterator {
      */
     private static final double CARDINALITY_RATIO_THRESHOLD = 0.5;
 
+    /**
+     * Keys are tracked in a bit mask to mark null values
+     */
+    private static final int MAX_KEYS = Long.SIZE;
+
     @Nullable
-    static BatchIterator<Row> tryOptimizeSingleStringKey(IndexShard indexShard,
-                                                         LuceneQueryBuilder luceneQueryBuilder,
-                                                         FieldTypeLookup fieldTypeLookup,
-                                                         BigArrays bigArrays,
-                                                         InputFactory inputFactory,
-                                                         DocInputFactory docInputFactory,
-                                                         RoutedCollectPhase collectPhase,
-                                                         CollectTask collectTask) {
+    static BatchIterator<Row> tryOptimize(IndexShard indexShard,
+                                          LuceneQueryBuilder luceneQueryBuilder,
+                                          FieldTypeLookup fieldTypeLookup,
+                                          BigArrays bigArrays,
+                                          InputFactory inputFactory,
+                                          DocInputFactory docInputFactory,
+                                          RoutedCollectPhase collectPhase,
+                                          CollectTask collectTask) {
         Collection<? extends Projection> shardProjections = shardProjections(collectPhase.projections());
-        GroupProjection groupProjection = getSingleStringKeyGroupProjection(shardProjections);
+        GroupProjection groupProjection = getSupportedGroupProjection(shardProjections);
         if (groupProjection == null) {
             return null;
         }
-        assert groupProjection.keys().size() == 1 : "Must have 1 key if getSingleStringKeyGroupProjection returned a projection";
-        Reference keyRef = getKeyRef(collectPhase.toCollect(), groupProjection.keys().get(0));
-        if (keyRef == null) {
-            return null; // group by on non-reference
-        }
-        MappedFieldType keyFieldType = fieldTypeLookup.get(keyRef.column().fqn());
-        if (keyFieldType == null || !keyFieldType.hasDocValues()) {
-            return null;
+        List<Symbol> keys = groupProjection.keys();
+        List<Reference> keyRefs = new ArrayList<>(keys.size());
+        List<MappedFieldType> keyFieldTypes = new ArrayList<>(keys.size());
+        for (Symbol key : keys) {
+            Reference keyRef = getKeyRef(collectPhase.toCollect(), key);
+            if (keyRef == null) {
+                return null; // group by on non-reference
+            }
+            MappedFieldType keyFieldType = fieldTypeLookup.get(keyRef.column().fqn());
+            if (keyFieldType == null || !keyFieldType.hasDocValues()) {
+                return null;
+            }
+            keyRefs.add(keyRef);
+            keyFieldTypes.add(keyFieldType);
         }
         if (Symbols.containsColumn(collectPhase.toCollect(), DocSysColumns.SCORE)
             || Symbols.containsColumn(collectPhase.where(), DocSysColumns.SCORE)) {
@@ -131,7 +161,9 @@ final class GroupByOptimizedIterator {
             // to keep the optimized implementation a bit simpler
             return null;
         }
-        if (hasHighCardinalityRatio(() -> indexShard.acquireSearcher("group-by-cardinality-check"), keyFieldType.name())) {
+        if (hasHighCardinalityRatio(
+            () -> indexShard.acquireSearcher("group-by-cardinality-check"),
+            Lists2.map(keyFieldTypes, MappedFieldType::name))) {
             return null;
         }
 
@@ -144,8 +176,11 @@ final class GroupByOptimizedIterator {
             collectTask.addSearcher(sharedShardContext.readerId(), searcher);
 
             InputFactory.Context<? extends LuceneCollectorExpression<?>> docCtx = docInputFactory.getCtx(collectTask.txnCtx());
-            docCtx.add(collectPhase.toCollect().stream().filter(s -> !s.equals(keyRef))::iterator);
-            IndexOrdinalsFieldData keyIndexFieldData = queryShardContext.getForField(keyFieldType);
+            docCtx.add(withoutUnusedKeys(collectPhase.toCollect(), keyRefs, groupProjection.values()));
+            List<KeyColumn> keyColumns = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                keyColumns.add(keyColumn(keyFieldTypes.get(i).name(), keys.get(i).valueType()));
+            }
 
             InputFactory.Context<CollectExpression<Row, ?>> ctxForAggregations = inputFactory.ctxForAggregations(collectTask.txnCtx());
             ctxForAggregations.add(groupProjection.values());
@@ -180,14 +215,16 @@ final class GroupByOptimizedIterator {
                                 applyAggregatesGroupedByKey(
                                     bigArrays,
                                     searcher,
-                                    keyIndexFieldData,
+                                    keyColumns,
+                                    Symbols.typeView(keys),
                                     ctxForAggregations,
                                     aggregations,
                                     expressions,
                                     ramAccounting,
                                     inputRow,
-                                    queryContext
+                                    queryContext.query()
                                 ),
+                                keys.size(),
                                 ramAccounting,
                                 aggregations,
                                 groupProjection.mode()
@@ -205,41 +242,121 @@ final class GroupByOptimizedIterator {
         }
     }
 
-    static boolean hasHighCardinalityRatio(Supplier<Engine.Searcher> acquireSearcher, String fieldName) {
+    /**
+     * Replaces the key columns with null literals, unless they're also used as input of an aggregation.
+     * The keys are read by the {@link KeyColumn}s, the positions of the other columns must not change.
+     */
+    private static List<Symbol> withoutUnusedKeys(List<Symbol> toCollect,
+                                                  List<Reference> keyRefs,
+                                                  List<Aggregation> aggregations) {
+        ArrayList<Symbol> result = new ArrayList<>(toCollect.size());
+        for (int i = 0; i < toCollect.size(); i++) {
+            Symbol symbol = toCollect.get(i);
+            if (keyRefs.contains(symbol) && !isUsedByAggregations(i, aggregations)) {
+                result.add(Literal.NULL);
+            } else {
+                result.add(symbol);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isUsedByAggregations(int inputIdx, List<Aggregation> aggregations) {
+        for (Aggregation aggregation : aggregations) {
+            if (SymbolVisitors.any(s -> s instanceof InputColumn && ((InputColumn) s).index() == inputIdx,
+                                   aggregation.inputs())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Estimates the number of groups per segment from the term statistics (string columns)
+     * or the value range of the points (numeric columns) of the given fields.
+     *
+     * @return true if the estimated number of groups relative to the number of documents is too high for
+     *         the optimized group by to be beneficial.
+     */
+    static boolean hasHighCardinalityRatio(Supplier<Engine.Searcher> acquireSearcher, List<String> fieldNames) {
         // acquire separate searcher:
         // Can't use sharedShardContexts() yet, if we bail out the "getOrCreateContext" causes issues later on in the fallback logic
         try (Engine.Searcher searcher = acquireSearcher.get()) {
+            double numGroups = 0;
+            long numDocs = 0;
             for (LeafReaderContext leaf : searcher.reader().leaves()) {
-                Terms terms = leaf.reader().terms(fieldName);
-                if (terms == null) {
-                    return true;
-                }
-                double cardinalityRatio = terms.size() / (double) leaf.reader().numDocs();
-                if (cardinalityRatio > CARDINALITY_RATIO_THRESHOLD) {
-                    return true;
+                LeafReader reader = leaf.reader();
+                int leafNumDocs = reader.numDocs();
+                double leafNumGroups = 1;
+                for (String fieldName : fieldNames) {
+                    long cardinality = estimateCardinality(reader, fieldName);
+                    if (cardinality < 0) {
+                        return true;
+                    }
+                    leafNumGroups *= cardinality;
                 }
+                numGroups += Math.min(leafNumGroups, leafNumDocs);
+                numDocs += leafNumDocs;
             }
+            return numDocs > 0 && numGroups / numDocs > CARDINALITY_RATIO_THRESHOLD;
         } catch (IOException e) {
             return true;
         }
-        return false;
     }
 
-    private static Iterable<Row> getRows(Map<BytesRef, Object[]> groupedStates,
+    /**
+     * @return the estimated number of distinct values of the field within the segment, including null,
+     *         or -1 if no statistics are available.
+     */
+    private static long estimateCardinality(LeafReader reader, String fieldName) throws IOException {
+        if (reader.getFieldInfos().fieldInfo(fieldName) == null) {
+            return 1;
+        }
+        int maxDoc = reader.maxDoc();
+        Terms terms = reader.terms(fieldName);
+        if (terms != null) {
+            long size = terms.size();
+            if (size < 0) {
+                return -1;
+            }
+            return size + (terms.getDocCount() < maxDoc ? 1 : 0);
+        }
+        PointValues points = reader.getPointValues(fieldName);
+        if (points != null && points.getNumDataDimensions() == 1) {
+            byte[] min = points.getMinPackedValue();
+            byte[] max = points.getMaxPackedValue();
+            double range;
+            if (points.getBytesPerDimension() == Long.BYTES) {
+                range = (double) LongPoint.decodeDimension(max, 0) - LongPoint.decodeDimension(min, 0) + 1;
+            } else if (points.getBytesPerDimension() == Integer.BYTES) {
+                range = (double) IntPoint.decodeDimension(max, 0) - IntPoint.decodeDimension(min, 0) + 1;
+            } else {
+                return -1;
+            }
+            return (long) Math.min(range, points.getDocCount()) + (points.getDocCount() < maxDoc ? 1 : 0);
+        }
+        return -1;
+    }
+
+    private static Iterable<Row> getRows(Map<List<Object>, Object[]> groupedStates,
+                                         int numKeys,
                                          RamAccountingContext ramAccounting,
                                          List<AggregationContext> aggregations,
                                          AggregateMode mode) {
         return () -> groupedStates.entrySet().stream()
-            .map(new Function<Map.Entry<BytesRef, Object[]>, Row>() {
+            .map(new Function<Map.Entry<List<Object>, Object[]>, Row>() {
 
-                final Object[] cells = new Object[1 + aggregations.size()];
+                final Object[] cells = new Object[numKeys + aggregations.size()];
                 final RowN row = new RowN(cells);
 
                 @Override
-                public Row apply(Map.Entry<BytesRef, Object[]> entry) {
-                    cells[0] = BytesRefs.toString(entry.getKey());
+                public Row apply(Map.Entry<List<Object>, Object[]> entry) {
+                    List<Object> key = entry.getKey();
+                    for (int i = 0; i < numKeys; i++) {
+                        cells[i] = key.get(i);
+                    }
                     Object[] states = entry.getValue();
-                    for (int i = 0, c = 1; i < states.length; i++, c++) {
+                    for (int i = 0, c = numKeys; i < states.length; i++, c++) {
                         //noinspection unchecked
                         cells[c] = mode.finishCollect(ramAccounting, aggregations.get(i).function(), states[i]);
                     }
@@ -249,21 +366,34 @@ final class GroupByOptimizedIterator {
             .iterator();
     }
 
-    private static Map<BytesRef, Object[]> applyAggregatesGroupedByKey(BigArrays bigArrays,
-                                                                       Engine.Searcher searcher,
-                                                                       IndexOrdinalsFieldData keyIndexFieldData,
-                                                                       InputFactory.Context<CollectExpression<Row, ?>> ctxForAggregations,
-                                                                       List<AggregationContext> aggregations,
-                                                                       List<? extends LuceneCollectorExpression<?>> expressions,
-                                                                       RamAccountingContext ramAccounting,
-                                                                       InputRow inputRow,
-                                                                       LuceneQueryBuilder.Context queryContext) throws IOException {
-        final Map<BytesRef, Object[]> statesByKey = new HashMap<>();
+    /**
+     * Aggregates the documents of each segment grouped by the per-segment ordinals (string keys) or values
+     * (numeric keys) of the keys. The key values are only resolved once per group and segment,
+     * when the states of the segment are merged with the states of the previous segments.
+     * <p>
+     * If all keys are strings and their ordinals fit into a long, they're packed into a single long.
+     */
+    @VisibleForTesting
+    static Map<List<Object>, Object[]> applyAggregatesGroupedByKey(BigArrays bigArrays,
+                                                                   Engine.Searcher searcher,
+                                                                   List<KeyColumn> keyColumns,
+                                                                   List<DataType> keyTypes,
+                                                                   InputFactory.Context<CollectExpression<Row, ?>> ctxForAggregations,
+                                                                   List<AggregationContext> aggregations,
+                                                                   List<? extends LuceneCollectorExpression<?>> expressions,
+                                                                   RamAccountingContext ramAccounting,
+                                                                   InputRow inputRow,
+                                                                   Query query) throws IOException {
+        final Map<List<Object>, Object[]> statesByKey = new HashMap<>();
         IndexSearcher indexSearcher = searcher.searcher();
-        final Weight weight = indexSearcher.createWeight(indexSearcher.rewrite(queryContext.query()), ScoreMode.COMPLETE, 1f);
+        final Weight weight = indexSearcher.createWeight(indexSearcher.rewrite(query), ScoreMode.COMPLETE, 1f);
         final List<LeafReaderContext> leaves = indexSearcher.getTopReaderContext().leaves();
         final List<CollectExpression<Row, ?>> aggExpressions = ctxForAggregations.expressions();
-        Object[] nullStates = null;
+        final int numKeys = keyColumns.size();
+        final long[] keyValues = new long[numKeys];
+        final int[] shifts = new int[numKeys];
+        final int[] widths = new int[numKeys];
+        final SegmentKey probe = new SegmentKey(new long[numKeys], 0L);
 
         for (LeafReaderContext leaf: leaves) {
             Scorer scorer = weight.scorer(leaf);
@@ -273,71 +403,144 @@ final class GroupByOptimizedIterator {
             for (int i = 0, expressionsSize = expressions.size(); i < expressionsSize; i++) {
                 expressions.get(i).setNextReader(leaf);
             }
-            SortedSetDocValues values = keyIndexFieldData.load(leaf).getOrdinalsValues();
-            try (ObjectArray<Object[]> statesByOrd = bigArrays.newObjectArray(values.getValueCount())) {
-                DocIdSetIterator docs = scorer.iterator();
-                Bits liveDocs = leaf.reader().getLiveDocs();
-                for (int doc = docs.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = docs.nextDoc()) {
-                    if (docDeleted(liveDocs, doc)) {
-                        continue;
-                    }
-                    for (int i = 0, expressionsSize = expressions.size(); i < expressionsSize; i++) {
-                        expressions.get(i).setNextDocId(doc);
-                    }
-                    for (int i = 0, expressionsSize = aggExpressions.size(); i < expressionsSize; i++) {
-                        aggExpressions.get(i).setNextRow(inputRow);
-                    }
-                    if (values.advanceExact(doc)) {
-                        long ord = values.nextOrd();
-                        Object[] states = statesByOrd.get(ord);
-                        if (states == null) {
-                            statesByOrd.set(ord, initStates(bigArrays, aggregations, ramAccounting));
-                        } else {
-                            aggregateValues(aggregations, ramAccounting, states);
-                        }
-                        if (values.nextOrd() != SortedSetDocValues.NO_MORE_ORDS) {
-                            throw new GroupByOnArrayUnsupportedException(keyIndexFieldData.getFieldName());
-                        }
+            for (int i = 0; i < numKeys; i++) {
+                keyColumns.get(i).setNextReader(leaf);
+            }
+            boolean packed = computeShifts(keyColumns, shifts, widths);
+            LongObjectHashMap<Object[]> statesByPackedKey = packed ? new LongObjectHashMap<>() : null;
+            HashMap<SegmentKey, Object[]> statesBySegmentKey = packed ? null : new HashMap<>();
+
+            DocIdSetIterator docs = scorer.iterator();
+            Bits liveDocs = leaf.reader().getLiveDocs();
+            for (int doc = docs.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = docs.nextDoc()) {
+                if (docDeleted(liveDocs, doc)) {
+                    continue;
+                }
+                for (int i = 0, expressionsSize = expressions.size(); i < expressionsSize; i++) {
+                    expressions.get(i).setNextDocId(doc);
+                }
+                for (int i = 0, expressionsSize = aggExpressions.size(); i < expressionsSize; i++) {
+                    aggExpressions.get(i).setNextRow(inputRow);
+                }
+                long nullMask = 0L;
+                for (int i = 0; i < numKeys; i++) {
+                    KeyColumn keyColumn = keyColumns.get(i);
+                    if (keyColumn.advanceExact(doc)) {
+                        keyValues[i] = keyColumn.ordOrValue();
                     } else {
-                        if (nullStates == null) {
-                            nullStates = initStates(bigArrays, aggregations, ramAccounting);
-                        } else {
-                            aggregateValues(aggregations, ramAccounting, nullStates);
-                        }
+                        keyValues[i] = 0L;
+                        nullMask |= 1L << i;
                     }
                 }
-                for (long ord = 0; ord < statesByOrd.size(); ord++) {
-                    Object[] states = statesByOrd.get(ord);
+                if (packed) {
+                    long packedKey = 0L;
+                    for (int i = 0; i < numKeys; i++) {
+                        // 0 is used for null, so ordinals are shifted by one
+                        long value = (nullMask & (1L << i)) == 0 ? keyValues[i] + 1 : 0L;
+                        packedKey |= value << shifts[i];
+                    }
+                    Object[] states = statesByPackedKey.get(packedKey);
                     if (states == null) {
-                        continue;
+                        statesByPackedKey.put(packedKey, initStates(bigArrays, aggregations, ramAccounting));
+                    } else {
+                        aggregateValues(aggregations, ramAccounting, states);
                     }
-                    BytesRef sharedKey = values.lookupOrd(ord);
-                    Object[] prevStates = statesByKey.get(sharedKey);
-                    if (prevStates == null) {
-                        long hashMapEntryOverhead = 36L;
-                        ramAccounting.addBytes(roundUp(
-                            BytesRefSizeEstimator.INSTANCE.estimateSize(sharedKey) + hashMapEntryOverhead));
-                        statesByKey.put(BytesRef.deepCopyOf(sharedKey), states);
+                } else {
+                    probe.set(keyValues, nullMask);
+                    Object[] states = statesBySegmentKey.get(probe);
+                    if (states == null) {
+                        statesBySegmentKey.put(probe.copy(), initStates(bigArrays, aggregations, ramAccounting));
                     } else {
-                        for (int i = 0; i < aggregations.size(); i++) {
-                            AggregationContext aggregation = aggregations.get(i);
-                            //noinspection unchecked
-                            prevStates[i] = aggregation.function().reduce(
-                                ramAccounting,
-                                prevStates[i],
-                                states[i]
-                            );
+                        aggregateValues(aggregations, ramAccounting, states);
+                    }
+                }
+            }
+            if (packed) {
+                for (LongObjectCursor<Object[]> cursor : statesByPackedKey) {
+                    long nullMask = 0L;
+                    for (int i = 0; i < numKeys; i++) {
+                        long value = (cursor.key >>> shifts[i]) & ((1L << widths[i]) - 1);
+                        if (value == 0L) {
+                            nullMask |= 1L << i;
+                        } else {
+                            keyValues[i] = value - 1;
                         }
                     }
+                    mergeStates(statesByKey, resolveKey(keyColumns, keyValues, nullMask), cursor.value,
+                        keyTypes, aggregations, ramAccounting);
+                }
+            } else {
+                for (Map.Entry<SegmentKey, Object[]> entry : statesBySegmentKey.entrySet()) {
+                    SegmentKey segmentKey = entry.getKey();
+                    mergeStates(statesByKey, resolveKey(keyColumns, segmentKey.values, segmentKey.nullMask),
+                        entry.getValue(), keyTypes, aggregations, ramAccounting);
                 }
             }
         }
-        if (nullStates != null) {
-            statesByKey.put(null, nullStates);
-        }
         return statesByKey;
     }
 
+    /**
+     * Computes the bit offsets and number of bits of the keys within a packed key.
+     *
+     * @return false if the keys can't be packed into a single long
+     */
+    private static boolean computeShifts(List<KeyColumn> keyColumns, int[] shifts, int[] widths) {
+        int shift = 0;
+        for (int i = 0; i < keyColumns.size(); i++) {
+            long valueCount = keyColumns.get(i).segmentValueCount();
+            if (valueCount < 0) {
+                return false;
+            }
+            shifts[i] = shift;
+            // + 1 for null
+            widths[i] = Long.SIZE - Long.numberOfLeadingZeros(valueCount + 1);
+            shift += widths[i];
+            if (shift >= Long.SIZE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<Object> resolveKey(List<KeyColumn> keyColumns, long[] keyValues, long nullMask) throws IOException {
+        Object[] key = new Object[keyColumns.size()];
+        for (int i = 0; i < key.length; i++) {
+            if ((nullMask & (1L << i)) == 0) {
+                key[i] = keyColumns.get(i).lookup(keyValues[i]);
+            }
+        }
+        return Arrays.asList(key);
+    }
+
+    private static void mergeStates(Map<List<Object>, Object[]> statesByKey,
+                                    List<Object> key,
+                                    Object[] states,
+                                    List<DataType> keyTypes,
+                                    List<AggregationContext> aggregations,
+                                    RamAccountingContext ramAccounting) {
+        Object[] prevStates = statesByKey.get(key);
+        if (prevStates == null) {
+            long hashMapEntryOverhead = 36L;
+            long keySize = 0L;
+            for (int i = 0; i < keyTypes.size(); i++) {
+                keySize += SizeEstimatorFactory.create(keyTypes.get(i)).estimateSize(key.get(i));
+            }
+            ramAccounting.addBytes(roundUp(keySize + hashMapEntryOverhead));
+            statesByKey.put(key, states);
+        } else {
+            for (int i = 0; i < aggregations.size(); i++) {
+                AggregationContext aggregation = aggregations.get(i);
+                //noinspection unchecked
+                prevStates[i] = aggregation.function().reduce(
+                    ramAccounting,
+                    prevStates[i],
+                    states[i]
+                );
+            }
+        }
+    }
+
     private static boolean docDeleted(@Nullable Bits liveDocs, int doc) {
         return liveDocs != null && !liveDocs.get(doc);
     }
@@ -385,7 +588,8 @@ final class GroupByOptimizedIterator {
         return null;
     }
 
-    private static GroupProjection getSingleStringKeyGroupProjection(Collection<? extends Projection> shardProjections) {
+    @Nullable
+    private static GroupProjection getSupportedGroupProjection(Collection<? extends Projection> shardProjections) {
         if (shardProjections.size() != 1) {
             return null;
         }
@@ -394,9 +598,182 @@ final class GroupByOptimizedIterator {
             return null;
         }
         GroupProjection groupProjection = (GroupProjection) shardProjection;
-        if (groupProjection.keys().size() != 1 || groupProjection.keys().get(0).valueType() != DataTypes.STRING) {
+        List<Symbol> keys = groupProjection.keys();
+        if (keys.isEmpty() || keys.size() > MAX_KEYS) {
             return null;
         }
+        for (Symbol key : keys) {
+            if (!isSupportedKeyType(key.valueType())) {
+                return null;
+            }
+        }
         return groupProjection;
     }
+
+    private static boolean isSupportedKeyType(DataType<?> type) {
+        switch (type.id()) {
+            case StringType.ID:
+            case ByteType.ID:
+            case ShortType.ID:
+            case IntegerType.ID:
+            case LongType.ID:
+            case TimestampType.ID_WITH_TZ:
+            case TimestampType.ID_WITHOUT_TZ:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @VisibleForTesting
+    static KeyColumn keyColumn(String fieldName, DataType<?> keyType) {
+        if (keyType.id() == StringType.ID) {
+            return new StringKeyColumn(fieldName);
+        }
+        return new NumericKeyColumn(fieldName, keyType);
+    }
+
+    /**
+     * Reads the per-segment ordinal or value of a key column from the doc values.
+     */
+    abstract static class KeyColumn {
+
+        abstract void setNextReader(LeafReaderContext leaf) throws IOException;
+
+        /**
+         * @return false if the document has no value for the key
+         */
+        abstract boolean advanceExact(int doc) throws IOException;
+
+        /**
+         * @return the ordinal or value of the document the key column was advanced to
+         */
+        abstract long ordOrValue() throws IOException;
+
+        /**
+         * @return the number of distinct ordinals within the current segment, or -1 if values are used
+         */
+        abstract long segmentValueCount();
+
+        abstract Object lookup(long ordOrValue) throws IOException;
+    }
+
+    private static final class StringKeyColumn extends KeyColumn {
+
+        private final String fieldName;
+        private SortedSetDocValues values;
+
+        StringKeyColumn(String fieldName) {
+            this.fieldName = fieldName;
+        }
+
+        @Override
+        void setNextReader(LeafReaderContext leaf) throws IOException {
+            values = DocValues.getSortedSet(leaf.reader(), fieldName);
+        }
+
+        @Override
+        boolean advanceExact(int doc) throws IOException {
+            return values.advanceExact(doc);
+        }
+
+        @Override
+        long ordOrValue() throws IOException {
+            long ord = values.nextOrd();
+            if (values.nextOrd() != SortedSetDocValues.NO_MORE_ORDS) {
+                throw new GroupByOnArrayUnsupportedException(fieldName);
+            }
+            return ord;
+        }
+
+        @Override
+        long segmentValueCount() {
+            return values.getValueCount();
+        }
+
+        @Override
+        Object lookup(long ord) throws IOException {
+            return values.lookupOrd(ord).utf8ToString();
+        }
+    }
+
+    private static final class NumericKeyColumn extends KeyColumn {
+
+        private final String fieldName;
+        private final DataType<?> type;
+        private SortedNumericDocValues values;
+
+        NumericKeyColumn(String fieldName, DataType<?> type) {
+            this.fieldName = fieldName;
+            this.type = type;
+        }
+
+        @Override
+        void setNextReader(LeafReaderContext leaf) throws IOException {
+            values = DocValues.getSortedNumeric(leaf.reader(), fieldName);
+        }
+
+        @Override
+        boolean advanceExact(int doc) throws IOException {
+            return values.advanceExact(doc);
+        }
+
+        @Override
+        long ordOrValue() throws IOException {
+            if (values.docValueCount() != 1) {
+                throw new GroupByOnArrayUnsupportedException(fieldName);
+            }
+            return values.nextValue();
+        }
+
+        @Override
+        long segmentValueCount() {
+            return -1;
+        }
+
+        @Override
+        Object lookup(long value) {
+            return type.value(value);
+        }
+    }
+
+    /**
+     * The key of a group within a segment: the ordinals or values of all keys and a bit mask of the null keys.
+     */
+    private static final class SegmentKey {
+
+        private long[] values;
+        private long nullMask;
+
+        SegmentKey(long[] values, long nullMask) {
+            this.values = values;
+            this.nullMask = nullMask;
+        }
+
+        void set(long[] values, long nullMask) {
+            this.values = values;
+            this.nullMask = nullMask;
+        }
+
+        SegmentKey copy() {
+            return new SegmentKey(values.clone(), nullMask);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            SegmentKey that = (SegmentKey) o;
+            return nullMask == that.nullMask && Arrays.equals(values, that.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(values) + Long.hashCode(nullMask);
+        }
+    }
 }
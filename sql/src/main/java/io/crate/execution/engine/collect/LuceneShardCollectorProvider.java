@@ -21,10 +21,18 @@
 
 package io.crate.execution.engine.collect;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Iterables;
+import io.crate.collections.Lists2;
 import io.crate.data.BatchIterator;
+import io.crate.data.Bucket;
+import io.crate.data.InMemoryBatchIterator;
 import io.crate.data.Row;
+import io.crate.data.SentinelRow;
 import io.crate.execution.TransportActionProvider;
 import io.crate.execution.dsl.phases.RoutedCollectPhase;
+import io.crate.execution.dsl.projection.Projection;
+import io.crate.execution.dsl.projection.Projections;
 import io.crate.execution.engine.collect.collectors.LuceneBatchIterator;
 import io.crate.execution.engine.collect.collectors.LuceneOrderedDocCollector;
 import io.crate.execution.engine.collect.collectors.OptimizeQueryForSearchAfter;
@@ -45,6 +53,8 @@ import io.crate.metadata.Schemas;
 import io.crate.metadata.doc.DocSysColumns;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.BigArrays;
@@ -58,6 +68,11 @@ import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -65,6 +80,9 @@ public class LuceneShardCollectorProvider extends ShardCollectorProvider {
 
     private static final Logger LOGGER = LogManager.getLogger(LuceneShardCollectorProvider.class);
 
+    @VisibleForTesting
+    static final int MIN_DOCS_PER_SLICE = 50_000;
+
     private final Supplier<String> localNodeId;
     private final LuceneQueryBuilder luceneQueryBuilder;
     private final Functions functions;
@@ -72,6 +90,8 @@ public class LuceneShardCollectorProvider extends ShardCollectorProvider {
     private final DocInputFactory docInputFactory;
     private final BigArrays bigArrays;
     private final FieldTypeLookup fieldTypeLookup;
+    private final QueryResultCache queryResultCache;
+    private final QueryResultCache.Stats queryResultCacheStats;
 
     public LuceneShardCollectorProvider(Schemas schemas,
                                         LuceneQueryBuilder luceneQueryBuilder,
@@ -82,9 +102,28 @@ public class LuceneShardCollectorProvider extends ShardCollectorProvider {
                                         Settings settings,
                                         TransportActionProvider transportActionProvider,
                                         IndexShard indexShard,
-                                        BigArrays bigArrays) {
+                                        BigArrays bigArrays,
+                                        QueryResultCache queryResultCache) {
+        this(schemas, luceneQueryBuilder, clusterService, nodeJobsCounter, functions, threadPool, settings,
+            transportActionProvider, indexShard, bigArrays, queryResultCache, new QueryResultCache.Stats());
+    }
+
+    private LuceneShardCollectorProvider(Schemas schemas,
+                                         LuceneQueryBuilder luceneQueryBuilder,
+                                         ClusterService clusterService,
+                                         NodeJobsCounter nodeJobsCounter,
+                                         Functions functions,
+                                         ThreadPool threadPool,
+                                         Settings settings,
+                                         TransportActionProvider transportActionProvider,
+                                         IndexShard indexShard,
+                                         BigArrays bigArrays,
+                                         QueryResultCache queryResultCache,
+                                         QueryResultCache.Stats queryResultCacheStats) {
         super(clusterService, schemas, nodeJobsCounter, functions, threadPool, settings, transportActionProvider, indexShard,
-            new ShardRowContext(indexShard, clusterService), bigArrays);
+            new ShardRowContext(indexShard, clusterService, queryResultCacheStats), bigArrays);
+        this.queryResultCache = queryResultCache;
+        this.queryResultCacheStats = queryResultCacheStats;
         this.luceneQueryBuilder = luceneQueryBuilder;
         this.functions = functions;
         this.indexShard = indexShard;
@@ -98,10 +137,54 @@ public class LuceneShardCollectorProvider extends ShardCollectorProvider {
         this.bigArrays = bigArrays;
     }
 
+    /**
+     * Like {@link ShardCollectorProvider#getIterators(RoutedCollectPhase, boolean, CollectTask, int)}, but the result
+     * is served from or added to the {@link QueryResultCache} if it is enabled and the phase is cacheable.
+     */
+    @Override
+    public List<BatchIterator<Row>> getIterators(RoutedCollectPhase collectPhase,
+                                                 boolean requiresScroll,
+                                                 CollectTask collectTask,
+                                                 int maxSlices) throws Exception {
+        if (!queryResultCache.isEnabled() || requiresScroll) {
+            return super.getIterators(collectPhase, requiresScroll, collectTask, maxSlices);
+        }
+        Collection<? extends Projection> shardProjections = Projections.shardProjections(collectPhase.projections());
+        SharedShardContext sharedShardContext = collectTask.sharedShardContexts().getOrCreateContext(indexShard.shardId());
+        // The key must be built from the reader which produces the rows. The iterators use the searcher of the shared
+        // shard context, holding a reference to it ensures they get the same reader.
+        try (Engine.Searcher searcher = sharedShardContext.acquireSearcher()) {
+            QueryResultCache.Key key = queryResultCache.key(
+                indexShard.shardId(), searcher.reader(), collectPhase, shardProjections);
+            if (key == null) {
+                return super.getIterators(collectPhase, requiresScroll, collectTask, maxSlices);
+            }
+            Bucket cachedRows = queryResultCache.get(key, queryResultCacheStats);
+            if (cachedRows != null) {
+                return Collections.singletonList(InMemoryBatchIterator.of(cachedRows, SentinelRow.SENTINEL));
+            }
+            Projection lastShardProjection = Iterables.getLast(shardProjections);
+            return queryResultCache.cacheOnCompletion(
+                key,
+                queryResultCacheStats,
+                Symbols.streamerArray(lastShardProjection.outputs()),
+                super.getIterators(collectPhase, requiresScroll, collectTask, maxSlices)
+            );
+        }
+    }
+
     @Override
     protected BatchIterator<Row> getUnorderedIterator(RoutedCollectPhase collectPhase,
                                                       boolean requiresScroll,
                                                       CollectTask collectTask) {
+        return Lists2.getOnlyElement(getUnorderedIterators(collectPhase, requiresScroll, collectTask, 1));
+    }
+
+    @Override
+    protected List<BatchIterator<Row>> getUnorderedIterators(RoutedCollectPhase collectPhase,
+                                                             boolean requiresScroll,
+                                                             CollectTask collectTask,
+                                                             int maxSlices) {
         ShardId shardId = indexShard.shardId();
         SharedShardContext sharedShardContext = collectTask.sharedShardContexts().getOrCreateContext(shardId);
         Engine.Searcher searcher = sharedShardContext.acquireSearcher();
@@ -117,34 +200,94 @@ public class LuceneShardCollectorProvider extends ShardCollectorProvider {
                 sharedShardContext.indexService().cache()
             );
             collectTask.addSearcher(sharedShardContext.readerId(), searcher);
-            InputFactory.Context<? extends LuceneCollectorExpression<?>> docCtx =
-                docInputFactory.extractImplementations(collectTask.txnCtx(), collectPhase);
-
-            return new LuceneBatchIterator(
-                searcher.searcher(),
-                queryContext.query(),
-                queryContext.minScore(),
-                Symbols.containsColumn(collectPhase.toCollect(), DocSysColumns.SCORE),
-                getCollectorContext(sharedShardContext.readerId(), queryShardContext::getForField),
-                collectTask.queryPhaseRamAccountingContext(),
-                docCtx.topLevelInputs(),
-                docCtx.expressions()
-            );
+            IndexSearcher indexSearcher = searcher.searcher();
+            boolean doScores = Symbols.containsColumn(collectPhase.toCollect(), DocSysColumns.SCORE);
+
+            List<List<LeafReaderContext>> slices = sliceLeaves(indexSearcher.getTopReaderContext().leaves(), maxSlices);
+            List<BatchIterator<Row>> iterators = new ArrayList<>(slices.size());
+            for (List<LeafReaderContext> slice : slices) {
+                // each slice may be consumed by a different thread, so the expressions must not be shared
+                InputFactory.Context<? extends LuceneCollectorExpression<?>> docCtx =
+                    docInputFactory.extractImplementations(collectTask.txnCtx(), collectPhase);
+                iterators.add(new LuceneBatchIterator(
+                    indexSearcher,
+                    slice,
+                    queryContext.query(),
+                    queryContext.minScore(),
+                    doScores,
+                    getCollectorContext(sharedShardContext.readerId(), queryShardContext::getForField),
+                    collectTask.queryPhaseRamAccountingContext(),
+                    docCtx.topLevelInputs(),
+                    docCtx.expressions()
+                ));
+            }
+            return iterators;
         } catch (Throwable t) {
             searcher.close();
             throw t;
         }
     }
 
+    /**
+     * Splits the leaves into up to {@code maxSlices} slices with a similar number of documents.
+     * Leaves aren't split if a slice would end up with less than {@link #MIN_DOCS_PER_SLICE} documents,
+     * because the overhead of the additional BatchIterator would outweigh the gain of the concurrent collection.
+     */
+    @VisibleForTesting
+    static List<List<LeafReaderContext>> sliceLeaves(List<LeafReaderContext> leaves, int maxSlices) {
+        long numDocs = 0;
+        for (LeafReaderContext leaf : leaves) {
+            numDocs += leaf.reader().maxDoc();
+        }
+        int numSlices = (int) Math.min(Math.min(maxSlices, leaves.size()), numDocs / MIN_DOCS_PER_SLICE);
+        if (numSlices <= 1) {
+            return Collections.singletonList(leaves);
+        }
+        // assign the biggest leaves first, each to the slice with the least documents so far
+        ArrayList<LeafReaderContext> leavesBySize = new ArrayList<>(leaves);
+        leavesBySize.sort(Comparator.comparingInt((LeafReaderContext leaf) -> leaf.reader().maxDoc()).reversed());
+        List<List<LeafReaderContext>> slices = new ArrayList<>(numSlices);
+        long[] docsPerSlice = new long[numSlices];
+        for (int i = 0; i < numSlices; i++) {
+            slices.add(new ArrayList<>());
+        }
+        for (LeafReaderContext leaf : leavesBySize) {
+            int smallestSlice = 0;
+            for (int i = 1; i < numSlices; i++) {
+                if (docsPerSlice[i] < docsPerSlice[smallestSlice]) {
+                    smallestSlice = i;
+                }
+            }
+            slices.get(smallestSlice).add(leaf);
+            docsPerSlice[smallestSlice] += leaf.reader().maxDoc();
+        }
+        for (List<LeafReaderContext> slice : slices) {
+            slice.sort(Comparator.comparingInt(leaf -> leaf.ord));
+        }
+        return slices;
+    }
+
     @Nullable
     @Override
     protected BatchIterator<Row> getProjectionFusedIterator(RoutedCollectPhase normalizedPhase, CollectTask collectTask) {
-        return GroupByOptimizedIterator.tryOptimizeSingleStringKey(
+        InputFactory inputFactory = new InputFactory(functions);
+        BatchIterator<Row> fusedIterator = MinMaxCountOptimizedIterator.tryOptimize(
+            indexShard,
+            fieldTypeLookup,
+            bigArrays,
+            inputFactory,
+            normalizedPhase,
+            collectTask
+        );
+        if (fusedIterator != null) {
+            return fusedIterator;
+        }
+        return GroupByOptimizedIterator.tryOptimize(
             indexShard,
             luceneQueryBuilder,
             fieldTypeLookup,
             bigArrays,
-            new InputFactory(functions),
+            inputFactory,
             docInputFactory,
             normalizedPhase,
             collectTask
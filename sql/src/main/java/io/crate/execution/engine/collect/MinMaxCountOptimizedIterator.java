@@ -0,0 +1,269 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect;
+
+import io.crate.breaker.RamAccountingContext;
+import io.crate.data.BatchIterator;
+import io.crate.data.InMemoryBatchIterator;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.dsl.phases.RoutedCollectPhase;
+import io.crate.execution.dsl.projection.AggregationProjection;
+import io.crate.execution.dsl.projection.Projection;
+import io.crate.execution.engine.aggregation.AggregationContext;
+import io.crate.execution.engine.aggregation.AggregationFunction;
+import io.crate.execution.engine.aggregation.impl.CountAggregation;
+import io.crate.execution.engine.aggregation.impl.MaximumAggregation;
+import io.crate.execution.engine.aggregation.impl.MinimumAggregation;
+import io.crate.execution.jobs.SharedShardContext;
+import io.crate.expression.InputFactory;
+import io.crate.expression.symbol.Aggregation;
+import io.crate.expression.symbol.InputColumn;
+import io.crate.expression.symbol.Literal;
+import io.crate.expression.symbol.Symbol;
+import io.crate.lucene.FieldTypeLookup;
+import io.crate.metadata.Reference;
+import io.crate.types.ByteType;
+import io.crate.types.DataType;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.TimestampType;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.FloatPoint;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.shard.IndexShard;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static io.crate.data.SentinelRow.SENTINEL;
+import static io.crate.execution.dsl.projection.Projections.shardProjections;
+
+/**
+ * Computes aggregations which only consist of <code>count(*)</code>, <code>min(x)</code> and <code>max(x)</code>
+ * without a filter from the metadata of the segments instead of iterating over the documents:
+ *
+ * <ul>
+ *     <li>count(*) is the sum of the live documents of the segments</li>
+ *     <li>min(x) and max(x) are the minimum and maximum of the point values of the segments</li>
+ * </ul>
+ *
+ * The minimum and maximum point values of a segment include deleted documents,
+ * so segments with deletions cause a fallback to the regular aggregation if there is a min or max.
+ */
+final class MinMaxCountOptimizedIterator {
+
+    private MinMaxCountOptimizedIterator() {
+    }
+
+    @Nullable
+    static BatchIterator<Row> tryOptimize(IndexShard indexShard,
+                                          FieldTypeLookup fieldTypeLookup,
+                                          BigArrays bigArrays,
+                                          InputFactory inputFactory,
+                                          RoutedCollectPhase collectPhase,
+                                          CollectTask collectTask) {
+        AggregationProjection aggregationProjection = getSupportedAggregationProjection(
+            shardProjections(collectPhase.projections()));
+        if (aggregationProjection == null || !isMatchAll(collectPhase.where())) {
+            return null;
+        }
+        List<Aggregation> aggregations = aggregationProjection.aggregations();
+        List<String> fieldNames = new ArrayList<>(aggregations.size());
+        for (Aggregation aggregation : aggregations) {
+            String name = aggregation.functionIdent().name();
+            List<Symbol> inputs = aggregation.inputs();
+            if (name.equals(CountAggregation.NAME) && inputs.isEmpty()) {
+                fieldNames.add(null);
+            } else if ((name.equals(MinimumAggregation.NAME) || name.equals(MaximumAggregation.NAME))
+                       && inputs.size() == 1
+                       && isSupportedType(inputs.get(0).valueType())) {
+                String fieldName = getPointsFieldName(fieldTypeLookup, collectPhase.toCollect(), inputs.get(0));
+                if (fieldName == null) {
+                    return null;
+                }
+                fieldNames.add(fieldName);
+            } else {
+                return null;
+            }
+        }
+
+        InputFactory.Context<CollectExpression<Row, ?>> ctxForAggregations =
+            inputFactory.ctxForAggregations(collectTask.txnCtx());
+        ctxForAggregations.add(aggregations);
+        List<AggregationContext> aggregationContexts = ctxForAggregations.aggregations();
+        List<AggregationFunction> functions = new ArrayList<>(aggregationContexts.size());
+        for (AggregationContext aggregationContext : aggregationContexts) {
+            functions.add(aggregationContext.function());
+        }
+        RamAccountingContext ramAccounting = collectTask.queryPhaseRamAccountingContext();
+        Object[] states;
+        // use the searcher of the shared shard context, so that the reader is the same as the one of the other iterators
+        SharedShardContext sharedShardContext = collectTask.sharedShardContexts().getOrCreateContext(indexShard.shardId());
+        try (Engine.Searcher searcher = sharedShardContext.acquireSearcher()) {
+            states = aggregateFromMetadata(searcher.reader(), functions, fieldNames, ramAccounting, bigArrays);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (states == null) {
+            return null;
+        }
+        Object[] cells = new Object[states.length];
+        for (int i = 0; i < states.length; i++) {
+            //noinspection unchecked
+            cells[i] = aggregationProjection.mode().finishCollect(ramAccounting, functions.get(i), states[i]);
+        }
+        return InMemoryBatchIterator.of(new RowN(cells), SENTINEL);
+    }
+
+    /**
+     * @param fieldNames the fields of the min/max aggregations, null for count(*)
+     * @return the states of the aggregations or null if they can't be computed from the metadata of the segments
+     */
+    @Nullable
+    static Object[] aggregateFromMetadata(IndexReader reader,
+                                          List<AggregationFunction> functions,
+                                          List<String> fieldNames,
+                                          RamAccountingContext ramAccounting,
+                                          BigArrays bigArrays) throws IOException {
+        Object[] states = new Object[functions.size()];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = functions.get(i).newState(ramAccounting, Version.CURRENT, bigArrays);
+        }
+        for (LeafReaderContext leaf : reader.leaves()) {
+            LeafReader leafReader = leaf.reader();
+            for (int i = 0; i < states.length; i++) {
+                AggregationFunction function = functions.get(i);
+                String fieldName = fieldNames.get(i);
+                Object segmentState;
+                if (fieldName == null) {
+                    segmentState = new CountAggregation.LongState(leafReader.numDocs());
+                } else {
+                    if (leafReader.hasDeletions()) {
+                        return null;
+                    }
+                    PointValues points = leafReader.getPointValues(fieldName);
+                    if (points == null) {
+                        // no document of the segment has a value
+                        continue;
+                    }
+                    if (points.getNumDataDimensions() != 1) {
+                        return null;
+                    }
+                    boolean isMin = function.info().ident().name().equals(MinimumAggregation.NAME);
+                    byte[] packedValue = isMin ? points.getMinPackedValue() : points.getMaxPackedValue();
+                    segmentState = decode(function.info().ident().argumentTypes().get(0), packedValue);
+                }
+                //noinspection unchecked
+                states[i] = function.reduce(ramAccounting, states[i], segmentState);
+            }
+        }
+        return states;
+    }
+
+    private static Object decode(DataType<?> type, byte[] packedValue) {
+        switch (type.id()) {
+            case ByteType.ID:
+                return (byte) IntPoint.decodeDimension(packedValue, 0);
+            case ShortType.ID:
+                return (short) IntPoint.decodeDimension(packedValue, 0);
+            case IntegerType.ID:
+                return IntPoint.decodeDimension(packedValue, 0);
+            case LongType.ID:
+            case TimestampType.ID_WITH_TZ:
+            case TimestampType.ID_WITHOUT_TZ:
+                return LongPoint.decodeDimension(packedValue, 0);
+            case FloatType.ID:
+                return FloatPoint.decodeDimension(packedValue, 0);
+            case DoubleType.ID:
+                return DoublePoint.decodeDimension(packedValue, 0);
+            default:
+                throw new IllegalArgumentException("Cannot decode point values of type " + type);
+        }
+    }
+
+    private static boolean isSupportedType(DataType<?> type) {
+        switch (type.id()) {
+            case ByteType.ID:
+            case ShortType.ID:
+            case IntegerType.ID:
+            case LongType.ID:
+            case TimestampType.ID_WITH_TZ:
+            case TimestampType.ID_WITHOUT_TZ:
+            case FloatType.ID:
+            case DoubleType.ID:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isMatchAll(Symbol where) {
+        return where instanceof Literal && Boolean.TRUE.equals(((Literal) where).value());
+    }
+
+    @Nullable
+    private static String getPointsFieldName(FieldTypeLookup fieldTypeLookup, List<Symbol> toCollect, Symbol input) {
+        if (!(input instanceof InputColumn)) {
+            return null;
+        }
+        Symbol symbol = toCollect.get(((InputColumn) input).index());
+        if (!(symbol instanceof Reference)) {
+            return null;
+        }
+        MappedFieldType fieldType = fieldTypeLookup.get(((Reference) symbol).column().fqn());
+        if (fieldType == null || fieldType.indexOptions() == IndexOptions.NONE) {
+            return null;
+        }
+        return fieldType.name();
+    }
+
+    @Nullable
+    private static AggregationProjection getSupportedAggregationProjection(Collection<? extends Projection> shardProjections) {
+        if (shardProjections.size() != 1) {
+            return null;
+        }
+        Projection shardProjection = shardProjections.iterator().next();
+        if (!(shardProjection instanceof AggregationProjection)) {
+            return null;
+        }
+        return (AggregationProjection) shardProjection;
+    }
+}
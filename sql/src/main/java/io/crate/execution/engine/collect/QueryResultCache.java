@@ -0,0 +1,381 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect;
+
+import io.crate.Streamer;
+import io.crate.breaker.CrateCircuitBreakerService;
+import io.crate.data.BatchIterator;
+import io.crate.data.Bucket;
+import io.crate.data.ForwardingBatchIterator;
+import io.crate.data.Row;
+import io.crate.execution.dsl.phases.RoutedCollectPhase;
+import io.crate.execution.dsl.projection.FilterProjection;
+import io.crate.execution.dsl.projection.Projection;
+import io.crate.execution.engine.distribution.StreamBucket;
+import io.crate.expression.symbol.Function;
+import io.crate.expression.symbol.Symbol;
+import io.crate.expression.symbol.SymbolVisitors;
+import io.crate.expression.symbol.Symbols;
+import io.crate.settings.CrateSetting;
+import io.crate.types.DataTypes;
+import org.apache.lucene.index.IndexReader;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.shard.ShardId;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Caches the rows which the collect phase of a shard emits after the shard projections, so that queries which are
+ * repeated while the shard doesn't change don't have to be re-computed.
+ * <p>
+ * Only phases whose shard projections end in a partial aggregation are cached, their result is small and doesn't
+ * depend on the order in which the documents are visited. The phase must not contain non-deterministic functions.
+ * <p>
+ * Entries are keyed by the shard, the cache key of the {@link IndexReader} and the serialized phase.
+ * They are removed once the reader is closed, which happens after a refresh made new changes visible,
+ * and otherwise evicted in least-recently-used order if the {@link CrateCircuitBreakerService#QUERY_RESULT_CACHE}
+ * circuit breaker, which accounts the size of all entries of the node, would break.
+ * <p>
+ * The rows are kept serialized: every hit deserializes new instances, which is required because aggregation states
+ * are mutated when they're merged.
+ */
+@Singleton
+public class QueryResultCache {
+
+    public static final CrateSetting<Boolean> QUERY_RESULT_CACHE_ENABLED_SETTING = CrateSetting.of(Setting.boolSetting(
+        "indices.query_result_cache.enabled", false, Setting.Property.NodeScope), DataTypes.BOOLEAN);
+
+    /**
+     * Rough estimate of the memory used by an entry in addition to the serialized rows: the key and the map entry
+     */
+    private static final long ENTRY_OVERHEAD = 128L;
+
+    private final boolean enabled;
+    private final CircuitBreaker breaker;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<IndexReader.CacheKey> readersWithCloseListener = new HashSet<>();
+
+    @Inject
+    public QueryResultCache(Settings settings, CrateCircuitBreakerService breakerService) {
+        this(QUERY_RESULT_CACHE_ENABLED_SETTING.setting().get(settings),
+            breakerService.getBreaker(CrateCircuitBreakerService.QUERY_RESULT_CACHE));
+    }
+
+    QueryResultCache(boolean enabled, CircuitBreaker breaker) {
+        this.enabled = enabled;
+        this.breaker = breaker;
+    }
+
+    /**
+     * Hit, miss and eviction counters of the entries of a shard.
+     */
+    public static class Stats {
+
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong evictions = new AtomicLong();
+        private final AtomicLong sizeInBytes = new AtomicLong();
+
+        public long hits() {
+            return hits.get();
+        }
+
+        public long misses() {
+            return misses.get();
+        }
+
+        public long evictions() {
+            return evictions.get();
+        }
+
+        public long sizeInBytes() {
+            return sizeInBytes.get();
+        }
+    }
+
+    public static final class Key {
+
+        private final ShardId shardId;
+        private final IndexReader.CacheKey readerKey;
+        private final BytesReference phase;
+
+        Key(ShardId shardId, IndexReader.CacheKey readerKey, BytesReference phase) {
+            this.shardId = shardId;
+            this.readerKey = readerKey;
+            this.phase = phase;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return readerKey == key.readerKey
+                   && shardId.equals(key.shardId)
+                   && phase.equals(key.phase);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(shardId, readerKey, phase);
+        }
+    }
+
+    private static final class Entry {
+
+        private final StreamBucket rows;
+        private final long sizeInBytes;
+        private final Stats stats;
+
+        private Entry(StreamBucket rows, long sizeInBytes, Stats stats) {
+            this.rows = rows;
+            this.sizeInBytes = sizeInBytes;
+            this.stats = stats;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the key of the result of the phase on the given reader or null if the result can't be cached.
+     */
+    @Nullable
+    public Key key(ShardId shardId,
+                   IndexReader reader,
+                   RoutedCollectPhase collectPhase,
+                   Collection<? extends Projection> shardProjections) {
+        if (!enabled || !isCacheable(collectPhase, shardProjections)) {
+            return null;
+        }
+        IndexReader.CacheHelper cacheHelper = reader.getReaderCacheHelper();
+        if (cacheHelper == null) {
+            return null;
+        }
+        IndexReader.CacheKey readerKey = cacheHelper.getKey();
+        synchronized (this) {
+            if (readersWithCloseListener.add(readerKey)) {
+                cacheHelper.addClosedListener(this::invalidate);
+            }
+        }
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            Symbols.toStream(collectPhase.where(), out);
+            Symbols.toStream(collectPhase.toCollect(), out);
+            out.writeVInt(shardProjections.size());
+            for (Projection projection : shardProjections) {
+                Projection.toStream(projection, out);
+            }
+            return new Key(shardId, readerKey, out.bytes());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    static boolean isCacheable(RoutedCollectPhase collectPhase, Collection<? extends Projection> shardProjections) {
+        if (shardProjections.isEmpty() || !ShardCollectorProvider.canCollectSlicesConcurrently(shardProjections)) {
+            return false;
+        }
+        Predicate<Symbol> isNonDeterministic = s -> s instanceof Function && !((Function) s).info().isDeterministic();
+        if (SymbolVisitors.any(isNonDeterministic, collectPhase.where())
+            || SymbolVisitors.any(isNonDeterministic, collectPhase.toCollect())) {
+            return false;
+        }
+        for (Projection projection : shardProjections) {
+            if (SymbolVisitors.any(isNonDeterministic, projection.outputs())) {
+                return false;
+            }
+            if (projection instanceof FilterProjection
+                && SymbolVisitors.any(isNonDeterministic, ((FilterProjection) projection).query())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the cached rows or null if there is no entry for the key
+     */
+    @Nullable
+    public synchronized Bucket get(Key key, Stats stats) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            stats.misses.incrementAndGet();
+            return null;
+        }
+        stats.hits.incrementAndGet();
+        return entry.rows;
+    }
+
+    /**
+     * Wraps the iterators which together produce the result of a phase.
+     * Once all of them have been consumed completely the rows they emitted are added to the cache.
+     */
+    public List<BatchIterator<Row>> cacheOnCompletion(Key key,
+                                                      Stats stats,
+                                                      Streamer<?>[] streamers,
+                                                      List<BatchIterator<Row>> iterators) {
+        StreamBucket.Builder rows = new StreamBucket.Builder(streamers, null);
+        AtomicInteger remaining = new AtomicInteger(iterators.size());
+        List<BatchIterator<Row>> result = new ArrayList<>(iterators.size());
+        for (BatchIterator<Row> iterator : iterators) {
+            result.add(new ResultRecordingBatchIterator(iterator, rows, () -> {
+                if (remaining.decrementAndGet() == 0) {
+                    StreamBucket bucket;
+                    synchronized (rows) {
+                        bucket = rows.build();
+                    }
+                    put(key, bucket, stats);
+                }
+            }));
+        }
+        return result;
+    }
+
+    synchronized void put(Key key, StreamBucket rows, Stats stats) {
+        if (!readersWithCloseListener.contains(key.readerKey)) {
+            // the reader was closed while the result was computed
+            return;
+        }
+        long sizeInBytes = rows.sizeInBytes() + ENTRY_OVERHEAD;
+        while (true) {
+            try {
+                breaker.addEstimateBytesAndMaybeBreak(sizeInBytes, CrateCircuitBreakerService.QUERY_RESULT_CACHE);
+                break;
+            } catch (CircuitBreakingException e) {
+                if (!evictEldest()) {
+                    return;
+                }
+            }
+        }
+        stats.sizeInBytes.addAndGet(sizeInBytes);
+        Entry previous = entries.put(key, new Entry(rows, sizeInBytes, stats));
+        if (previous != null) {
+            release(previous);
+        }
+    }
+
+    private boolean evictEldest() {
+        Iterator<Entry> it = entries.values().iterator();
+        if (!it.hasNext()) {
+            return false;
+        }
+        Entry eldest = it.next();
+        it.remove();
+        release(eldest);
+        eldest.stats.evictions.incrementAndGet();
+        return true;
+    }
+
+    private synchronized void invalidate(IndexReader.CacheKey readerKey) {
+        readersWithCloseListener.remove(readerKey);
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> entry = it.next();
+            if (entry.getKey().readerKey == readerKey) {
+                it.remove();
+                release(entry.getValue());
+                entry.getValue().stats.evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private void release(Entry entry) {
+        breaker.addWithoutBreaking(-entry.sizeInBytes);
+        entry.stats.sizeInBytes.addAndGet(-entry.sizeInBytes);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Records the rows of a BatchIterator and calls {@code onCompletion} once it has been consumed completely.
+     * Nothing is reported if the iterator is repositioned with {@link #moveToStart()}.
+     */
+    private static class ResultRecordingBatchIterator extends ForwardingBatchIterator<Row> {
+
+        private final BatchIterator<Row> delegate;
+        private final StreamBucket.Builder rows;
+        private final Runnable onCompletion;
+        private boolean recording = true;
+
+        ResultRecordingBatchIterator(BatchIterator<Row> delegate, StreamBucket.Builder rows, Runnable onCompletion) {
+            this.delegate = delegate;
+            this.rows = rows;
+            this.onCompletion = onCompletion;
+        }
+
+        @Override
+        protected BatchIterator<Row> delegate() {
+            return delegate;
+        }
+
+        @Override
+        public void moveToStart() {
+            recording = false;
+            super.moveToStart();
+        }
+
+        @Override
+        public boolean moveNext() {
+            if (delegate.moveNext()) {
+                if (recording) {
+                    synchronized (rows) {
+                        rows.add(delegate.currentElement());
+                    }
+                }
+                return true;
+            }
+            if (recording && delegate.allLoaded()) {
+                recording = false;
+                onCompletion.run();
+            }
+            return false;
+        }
+    }
+}
@@ -23,12 +23,17 @@
 package io.crate.execution.engine.collect;
 
 import io.crate.analyze.QueryClause;
+import io.crate.collections.Lists2;
 import io.crate.data.BatchIterator;
 import io.crate.data.InMemoryBatchIterator;
 import io.crate.data.Row;
 import io.crate.data.SentinelRow;
 import io.crate.execution.TransportActionProvider;
 import io.crate.execution.dsl.phases.RoutedCollectPhase;
+import io.crate.execution.dsl.projection.AggregationProjection;
+import io.crate.execution.dsl.projection.GroupProjection;
+import io.crate.execution.dsl.projection.Projection;
+import io.crate.execution.dsl.projection.ProjectionType;
 import io.crate.execution.dsl.projection.Projections;
 import io.crate.execution.engine.collect.collectors.OrderedDocCollector;
 import io.crate.execution.engine.pipeline.ProjectionToProjectorVisitor;
@@ -39,6 +44,7 @@ import io.crate.execution.jobs.SharedShardContext;
 import io.crate.expression.InputFactory;
 import io.crate.expression.eval.EvaluatingNormalizer;
 import io.crate.expression.reference.sys.shard.ShardRowContext;
+import io.crate.expression.symbol.AggregateMode;
 import io.crate.metadata.Functions;
 import io.crate.metadata.RowGranularity;
 import io.crate.metadata.Schemas;
@@ -50,6 +56,9 @@ import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 public abstract class ShardCollectorProvider {
 
@@ -98,6 +107,20 @@ public abstract class ShardCollectorProvider {
     public BatchIterator<Row> getIterator(RoutedCollectPhase collectPhase,
                                           boolean requiresScroll,
                                           CollectTask collectTask) throws Exception {
+        return Lists2.getOnlyElement(getIterators(collectPhase, requiresScroll, collectTask, 1));
+    }
+
+    /**
+     * Like {@link #getIterator(RoutedCollectPhase, boolean, CollectTask)}, but the documents of the shard may be split
+     * into up to {@code maxSlices} BatchIterators which can be consumed concurrently.
+     * <p>
+     * The shard is only split if the shard projections end in a partial aggregation,
+     * see {@link #canCollectSlicesConcurrently(Collection)}. In all other cases a single BatchIterator is returned.
+     */
+    public List<BatchIterator<Row>> getIterators(RoutedCollectPhase collectPhase,
+                                                 boolean requiresScroll,
+                                                 CollectTask collectTask,
+                                                 int maxSlices) throws Exception {
         assert collectPhase.orderBy() == null
             : "getDocCollector shouldn't be called if there is an orderBy on the collectPhase";
         assert collectPhase.maxRowGranularity() == RowGranularity.DOC :
@@ -106,22 +129,48 @@ public abstract class ShardCollectorProvider {
         RoutedCollectPhase normalizedCollectNode = collectPhase.normalize(shardNormalizer, null);
         BatchIterator<Row> fusedIterator = getProjectionFusedIterator(normalizedCollectNode, collectTask);
         if (fusedIterator != null) {
-            return fusedIterator;
+            return Collections.singletonList(fusedIterator);
         }
-        final BatchIterator<Row> iterator;
+        Collection<? extends Projection> shardProjections = Projections.shardProjections(collectPhase.projections());
+        final List<BatchIterator<Row>> iterators;
         if (QueryClause.canMatch(normalizedCollectNode.where())) {
-            iterator = getUnorderedIterator(normalizedCollectNode, requiresScroll, collectTask);
+            int numSlices = canCollectSlicesConcurrently(shardProjections) ? maxSlices : 1;
+            iterators = getUnorderedIterators(normalizedCollectNode, requiresScroll, collectTask, numSlices);
         } else {
-            iterator = InMemoryBatchIterator.empty(SentinelRow.SENTINEL);
+            iterators = Collections.singletonList(InMemoryBatchIterator.empty(SentinelRow.SENTINEL));
         }
-        return Projectors.wrap(
-            Projections.shardProjections(collectPhase.projections()),
+        return Lists2.map(iterators, iterator -> Projectors.wrap(
+            shardProjections,
             collectPhase.jobId(),
             collectTask.txnCtx(),
             collectTask.queryPhaseRamAccountingContext(),
             projectorFactory,
             iterator
-        );
+        ));
+    }
+
+    /**
+     * Splitting the documents of a shard is only safe if the shard projections compute partial aggregation states
+     * from row-wise filtered or evaluated input. The partial states of the slices are then merged in the same way
+     * as the partial states of different shards.
+     * Without such an aggregation the slices couldn't be consumed concurrently anyway.
+     */
+    static boolean canCollectSlicesConcurrently(Collection<? extends Projection> shardProjections) {
+        Projection last = null;
+        for (Projection projection : shardProjections) {
+            if (last != null && last.projectionType() != ProjectionType.FILTER
+                && last.projectionType() != ProjectionType.EVAL) {
+                return false;
+            }
+            last = projection;
+        }
+        if (last instanceof GroupProjection) {
+            return ((GroupProjection) last).mode() == AggregateMode.ITER_PARTIAL;
+        }
+        if (last instanceof AggregationProjection) {
+            return ((AggregationProjection) last).mode() == AggregateMode.ITER_PARTIAL;
+        }
+        return false;
     }
 
     /**
@@ -137,6 +186,17 @@ public abstract class ShardCollectorProvider {
                                                                boolean requiresScroll,
                                                                CollectTask collectTask);
 
+    /**
+     * @return up to {@code maxSlices} BatchIterators which together expose the same rows as
+     *         {@link #getUnorderedIterator(RoutedCollectPhase, boolean, CollectTask)}.
+     */
+    protected List<BatchIterator<Row>> getUnorderedIterators(RoutedCollectPhase collectPhase,
+                                                             boolean requiresScroll,
+                                                             CollectTask collectTask,
+                                                             int maxSlices) {
+        return Collections.singletonList(getUnorderedIterator(collectPhase, requiresScroll, collectTask));
+    }
+
 
     public abstract OrderedDocCollector getOrderedCollector(RoutedCollectPhase collectPhase,
                                                             SharedShardContext sharedShardContext,
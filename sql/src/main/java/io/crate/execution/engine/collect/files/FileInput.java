@@ -21,6 +21,8 @@
 
 package io.crate.execution.engine.collect.files;
 
+import com.google.common.io.ByteStreams;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
@@ -43,5 +45,23 @@ public interface FileInput {
 
     InputStream getStream(URI uri) throws IOException;
 
+    /**
+     * Returns a stream starting at the given byte offset of the file.
+     * Implementations which support random access should override this instead of skipping the leading bytes.
+     */
+    default InputStream getStream(URI uri, long offset) throws IOException {
+        InputStream stream = getStream(uri);
+        ByteStreams.skipFully(stream, offset);
+        return stream;
+    }
+
+    /**
+     * @return the size of the file in bytes, or -1 if the size is unknown.
+     * Only files with a known size are split into byte ranges which are read concurrently.
+     */
+    default long size(URI uri) throws IOException {
+        return -1L;
+    }
+
     boolean sharedStorageDefault();
 }
@@ -21,6 +21,8 @@
 
 package io.crate.execution.engine.collect.files;
 
+import com.github.luben.zstd.ZstdInputStream;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableList;
 import io.crate.concurrent.CompletableFutures;
@@ -29,27 +31,30 @@ import io.crate.data.CloseAssertingBatchIterator;
 import io.crate.data.Input;
 import io.crate.data.Row;
 import io.crate.execution.dsl.phases.FileUriCollectPhase;
+import io.crate.execution.engine.columnar.ColumnarFileFooter;
+import io.crate.execution.engine.columnar.ColumnarFileReader;
 import io.crate.expression.InputRow;
+import io.crate.expression.reference.file.SourceLineNumberExpression;
+import net.jpountz.lz4.LZ4FrameInputStream;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.common.collect.Tuple;
 import org.apache.logging.log4j.LogManager;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.SocketTimeoutException;
 import java.net.URI;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Predicate;
@@ -59,15 +64,38 @@ import java.util.zip.GZIPInputStream;
 
 import static io.crate.exceptions.Exceptions.rethrowUnchecked;
 
+/**
+ * Reads the lines of the files matching the given URIs.
+ * <p>
+ * The files are distributed across several readers: {@code numReaders} readers on different nodes and
+ * {@code numLocalReaders} readers on the same node.
+ * Uncompressed files with a known size of at least {@link #MIN_RANGE_SIZE_IN_BYTES} are split into byte ranges
+ * aligned to line boundaries (see {@link LineRangeInputStream}), so that one large file can be read by several
+ * readers concurrently. Files aren't split if the line numbers are collected, as a reader of a range doesn't
+ * know how many lines precede it.
+ * <p>
+ * Files in the {@link FileUriCollectPhase.InputFormat#COLUMNAR} format are split by row groups instead, see
+ * {@link ColumnarFileReader}. All columns of these files are read, so that columns which don't exist in a table
+ * with a strict column policy fail the rows like they do for the other formats.
+ */
 public class FileReadingIterator implements BatchIterator<Row> {
 
     private static final Logger LOGGER = LogManager.getLogger(FileReadingIterator.class);
     private static final int MAX_SOCKET_TIMEOUT_RETRIES = 5;
+
+    @VisibleForTesting
+    static final long MIN_RANGE_SIZE_IN_BYTES = 64 * 1024 * 1024;
+
     private final Map<String, FileInputFactory> fileInputFactories;
     private final Boolean shared;
     private final int numReaders;
     private final int readerNumber;
-    private final boolean compressed;
+    private final int numLocalReaders;
+    private final int localReaderNumber;
+    private final long minRangeSizeInBytes;
+    @Nullable
+    private final String compression;
+    private final boolean splitFiles;
 
     private static final Pattern HAS_GLOBS_PATTERN = Pattern.compile("(.*)[^\\\\]\\*.*");
     private static final Predicate<URI> MATCH_ALL_PREDICATE = (URI input) -> true;
@@ -77,34 +105,53 @@ public class FileReadingIterator implements BatchIterator<Row> {
     private FileUriCollectPhase.InputFormat inputFormat;
     private Iterator<Tuple<FileInput, UriWithGlob>> fileInputsIterator = null;
     private Tuple<FileInput, UriWithGlob> currentInput = null;
-    private Iterator<URI> currentInputIterator = null;
+    private Iterator<FileRange> currentInputIterator = null;
+    private FileRange currentRange;
     private URI currentUri;
-    private BufferedReader currentReader = null;
+    private Utf8LineReader currentReader = null;
+    private ColumnarFileReader currentColumnarReader = null;
     private long currentLineNumber;
     private final Row row;
     private LineProcessor lineProcessor;
 
-    private FileReadingIterator(Collection<String> fileUris,
-                                List<? extends Input<?>> inputs,
-                                Iterable<LineCollectorExpression<?>> collectorExpressions,
-                                String compression,
-                                Map<String, FileInputFactory> fileInputFactories,
-                                Boolean shared,
-                                int numReaders,
-                                int readerNumber,
-                                FileUriCollectPhase.InputFormat inputFormat) {
-        this.compressed = compression != null && compression.equalsIgnoreCase("gzip");
+    @VisibleForTesting
+    FileReadingIterator(Collection<String> fileUris,
+                        List<? extends Input<?>> inputs,
+                        Iterable<LineCollectorExpression<?>> collectorExpressions,
+                        String compression,
+                        Map<String, FileInputFactory> fileInputFactories,
+                        Boolean shared,
+                        int numReaders,
+                        int readerNumber,
+                        int numLocalReaders,
+                        int localReaderNumber,
+                        long minRangeSizeInBytes,
+                        FileUriCollectPhase.InputFormat inputFormat) {
+        this.compression = compression == null ? null : compression.toLowerCase(Locale.ENGLISH);
         this.row = new InputRow(inputs);
         this.fileInputFactories = fileInputFactories;
         this.shared = shared;
         this.numReaders = numReaders;
         this.readerNumber = readerNumber;
+        this.numLocalReaders = numLocalReaders;
+        this.localReaderNumber = localReaderNumber;
+        this.minRangeSizeInBytes = minRangeSizeInBytes;
         this.urisWithGlob = getUrisWithGlob(fileUris);
         this.collectorExpressions = collectorExpressions;
+        this.splitFiles = this.compression == null && !collectsLineNumbers(collectorExpressions);
         this.inputFormat = inputFormat;
         initCollectorState();
     }
 
+    private static boolean collectsLineNumbers(Iterable<LineCollectorExpression<?>> collectorExpressions) {
+        for (LineCollectorExpression<?> collectorExpression : collectorExpressions) {
+            if (collectorExpression instanceof SourceLineNumberExpression) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public Row currentElement() {
         return row;
@@ -124,8 +171,28 @@ public class FileReadingIterator implements BatchIterator<Row> {
                                                  int numReaders,
                                                  int readerNumber,
                                                  FileUriCollectPhase.InputFormat inputFormat) {
+        return newInstance(fileUris, inputs, collectorExpressions, compression, fileInputFactories, shared,
+            numReaders, readerNumber, 1, 0, inputFormat);
+    }
+
+    /**
+     * @param numLocalReaders   the number of readers on this node which read the files concurrently
+     * @param localReaderNumber the number of this reader, 0 to numLocalReaders - 1
+     */
+    public static BatchIterator<Row> newInstance(Collection<String> fileUris,
+                                                 List<Input<?>> inputs,
+                                                 Iterable<LineCollectorExpression<?>> collectorExpressions,
+                                                 String compression,
+                                                 Map<String, FileInputFactory> fileInputFactories,
+                                                 Boolean shared,
+                                                 int numReaders,
+                                                 int readerNumber,
+                                                 int numLocalReaders,
+                                                 int localReaderNumber,
+                                                 FileUriCollectPhase.InputFormat inputFormat) {
         return new CloseAssertingBatchIterator<>(new FileReadingIterator(fileUris, inputs, collectorExpressions,
-            compression, fileInputFactories, shared, numReaders, readerNumber, inputFormat));
+            compression, fileInputFactories, shared, numReaders, readerNumber, numLocalReaders, localReaderNumber,
+            MIN_RANGE_SIZE_IN_BYTES, inputFormat));
     }
 
     private void initCollectorState() {
@@ -148,16 +215,22 @@ public class FileReadingIterator implements BatchIterator<Row> {
     @Override
     public boolean moveNext() {
         try {
-            if (currentReader != null) {
-                String line = getLine(currentReader, currentLineNumber, 0);
-                if (line == null) {
+            if (currentColumnarReader != null) {
+                if (readRow(currentColumnarReader) == false) {
+                    currentColumnarReader = null;
+                    return moveNext();
+                }
+                lineProcessor.process(currentColumnarReader);
+                return true;
+            } else if (currentReader != null) {
+                if (readLine(currentReader, currentLineNumber, 0) == false) {
                     closeCurrentReader();
                     return moveNext();
                 }
-                lineProcessor.process(line);
+                lineProcessor.process(currentReader.buffer(), currentReader.lineOffset(), currentReader.lineLength());
                 return true;
             } else if (currentInputIterator != null && currentInputIterator.hasNext()) {
-                advanceToNextUri(currentInput.v1());
+                advanceToNextRange(currentInput.v1());
                 return moveNext();
             } else if (fileInputsIterator != null && fileInputsIterator.hasNext()) {
                 advanceToNextFileInput();
@@ -172,36 +245,153 @@ public class FileReadingIterator implements BatchIterator<Row> {
         }
     }
 
-    private void advanceToNextUri(FileInput fileInput) throws IOException {
-        currentUri = currentInputIterator.next();
-        initCurrentReader(fileInput, currentUri);
+    private void advanceToNextRange(FileInput fileInput) throws IOException {
+        currentRange = currentInputIterator.next();
+        currentUri = currentRange.uri;
+        initCurrentReader(fileInput, currentRange);
     }
 
     private void advanceToNextFileInput() throws IOException {
         currentInput = fileInputsIterator.next();
         FileInput fileInput = currentInput.v1();
         UriWithGlob fileUri = currentInput.v2();
-        Predicate<URI> uriPredicate = generateUriPredicate(fileInput, fileUri.globPredicate);
+        Predicate<URI> uriPredicate = generateUriPredicate(fileUri.globPredicate);
         List<URI> uris = getUris(fileInput, fileUri.uri, fileUri.preGlobUri, uriPredicate);
+        List<FileRange> ranges = new ArrayList<>(uris.size());
+        boolean anyAssignedToThisNode = assignRanges(fileInput, uris, ranges);
 
-        if (uris.size() > 0) {
-            currentInputIterator = uris.iterator();
-            advanceToNextUri(fileInput);
-        } else if (fileUri.preGlobUri != null) {
+        if (ranges.size() > 0) {
+            currentInputIterator = ranges.iterator();
+            advanceToNextRange(fileInput);
+        } else if (fileUri.preGlobUri != null && !anyAssignedToThisNode && localReaderNumber == 0) {
             lineProcessor.startWithUri(fileUri.uri);
             throw new IOException("Cannot find any URI matching: " + fileUri.uri.toString());
         }
     }
 
-    private void initCurrentReader(FileInput fileInput, URI uri) throws IOException {
+    private void initCurrentReader(FileInput fileInput, FileRange range) throws IOException {
+        URI uri = range.uri;
         lineProcessor.startWithUri(uri);
-        InputStream stream = fileInput.getStream(uri);
-        currentReader = createBufferedReader(stream);
         currentLineNumber = 0;
-        lineProcessor.readFirstLine(currentUri, inputFormat, currentReader);
+        if (range.footer != null) {
+            currentColumnarReader = new ColumnarFileReader(
+                columnarSource(fileInput, uri), range.footer, (int) range.start, (int) range.end);
+        } else if (range.isWholeFile()) {
+            currentReader = createLineReader(fileInput.getStream(uri));
+            lineProcessor.readFirstLine(uri, inputFormat, currentReader);
+        } else if (range.start == 0) {
+            currentReader = createLineReader(LineRangeInputStream.open(fileInput, uri, range.start, range.end));
+            lineProcessor.readFirstLine(uri, inputFormat, currentReader);
+        } else {
+            // the header of a CSV file is only part of the first range
+            try (Utf8LineReader headerReader = createLineReader(fileInput.getStream(uri))) {
+                lineProcessor.readFirstLine(uri, inputFormat, headerReader);
+            }
+            currentReader = createLineReader(LineRangeInputStream.open(fileInput, uri, range.start, range.end));
+        }
+    }
+
+    /**
+     * Adds the ranges of the given files which are read by this reader to {@code ranges}.
+     * <p>
+     * If the files are on a shared storage, they're distributed across the local readers of all nodes,
+     * otherwise each node reads all files and they're only distributed across the local readers.
+     * The ranges of a file are assigned to consecutive readers, starting at a reader determined by the hash
+     * of the file URI. The ranges of a columnar file consist of row groups, the ranges of other files of bytes.
+     *
+     * @return true if any range is read by a reader on this node.
+     */
+    private boolean assignRanges(FileInput fileInput, List<URI> uris, List<FileRange> ranges) throws IOException {
+        boolean sharedStorage = MoreObjects.firstNonNull(shared, fileInput.sharedStorageDefault());
+        int numNodes = sharedStorage ? numReaders : 1;
+        int nodeNumber = sharedStorage ? readerNumber : 0;
+        int numTotalReaders = numNodes * numLocalReaders;
+        int totalReaderNumber = localReaderNumber * numNodes + nodeNumber;
+        boolean anyAssignedToThisNode = false;
+        for (URI uri : uris) {
+            List<FileRange> fileRanges = inputFormat == FileUriCollectPhase.InputFormat.COLUMNAR
+                ? rowGroupRanges(fileInput, uri, numTotalReaders)
+                : byteRanges(fileInput, uri, numTotalReaders);
+            int firstReader = positiveHash(uri) % numTotalReaders;
+            for (int i = 0; i < fileRanges.size(); i++) {
+                int reader = (firstReader + i) % numTotalReaders;
+                if (reader % numNodes == nodeNumber) {
+                    anyAssignedToThisNode = true;
+                }
+                if (reader == totalReaderNumber) {
+                    ranges.add(fileRanges.get(i));
+                }
+            }
+        }
+        return anyAssignedToThisNode;
+    }
+
+    private List<FileRange> byteRanges(FileInput fileInput, URI uri, int numTotalReaders) throws IOException {
+        long size = splitFiles && numTotalReaders > 1 ? fileInput.size(uri) : -1L;
+        int numRanges = numRanges(size, numTotalReaders);
+        if (numRanges == 1) {
+            return Collections.singletonList(new FileRange(uri, 0, -1, null));
+        }
+        long rangeSize = (size + numRanges - 1) / numRanges;
+        List<FileRange> ranges = new ArrayList<>(numRanges);
+        for (int i = 0; i < numRanges; i++) {
+            long start = i * rangeSize;
+            // the last range is read until the end of the file, even if it grew in the meantime
+            long end = i == numRanges - 1 ? Long.MAX_VALUE : start + rangeSize;
+            ranges.add(new FileRange(uri, start, end, null));
+        }
+        return ranges;
+    }
+
+    private List<FileRange> rowGroupRanges(FileInput fileInput, URI uri, int numTotalReaders) throws IOException {
+        lineProcessor.startWithUri(uri);
+        ColumnarFileFooter footer = ColumnarFileReader.readFooter(columnarSource(fileInput, uri));
+        int numRowGroups = footer.numRowGroups();
+        int numRanges = splitFiles ? Math.max(1, Math.min(numTotalReaders, numRowGroups)) : 1;
+        List<FileRange> ranges = new ArrayList<>(numRanges);
+        for (int i = 0; i < numRanges; i++) {
+            long start = (long) i * numRowGroups / numRanges;
+            long end = (long) (i + 1) * numRowGroups / numRanges;
+            ranges.add(new FileRange(uri, start, end, footer));
+        }
+        return ranges;
+    }
+
+    private static ColumnarFileReader.Source columnarSource(FileInput fileInput, URI uri) {
+        return new ColumnarFileReader.Source() {
+            @Override
+            public InputStream open(long offset) throws IOException {
+                return fileInput.getStream(uri, offset);
+            }
+
+            @Override
+            public long size() throws IOException {
+                long size = fileInput.size(uri);
+                if (size < 0) {
+                    throw new IOException("Cannot read columnar file with unknown size: " + uri);
+                }
+                return size;
+            }
+        };
+    }
+
+    private int numRanges(long size, int numTotalReaders) {
+        if (size < 2 * minRangeSizeInBytes) {
+            return 1;
+        }
+        return (int) Math.min(numTotalReaders, size / minRangeSizeInBytes);
+    }
+
+    private static int positiveHash(URI uri) {
+        int hash = uri.hashCode();
+        if (hash == Integer.MIN_VALUE) {
+            hash = 0; // Math.abs(Integer.MIN_VALUE) == Integer.MIN_VALUE
+        }
+        return Math.abs(hash);
     }
 
     private void closeCurrentReader() {
+        currentColumnarReader = null;
         if (currentReader != null) {
             try {
                 currentReader.close();
@@ -212,18 +402,37 @@ public class FileReadingIterator implements BatchIterator<Row> {
         }
     }
 
-    private String getLine(BufferedReader reader, long startFrom, int retry) throws IOException {
-        String line = null;
+    /**
+     * Moves the reader to the next row. The reader is discarded if it fails, so that the remaining rows are skipped.
+     *
+     * @return false if there are no more rows.
+     */
+    private boolean readRow(ColumnarFileReader reader) throws IOException {
         try {
-            while ((line = reader.readLine()) != null) {
+            return reader.nextRow();
+        } catch (IOException e) {
+            currentColumnarReader = null;
+            LOGGER.info("Error during COPY FROM '{}'", e, currentUri.toString());
+            throw e;
+        }
+    }
+
+    /**
+     * Moves the reader to the next non-empty line.
+     *
+     * @return false if there are no more lines.
+     */
+    private boolean readLine(Utf8LineReader reader, long startFrom, int retry) throws IOException {
+        try {
+            while (reader.readLine()) {
                 currentLineNumber++;
                 if (currentLineNumber < startFrom) {
                     continue;
                 }
-                if (line.length() == 0) {
+                if (reader.lineLength() == 0) {
                     continue;
                 }
-                break;
+                return true;
             }
         } catch (SocketTimeoutException e) {
             if (retry > MAX_SOCKET_TIMEOUT_RETRIES) {
@@ -233,8 +442,8 @@ public class FileReadingIterator implements BatchIterator<Row> {
             } else {
                 long startLine = currentLineNumber + 1;
                 closeCurrentReader();
-                initCurrentReader(currentInput.v1(), currentUri);
-                return getLine(currentReader, startLine, retry + 1);
+                initCurrentReader(currentInput.v1(), currentRange);
+                return readLine(currentReader, startLine, retry + 1);
             }
         } catch (Exception e) {
             URI uri = currentInput.v2().uri;
@@ -243,7 +452,7 @@ public class FileReadingIterator implements BatchIterator<Row> {
             LOGGER.info("Error during COPY FROM '{}'", e, uri.toString());
             rethrowUnchecked(e);
         }
-        return line;
+        return false;
     }
 
     @Override
@@ -256,6 +465,7 @@ public class FileReadingIterator implements BatchIterator<Row> {
         fileInputsIterator = null;
         currentInputIterator = null;
         currentInput = null;
+        currentRange = null;
         currentUri = null;
     }
 
@@ -274,6 +484,29 @@ public class FileReadingIterator implements BatchIterator<Row> {
         return true;
     }
 
+    private static class FileRange {
+        final URI uri;
+        final long start;
+        final long end;
+        @Nullable
+        final ColumnarFileFooter footer;
+
+        /**
+         * @param end the end of the range (exclusive) or -1 if the whole file is read
+         * @param footer the footer of a columnar file, start and end are row group numbers then, not byte offsets
+         */
+        FileRange(URI uri, long start, long end, @Nullable ColumnarFileFooter footer) {
+            this.uri = uri;
+            this.start = start;
+            this.end = end;
+            this.footer = footer;
+        }
+
+        boolean isWholeFile() {
+            return end == -1;
+        }
+    }
+
     private static class UriWithGlob {
         final URI uri;
         final URI preGlobUri;
@@ -356,15 +589,20 @@ public class FileReadingIterator implements BatchIterator<Row> {
         return new URLFileInput(fileUri);
     }
 
-    private BufferedReader createBufferedReader(InputStream inputStream) throws IOException {
-        BufferedReader reader;
-        if (compressed) {
-            reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(inputStream),
-                StandardCharsets.UTF_8));
-        } else {
-            reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    private Utf8LineReader createLineReader(InputStream inputStream) throws IOException {
+        if (compression == null) {
+            return new Utf8LineReader(inputStream);
+        }
+        switch (compression) {
+            case "gzip":
+                return new Utf8LineReader(new GZIPInputStream(inputStream));
+            case "lz4":
+                return new Utf8LineReader(new LZ4FrameInputStream(inputStream));
+            case "zstd":
+                return new Utf8LineReader(new ZstdInputStream(inputStream));
+            default:
+                return new Utf8LineReader(inputStream);
         }
-        return reader;
     }
 
     private static List<URI> getUris(FileInput fileInput, URI fileUri, URI preGlobUri, Predicate<URI> uriPredicate) throws IOException {
@@ -379,25 +617,11 @@ public class FileReadingIterator implements BatchIterator<Row> {
         return uris;
     }
 
-    private Predicate<URI> generateUriPredicate(FileInput fileInput, @Nullable Predicate<URI> globPredicate) {
-        Predicate<URI> moduloPredicate;
-        boolean sharedStorage = MoreObjects.firstNonNull(shared, fileInput.sharedStorageDefault());
-        if (sharedStorage) {
-            moduloPredicate = input -> {
-                int hash = input.hashCode();
-                if (hash == Integer.MIN_VALUE) {
-                    hash = 0; // Math.abs(Integer.MIN_VALUE) == Integer.MIN_VALUE
-                }
-                return Math.abs(hash) % numReaders == readerNumber;
-            };
-        } else {
-            moduloPredicate = MATCH_ALL_PREDICATE;
-        }
-
+    private static Predicate<URI> generateUriPredicate(@Nullable Predicate<URI> globPredicate) {
         if (globPredicate != null) {
-            return moduloPredicate.and(globPredicate);
+            return globPredicate;
         }
-        return moduloPredicate;
+        return MATCH_ALL_PREDICATE;
     }
 
     private static class GlobPredicate implements Predicate<URI> {
@@ -22,12 +22,15 @@
 package io.crate.execution.engine.collect.files;
 
 import io.crate.execution.dsl.phases.FileUriCollectPhase;
+import io.crate.execution.engine.columnar.ColumnarFileReader;
 import io.crate.operation.collect.files.CSVLineParser;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.net.URI;
-import java.nio.charset.StandardCharsets;
 
 public class LineParser {
 
@@ -35,27 +38,52 @@ public class LineParser {
 
     private InputType inputType;
 
+    private final BytesRef line = new BytesRef();
+
     private enum InputType {
         CSV,
         JSON
     }
 
-    public void readFirstLine(URI currentUri, FileUriCollectPhase.InputFormat inputFormat, BufferedReader currentReader) throws IOException {
+    void readFirstLine(URI currentUri, FileUriCollectPhase.InputFormat inputFormat, Utf8LineReader currentReader) throws IOException {
         if (isInputCsv(inputFormat, currentUri)) {
             csvLineParser = new CSVLineParser();
-            csvLineParser.parseHeader(currentReader);
+            if (currentReader.readLine()) {
+                csvLineParser.parseHeader(currentReader.buffer(), currentReader.lineOffset(), currentReader.lineLength());
+            } else {
+                csvLineParser.parseHeader(BytesRef.EMPTY_BYTES, 0, 0);
+            }
             inputType = InputType.CSV;
         } else {
             inputType = InputType.JSON;
         }
     }
 
-    public byte[] getByteArray(String line) throws IOException {
+    /**
+     * Returns the given UTF-8 encoded line as JSON. JSON lines are returned as they are, without copying them.
+     * The result is only valid until the next line is converted.
+     */
+    BytesRef toJson(byte[] bytes, int offset, int length) throws IOException {
         if (inputType == InputType.CSV) {
-            return csvLineParser.parse(line);
-        } else {
-            return line.getBytes(StandardCharsets.UTF_8);
+            return csvLineParser.parse(bytes, offset, length);
+        }
+        line.bytes = bytes;
+        line.offset = offset;
+        line.length = length;
+        return line;
+    }
+
+    /**
+     * Returns the current row of the given columnar file reader as JSON object.
+     */
+    BytesRef toJson(ColumnarFileReader reader) throws IOException {
+        XContentBuilder builder = XContentFactory.jsonBuilder();
+        builder.startObject();
+        for (int i = 0; i < reader.numColumns(); i++) {
+            builder.field(reader.columnName(i), reader.value(i));
         }
+        builder.endObject();
+        return BytesReference.bytes(builder).toBytesRef();
     }
 
     private boolean isInputCsv(FileUriCollectPhase.InputFormat inputFormat, URI currentUri) {
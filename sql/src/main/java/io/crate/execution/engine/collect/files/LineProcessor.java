@@ -22,9 +22,10 @@
 package io.crate.execution.engine.collect.files;
 
 import io.crate.execution.dsl.phases.FileUriCollectPhase.InputFormat;
+import io.crate.execution.engine.columnar.ColumnarFileReader;
 import io.crate.expression.reference.file.LineContext;
+import org.apache.lucene.util.BytesRef;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.net.URI;
 
@@ -44,14 +45,27 @@ public class LineProcessor {
         lineContext.currentUri(currentUri);
     }
 
-    void readFirstLine(URI currentUri, InputFormat inputFormat, BufferedReader currentReader) throws IOException {
+    void readFirstLine(URI currentUri, InputFormat inputFormat, Utf8LineReader currentReader) throws IOException {
         lineParser.readFirstLine(currentUri, inputFormat, currentReader);
     }
 
-    public void process(String line) throws IOException {
+    /**
+     * Processes the UTF-8 encoded line {@code bytes[offset..offset+length)}.
+     * The bytes are referenced until the next line is processed, they're not copied.
+     */
+    public void process(byte[] bytes, int offset, int length) throws IOException {
         lineContext.incrementCurrentLineNumber();
-        byte[] jsonByteArray = lineParser.getByteArray(line);
-        lineContext.rawSource(jsonByteArray);
+        BytesRef json = lineParser.toJson(bytes, offset, length);
+        lineContext.rawSource(json.bytes, json.offset, json.length);
+    }
+
+    /**
+     * Processes the current row of the given columnar file reader.
+     */
+    void process(ColumnarFileReader reader) throws IOException {
+        lineContext.incrementCurrentLineNumber();
+        BytesRef json = lineParser.toJson(reader);
+        lineContext.rawSource(json.bytes, json.offset, json.length);
     }
 
     public void setFailure(String failure) {
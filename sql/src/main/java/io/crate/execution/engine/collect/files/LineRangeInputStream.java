@@ -0,0 +1,121 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.files;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+/**
+ * An InputStream over all lines of a file which start within the byte range [start, end).
+ * <p>
+ * A line which crosses the end of the range is read completely, a line which crosses the start of the range is
+ * skipped as it belongs to the previous range. This way a file split into consecutive ranges is read exactly once,
+ * without having to know where the lines are when splitting it.
+ */
+final class LineRangeInputStream extends InputStream {
+
+    private final InputStream delegate;
+    private long remaining;
+    private int lastByte = '\n';
+    private boolean eof = false;
+
+    static InputStream open(FileInput fileInput, URI uri, long start, long end) throws IOException {
+        if (start == 0) {
+            return new LineRangeInputStream(fileInput.getStream(uri), end);
+        }
+        // start reading at the byte before the range to find out if the range starts with a new line
+        InputStream stream = new BufferedInputStream(fileInput.getStream(uri, start - 1));
+        long position = start - 1;
+        int b;
+        while ((b = stream.read()) != -1) {
+            position++;
+            if (b == '\n') {
+                break;
+            }
+        }
+        return new LineRangeInputStream(stream, end - position);
+    }
+
+    private LineRangeInputStream(InputStream delegate, long remaining) {
+        this.delegate = delegate;
+        this.remaining = remaining;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (eof || (remaining <= 0 && lastByte == '\n')) {
+            eof = true;
+            return -1;
+        }
+        int b = delegate.read();
+        if (b == -1) {
+            eof = true;
+            return -1;
+        }
+        remaining--;
+        lastByte = b;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (eof || (remaining <= 0 && lastByte == '\n')) {
+            eof = true;
+            return -1;
+        }
+        if (remaining > 0) {
+            int read = delegate.read(b, off, (int) Math.min(len, remaining));
+            if (read == -1) {
+                eof = true;
+                return -1;
+            }
+            remaining -= read;
+            lastByte = b[off + read - 1];
+            return read;
+        }
+        // past the end of the range, read up to the end of the current line
+        int read = delegate.read(b, off, len);
+        if (read == -1) {
+            eof = true;
+            return -1;
+        }
+        for (int i = 0; i < read; i++) {
+            if (b[off + i] == '\n') {
+                lastByte = '\n';
+                return i + 1;
+            }
+        }
+        lastByte = b[off + read - 1];
+        return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
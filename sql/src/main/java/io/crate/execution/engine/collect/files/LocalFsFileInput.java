@@ -85,6 +85,23 @@ public class LocalFsFileInput implements FileInput {
         return new FileInputStream(file);
     }
 
+    @Override
+    public InputStream getStream(URI uri, long offset) throws IOException {
+        FileInputStream stream = new FileInputStream(new File(uri));
+        try {
+            stream.getChannel().position(offset);
+        } catch (IOException e) {
+            stream.close();
+            throw e;
+        }
+        return stream;
+    }
+
+    @Override
+    public long size(URI uri) throws IOException {
+        return Files.size(Paths.get(uri));
+    }
+
     @Override
     public boolean sharedStorageDefault() {
         return false;
@@ -0,0 +1,125 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.files;
+
+import io.crate.concurrent.CompletableFutures;
+import io.crate.data.ArrayRow;
+import io.crate.data.BatchIterator;
+import io.crate.data.CloseAssertingBatchIterator;
+import io.crate.data.Row;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A BatchIterator which reads up to {@code batchSize} rows of a source which has all its rows loaded
+ * (like {@link FileReadingIterator}) within {@link #loadNextBatch()}.
+ * <p>
+ * This moves the reading of the source into loadNextBatch, so that several sources can be read concurrently by an
+ * {@link io.crate.data.AsyncCompositeBatchIterator}.
+ */
+public class ReadAheadBatchIterator implements BatchIterator<Row> {
+
+    private final BatchIterator<Row> source;
+    private final int batchSize;
+    private final List<Object[]> rows;
+    private final ArrayRow row = new ArrayRow();
+    private int idx = -1;
+    private boolean sourceExhausted = false;
+
+    public static BatchIterator<Row> newInstance(BatchIterator<Row> source, int batchSize) {
+        return new CloseAssertingBatchIterator<>(new ReadAheadBatchIterator(source, batchSize));
+    }
+
+    private ReadAheadBatchIterator(BatchIterator<Row> source, int batchSize) {
+        assert source.allLoaded() : "source must have all its rows loaded";
+        this.source = source;
+        this.batchSize = batchSize;
+        this.rows = new ArrayList<>(batchSize);
+    }
+
+    @Override
+    public Row currentElement() {
+        return row;
+    }
+
+    @Override
+    public void moveToStart() {
+        source.moveToStart();
+        rows.clear();
+        idx = -1;
+        sourceExhausted = false;
+    }
+
+    @Override
+    public boolean moveNext() {
+        if (idx + 1 < rows.size()) {
+            idx++;
+            row.cells(rows.get(idx));
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        rows.clear();
+        source.close();
+    }
+
+    @Override
+    public CompletionStage<?> loadNextBatch() {
+        if (sourceExhausted) {
+            return CompletableFutures.failedFuture(new IllegalStateException("All batches already loaded"));
+        }
+        rows.clear();
+        idx = -1;
+        try {
+            while (rows.size() < batchSize && source.moveNext()) {
+                rows.add(source.currentElement().materialize());
+            }
+        } catch (Throwable t) {
+            return CompletableFutures.failedFuture(t);
+        }
+        sourceExhausted = rows.size() < batchSize;
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public boolean allLoaded() {
+        return sourceExhausted;
+    }
+
+    @Override
+    public void kill(@Nonnull Throwable throwable) {
+        source.kill(throwable);
+    }
+
+    @Override
+    public boolean involvesIO() {
+        return source.involvesIO();
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.files;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads the lines of an UTF-8 encoded stream without decoding them.
+ * <p>
+ * Like {@link java.io.BufferedReader#readLine()} a line is terminated by {@code \n}, {@code \r} or {@code \r\n}.
+ * As these bytes never occur within a multi-byte UTF-8 sequence, the line boundaries can be found on the bytes.
+ * The current line is a slice of the internal buffer ({@link #buffer()}, {@link #lineOffset()},
+ * {@link #lineLength()}) which is only valid until the next call to {@link #readLine()}.
+ */
+final class Utf8LineReader implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private byte[] buffer;
+    private int pos = 0;
+    private int limit = 0;
+    private int lineOffset = 0;
+    private int lineLength = 0;
+    private boolean skipLF = false;
+    private boolean eof = false;
+
+    Utf8LineReader(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    Utf8LineReader(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Reads the next line.
+     *
+     * @return false if the end of the stream is reached.
+     */
+    boolean readLine() throws IOException {
+        // number of bytes after pos which are known to contain no line terminator
+        int scanned = 0;
+        while (true) {
+            if (skipLF && pos < limit) {
+                // the previous line was terminated by \r\n
+                skipLF = false;
+                if (buffer[pos] == '\n') {
+                    pos++;
+                }
+            }
+            for (int i = pos + scanned; i < limit; i++) {
+                byte b = buffer[i];
+                if (b == '\n' || b == '\r') {
+                    lineOffset = pos;
+                    lineLength = i - pos;
+                    pos = i + 1;
+                    skipLF = b == '\r';
+                    return true;
+                }
+            }
+            scanned = limit - pos;
+            if (eof || fill() == false) {
+                eof = true;
+                if (pos < limit) {
+                    lineOffset = pos;
+                    lineLength = limit - pos;
+                    pos = limit;
+                    return true;
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Reads more bytes into the buffer, moving the unread bytes to its start or growing it if necessary.
+     *
+     * @return false if the end of the stream is reached.
+     */
+    private boolean fill() throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        } else if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read == -1) {
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    byte[] buffer() {
+        return buffer;
+    }
+
+    int lineOffset() {
+        return lineOffset;
+    }
+
+    int lineLength() {
+        return lineLength;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -23,6 +23,7 @@ package io.crate.execution.engine.collect.sources;
 
 import io.crate.analyze.CopyFromAnalyzedStatement;
 import io.crate.analyze.SymbolEvaluator;
+import io.crate.data.AsyncCompositeBatchIterator;
 import io.crate.data.BatchIterator;
 import io.crate.data.Row;
 import io.crate.execution.dsl.phases.CollectPhase;
@@ -31,6 +32,7 @@ import io.crate.execution.engine.collect.CollectTask;
 import io.crate.execution.engine.collect.files.FileInputFactory;
 import io.crate.execution.engine.collect.files.FileReadingIterator;
 import io.crate.execution.engine.collect.files.LineCollectorExpression;
+import io.crate.execution.engine.collect.files.ReadAheadBatchIterator;
 import io.crate.expression.InputFactory;
 import io.crate.expression.reference.file.FileLineReferenceResolver;
 import io.crate.expression.symbol.Symbol;
@@ -42,6 +44,9 @@ import io.crate.types.DataTypes;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -49,21 +54,47 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.IntSupplier;
 
+import static io.crate.execution.support.ThreadPools.numIdleThreads;
+
+/**
+ * Collects the lines of files.
+ * <p>
+ * If there are idle threads, the files are read by several {@link FileReadingIterator}s concurrently. Each of them
+ * reads a part of the files (or a byte range of a large file) and is wrapped in a {@link ReadAheadBatchIterator}
+ * so that an {@link AsyncCompositeBatchIterator} can load them concurrently.
+ */
 @Singleton
 public class FileCollectSource implements CollectSource {
 
+    /**
+     * Number of lines a local reader reads ahead in a batch if there are multiple local readers.
+     */
+    private static final int READ_AHEAD_LINES = 1000;
+
     private final ClusterService clusterService;
     private final Map<String, FileInputFactory> fileInputFactoryMap;
     private final InputFactory inputFactory;
     private final Functions functions;
+    private final Executor executor;
+    private final IntSupplier availableThreads;
 
     @Inject
-    public FileCollectSource(Functions functions, ClusterService clusterService, Map<String, FileInputFactory> fileInputFactoryMap) {
+    public FileCollectSource(Functions functions,
+                             ClusterService clusterService,
+                             Map<String, FileInputFactory> fileInputFactoryMap,
+                             Settings settings,
+                             ThreadPool threadPool) {
         this.fileInputFactoryMap = fileInputFactoryMap;
         this.functions = functions;
         this.inputFactory = new InputFactory(functions);
         this.clusterService = clusterService;
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) threadPool.executor(ThreadPool.Names.SEARCH);
+        this.availableThreads = numIdleThreads(executor, EsExecutors.numberOfProcessors(settings));
+        this.executor = executor;
     }
 
     @Override
@@ -72,11 +103,32 @@ public class FileCollectSource implements CollectSource {
                                           CollectTask collectTask,
                                           boolean supportMoveToStart) {
         FileUriCollectPhase fileUriCollectPhase = (FileUriCollectPhase) collectPhase;
+        List<String> fileUris = targetUriToStringList(txnCtx, functions, fileUriCollectPhase.targetUri());
+        int numLocalReaders = availableThreads.getAsInt();
+        if (numLocalReaders <= 1) {
+            return createIterator(txnCtx, fileUriCollectPhase, fileUris, 1, 0);
+        }
+        @SuppressWarnings("unchecked")
+        BatchIterator<Row>[] iterators = new BatchIterator[numLocalReaders];
+        for (int i = 0; i < numLocalReaders; i++) {
+            iterators[i] = ReadAheadBatchIterator.newInstance(
+                createIterator(txnCtx, fileUriCollectPhase, fileUris, numLocalReaders, i),
+                READ_AHEAD_LINES
+            );
+        }
+        return new AsyncCompositeBatchIterator<>(executor, availableThreads, iterators);
+    }
+
+    private BatchIterator<Row> createIterator(TransactionContext txnCtx,
+                                              FileUriCollectPhase fileUriCollectPhase,
+                                              List<String> fileUris,
+                                              int numLocalReaders,
+                                              int localReaderNumber) {
+        // each reader needs its own expressions as they're bound to the line the reader is on
         InputFactory.Context<LineCollectorExpression<?>> ctx =
             inputFactory.ctxForRefs(txnCtx, FileLineReferenceResolver::getImplementation);
-        ctx.add(collectPhase.toCollect());
+        ctx.add(fileUriCollectPhase.toCollect());
 
-        List<String> fileUris = targetUriToStringList(txnCtx, functions, fileUriCollectPhase.targetUri());
         return FileReadingIterator.newInstance(
             fileUris,
             ctx.topLevelInputs(),
@@ -86,6 +138,8 @@ public class FileCollectSource implements CollectSource {
             fileUriCollectPhase.sharedStorage(),
             fileUriCollectPhase.nodeIds().size(),
             getReaderNumber(fileUriCollectPhase.nodeIds(), clusterService.state().nodes().getLocalNodeId()),
+            numLocalReaders,
+            localReaderNumber,
             fileUriCollectPhase.inputFormat()
         );
     }
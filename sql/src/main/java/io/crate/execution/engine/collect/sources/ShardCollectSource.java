@@ -40,6 +40,7 @@ import io.crate.execution.dsl.phases.CollectPhase;
 import io.crate.execution.dsl.phases.RoutedCollectPhase;
 import io.crate.execution.dsl.projection.Projections;
 import io.crate.execution.engine.collect.CollectTask;
+import io.crate.execution.engine.collect.QueryResultCache;
 import io.crate.execution.engine.collect.RemoteCollectorFactory;
 import io.crate.execution.engine.collect.RowsTransformer;
 import io.crate.execution.engine.collect.ShardCollectorProvider;
@@ -135,6 +136,10 @@ import static io.crate.execution.support.ThreadPools.numIdleThreads;
  *                     (with concurrent/ loadNextBatch of sources)
  * </pre>
  *
+ * If there are more idle threads than shards, the segments of a shard are split into slices,
+ * each collected by its own LuceneBatchIterator/CollectingBatchIterator pair.
+ * See {@link ShardCollectorProvider#getIterators(RoutedCollectPhase, boolean, CollectTask, int)}.
+ * <p>
  * In other cases multiple shards are simply processed sequentially by concatenating the BatchIterators
  */
 @Singleton
@@ -169,7 +174,8 @@ public class ShardCollectSource implements CollectSource {
                               SystemCollectSource systemCollectSource,
                               IndexEventListenerProxy indexEventListenerProxy,
                               BlobIndicesService blobIndicesService,
-                              BigArrays bigArrays) {
+                              BigArrays bigArrays,
+                              QueryResultCache queryResultCache) {
         this.unassignedShardReferenceResolver = new StaticTableReferenceResolver<>(
             SysShardsTableInfo.unassignedShardsExpressions());
         this.shardReferenceResolver = new StaticTableReferenceResolver<>(SysShardsTableInfo.expressions());
@@ -190,7 +196,8 @@ public class ShardCollectSource implements CollectSource {
             functions,
             luceneQueryBuilder,
             nodeJobsCounter,
-            bigArrays);
+            bigArrays,
+            queryResultCache);
         EvaluatingNormalizer nodeNormalizer = new EvaluatingNormalizer(
             functions,
             RowGranularity.DOC,
@@ -292,7 +299,7 @@ public class ShardCollectSource implements CollectSource {
         Map<String, IntIndexedContainer> indexShards = collectPhase.routing().locations().get(localNodeId);
         List<BatchIterator<Row>> iterators = indexShards == null
             ? Collections.emptyList()
-            : getIterators(collectTask, collectPhase, requireMoveToStartSupport, indexShards);
+            : getIterators(collectTask, collectPhase, requireMoveToStartSupport, indexShards, hasShardProjections);
 
         final BatchIterator<Row> result;
         switch (iterators.size()) {
@@ -393,8 +400,19 @@ public class ShardCollectSource implements CollectSource {
     private List<BatchIterator<Row>> getIterators(CollectTask collectTask,
                                                   RoutedCollectPhase collectPhase,
                                                   boolean requiresScroll,
-                                                  Map<String, IntIndexedContainer> indexShards) {
-
+                                                  Map<String, IntIndexedContainer> indexShards,
+                                                  boolean hasShardProjections) {
+
+        // Shard projections are loaded concurrently; idle threads which wouldn't be used by one shard per thread
+        // can be used to collect slices of the segments of a shard concurrently.
+        int slicesPerShard = 1;
+        if (hasShardProjections) {
+            int numShards = 0;
+            for (IntIndexedContainer shards : indexShards.values()) {
+                numShards += shards.size();
+            }
+            slicesPerShard = Math.max(1, availableThreads.getAsInt() / Math.max(1, numShards));
+        }
         MetaData metaData = clusterService.state().metaData();
         List<BatchIterator<Row>> iterators = new ArrayList<>();
         for (Map.Entry<String, IntIndexedContainer> entry : indexShards.entrySet()) {
@@ -419,12 +437,12 @@ public class ShardCollectSource implements CollectSource {
                 ShardId shardId = new ShardId(index, shardCursor.value);
                 try {
                     ShardCollectorProvider shardCollectorProvider = getCollectorProviderSafe(shardId);
-                    BatchIterator<Row> iterator = shardCollectorProvider.getIterator(
+                    iterators.addAll(shardCollectorProvider.getIterators(
                         collectPhase,
                         requiresScroll,
-                        collectTask
-                    );
-                    iterators.add(iterator);
+                        collectTask,
+                        slicesPerShard
+                    ));
                 } catch (ShardNotFoundException | IllegalIndexShardStateException e) {
                     // If toCollect contains a docId it means that this is a QueryThenFetch operation.
                     // In such a case RemoteCollect cannot be used because on that node the FetchTask is missing
@@ -27,6 +27,7 @@ import io.crate.blob.v2.BlobShard;
 import io.crate.execution.TransportActionProvider;
 import io.crate.execution.engine.collect.BlobShardCollectorProvider;
 import io.crate.execution.engine.collect.LuceneShardCollectorProvider;
+import io.crate.execution.engine.collect.QueryResultCache;
 import io.crate.execution.engine.collect.ShardCollectorProvider;
 import io.crate.execution.jobs.NodeJobsCounter;
 import io.crate.lucene.LuceneQueryBuilder;
@@ -52,6 +53,7 @@ public class ShardCollectorProviderFactory {
     private final LuceneQueryBuilder luceneQueryBuilder;
     private final NodeJobsCounter nodeJobsCounter;
     private final BigArrays bigArrays;
+    private final QueryResultCache queryResultCache;
     private final Settings settings;
 
     ShardCollectorProviderFactory(ClusterService clusterService,
@@ -63,7 +65,8 @@ public class ShardCollectorProviderFactory {
                                   Functions functions,
                                   LuceneQueryBuilder luceneQueryBuilder,
                                   NodeJobsCounter nodeJobsCounter,
-                                  BigArrays bigArrays) {
+                                  BigArrays bigArrays,
+                                  QueryResultCache queryResultCache) {
         this.settings = settings;
         this.schemas = schemas;
         this.clusterService = clusterService;
@@ -74,6 +77,7 @@ public class ShardCollectorProviderFactory {
         this.luceneQueryBuilder = luceneQueryBuilder;
         this.nodeJobsCounter = nodeJobsCounter;
         this.bigArrays = bigArrays;
+        this.queryResultCache = queryResultCache;
     }
 
     public ShardCollectorProvider create(IndexShard indexShard) {
@@ -100,7 +104,8 @@ public class ShardCollectorProviderFactory {
                 settings,
                 transportActionProvider,
                 indexShard,
-                bigArrays);
+                bigArrays,
+                queryResultCache);
         }
     }
 }
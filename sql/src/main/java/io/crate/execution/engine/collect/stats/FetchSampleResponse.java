@@ -0,0 +1,73 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.stats;
+
+import io.crate.Streamer;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.transport.TransportResponse;
+
+import java.io.IOException;
+import java.util.List;
+
+public class FetchSampleResponse extends TransportResponse {
+
+    private List<DataType> types;
+    private Samples samples;
+
+    public FetchSampleResponse() {
+    }
+
+    public FetchSampleResponse(List<DataType> types, Samples samples) {
+        this.types = types;
+        this.samples = samples;
+    }
+
+    public Samples samples() {
+        return samples;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        types = DataTypes.listFromStream(in);
+        samples = new Samples(in, streamers(types));
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        DataTypes.toStream(types, out);
+        samples.writeTo(out, streamers(types));
+    }
+
+    private static Streamer[] streamers(List<DataType> types) {
+        Streamer[] streamers = new Streamer[types.size()];
+        for (int i = 0; i < types.size(); i++) {
+            streamers[i] = types.get(i).streamer();
+        }
+        return streamers;
+    }
+}
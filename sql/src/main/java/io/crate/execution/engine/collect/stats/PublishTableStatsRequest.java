@@ -0,0 +1,108 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.stats;
+
+import com.carrotsearch.hppc.ObjectObjectHashMap;
+import com.carrotsearch.hppc.ObjectObjectMap;
+import com.carrotsearch.hppc.cursors.ObjectObjectCursor;
+import io.crate.metadata.ColumnIdent;
+import io.crate.metadata.RelationName;
+import io.crate.planner.ColumnStats;
+import io.crate.planner.TableStats;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.transport.TransportRequest;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Carries the table and column statistics computed by a single node to all nodes of the cluster.
+ */
+public class PublishTableStatsRequest extends TransportRequest {
+
+    private ObjectObjectMap<RelationName, TableStats.Stats> tableStats;
+    private Map<RelationName, Map<ColumnIdent, ColumnStats>> columnStats;
+
+    public PublishTableStatsRequest() {
+    }
+
+    /**
+     * @param tableStats the number of docs and size of all tables
+     * @param columnStats the column statistics of the analyzed tables
+     */
+    public PublishTableStatsRequest(ObjectObjectMap<RelationName, TableStats.Stats> tableStats,
+                                    Map<RelationName, Map<ColumnIdent, ColumnStats>> columnStats) {
+        this.tableStats = tableStats;
+        this.columnStats = columnStats;
+    }
+
+    public ObjectObjectMap<RelationName, TableStats.Stats> tableStats() {
+        return tableStats;
+    }
+
+    public Map<RelationName, Map<ColumnIdent, ColumnStats>> columnStats() {
+        return columnStats;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        int numTables = in.readVInt();
+        tableStats = new ObjectObjectHashMap<>(numTables);
+        for (int i = 0; i < numTables; i++) {
+            tableStats.put(new RelationName(in), new TableStats.Stats(in));
+        }
+        int numAnalyzedTables = in.readVInt();
+        columnStats = new HashMap<>(numAnalyzedTables);
+        for (int i = 0; i < numAnalyzedTables; i++) {
+            RelationName relationName = new RelationName(in);
+            int numColumns = in.readVInt();
+            Map<ColumnIdent, ColumnStats> statsByColumn = new HashMap<>(numColumns);
+            for (int j = 0; j < numColumns; j++) {
+                statsByColumn.put(new ColumnIdent(in), new ColumnStats(in));
+            }
+            columnStats.put(relationName, statsByColumn);
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeVInt(tableStats.size());
+        for (ObjectObjectCursor<RelationName, TableStats.Stats> cursor : tableStats) {
+            cursor.key.writeTo(out);
+            cursor.value.writeTo(out);
+        }
+        out.writeVInt(columnStats.size());
+        for (Map.Entry<RelationName, Map<ColumnIdent, ColumnStats>> entry : columnStats.entrySet()) {
+            entry.getKey().writeTo(out);
+            out.writeVInt(entry.getValue().size());
+            for (Map.Entry<ColumnIdent, ColumnStats> columnEntry : entry.getValue().entrySet()) {
+                columnEntry.getKey().writeTo(out);
+                columnEntry.getValue().writeTo(out);
+            }
+        }
+    }
+}
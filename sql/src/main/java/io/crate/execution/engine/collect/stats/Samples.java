@@ -0,0 +1,108 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.stats;
+
+import io.crate.Streamer;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A sample of the rows of a table, or of some of its shards, used to compute the
+ * {@link io.crate.planner.ColumnStats}.
+ */
+public final class Samples {
+
+    private final List<Object[]> records;
+    private final long numTotalDocs;
+
+    /**
+     * @param records the sampled rows
+     * @param numTotalDocs the number of docs the rows were sampled from
+     */
+    public Samples(List<Object[]> records, long numTotalDocs) {
+        this.records = records;
+        this.numTotalDocs = numTotalDocs;
+    }
+
+    public Samples(StreamInput in, Streamer[] streamers) throws IOException {
+        numTotalDocs = in.readVLong();
+        int numRecords = in.readVInt();
+        records = new ArrayList<>(numRecords);
+        for (int i = 0; i < numRecords; i++) {
+            Object[] record = new Object[streamers.length];
+            for (int j = 0; j < streamers.length; j++) {
+                record[j] = streamers[j].readValueFrom(in);
+            }
+            records.add(record);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void writeTo(StreamOutput out, Streamer[] streamers) throws IOException {
+        out.writeVLong(numTotalDocs);
+        out.writeVInt(records.size());
+        for (Object[] record : records) {
+            for (int i = 0; i < streamers.length; i++) {
+                streamers[i].writeValueTo(out, record[i]);
+            }
+        }
+    }
+
+    public List<Object[]> records() {
+        return records;
+    }
+
+    public long numTotalDocs() {
+        return numTotalDocs;
+    }
+
+    /**
+     * Merges the samples of disjoint sets of docs, e.g. of different shards, into a sample of at most
+     * {@code maxSamples} records. Each sample contributes a random subset of its records in proportion to the
+     * number of docs it was taken from, so that the result is representative for all docs.
+     */
+    public static Samples merge(int maxSamples, List<Samples> samples, Random random) {
+        long numTotalDocs = 0;
+        for (Samples sample : samples) {
+            numTotalDocs += sample.numTotalDocs;
+        }
+        if (numTotalDocs == 0) {
+            return new Samples(List.of(), 0);
+        }
+        List<Object[]> records = new ArrayList<>();
+        for (Samples sample : samples) {
+            int numRecords = (int) Math.min(
+                sample.records.size(), (double) maxSamples * sample.numTotalDocs / numTotalDocs);
+            List<Object[]> shuffled = new ArrayList<>(sample.records);
+            Collections.shuffle(shuffled, random);
+            records.addAll(shuffled.subList(0, numRecords));
+        }
+        return new Samples(records, numTotalDocs);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.stats;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.crate.expression.reference.doc.lucene.CollectorContext;
+import io.crate.expression.reference.doc.lucene.LuceneCollectorExpression;
+import io.crate.expression.reference.doc.lucene.LuceneReferenceResolver;
+import io.crate.metadata.Reference;
+import io.crate.metadata.RelationName;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.util.Bits;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.common.Randomness;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.shard.IndexShardState;
+import org.elasticsearch.indices.IndicesService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Samples the rows of the primary shards of a table located on this node.
+ * <p>
+ * The cost is bounded per shard: instead of reading all docs, only every n-th doc id, starting at a random offset,
+ * is read, so that at most {@code maxSamples} docs of each shard are loaded independent of the shard size.
+ */
+@Singleton
+public class TableSampler {
+
+    private final IndicesService indicesService;
+
+    @Inject
+    public TableSampler(IndicesService indicesService) {
+        this.indicesService = indicesService;
+    }
+
+    public Samples getSamples(RelationName relationName, List<Reference> columns, int maxSamples) throws IOException {
+        Random random = Randomness.get();
+        List<Samples> shardSamples = new ArrayList<>();
+        for (IndexService indexService : indicesService) {
+            if (!RelationName.fromIndexName(indexService.index().getName()).equals(relationName)) {
+                continue;
+            }
+            LuceneReferenceResolver referenceResolver =
+                new LuceneReferenceResolver(indexService.mapperService()::fullName);
+            for (IndexShard indexShard : indexService) {
+                ShardRouting routing = indexShard.routingEntry();
+                if (routing == null || !routing.primary() || indexShard.state() != IndexShardState.STARTED) {
+                    continue;
+                }
+                List<LuceneCollectorExpression<?>> expressions = new ArrayList<>(columns.size());
+                for (Reference column : columns) {
+                    expressions.add(referenceResolver.getImplementation(column));
+                }
+                CollectorContext collectorContext = new CollectorContext(indexService.fieldData()::getForField);
+                try (Engine.Searcher searcher = indexShard.acquireSearcher("update-table-statistics")) {
+                    shardSamples.add(sampleShard(searcher.reader(), expressions, collectorContext, maxSamples, random));
+                }
+            }
+        }
+        return Samples.merge(maxSamples, shardSamples, random);
+    }
+
+    @VisibleForTesting
+    static Samples sampleShard(IndexReader reader,
+                               List<LuceneCollectorExpression<?>> expressions,
+                               CollectorContext collectorContext,
+                               int maxSamples,
+                               Random random) throws IOException {
+        int maxDoc = reader.maxDoc();
+        List<Object[]> records = new ArrayList<>(Math.min(maxDoc, maxSamples));
+        if (maxDoc == 0) {
+            return new Samples(records, 0);
+        }
+        for (LuceneCollectorExpression<?> expression : expressions) {
+            expression.startCollect(collectorContext);
+        }
+        List<LeafReaderContext> leaves = reader.leaves();
+        int step = (int) ((maxDoc + (long) maxSamples - 1) / maxSamples);
+        int leafIndex = -1;
+        LeafReaderContext leaf = null;
+        Bits liveDocs = null;
+        for (long doc = random.nextInt(step); doc < maxDoc; doc += step) {
+            int newLeafIndex = ReaderUtil.subIndex((int) doc, leaves);
+            if (newLeafIndex != leafIndex) {
+                leafIndex = newLeafIndex;
+                leaf = leaves.get(leafIndex);
+                liveDocs = leaf.reader().getLiveDocs();
+                for (LuceneCollectorExpression<?> expression : expressions) {
+                    expression.setNextReader(leaf);
+                }
+            }
+            int segmentDoc = (int) doc - leaf.docBase;
+            if (liveDocs != null && !liveDocs.get(segmentDoc)) {
+                continue;
+            }
+            Object[] record = new Object[expressions.size()];
+            for (int i = 0; i < record.length; i++) {
+                LuceneCollectorExpression<?> expression = expressions.get(i);
+                expression.setNextDocId(segmentDoc);
+                record[i] = expression.value();
+            }
+            records.add(record);
+        }
+        return new Samples(records, reader.numDocs());
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.stats;
+
+import io.crate.action.FutureActionListener;
+import io.crate.concurrent.CompletableFutures;
+import io.crate.execution.support.MultiActionListener;
+import io.crate.execution.support.NodeAction;
+import io.crate.execution.support.NodeActionRequestHandler;
+import io.crate.metadata.ColumnIdent;
+import io.crate.metadata.Reference;
+import io.crate.metadata.RelationName;
+import io.crate.planner.ColumnStats;
+import io.crate.planner.TableStats;
+import io.crate.planner.TableStatsService;
+import io.crate.types.DataType;
+import org.elasticsearch.action.ActionListenerResponseHandler;
+import org.elasticsearch.action.support.master.AcknowledgedResponse;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.Randomness;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportResponseHandler;
+import org.elasticsearch.transport.TransportService;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Computes the table and column statistics on the local node using the {@link TableStatsService} and publishes
+ * them to the {@link TableStats} of every node. The statistics are computed only once per ANALYZE
+ * or periodic refresh, the other nodes only receive the result.
+ * <p>
+ * The rows used to compute the column statistics are sampled by every node from its primary shards using the
+ * {@link TableSampler} and merged on the node computing the statistics, see {@link #fetchSamples}.
+ */
+@Singleton
+public class TransportAnalyzeAction implements NodeAction<PublishTableStatsRequest, AcknowledgedResponse> {
+
+    private static final String ACTION_NAME = "internal:crate:sql/analyze/publish";
+    private static final String FETCH_SAMPLES = "internal:crate:sql/analyze/fetch_samples";
+    private static final String EXECUTOR = ThreadPool.Names.MANAGEMENT;
+
+    private final ClusterService clusterService;
+    private final TransportService transportService;
+    private final TableStatsService tableStatsService;
+    private final TableStats tableStats;
+    private final TableSampler tableSampler;
+
+    @Inject
+    public TransportAnalyzeAction(ClusterService clusterService,
+                                  TransportService transportService,
+                                  TableStatsService tableStatsService,
+                                  TableStats tableStats,
+                                  TableSampler tableSampler) {
+        this.clusterService = clusterService;
+        this.transportService = transportService;
+        this.tableStatsService = tableStatsService;
+        this.tableStats = tableStats;
+        this.tableSampler = tableSampler;
+
+        transportService.registerRequestHandler(ACTION_NAME,
+            PublishTableStatsRequest::new,
+            EXECUTOR,
+            new NodeActionRequestHandler<>(this)
+        );
+        transportService.registerRequestHandler(FETCH_SAMPLES,
+            FetchSampleRequest::new,
+            ThreadPool.Names.SEARCH,
+            new NodeActionRequestHandler<>(this::fetchSamplesOperation)
+        );
+    }
+
+    /**
+     * Computes the statistics and publishes them to all nodes in the cluster.
+     *
+     * @param relationNames the tables to collect column statistics for, or null for all user tables.
+     * @return a future which is completed with the number of nodes which received the statistics.
+     */
+    public CompletableFuture<Long> analyze(@Nullable List<RelationName> relationNames) {
+        return tableStatsService.collectStats(relationNames).thenCompose(this::publish);
+    }
+
+    /**
+     * Broadcasts the statistics to all nodes in the cluster, including the local node.
+     * The returned future is completed with the number of nodes which updated their statistics.
+     */
+    public CompletableFuture<Long> publish(PublishTableStatsRequest request) {
+        DiscoveryNodes nodes = clusterService.state().nodes();
+        FutureActionListener<Long, Long> listener = new FutureActionListener<>(numNodes -> numNodes);
+        MultiActionListener<AcknowledgedResponse, ?, Long> multiListener =
+            new MultiActionListener<>(nodes.getSize(), Collectors.counting(), listener);
+
+        TransportResponseHandler<AcknowledgedResponse> responseHandler =
+            new ActionListenerResponseHandler<>(multiListener, AcknowledgedResponse::new);
+        for (DiscoveryNode node : nodes) {
+            transportService.sendRequest(node, ACTION_NAME, request, responseHandler);
+        }
+        return listener;
+    }
+
+    /**
+     * Requests a sample of up to {@code maxSamples} rows from every node and merges them into a sample of up to
+     * {@code maxSamples} rows of the whole table.
+     */
+    public CompletableFuture<Samples> fetchSamples(RelationName relationName, List<Reference> columns, int maxSamples) {
+        DiscoveryNodes nodes = clusterService.state().nodes();
+        FutureActionListener<Samples, Samples> listener = FutureActionListener.newInstance();
+        MultiActionListener<FetchSampleResponse, ?, Samples> multiListener = new MultiActionListener<>(
+            nodes.getSize(),
+            Collectors.mapping(
+                FetchSampleResponse::samples,
+                Collectors.collectingAndThen(
+                    Collectors.toList(),
+                    samples -> Samples.merge(maxSamples, samples, Randomness.get()))),
+            listener
+        );
+        TransportResponseHandler<FetchSampleResponse> responseHandler =
+            new ActionListenerResponseHandler<>(multiListener, FetchSampleResponse::new);
+        FetchSampleRequest request = new FetchSampleRequest(relationName, columns, maxSamples);
+        for (DiscoveryNode node : nodes) {
+            transportService.sendRequest(node, FETCH_SAMPLES, request, responseHandler);
+        }
+        return listener;
+    }
+
+    private CompletableFuture<FetchSampleResponse> fetchSamplesOperation(FetchSampleRequest request) {
+        List<DataType> types = new ArrayList<>(request.columns().size());
+        for (Reference column : request.columns()) {
+            types.add(column.valueType());
+        }
+        try {
+            Samples samples = tableSampler.getSamples(request.relationName(), request.columns(), request.maxSamples());
+            return CompletableFuture.completedFuture(new FetchSampleResponse(types, samples));
+        } catch (IOException e) {
+            return CompletableFutures.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<AcknowledgedResponse> nodeOperation(PublishTableStatsRequest request) {
+        tableStats.updateTableStats(request.tableStats());
+        for (Map.Entry<RelationName, Map<ColumnIdent, ColumnStats>> entry : request.columnStats().entrySet()) {
+            tableStats.updateColumnStats(entry.getKey(), entry.getValue());
+        }
+        return CompletableFuture.completedFuture(new AcknowledgedResponse(true));
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.columnar;
+
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The schema and the layout of a columnar file.
+ * <p>
+ * A columnar file consists of:
+ * <pre>
+ *  MAGIC VERSION
+ *  row group 0: column chunk 0, column chunk 1, ...
+ *  row group 1: ...
+ *  footer
+ *  footer length (4 bytes) MAGIC
+ * </pre>
+ * A column chunk contains the values of one column of a row group, serialized with the streamer of the column type.
+ * The footer contains the column names and types and the offsets of the row groups and the lengths of their
+ * column chunks, so that a reader can skip the chunks of columns it doesn't need.
+ */
+public final class ColumnarFileFooter {
+
+    static final byte[] MAGIC = "CRCF".getBytes(StandardCharsets.US_ASCII);
+    static final byte VERSION = 1;
+
+    /**
+     * Number of bytes at the end of the file: the length of the footer and {@link #MAGIC}
+     */
+    static final int TAIL_LENGTH = 4 + MAGIC.length;
+
+    private final List<String> columnNames;
+    private final List<DataType> columnTypes;
+    private final List<RowGroup> rowGroups;
+
+    ColumnarFileFooter(List<String> columnNames, List<DataType> columnTypes, List<RowGroup> rowGroups) {
+        assert columnNames.size() == columnTypes.size() : "There must be a type for each column";
+        this.columnNames = columnNames;
+        this.columnTypes = columnTypes;
+        this.rowGroups = rowGroups;
+    }
+
+    ColumnarFileFooter(StreamInput in) throws IOException {
+        int numColumns = in.readVInt();
+        columnNames = new ArrayList<>(numColumns);
+        columnTypes = new ArrayList<>(numColumns);
+        for (int i = 0; i < numColumns; i++) {
+            columnNames.add(in.readString());
+            columnTypes.add(DataTypes.fromStream(in));
+        }
+        int numRowGroups = in.readVInt();
+        rowGroups = new ArrayList<>(numRowGroups);
+        for (int i = 0; i < numRowGroups; i++) {
+            int numRows = in.readVInt();
+            long offset = in.readVLong();
+            long[] chunkLengths = new long[numColumns];
+            for (int c = 0; c < numColumns; c++) {
+                chunkLengths[c] = in.readVLong();
+            }
+            rowGroups.add(new RowGroup(numRows, offset, chunkLengths));
+        }
+    }
+
+    void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(columnNames.size());
+        for (int i = 0; i < columnNames.size(); i++) {
+            out.writeString(columnNames.get(i));
+            DataTypes.toStream(columnTypes.get(i), out);
+        }
+        out.writeVInt(rowGroups.size());
+        for (RowGroup rowGroup : rowGroups) {
+            out.writeVInt(rowGroup.numRows);
+            out.writeVLong(rowGroup.offset);
+            for (long chunkLength : rowGroup.chunkLengths) {
+                out.writeVLong(chunkLength);
+            }
+        }
+    }
+
+    public List<String> columnNames() {
+        return columnNames;
+    }
+
+    public List<DataType> columnTypes() {
+        return columnTypes;
+    }
+
+    public int numRowGroups() {
+        return rowGroups.size();
+    }
+
+    RowGroup rowGroup(int index) {
+        return rowGroups.get(index);
+    }
+
+    public long numRows() {
+        long numRows = 0;
+        for (RowGroup rowGroup : rowGroups) {
+            numRows += rowGroup.numRows;
+        }
+        return numRows;
+    }
+
+    static final class RowGroup {
+
+        final int numRows;
+        final long offset;
+        final long[] chunkLengths;
+
+        RowGroup(int numRows, long offset, long[] chunkLengths) {
+            this.numRows = numRows;
+            this.offset = offset;
+            this.chunkLengths = chunkLengths;
+        }
+    }
+}
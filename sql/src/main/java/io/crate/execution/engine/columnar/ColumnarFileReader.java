@@ -0,0 +1,165 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.columnar;
+
+import com.google.common.io.ByteStreams;
+import io.crate.Streamer;
+import org.elasticsearch.common.io.stream.StreamInput;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the rows of a range of row groups of a columnar file, see {@link ColumnarFileFooter} for the layout.
+ * <p>
+ * All columns are read. Row groups are decoded column by column, several readers can read different row groups
+ * of the same file concurrently.
+ */
+public class ColumnarFileReader {
+
+    /**
+     * A file which can be read starting at any offset.
+     */
+    public interface Source {
+
+        InputStream open(long offset) throws IOException;
+
+        long size() throws IOException;
+    }
+
+    private final Source source;
+    private final ColumnarFileFooter footer;
+    private final int endRowGroup;
+    private final List<String> columnNames;
+    private final Streamer[] streamers;
+    private final Object[][] values;
+
+    private int nextRowGroup;
+    private int numRowsInGroup = 0;
+    private int row = -1;
+
+    /**
+     * @param fromRowGroup the first row group to read
+     * @param toRowGroup the end of the row groups to read (exclusive)
+     */
+    public ColumnarFileReader(Source source, ColumnarFileFooter footer, int fromRowGroup, int toRowGroup) {
+        this.source = source;
+        this.footer = footer;
+        this.nextRowGroup = fromRowGroup;
+        this.endRowGroup = toRowGroup;
+        columnNames = footer.columnNames();
+        int numColumns = columnNames.size();
+        streamers = new Streamer[numColumns];
+        values = new Object[numColumns][];
+        for (int i = 0; i < numColumns; i++) {
+            streamers[i] = footer.columnTypes().get(i).streamer();
+        }
+    }
+
+    /**
+     * Reads the footer of a columnar file.
+     */
+    public static ColumnarFileFooter readFooter(Source source) throws IOException {
+        long size = source.size();
+        if (size < ColumnarFileFooter.MAGIC.length + 1 + ColumnarFileFooter.TAIL_LENGTH) {
+            throw new IOException("File is too small to be a columnar file");
+        }
+        byte[] tail = new byte[ColumnarFileFooter.TAIL_LENGTH];
+        try (InputStream in = source.open(size - tail.length)) {
+            ByteStreams.readFully(in, tail);
+        }
+        StreamInput tailIn = StreamInput.wrap(tail);
+        int footerLength = tailIn.readInt();
+        byte[] magic = new byte[ColumnarFileFooter.MAGIC.length];
+        tailIn.readBytes(magic, 0, magic.length);
+        if (!Arrays.equals(magic, ColumnarFileFooter.MAGIC)) {
+            throw new IOException("File is not a columnar file");
+        }
+        if (footerLength < 0 || footerLength > size - tail.length) {
+            throw new IOException("Columnar file has an invalid footer length: " + footerLength);
+        }
+        byte[] footer = new byte[footerLength];
+        try (InputStream in = source.open(size - tail.length - footerLength)) {
+            ByteStreams.readFully(in, footer);
+        }
+        return new ColumnarFileFooter(StreamInput.wrap(footer));
+    }
+
+    public int numColumns() {
+        return columnNames.size();
+    }
+
+    public String columnName(int column) {
+        return columnNames.get(column);
+    }
+
+    /**
+     * The value of the given column of the current row
+     */
+    public Object value(int column) {
+        return values[column][row];
+    }
+
+    /**
+     * Moves to the next row.
+     *
+     * @return false if there are no more rows.
+     */
+    public boolean nextRow() throws IOException {
+        row++;
+        while (row >= numRowsInGroup) {
+            if (nextRowGroup >= endRowGroup) {
+                return false;
+            }
+            readRowGroup(footer.rowGroup(nextRowGroup));
+            nextRowGroup++;
+            row = 0;
+        }
+        return true;
+    }
+
+    private void readRowGroup(ColumnarFileFooter.RowGroup rowGroup) throws IOException {
+        numRowsInGroup = rowGroup.numRows;
+        if (streamers.length == 0) {
+            return;
+        }
+        try (InputStream in = source.open(rowGroup.offset)) {
+            for (int column = 0; column < streamers.length; column++) {
+                byte[] chunk = new byte[Math.toIntExact(rowGroup.chunkLengths[column])];
+                ByteStreams.readFully(in, chunk);
+                Object[] columnValues = values[column];
+                if (columnValues == null || columnValues.length < numRowsInGroup) {
+                    columnValues = new Object[numRowsInGroup];
+                    values[column] = columnValues;
+                }
+                StreamInput chunkIn = StreamInput.wrap(chunk);
+                Streamer streamer = streamers[column];
+                for (int r = 0; r < numRowsInGroup; r++) {
+                    columnValues[r] = streamer.readValueFrom(chunkIn);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.columnar;
+
+import com.google.common.io.CountingOutputStream;
+import io.crate.Streamer;
+import io.crate.data.Input;
+import io.crate.types.DataType;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes rows to a columnar file, see {@link ColumnarFileFooter} for the layout.
+ * <p>
+ * The values of a row group are buffered per column in memory until the buffered chunks reach
+ * {@code rowGroupSizeInBytes}, then the row group is written to the output.
+ */
+public class ColumnarFileWriter implements Closeable {
+
+    public static final long DEFAULT_ROW_GROUP_SIZE_IN_BYTES = 8 * 1024 * 1024;
+
+    private final CountingOutputStream out;
+    private final StreamOutput streamOut;
+    private final List<String> columnNames;
+    private final List<DataType> columnTypes;
+    private final Streamer[] streamers;
+    private final BytesStreamOutput[] chunks;
+    private final long rowGroupSizeInBytes;
+    private final List<ColumnarFileFooter.RowGroup> rowGroups = new ArrayList<>();
+    private int numRowsInGroup = 0;
+
+    public ColumnarFileWriter(OutputStream outputStream,
+                              List<String> columnNames,
+                              List<DataType> columnTypes,
+                              long rowGroupSizeInBytes) throws IOException {
+        assert columnNames.size() == columnTypes.size() : "There must be a type for each column";
+        this.out = new CountingOutputStream(new BufferedOutputStream(outputStream));
+        this.streamOut = new OutputStreamStreamOutput(out);
+        this.columnNames = columnNames;
+        this.columnTypes = columnTypes;
+        this.rowGroupSizeInBytes = rowGroupSizeInBytes;
+        streamers = new Streamer[columnTypes.size()];
+        chunks = new BytesStreamOutput[columnTypes.size()];
+        for (int i = 0; i < streamers.length; i++) {
+            streamers[i] = columnTypes.get(i).streamer();
+            chunks[i] = new BytesStreamOutput();
+        }
+        out.write(ColumnarFileFooter.MAGIC);
+        out.write(ColumnarFileFooter.VERSION);
+    }
+
+    /**
+     * Adds a row, {@code inputs} must contain a value for each column.
+     */
+    @SuppressWarnings("unchecked")
+    public void write(List<? extends Input<?>> inputs) throws IOException {
+        assert inputs.size() == streamers.length : "There must be a value for each column";
+        long bufferedBytes = 0;
+        for (int i = 0; i < streamers.length; i++) {
+            BytesStreamOutput chunk = chunks[i];
+            streamers[i].writeValueTo(chunk, columnTypes.get(i).value(inputs.get(i).value()));
+            bufferedBytes += chunk.size();
+        }
+        numRowsInGroup++;
+        if (bufferedBytes >= rowGroupSizeInBytes) {
+            flushRowGroup();
+        }
+    }
+
+    private void flushRowGroup() throws IOException {
+        long[] chunkLengths = new long[chunks.length];
+        long offset = out.getCount();
+        for (int i = 0; i < chunks.length; i++) {
+            BytesStreamOutput chunk = chunks[i];
+            chunkLengths[i] = chunk.size();
+            chunk.bytes().writeTo(out);
+            chunk.reset();
+        }
+        rowGroups.add(new ColumnarFileFooter.RowGroup(numRowsInGroup, offset, chunkLengths));
+        numRowsInGroup = 0;
+    }
+
+    /**
+     * Writes the remaining rows and the footer and closes the output.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (numRowsInGroup > 0) {
+                flushRowGroup();
+            }
+            long footerOffset = out.getCount();
+            new ColumnarFileFooter(columnNames, columnTypes, rowGroups).writeTo(streamOut);
+            streamOut.writeInt((int) (out.getCount() - footerOffset));
+            streamOut.writeBytes(ColumnarFileFooter.MAGIC);
+            streamOut.flush();
+        } finally {
+            streamOut.close();
+        }
+    }
+}
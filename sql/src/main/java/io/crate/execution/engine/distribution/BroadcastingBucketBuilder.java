@@ -35,8 +35,12 @@ public class BroadcastingBucketBuilder implements MultiBucketBuilder {
     private final StreamBucket.Builder bucketBuilder;
 
     public BroadcastingBucketBuilder(Streamer<?>[] streamers, int numBuckets) {
+        this(streamers, numBuckets, StreamBucket.Encoding.ROW);
+    }
+
+    public BroadcastingBucketBuilder(Streamer<?>[] streamers, int numBuckets, StreamBucket.Encoding encoding) {
         this.numBuckets = numBuckets;
-        this.bucketBuilder = new StreamBucket.Builder(streamers, null);
+        this.bucketBuilder = new StreamBucket.Builder(streamers, null, encoding);
     }
 
     @Override
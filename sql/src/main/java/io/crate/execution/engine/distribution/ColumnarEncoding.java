@@ -0,0 +1,623 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.distribution;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.ObjectIntHashMap;
+import io.crate.Streamer;
+import io.crate.data.Row;
+import io.crate.types.BooleanType;
+import io.crate.types.ByteType;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.StringType;
+import io.crate.types.TimestampType;
+import org.apache.lucene.codecs.compressing.CompressionMode;
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.ByteArrayDataOutput;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Columnar encoding of the rows of a {@link StreamBucket}, see {@link StreamBucket.Encoding#COLUMNAR}.
+ *
+ * <pre>
+ *  flags                   (byte, {@link #COMPRESSED} if the columns are compressed with LZ4)
+ *  [uncompressed length]   (vint, only if compressed)
+ *  [compressed length]     (vint, only if compressed)
+ *  column 0, column 1, ...
+ *
+ *  column:
+ *   kind                   (byte)
+ *   number of nulls        (vint)
+ *   [null bitmap]          (byte array, only if there are nulls)
+ *   values of the non-null rows:
+ *      LONG                zig-zag encoded delta to the previous value (vlong)
+ *      INTEGER/SHORT/BYTE  zig-zag encoded value (vlong)
+ *      DOUBLE/FLOAT        fixed width value
+ *      BOOLEAN             byte
+ *      STRING_DICTIONARY   dictionary size (vint), dictionary entries (string), dictionary index per value (vint)
+ *      STRING              string
+ *      GENERIC             value written with the streamer of the column, including nulls (no null bitmap)
+ * </pre>
+ *
+ * The decoded columns are kept in primitive arrays, values are only boxed on {@link Row#get(int)}.
+ */
+final class ColumnarEncoding {
+
+    private static final byte COMPRESSED = 1;
+
+    /**
+     * Payloads smaller than this aren't compressed
+     */
+    private static final int COMPRESSION_THRESHOLD = 4096;
+
+    /**
+     * Strings are written without dictionary once the dictionary exceeds this number of entries
+     */
+    private static final int MAX_DICTIONARY_SIZE = 4096;
+
+    private static final byte LONG = 0;
+    private static final byte INTEGER = 1;
+    private static final byte SHORT = 2;
+    private static final byte BYTE = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte FLOAT = 5;
+    private static final byte BOOLEAN = 6;
+    private static final byte STRING_DICTIONARY = 7;
+    private static final byte STRING = 8;
+    private static final byte GENERIC = 9;
+
+    private ColumnarEncoding() {
+    }
+
+    static class Writer {
+
+        private final ColumnWriter[] columns;
+
+        Writer(Streamer<?>[] streamers) {
+            columns = new ColumnWriter[streamers.length];
+            for (int i = 0; i < streamers.length; i++) {
+                columns[i] = newColumnWriter(streamers[i]);
+            }
+        }
+
+        void add(Row row) {
+            try {
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i].add(row.get(i));
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        long ramBytesUsed() {
+            long bytes = 0;
+            for (ColumnWriter column : columns) {
+                bytes += column.ramBytesUsed();
+            }
+            return bytes;
+        }
+
+        BytesReference finish() {
+            try {
+                BytesStreamOutput payload = new BytesStreamOutput();
+                for (ColumnWriter column : columns) {
+                    column.writeTo(payload);
+                }
+                BytesStreamOutput out = new BytesStreamOutput(payload.size() + 1);
+                if (payload.size() >= COMPRESSION_THRESHOLD) {
+                    byte[] uncompressed = BytesReference.toBytes(payload.bytes());
+                    // LZ4 worst case: incompressible input grows by 1 byte per 255 bytes plus a small constant
+                    byte[] compressed = new byte[uncompressed.length + uncompressed.length / 255 + 16];
+                    ByteArrayDataOutput compressedOut = new ByteArrayDataOutput(compressed);
+                    CompressionMode.FAST.newCompressor().compress(uncompressed, 0, uncompressed.length, compressedOut);
+                    int compressedLength = compressedOut.getPosition();
+                    // only worth the decompression if it saves at least 1/8
+                    if (compressedLength < uncompressed.length - uncompressed.length / 8) {
+                        out.writeByte(COMPRESSED);
+                        out.writeVInt(uncompressed.length);
+                        out.writeVInt(compressedLength);
+                        out.writeBytes(compressed, 0, compressedLength);
+                        return out.bytes();
+                    }
+                }
+                out.writeByte((byte) 0);
+                payload.bytes().writeTo(out);
+                return out.bytes();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        void reset() {
+            for (ColumnWriter column : columns) {
+                column.reset();
+            }
+        }
+    }
+
+    static Iterator<Row> iterator(BytesReference bytes, int numRows, Streamer<?>[] streamers) {
+        Column[] columns;
+        try {
+            columns = decode(bytes, numRows, streamers);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return new RowIterator(columns, numRows);
+    }
+
+    private static Column[] decode(BytesReference bytes, int numRows, Streamer<?>[] streamers) throws IOException {
+        StreamInput in = bytes.streamInput();
+        byte flags = in.readByte();
+        if ((flags & COMPRESSED) != 0) {
+            int uncompressedLength = in.readVInt();
+            int compressedLength = in.readVInt();
+            byte[] compressed = new byte[compressedLength];
+            in.readBytes(compressed, 0, compressedLength);
+            BytesRef uncompressed = new BytesRef();
+            CompressionMode.FAST.newDecompressor().decompress(
+                new ByteArrayDataInput(compressed), uncompressedLength, 0, uncompressedLength, uncompressed);
+            in = StreamInput.wrap(uncompressed.bytes, uncompressed.offset, uncompressed.length);
+        }
+        Column[] columns = new Column[streamers.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = readColumn(in, numRows, streamers[i]);
+        }
+        return columns;
+    }
+
+    private static ColumnWriter newColumnWriter(Streamer<?> streamer) {
+        if (streamer instanceof LongType || streamer instanceof TimestampType) {
+            return new LongColumnWriter();
+        }
+        if (streamer instanceof IntegerType) {
+            return new IntColumnWriter(INTEGER);
+        }
+        if (streamer instanceof ShortType) {
+            return new IntColumnWriter(SHORT);
+        }
+        if (streamer instanceof ByteType) {
+            return new IntColumnWriter(BYTE);
+        }
+        if (streamer instanceof DoubleType) {
+            return new DoubleColumnWriter();
+        }
+        if (streamer instanceof FloatType) {
+            return new FloatColumnWriter();
+        }
+        if (streamer instanceof BooleanType) {
+            return new BooleanColumnWriter();
+        }
+        if (streamer instanceof StringType) {
+            return new StringColumnWriter();
+        }
+        return new GenericColumnWriter(streamer);
+    }
+
+    private abstract static class ColumnWriter {
+
+        BytesStreamOutput values = new BytesStreamOutput();
+        final BitSet nulls = new BitSet();
+        int numRows = 0;
+        int numNulls = 0;
+
+        void add(Object value) throws IOException {
+            if (value == null) {
+                nulls.set(numRows);
+                numNulls++;
+            } else {
+                addValue(value);
+            }
+            numRows++;
+        }
+
+        abstract void addValue(Object value) throws IOException;
+
+        abstract byte kind();
+
+        long ramBytesUsed() {
+            return values.size() + nulls.size() / Byte.SIZE;
+        }
+
+        void writeTo(StreamOutput out) throws IOException {
+            out.writeByte(kind());
+            out.writeVInt(numNulls);
+            if (numNulls > 0) {
+                out.writeByteArray(nulls.toByteArray());
+            }
+            values.bytes().writeTo(out);
+        }
+
+        void reset() {
+            values = new BytesStreamOutput(values.size());
+            nulls.clear();
+            numRows = 0;
+            numNulls = 0;
+        }
+    }
+
+    private static class LongColumnWriter extends ColumnWriter {
+
+        private long previous = 0;
+
+        @Override
+        void addValue(Object value) throws IOException {
+            long longValue = ((Number) value).longValue();
+            values.writeZLong(longValue - previous);
+            previous = longValue;
+        }
+
+        @Override
+        byte kind() {
+            return LONG;
+        }
+
+        @Override
+        void reset() {
+            super.reset();
+            previous = 0;
+        }
+    }
+
+    private static class IntColumnWriter extends ColumnWriter {
+
+        private final byte kind;
+
+        IntColumnWriter(byte kind) {
+            this.kind = kind;
+        }
+
+        @Override
+        void addValue(Object value) throws IOException {
+            values.writeZLong(((Number) value).intValue());
+        }
+
+        @Override
+        byte kind() {
+            return kind;
+        }
+    }
+
+    private static class DoubleColumnWriter extends ColumnWriter {
+
+        @Override
+        void addValue(Object value) throws IOException {
+            values.writeDouble(((Number) value).doubleValue());
+        }
+
+        @Override
+        byte kind() {
+            return DOUBLE;
+        }
+    }
+
+    private static class FloatColumnWriter extends ColumnWriter {
+
+        @Override
+        void addValue(Object value) throws IOException {
+            values.writeFloat(((Number) value).floatValue());
+        }
+
+        @Override
+        byte kind() {
+            return FLOAT;
+        }
+    }
+
+    private static class BooleanColumnWriter extends ColumnWriter {
+
+        @Override
+        void addValue(Object value) throws IOException {
+            values.writeBoolean((Boolean) value);
+        }
+
+        @Override
+        byte kind() {
+            return BOOLEAN;
+        }
+    }
+
+    /**
+     * Writes the values as index into a dictionary of the distinct values, until the dictionary gets too large.
+     */
+    private static class StringColumnWriter extends ColumnWriter {
+
+        private final ObjectIntHashMap<String> dictionaryIndexByValue = new ObjectIntHashMap<>();
+        private final List<String> dictionary = new ArrayList<>();
+        private final IntArrayList dictionaryIndices = new IntArrayList();
+        private long dictionaryBytes = 0;
+        private boolean useDictionary = true;
+
+        @Override
+        void addValue(Object value) throws IOException {
+            String stringValue = (String) value;
+            if (useDictionary == false) {
+                values.writeString(stringValue);
+                return;
+            }
+            int idx = dictionaryIndexByValue.getOrDefault(stringValue, -1);
+            if (idx == -1) {
+                if (dictionary.size() == MAX_DICTIONARY_SIZE) {
+                    switchToPlainValues();
+                    values.writeString(stringValue);
+                    return;
+                }
+                idx = dictionary.size();
+                dictionary.add(stringValue);
+                dictionaryIndexByValue.put(stringValue, idx);
+                dictionaryBytes += stringValue.length();
+            }
+            dictionaryIndices.add(idx);
+        }
+
+        private void switchToPlainValues() throws IOException {
+            for (int i = 0; i < dictionaryIndices.size(); i++) {
+                values.writeString(dictionary.get(dictionaryIndices.get(i)));
+            }
+            useDictionary = false;
+            clearDictionary();
+        }
+
+        private void clearDictionary() {
+            dictionaryIndexByValue.clear();
+            dictionary.clear();
+            dictionaryIndices.clear();
+            dictionaryBytes = 0;
+        }
+
+        @Override
+        byte kind() {
+            return useDictionary ? STRING_DICTIONARY : STRING;
+        }
+
+        @Override
+        long ramBytesUsed() {
+            // the strings of the dictionary are referenced by the map and the list, but count only once
+            return super.ramBytesUsed() + dictionaryBytes + dictionaryIndices.size() * Integer.BYTES;
+        }
+
+        @Override
+        void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            if (useDictionary) {
+                out.writeVInt(dictionary.size());
+                for (String value : dictionary) {
+                    out.writeString(value);
+                }
+                for (int i = 0; i < dictionaryIndices.size(); i++) {
+                    out.writeVInt(dictionaryIndices.get(i));
+                }
+            }
+        }
+
+        @Override
+        void reset() {
+            super.reset();
+            clearDictionary();
+            useDictionary = true;
+        }
+    }
+
+    private static class GenericColumnWriter extends ColumnWriter {
+
+        private final Streamer<Object> streamer;
+
+        @SuppressWarnings("unchecked")
+        GenericColumnWriter(Streamer<?> streamer) {
+            this.streamer = (Streamer<Object>) streamer;
+        }
+
+        @Override
+        void add(Object value) throws IOException {
+            streamer.writeValueTo(values, value);
+            numRows++;
+        }
+
+        @Override
+        void addValue(Object value) {
+            throw new UnsupportedOperationException("values are added including nulls");
+        }
+
+        @Override
+        byte kind() {
+            return GENERIC;
+        }
+    }
+
+    private static Column readColumn(StreamInput in, int numRows, Streamer<?> streamer) throws IOException {
+        byte kind = in.readByte();
+        int numNulls = in.readVInt();
+        BitSet nulls = numNulls > 0 ? BitSet.valueOf(in.readByteArray()) : new BitSet(0);
+        switch (kind) {
+            case LONG: {
+                long[] values = new long[numRows];
+                long previous = 0;
+                for (int i = 0; i < numRows; i++) {
+                    if (nulls.get(i) == false) {
+                        previous += in.readZLong();
+                        values[i] = previous;
+                    }
+                }
+                return row -> nulls.get(row) ? null : values[row];
+            }
+
+            case INTEGER:
+            case SHORT:
+            case BYTE: {
+                int[] values = new int[numRows];
+                for (int i = 0; i < numRows; i++) {
+                    if (nulls.get(i) == false) {
+                        values[i] = (int) in.readZLong();
+                    }
+                }
+                if (kind == SHORT) {
+                    return row -> nulls.get(row) ? null : (short) values[row];
+                }
+                if (kind == BYTE) {
+                    return row -> nulls.get(row) ? null : (byte) values[row];
+                }
+                return row -> nulls.get(row) ? null : values[row];
+            }
+
+            case DOUBLE: {
+                double[] values = new double[numRows];
+                for (int i = 0; i < numRows; i++) {
+                    if (nulls.get(i) == false) {
+                        values[i] = in.readDouble();
+                    }
+                }
+                return row -> nulls.get(row) ? null : values[row];
+            }
+
+            case FLOAT: {
+                float[] values = new float[numRows];
+                for (int i = 0; i < numRows; i++) {
+                    if (nulls.get(i) == false) {
+                        values[i] = in.readFloat();
+                    }
+                }
+                return row -> nulls.get(row) ? null : values[row];
+            }
+
+            case BOOLEAN: {
+                boolean[] values = new boolean[numRows];
+                for (int i = 0; i < numRows; i++) {
+                    if (nulls.get(i) == false) {
+                        values[i] = in.readBoolean();
+                    }
+                }
+                return row -> nulls.get(row) ? null : values[row];
+            }
+
+            case STRING_DICTIONARY: {
+                String[] dictionary = new String[in.readVInt()];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = in.readString();
+                }
+                int[] dictionaryIndices = new int[numRows];
+                for (int i = 0; i < numRows; i++) {
+                    if (nulls.get(i) == false) {
+                        dictionaryIndices[i] = in.readVInt();
+                    }
+                }
+                return row -> nulls.get(row) ? null : dictionary[dictionaryIndices[row]];
+            }
+
+            case STRING: {
+                String[] values = new String[numRows];
+                for (int i = 0; i < numRows; i++) {
+                    if (nulls.get(i) == false) {
+                        values[i] = in.readString();
+                    }
+                }
+                return row -> values[row];
+            }
+
+            case GENERIC: {
+                Object[] values = new Object[numRows];
+                for (int i = 0; i < numRows; i++) {
+                    values[i] = streamer.readValueFrom(in);
+                }
+                return row -> values[row];
+            }
+
+            default:
+                throw new IllegalStateException("Unknown column kind: " + kind);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Column {
+
+        Object get(int row);
+    }
+
+    private static class RowIterator implements Iterator<Row> {
+
+        private final int numRows;
+        private final ColumnarRow row;
+
+        RowIterator(Column[] columns, int numRows) {
+            this.numRows = numRows;
+            this.row = new ColumnarRow(columns);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return row.rowIdx + 1 < numRows;
+        }
+
+        @Override
+        public Row next() {
+            if (hasNext() == false) {
+                throw new NoSuchElementException("Iterator is exhausted");
+            }
+            row.rowIdx++;
+            return row;
+        }
+    }
+
+    private static class ColumnarRow implements Row {
+
+        private final Column[] columns;
+        private int rowIdx = -1;
+
+        ColumnarRow(Column[] columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public int numColumns() {
+            return columns.length;
+        }
+
+        @Override
+        public Object get(int index) {
+            return columns[index].get(rowIdx);
+        }
+
+        @Override
+        public Object[] materialize() {
+            Object[] cells = new Object[columns.length];
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = columns[i].get(rowIdx);
+            }
+            return cells;
+        }
+    }
+}
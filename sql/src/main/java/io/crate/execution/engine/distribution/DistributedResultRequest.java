@@ -37,6 +37,7 @@ public class DistributedResultRequest extends TransportRequest {
     private byte inputId;
     private int executionPhaseId;
     private int bucketIdx;
+    private int pageIdx;
 
     private StreamBucket rows;
     private UUID jobId;
@@ -61,7 +62,18 @@ public class DistributedResultRequest extends TransportRequest {
                                     int bucketIdx,
                                     StreamBucket rows,
                                     boolean isLast) {
+        this(jobId, executionPhaseId, inputId, bucketIdx, 0, rows, isLast);
+    }
+
+    public DistributedResultRequest(UUID jobId,
+                                    int executionPhaseId,
+                                    byte inputId,
+                                    int bucketIdx,
+                                    int pageIdx,
+                                    StreamBucket rows,
+                                    boolean isLast) {
         this(jobId, inputId, executionPhaseId, bucketIdx);
+        this.pageIdx = pageIdx;
         this.rows = rows;
         this.isLast = isLast;
     }
@@ -93,6 +105,10 @@ public class DistributedResultRequest extends TransportRequest {
         return bucketIdx;
     }
 
+    public int pageIdx() {
+        return pageIdx;
+    }
+
     public Bucket readRows(Streamer<?>[] streamers) {
         rows.streamers(streamers);
         return rows;
@@ -117,6 +133,7 @@ public class DistributedResultRequest extends TransportRequest {
         jobId = new UUID(in.readLong(), in.readLong());
         executionPhaseId = in.readVInt();
         bucketIdx = in.readVInt();
+        pageIdx = in.readVInt();
         isLast = in.readBoolean();
         inputId = in.readByte();
 
@@ -136,6 +153,7 @@ public class DistributedResultRequest extends TransportRequest {
         out.writeLong(jobId.getLeastSignificantBits());
         out.writeVInt(executionPhaseId);
         out.writeVInt(bucketIdx);
+        out.writeVInt(pageIdx);
         out.writeBoolean(isLast);
         out.writeByte(inputId);
 
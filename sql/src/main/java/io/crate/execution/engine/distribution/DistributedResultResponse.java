@@ -26,11 +26,15 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.transport.TransportResponse;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 
 public class DistributedResultResponse extends TransportResponse {
 
     private boolean needMore = false;
+    private int pageCredits = 1;
+    @Nullable
+    private RuntimeFilter runtimeFilter;
 
     public DistributedResultResponse() {
     }
@@ -39,19 +43,49 @@ public class DistributedResultResponse extends TransportResponse {
         this.needMore = needMore;
     }
 
+    public DistributedResultResponse(boolean needMore, int pageCredits) {
+        this(needMore, pageCredits, null);
+    }
+
+    public DistributedResultResponse(boolean needMore, int pageCredits, @Nullable RuntimeFilter runtimeFilter) {
+        this.needMore = needMore;
+        this.pageCredits = pageCredits;
+        this.runtimeFilter = runtimeFilter;
+    }
+
     public boolean needMore() {
         return needMore;
     }
 
+    /**
+     * The number of pages the upstream may send to the receiver without waiting for a response.
+     */
+    public int pageCredits() {
+        return pageCredits;
+    }
+
+    /**
+     * A filter for the rows the upstream sends to the receiver in subsequent pages.
+     * It is sent once and applies to all following pages.
+     */
+    @Nullable
+    public RuntimeFilter runtimeFilter() {
+        return runtimeFilter;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
         needMore = in.readBoolean();
+        pageCredits = in.readVInt();
+        runtimeFilter = in.readOptionalWriteable(RuntimeFilter::new);
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         super.writeTo(out);
         out.writeBoolean(needMore);
+        out.writeVInt(pageCredits);
+        out.writeOptionalWriteable(runtimeFilter);
     }
 }
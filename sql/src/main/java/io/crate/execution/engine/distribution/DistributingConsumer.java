@@ -32,6 +32,7 @@ import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -45,11 +46,42 @@ import java.util.concurrent.atomic.AtomicInteger;
  * The rows from the source {@link BatchIterator} are "bucketed" using a {@link MultiBucketBuilder}. So a downstream
  * can either receive a part of the data or all data.
  *
- * Every time requests to the downstreams are made consumption of the source BatchIterator is stopped until a response
- * from all downstreams is received.
+ * Up to {@link #maxPagesInFlight} pages are sent to the downstreams without waiting for their responses. How many
+ * pages a downstream accepts in flight is granted with each response ({@link DistributedResultResponse#pageCredits()}).
+ * Once all granted pages are in flight consumption of the source BatchIterator is stopped until a page has been
+ * acknowledged by all downstreams. With a single page in flight this is a stop-and-wait protocol: consumption is
+ * stopped every time requests to the downstreams are made.
+ *
+ * Downstreams may respond with a {@link RuntimeFilter}, the rows of their bucket which aren't contained in the filter
+ * are skipped from then on.
+ *
+ * If more than one page can be in flight, the page size is adapted to the measured round trip time of the pages and the
+ * width of the rows, see {@link #adaptPageSize(int, int, int, int, long, long, long)}.
  */
 public class DistributingConsumer implements RowConsumer {
 
+    /**
+     * Number of pages which may be in flight per downstream
+     */
+    public static final int MAX_PAGES_IN_FLIGHT = 4;
+
+    /**
+     * Upper bound for the serialized size of the rows of a page
+     */
+    private static final long MAX_PAGE_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * The adapted page size stays within initialPageSize / factor and initialPageSize * factor
+     */
+    private static final int PAGE_SIZE_ADAPTION_FACTOR = 8;
+
+    private enum Action {
+        CONTINUE,
+        WAIT,
+        FORWARD_FAILURE,
+        CLOSE
+    }
+
     private final Logger logger;
     private final Executor responseExecutor;
     private final UUID jobId;
@@ -57,15 +89,29 @@ public class DistributingConsumer implements RowConsumer {
     private final byte inputId;
     private final int bucketIdx;
     private final TransportDistributedResultAction distributedResultAction;
-    private final int pageSize;
+    private final int initialPageSize;
+    private final int maxPagesInFlight;
     private final StreamBucket[] buckets;
     private final List<Downstream> downstreams;
     private final boolean traceEnabled;
+    private final Object lock = new Object();
 
     @VisibleForTesting
     final MultiBucketBuilder multiBucketBuilder;
 
     private volatile Throwable failure;
+    private volatile int pageSize;
+
+    @GuardedBy("lock")
+    private int numPagesInFlight = 0;
+    @GuardedBy("lock")
+    private boolean paused = false;
+    @GuardedBy("lock")
+    private boolean lastPageSent = false;
+
+    // only accessed by the thread consuming the source
+    private int pageIdx = 0;
+    private long pageStartedNanos;
 
     public DistributingConsumer(Logger logger,
                                 Executor responseExecutor,
@@ -76,7 +122,9 @@ public class DistributingConsumer implements RowConsumer {
                                 int bucketIdx,
                                 Collection<String> downstreamNodeIds,
                                 TransportDistributedResultAction distributedResultAction,
-                                int pageSize) {
+                                int pageSize,
+                                int maxPagesInFlight) {
+        assert maxPagesInFlight > 0 : "maxPagesInFlight must be greater than 0";
         this.traceEnabled = logger.isTraceEnabled();
         this.logger = logger;
         this.responseExecutor = responseExecutor;
@@ -86,7 +134,9 @@ public class DistributingConsumer implements RowConsumer {
         this.inputId = inputId;
         this.bucketIdx = bucketIdx;
         this.distributedResultAction = distributedResultAction;
+        this.initialPageSize = pageSize;
         this.pageSize = pageSize;
+        this.maxPagesInFlight = maxPagesInFlight;
         this.buckets = new StreamBucket[downstreamNodeIds.size()];
         downstreams = new ArrayList<>(downstreamNodeIds.size());
         for (String downstreamNodeId : downstreamNodeIds) {
@@ -97,6 +147,7 @@ public class DistributingConsumer implements RowConsumer {
     @Override
     public void accept(BatchIterator<Row> iterator, @Nullable Throwable failure) {
         if (failure == null) {
+            pageStartedNanos = System.nanoTime();
             consumeIt(iterator);
         } else {
             forwardFailure(null, failure);
@@ -106,11 +157,14 @@ public class DistributingConsumer implements RowConsumer {
     private void consumeIt(BatchIterator<Row> it) {
         boolean allLoaded;
         try {
+            int pageSize = this.pageSize;
             while (it.moveNext()) {
                 multiBucketBuilder.add(it.currentElement());
                 if (multiBucketBuilder.size() >= pageSize) {
-                    forwardResults(it, false);
-                    return;
+                    if (forwardResults(it, false) == false) {
+                        return;
+                    }
+                    pageSize = this.pageSize;
                 }
             }
             allLoaded = it.allLoaded();
@@ -173,28 +227,52 @@ public class DistributingConsumer implements RowConsumer {
         }
     }
 
-    private void forwardResults(BatchIterator<Row> it, boolean isLast) {
+    /**
+     * Sends the current page to the downstreams.
+     *
+     * @return true if the source can be consumed further, false if the consumption is continued once pages in flight
+     *         have been acknowledged, or if the consumption is done.
+     */
+    private boolean forwardResults(BatchIterator<Row> it, boolean isLast) {
+        int numRows = multiBucketBuilder.size();
         multiBucketBuilder.build(buckets);
-
-        AtomicInteger numActiveRequests = new AtomicInteger(downstreams.size());
+        long numBytes = 0;
+        for (StreamBucket bucket : buckets) {
+            numBytes += bucket.sizeInBytes();
+        }
+        long now = System.nanoTime();
+        Page page = new Page(downstreams.size(), numRows, numBytes, now - pageStartedNanos, now);
+        synchronized (lock) {
+            numPagesInFlight++;
+            lastPageSent = isLast;
+        }
         for (int i = 0; i < downstreams.size(); i++) {
             Downstream downstream = downstreams.get(i);
             if (downstream.needsMoreData == false) {
-                countdownAndMaybeContinue(it, numActiveRequests, true);
+                countdownAndMaybeContinue(it, page);
                 continue;
             }
+            int downstreamIdx = i;
             if (traceEnabled) {
-                logger.trace("forwardResults targetNode={} jobId={} targetPhase={}/{} bucket={} isLast={}",
-                    downstream.nodeId, jobId, targetPhaseId, inputId, bucketIdx, isLast);
+                logger.trace("forwardResults targetNode={} jobId={} targetPhase={}/{} bucket={} page={} isLast={}",
+                    downstream.nodeId, jobId, targetPhaseId, inputId, bucketIdx, pageIdx, isLast);
             }
             distributedResultAction.pushResult(
                 downstream.nodeId,
-                new DistributedResultRequest(jobId, targetPhaseId, inputId, bucketIdx, buckets[i], isLast),
+                new DistributedResultRequest(jobId, targetPhaseId, inputId, bucketIdx, pageIdx, buckets[i], isLast),
                 new ActionListener<DistributedResultResponse>() {
                     @Override
                     public void onResponse(DistributedResultResponse response) {
-                        downstream.needsMoreData = response.needMore();
-                        countdownAndMaybeContinue(it, numActiveRequests, false);
+                        // responses of pages in flight can arrive out of order, a downstream which is done stays done
+                        if (response.needMore() == false) {
+                            downstream.needsMoreData = false;
+                        }
+                        downstream.pageCredits = response.pageCredits();
+                        RuntimeFilter runtimeFilter = response.runtimeFilter();
+                        if (runtimeFilter != null) {
+                            multiBucketBuilder.setRuntimeFilter(downstreamIdx, runtimeFilter);
+                        }
+                        countdownAndMaybeContinue(it, page);
                     }
 
                     @Override
@@ -202,32 +280,83 @@ public class DistributingConsumer implements RowConsumer {
                         failure = e;
                         downstream.needsMoreData = false;
                         // continue because it's necessary to send something to downstreams still waiting for data
-                        countdownAndMaybeContinue(it, numActiveRequests, false);
+                        countdownAndMaybeContinue(it, page);
                     }
                 }
             );
         }
+        pageIdx++;
+        pageStartedNanos = System.nanoTime();
+
+        Action action;
+        synchronized (lock) {
+            action = nextAction();
+            paused = action == Action.WAIT;
+        }
+        switch (action) {
+            case CONTINUE:
+                return true;
+
+            case FORWARD_FAILURE:
+                forwardFailure(it, failure);
+                return false;
+
+            case CLOSE:
+                it.close();
+                return false;
+
+            default:
+                return false;
+        }
     }
 
-    private void countdownAndMaybeContinue(BatchIterator<Row> it, AtomicInteger numActiveRequests, boolean sameExecutor) {
-        if (numActiveRequests.decrementAndGet() == 0) {
-            if (downstreams.stream().anyMatch(Downstream::needsMoreData)) {
-                if (failure == null) {
-                    if (sameExecutor) {
+    private void countdownAndMaybeContinue(BatchIterator<Row> it, Page page) {
+        if (page.numActiveRequests.decrementAndGet() > 0) {
+            return;
+        }
+        Action action;
+        synchronized (lock) {
+            numPagesInFlight--;
+            if (maxPagesInFlight > 1) {
+                pageSize = adaptPageSize(
+                    pageSize,
+                    initialPageSize,
+                    grantedPageCredits(),
+                    page.numRows,
+                    page.numBytes,
+                    page.collectNanos,
+                    System.nanoTime() - page.sentNanos
+                );
+            }
+            if (paused == false) {
+                // the consumer is still active and decides itself if it has to wait for this page
+                return;
+            }
+            action = nextAction();
+            if (action == Action.WAIT) {
+                return;
+            }
+            paused = false;
+        }
+        switch (action) {
+            case CONTINUE:
+                // try to dispatch to different executor, if it fails, forward the error in the same thread
+                try {
+                    responseExecutor.execute(() -> {
+                        pageStartedNanos = System.nanoTime();
                         consumeIt(it);
-                    } else {
-                        // try to dispatch to different executor, if it fails, forward the error in the same thread
-                        try {
-                            responseExecutor.execute(() -> consumeIt(it));
-                        } catch (EsRejectedExecutionException e) {
-                            failure = e;
-                            forwardFailure(it, failure);
-                        }
-                    }
-                } else {
+                    });
+                } catch (EsRejectedExecutionException e) {
+                    failure = e;
                     forwardFailure(it, failure);
                 }
-            } else {
+                break;
+
+            case FORWARD_FAILURE:
+                forwardFailure(it, failure);
+                break;
+
+            case CLOSE:
                 // If we've a failure we either communicated it to the other downstreams already,
                 // or were able to send results to all downstreams. In either case, *this* operation succeeded and the
                 // downstreams need to deal with failures.
@@ -235,14 +364,97 @@ public class DistributingConsumer implements RowConsumer {
                 // The NodeDisconnectJobMonitorService takes care of node disconnects, so we don't have to manage
                 // that scenario.
                 it.close();
+                break;
+
+            default:
+                throw new AssertionError("Unexpected action: " + action);
+        }
+    }
+
+    @GuardedBy("lock")
+    private Action nextAction() {
+        boolean needsMoreData = lastPageSent == false && downstreams.stream().anyMatch(Downstream::needsMoreData);
+        if (needsMoreData && failure == null) {
+            return numPagesInFlight < grantedPageCredits() ? Action.CONTINUE : Action.WAIT;
+        }
+        if (numPagesInFlight > 0) {
+            return Action.WAIT;
+        }
+        return needsMoreData ? Action.FORWARD_FAILURE : Action.CLOSE;
+    }
+
+    private int grantedPageCredits() {
+        int pageCredits = maxPagesInFlight;
+        for (Downstream downstream : downstreams) {
+            if (downstream.needsMoreData) {
+                pageCredits = Math.min(pageCredits, downstream.pageCredits);
             }
         }
+        return Math.max(1, pageCredits);
+    }
+
+    /**
+     * Calculates the size of the next pages.
+     * <p>
+     * While the granted pages are in flight, the consumer must be busy collecting the next page, otherwise it stalls
+     * waiting for a response. So the pages in flight must cover the round trip of a page:
+     *
+     * <pre>
+     *     pageCredits * pageSize / rowsCollectedPerNano >= roundTripNanos
+     * </pre>
+     *
+     * The page size never falls below the initial page size because of the round trip, but is limited so that the
+     * serialized rows of a page don't exceed {@link #MAX_PAGE_BYTES}.
+     */
+    @VisibleForTesting
+    static int adaptPageSize(int pageSize,
+                             int initialPageSize,
+                             int pageCredits,
+                             int numRows,
+                             long numBytes,
+                             long collectNanos,
+                             long roundTripNanos) {
+        if (numRows == 0) {
+            return pageSize;
+        }
+        long targetPageSize = initialPageSize;
+        if (collectNanos > 0) {
+            double rowsPerNano = numRows / (double) collectNanos;
+            targetPageSize = Math.max(targetPageSize, (long) Math.ceil(rowsPerNano * roundTripNanos / pageCredits));
+        }
+        long maxPageSize = (long) initialPageSize * PAGE_SIZE_ADAPTION_FACTOR;
+        if (numBytes > 0) {
+            long bytesPerRow = Math.max(1, numBytes / numRows);
+            maxPageSize = Math.min(maxPageSize, MAX_PAGE_BYTES / bytesPerRow);
+        }
+        long minPageSize = Math.max(1, initialPageSize / PAGE_SIZE_ADAPTION_FACTOR);
+        // move halfway towards the target, a single slow round trip shouldn't cause huge pages
+        long nextPageSize = (pageSize + Math.min(targetPageSize, maxPageSize)) / 2;
+        return (int) Math.max(minPageSize, Math.min(nextPageSize, maxPageSize));
+    }
+
+    private static class Page {
+
+        private final AtomicInteger numActiveRequests;
+        private final int numRows;
+        private final long numBytes;
+        private final long collectNanos;
+        private final long sentNanos;
+
+        Page(int numRequests, int numRows, long numBytes, long collectNanos, long sentNanos) {
+            this.numActiveRequests = new AtomicInteger(numRequests);
+            this.numRows = numRows;
+            this.numBytes = numBytes;
+            this.collectNanos = collectNanos;
+            this.sentNanos = sentNanos;
+        }
     }
 
     private static class Downstream {
 
         private final String nodeId;
-        private boolean needsMoreData = true;
+        private volatile boolean needsMoreData = true;
+        private volatile int pageCredits = 1;
 
         Downstream(String nodeId) {
             this.nodeId = nodeId;
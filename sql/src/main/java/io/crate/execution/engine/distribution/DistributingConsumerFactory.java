@@ -73,18 +73,28 @@ public class DistributingConsumerFactory {
         byte phaseInputId = nodeOperation.downstreamExecutionPhaseInputId();
         int bucketIdx = getBucketIdx(nodeOperation.executionPhase().nodeIds(), phaseInputId);
 
+        String localNodeId = clusterService.localNode().getId();
+        Collection<String> downstreamNodes = nodeOperation.downstreamNodes();
+        StreamBucket.Encoding[] encodings = new StreamBucket.Encoding[downstreamNodes.size()];
+        int i = 0;
+        for (String downstreamNode : downstreamNodes) {
+            encodings[i] = bucketEncoding(downstreamNode, localNodeId);
+            i++;
+        }
+
         MultiBucketBuilder multiBucketBuilder;
         switch (distributionInfo.distributionType()) {
             case MODULO:
-                if (nodeOperation.downstreamNodes().size() == 1) {
-                    multiBucketBuilder = new BroadcastingBucketBuilder(streamers, nodeOperation.downstreamNodes().size());
+                if (downstreamNodes.size() == 1) {
+                    multiBucketBuilder = new BroadcastingBucketBuilder(streamers, 1, encodings[0]);
                 } else {
-                    multiBucketBuilder = new ModuloBucketBuilder(streamers,
-                        nodeOperation.downstreamNodes().size(), distributionInfo.distributeByColumn());
+                    multiBucketBuilder = new ModuloBucketBuilder(
+                        streamers, distributionInfo.distributeByColumns(), encodings);
                 }
                 break;
             case BROADCAST:
-                multiBucketBuilder = new BroadcastingBucketBuilder(streamers, nodeOperation.downstreamNodes().size());
+                multiBucketBuilder = new BroadcastingBucketBuilder(
+                    streamers, downstreamNodes.size(), broadcastEncoding(encodings));
                 break;
             default:
                 throw new UnsupportedOperationException("Can't handle distributionInfo: " + distributionInfo);
@@ -100,10 +110,28 @@ public class DistributingConsumerFactory {
             bucketIdx,
             nodeOperation.downstreamNodes(),
             transportDistributedResultAction,
-            pageSize
+            pageSize,
+            DistributingConsumer.MAX_PAGES_IN_FLIGHT
         );
     }
 
+    /**
+     * Buckets sent to other nodes use the columnar encoding which is more compact on the wire.
+     * Requests to the local node are not serialized, so the row encoding, which is cheaper to build, is used for them.
+     */
+    private static StreamBucket.Encoding bucketEncoding(String downstreamNodeId, String localNodeId) {
+        return downstreamNodeId.equals(localNodeId) ? StreamBucket.Encoding.ROW : StreamBucket.Encoding.COLUMNAR;
+    }
+
+    private static StreamBucket.Encoding broadcastEncoding(StreamBucket.Encoding[] encodings) {
+        for (StreamBucket.Encoding encoding : encodings) {
+            if (encoding == StreamBucket.Encoding.COLUMNAR) {
+                return encoding;
+            }
+        }
+        return StreamBucket.Encoding.ROW;
+    }
+
     /**
      * @return bucketIdx (= phaseInputID (8bit) | idx of localNode in nodeIds (24bit) )
      *
@@ -27,35 +27,74 @@ import io.crate.data.Row;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * builds N buckets where N is passed in the CTOR.
- * The rows that are added via {@link #add(Row)} are assigned to the buckets by modulo calculation.
+ * The rows that are added via {@link #add(Row)} are assigned to the buckets by modulo calculation
+ * of the hash of the distributedBy columns.
+ * <p>
+ * The hash must be the same on every node, otherwise rows with the same values would end up in different buckets.
+ * <p>
+ * Rows are skipped if the {@link RuntimeFilter} of their bucket doesn't contain their hash.
  */
 public class ModuloBucketBuilder implements MultiBucketBuilder {
 
     private final int numBuckets;
     private final List<StreamBucket.Builder> bucketBuilders;
-    private final int distributedByColumnIdx;
+    private final int[] distributedByColumnIdxs;
+    private final AtomicReferenceArray<RuntimeFilter> runtimeFilters;
     private int size = 0;
 
     public ModuloBucketBuilder(Streamer<?>[] streamers, int numBuckets, int distributedByColumnIdx) {
-        this.numBuckets = numBuckets;
-        this.distributedByColumnIdx = distributedByColumnIdx;
+        this(streamers, numBuckets, new int[] { distributedByColumnIdx });
+    }
+
+    public ModuloBucketBuilder(Streamer<?>[] streamers, int numBuckets, int[] distributedByColumnIdxs) {
+        this(streamers, distributedByColumnIdxs, rowEncodings(numBuckets));
+    }
+
+    /**
+     * @param encodings the encoding of each bucket, this also defines the number of buckets
+     */
+    public ModuloBucketBuilder(Streamer<?>[] streamers,
+                               int[] distributedByColumnIdxs,
+                               StreamBucket.Encoding[] encodings) {
+        this.numBuckets = encodings.length;
+        this.distributedByColumnIdxs = distributedByColumnIdxs;
+        this.runtimeFilters = new AtomicReferenceArray<>(numBuckets);
         this.bucketBuilders = new ArrayList<>(numBuckets);
         for (int i = 0; i < numBuckets; i++) {
-            bucketBuilders.add(new StreamBucket.Builder(streamers, null));
+            bucketBuilders.add(new StreamBucket.Builder(streamers, null, encodings[i]));
         }
     }
 
+    private static StreamBucket.Encoding[] rowEncodings(int numBuckets) {
+        StreamBucket.Encoding[] encodings = new StreamBucket.Encoding[numBuckets];
+        Arrays.fill(encodings, StreamBucket.Encoding.ROW);
+        return encodings;
+    }
+
     @Override
     public void add(Row row) {
-        StreamBucket.Builder builder = bucketBuilders.get(getBucket(row));
+        int hash = hash(row);
+        int bucketIdx = getBucket(hash);
+        RuntimeFilter runtimeFilter = runtimeFilters.get(bucketIdx);
+        if (runtimeFilter != null && runtimeFilter.mightContain(hash) == false) {
+            return;
+        }
+        StreamBucket.Builder builder = bucketBuilders.get(bucketIdx);
         builder.add(row);
         size++;
     }
 
+    @Override
+    public void setRuntimeFilter(int bucketIdx, RuntimeFilter runtimeFilter) {
+        runtimeFilters.set(bucketIdx, runtimeFilter);
+    }
+
     @Override
     public int size() {
         return size;
@@ -72,21 +111,32 @@ public class ModuloBucketBuilder implements MultiBucketBuilder {
         size = 0;
     }
 
+    private int hash(Row row) {
+        int hash = hashCode(row.get(distributedByColumnIdxs[0]));
+        for (int i = 1; i < distributedByColumnIdxs.length; i++) {
+            hash = 31 * hash + hashCode(row.get(distributedByColumnIdxs[i]));
+        }
+        return hash;
+    }
+
     /**
-     * get bucket number by doing modulo hashcode of the defined row-element
+     * get bucket number by doing modulo hashcode of the defined row-elements
      */
-    private int getBucket(Row row) {
-        int hash = hashCode(row.get(distributedByColumnIdx));
+    private int getBucket(int hash) {
         if (hash == Integer.MIN_VALUE) {
             hash = 0; // Math.abs(Integer.MIN_VALUE) == Integer.MIN_VALUE
         }
         return Math.abs(hash) % numBuckets;
     }
 
-    private static int hashCode(@Nullable Object value) {
+    static int hashCode(@Nullable Object value) {
         if (value == null) {
             return 0;
         }
+        if (value.getClass().isArray()) {
+            // arrays use the identity hash code, hash the elements instead
+            return Arrays.deepHashCode(new Object[] { value });
+        }
         return value.hashCode();
     }
 }
@@ -47,4 +47,11 @@ public interface MultiBucketBuilder {
      * N is usually specified in the constructor of a specific PageBuilder implementation.
      */
     void build(StreamBucket[] buckets);
+
+    /**
+     * Sets a filter for the rows of a bucket, rows which aren't contained in the filter are skipped.
+     * This may be called concurrently to {@link #add(Row)}. Builders which can't filter ignore the filter.
+     */
+    default void setRuntimeFilter(int bucketIdx, RuntimeFilter runtimeFilter) {
+    }
 }
@@ -0,0 +1,116 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.distribution;
+
+import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+
+/**
+ * A filter which a downstream sends to its upstreams to let them skip rows the downstream doesn't need.
+ * <p>
+ * The filter contains the hash codes of the values the upstreams distribute by, as computed by the
+ * {@link ModuloBucketBuilder}, and may contain false positives. It is created by a hash join from the values of the
+ * join key of its build side, rows of the probe side whose join key isn't contained can't have a match.
+ */
+public final class RuntimeFilter implements Writeable {
+
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.03;
+
+    private final BloomFilter<Integer> hashes;
+
+    private RuntimeFilter(BloomFilter<Integer> hashes) {
+        this.hashes = hashes;
+    }
+
+    public RuntimeFilter(StreamInput in) throws IOException {
+        hashes = BloomFilter.readFrom(in, Funnels.integerFunnel());
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        hashes.writeTo(out);
+    }
+
+    /**
+     * @param hash the hash code of the distribute by values of a row, see {@link ModuloBucketBuilder}
+     * @return false if the row can be skipped, true if the row might be needed
+     */
+    public boolean mightContain(int hash) {
+        return hashes.mightContain(hash);
+    }
+
+    /**
+     * Collects the values a {@link RuntimeFilter} is created from. Null values are skipped as they never match.
+     */
+    public static class Builder {
+
+        private final int maxValues;
+        private IntHashSet hashes = new IntHashSet();
+
+        /**
+         * @param maxValues the maximum number of distinct hash codes;
+         *                  if there are more the filter wouldn't be selective enough to be worth its size
+         */
+        public Builder(int maxValues) {
+            this.maxValues = maxValues;
+        }
+
+        public void add(@Nullable Object value) {
+            if (value == null || hashes == null) {
+                return;
+            }
+            hashes.add(ModuloBucketBuilder.hashCode(value));
+            if (hashes.size() > maxValues) {
+                hashes = null;
+            }
+        }
+
+        public void reset() {
+            hashes = new IntHashSet();
+        }
+
+        /**
+         * @return the filter or null if there were too many distinct values
+         */
+        @Nullable
+        public RuntimeFilter build() {
+            if (hashes == null) {
+                return null;
+            }
+            BloomFilter<Integer> bloomFilter =
+                BloomFilter.create(Funnels.integerFunnel(), Math.max(1, hashes.size()), FALSE_POSITIVE_PROBABILITY);
+            for (IntCursor cursor : hashes) {
+                bloomFilter.put(cursor.value);
+            }
+            return new RuntimeFilter(bloomFilter);
+        }
+    }
+}
@@ -41,9 +41,29 @@ import java.util.Iterator;
 
 public class StreamBucket implements Bucket, Writeable {
 
+    /**
+     * The format in which the rows of a bucket are serialized. It is part of the serialized bucket, so the sender can
+     * choose the encoding for every bucket it sends.
+     */
+    public enum Encoding {
+
+        /**
+         * The values of a row are written one after another using the {@link Streamer}s.
+         */
+        ROW,
+
+        /**
+         * The values are grouped by column and written with an encoding specific to the type of the column,
+         * see {@link ColumnarEncoding}. This is usually more compact, but the rows of a bucket have to be decoded
+         * at once, so it is meant for buckets which are sent to other nodes.
+         */
+        COLUMNAR
+    }
+
     private Streamer<?>[] streamers;
     private int size = -1;
     private BytesReference bytes;
+    private Encoding encoding = Encoding.ROW;
 
     public static class Builder {
 
@@ -53,20 +73,43 @@ public class StreamBucket implements Bucket, Writeable {
 
         private int size = 0;
         private final Streamer<?>[] streamers;
+        private final Encoding encoding;
         private BytesStreamOutput out;
+        @Nullable
+        private final ColumnarEncoding.Writer columnsWriter;
         private int prevOutSize = 0;
+        private long prevColumnsSize = 0;
 
         public Builder(Streamer<?>[] streamers, RamAccountingContext ramAccountingContext) {
+            this(streamers, ramAccountingContext, Encoding.ROW);
+        }
+
+        public Builder(Streamer<?>[] streamers, RamAccountingContext ramAccountingContext, Encoding encoding) {
             this.ramAccountingContext = ramAccountingContext;
             assert validStreamers(streamers) : "streamers must not be null and they shouldn't be of undefinedType";
             this.streamers = streamers;
-            out = new BytesStreamOutput(INITIAL_PAGE_SIZE);
+            this.encoding = encoding;
+            if (encoding == Encoding.COLUMNAR) {
+                columnsWriter = new ColumnarEncoding.Writer(streamers);
+            } else {
+                columnsWriter = null;
+                out = new BytesStreamOutput(INITIAL_PAGE_SIZE);
+            }
         }
 
         public void add(Row row) {
             assert streamers.length == row.numColumns() : "number of streamer must match row size";
 
             size++;
+            if (columnsWriter != null) {
+                columnsWriter.add(row);
+                if (ramAccountingContext != null) {
+                    long columnsSize = columnsWriter.ramBytesUsed();
+                    ramAccountingContext.addBytes(columnsSize - prevColumnsSize);
+                    prevColumnsSize = columnsSize;
+                }
+                return;
+            }
             for (int i = 0; i < row.numColumns(); i++) {
                 try {
                     //noinspection unchecked
@@ -84,12 +127,18 @@ public class StreamBucket implements Bucket, Writeable {
         public StreamBucket build() {
             StreamBucket sb = new StreamBucket(streamers);
             sb.size = size;
-            sb.bytes = out.bytes();
+            sb.encoding = encoding;
+            sb.bytes = columnsWriter == null ? out.bytes() : columnsWriter.finish();
             return sb;
         }
 
         public void reset() {
-            out = new BytesStreamOutput(size); // next bucket is probably going to have the same size
+            if (columnsWriter == null) {
+                out = new BytesStreamOutput(size); // next bucket is probably going to have the same size
+            } else {
+                columnsWriter.reset();
+                prevColumnsSize = 0;
+            }
             size = 0;
         }
 
@@ -108,6 +157,17 @@ public class StreamBucket implements Bucket, Writeable {
         return size;
     }
 
+    public Encoding encoding() {
+        return encoding;
+    }
+
+    /**
+     * @return the number of bytes of the serialized rows
+     */
+    public int sizeInBytes() {
+        return bytes == null ? 0 : bytes.length();
+    }
+
     public void streamers(Streamer<?>[] streamers) {
         assert validStreamers(streamers) : "streamers must not be null and they shouldn't be of undefinedType";
         this.streamers = streamers;
@@ -172,6 +232,9 @@ public class StreamBucket implements Bucket, Writeable {
             return Collections.emptyIterator();
         }
         assert streamers != null : "streamers must not be null";
+        if (encoding == Encoding.COLUMNAR) {
+            return ColumnarEncoding.iterator(bytes, size, streamers);
+        }
         try {
             return new RowIterator(bytes.streamInput(), streamers, size);
         } catch (IOException e) {
@@ -195,6 +258,7 @@ public class StreamBucket implements Bucket, Writeable {
     public StreamBucket(StreamInput in) throws IOException {
         size = in.readVInt();
         if (size > 0) {
+            encoding = Encoding.values()[in.readByte()];
             bytes = in.readBytesReference();
         }
     }
@@ -211,6 +275,7 @@ public class StreamBucket implements Bucket, Writeable {
         assert size > -1 : "size must be > -1";
         out.writeVInt(size);
         if (size > 0) {
+            out.writeByte((byte) encoding.ordinal());
             out.writeBytesReference(bytes);
         }
     }
@@ -149,9 +149,11 @@ public class TransportDistributedResultAction implements NodeAction<DistributedR
 
         Throwable throwable = request.throwable();
         if (throwable == null) {
-            SendResponsePageResultListener pageResultListener = new SendResponsePageResultListener();
+            SendResponsePageResultListener pageResultListener =
+                new SendResponsePageResultListener(pageBucketReceiver, request.bucketIdx());
             pageBucketReceiver.setBucket(
                 request.bucketIdx(),
+                request.pageIdx(),
                 request.readRows(pageBucketReceiver.streamers()),
                 request.isLast(),
                 pageResultListener
@@ -203,11 +205,19 @@ public class TransportDistributedResultAction implements NodeAction<DistributedR
 
     private class SendResponsePageResultListener implements PageResultListener {
         private final CompletableFuture<DistributedResultResponse> future = new CompletableFuture<>();
+        private final PageBucketReceiver pageBucketReceiver;
+        private final int bucketIdx;
+
+        SendResponsePageResultListener(PageBucketReceiver pageBucketReceiver, int bucketIdx) {
+            this.pageBucketReceiver = pageBucketReceiver;
+            this.bucketIdx = bucketIdx;
+        }
 
         @Override
         public void needMore(boolean needMore) {
             logger.trace("sending needMore response, need more? {}", needMore);
-            future.complete(new DistributedResultResponse(needMore));
+            RuntimeFilter runtimeFilter = needMore ? pageBucketReceiver.takeRuntimeFilter(bucketIdx) : null;
+            future.complete(new DistributedResultResponse(needMore, pageBucketReceiver.pageCredits(), runtimeFilter));
         }
     }
 
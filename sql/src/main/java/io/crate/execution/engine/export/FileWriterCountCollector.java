@@ -32,7 +32,9 @@ import io.crate.exceptions.UnhandledServerException;
 import io.crate.exceptions.UnsupportedFeatureException;
 import io.crate.execution.dsl.projection.WriterProjection;
 import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.columnar.ColumnarFileWriter;
 import io.crate.metadata.ColumnIdent;
+import io.crate.types.DataType;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentHelper;
@@ -43,6 +45,7 @@ import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -58,8 +61,9 @@ import java.util.function.Supplier;
 import java.util.stream.Collector;
 
 /**
- * Collector implementation which writes the rows to the configured {@link Output}
- * and returns a count representing the number of written rows
+ * Collector implementation which writes the rows to the configured {@link Output}s
+ * and returns a count representing the number of written rows.
+ * If there are several outputs, the rows are distributed round-robin across them.
  */
 public class FileWriterCountCollector implements Collector<Row, long[], Iterable<Row>> {
 
@@ -67,27 +71,52 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
 
     private final Iterable<CollectExpression<Row, ?>> collectExpressions;
     private final List<Input<?>> inputs;
+    private final List<DataType> inputTypes;
     private final Map<String, Object> overwrites;
     @Nullable
     private final List<String> outputNames;
     private final WriterProjection.OutputFormat outputFormat;
-    private Output output;
 
-    private final RowWriter rowWriter;
+    private final RowWriter[] rowWriters;
+    private int nextRowWriter = 0;
 
     FileWriterCountCollector(ExecutorService executorService,
-                             String uri,
+                             List<String> uris,
                              @Nullable WriterProjection.CompressionType compressionType,
                              @Nullable List<Input<?>> inputs,
+                             List<DataType> inputTypes,
                              Iterable<CollectExpression<Row, ?>> collectExpressions,
                              Map<ColumnIdent, Object> overwrites,
                              @Nullable List<String> outputNames,
                              WriterProjection.OutputFormat outputFormat) {
         this.collectExpressions = collectExpressions;
         this.inputs = inputs;
+        this.inputTypes = inputTypes;
         this.overwrites = toNestedStringObjectMap(overwrites);
         this.outputNames = outputNames;
         this.outputFormat = outputFormat;
+        List<Output> outputs = new ArrayList<>(uris.size());
+        for (String uri : uris) {
+            outputs.add(createOutput(executorService, uri, compressionType));
+        }
+        rowWriters = new RowWriter[outputs.size()];
+        try {
+            for (int i = 0; i < rowWriters.length; i++) {
+                rowWriters[i] = initWriter(outputs.get(i));
+            }
+        } catch (RuntimeException e) {
+            try {
+                closeWriters();
+            } catch (RuntimeException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            throw e;
+        }
+    }
+
+    private static Output createOutput(ExecutorService executorService,
+                                       String uri,
+                                       @Nullable WriterProjection.CompressionType compressionType) {
         URI uri1;
         try {
             uri1 = new URI(uri);
@@ -95,13 +124,12 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
             throw new SQLParseException(String.format(Locale.ENGLISH, "Invalid uri '%s'", uri), e);
         }
         if (uri1.getScheme() == null || uri1.getScheme().equals("file")) {
-            this.output = new OutputFile(uri1, compressionType);
+            return new OutputFile(uri1, compressionType, executorService);
         } else if (uri1.getScheme().equalsIgnoreCase("s3")) {
-            this.output = new OutputS3(executorService, uri1, compressionType);
+            return new OutputS3(executorService, uri1, compressionType);
         } else {
             throw new UnsupportedFeatureException(String.format(Locale.ENGLISH, "Unknown scheme '%s'", uri1.getScheme()));
         }
-        this.rowWriter = initWriter();
     }
 
     @VisibleForTesting
@@ -142,11 +170,14 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
         return nestedMap;
     }
 
-    private RowWriter initWriter() {
+    private RowWriter initWriter(Output output) {
         try {
             if (!overwrites.isEmpty()) {
                 return new DocWriter(
                     output.acquireOutputStream(), collectExpressions, overwrites);
+            } else if (outputNames != null && outputFormat.equals(WriterProjection.OutputFormat.COLUMNAR)) {
+                return new ColumnarRowWriter(
+                    output.acquireOutputStream(), collectExpressions, inputs, outputNames, inputTypes);
             } else if (outputFormat.equals(WriterProjection.OutputFormat.JSON_ARRAY)) {
                 return new ColumnRowWriter(output.acquireOutputStream(), collectExpressions, inputs);
             } else if (outputNames != null && outputFormat.equals(WriterProjection.OutputFormat.JSON_OBJECT)) {
@@ -159,13 +190,29 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
         }
     }
 
-    private void closeWriterAndOutput() {
-        try {
-            if (rowWriter != null) {
+    /**
+     * Closes all writers. Failures are thrown as the compression may fail asynchronously and only be reported
+     * on close.
+     */
+    private void closeWriters() {
+        IOException failure = null;
+        for (RowWriter rowWriter : rowWriters) {
+            if (rowWriter == null) {
+                continue;
+            }
+            try {
                 rowWriter.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
             }
-        } catch (IOException ignored) {
-
+        }
+        if (failure != null) {
+            throw new UnhandledServerException(
+                String.format(Locale.ENGLISH, "Failed to close output: '%s'", failure.getMessage()), failure);
         }
     }
 
@@ -180,7 +227,8 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
     }
 
     private void onNextRow(long[] container, Row row) {
-        rowWriter.write(row);
+        rowWriters[nextRowWriter].write(row);
+        nextRowWriter = (nextRowWriter + 1) % rowWriters.length;
         container[0] += 1;
     }
 
@@ -194,7 +242,7 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
     @Override
     public Function<long[], Iterable<Row>> finisher() {
         return (container) -> {
-            closeWriterAndOutput();
+            closeWriters();
             return Collections.singletonList(new Row1(container[0]));
         };
     }
@@ -352,4 +400,39 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
             }
         }
     }
+
+    static class ColumnarRowWriter implements RowWriter {
+
+        private final Iterable<CollectExpression<Row, ?>> collectExpressions;
+        private final List<Input<?>> inputs;
+        private final ColumnarFileWriter writer;
+
+        ColumnarRowWriter(OutputStream outputStream,
+                          Iterable<CollectExpression<Row, ?>> collectExpressions,
+                          List<Input<?>> inputs,
+                          List<String> outputNames,
+                          List<DataType> inputTypes) throws IOException {
+            this.collectExpressions = collectExpressions;
+            this.inputs = inputs;
+            writer = new ColumnarFileWriter(
+                outputStream, outputNames, inputTypes, ColumnarFileWriter.DEFAULT_ROW_GROUP_SIZE_IN_BYTES);
+        }
+
+        @Override
+        public void write(Row row) {
+            for (CollectExpression<Row, ?> collectExpression : collectExpressions) {
+                collectExpression.setNextRow(row);
+            }
+            try {
+                writer.write(inputs);
+            } catch (IOException e) {
+                throw new UnhandledServerException("Failed to write row to output", e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
 }
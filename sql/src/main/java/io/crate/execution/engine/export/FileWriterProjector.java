@@ -30,6 +30,7 @@ import io.crate.data.Row;
 import io.crate.execution.dsl.projection.WriterProjection;
 import io.crate.execution.engine.collect.CollectExpression;
 import io.crate.metadata.ColumnIdent;
+import io.crate.types.DataType;
 
 import javax.annotation.Nullable;
 import java.util.List;
@@ -38,9 +39,10 @@ import java.util.concurrent.ExecutorService;
 
 public class FileWriterProjector implements Projector {
 
-    private final String uri;
+    private final List<String> uris;
     private final Iterable<CollectExpression<Row, ?>> collectExpressions;
     private final List<Input<?>> inputs;
+    private final List<DataType> inputTypes;
     private final Map<ColumnIdent, Object> overwrites;
     @Nullable
     private final List<String> outputNames;
@@ -49,17 +51,20 @@ public class FileWriterProjector implements Projector {
     private final ExecutorService executorService;
 
     /**
+     * @param uris   the URIs of the files to write, the rows are distributed across them.
      * @param inputs a list of {@link Input}.
      *               If null the row that is exposed in the BatchIterator
      *               is expected to contain the raw source in its first column.
      *               That raw source is then written to the output
      *               <p/>
      *               If inputs is not null the inputs are consumed to write a JSON array to the output.
+     * @param inputTypes the types of the inputs, used to write the values in the columnar format.
      */
     public FileWriterProjector(ExecutorService executorService,
-                               String uri,
+                               List<String> uris,
                                @Nullable WriterProjection.CompressionType compressionType,
                                @Nullable List<Input<?>> inputs,
+                               List<DataType> inputTypes,
                                Iterable<CollectExpression<Row, ?>> collectExpressions,
                                Map<ColumnIdent, Object> overwrites,
                                @Nullable List<String> outputNames,
@@ -67,11 +72,12 @@ public class FileWriterProjector implements Projector {
         this.collectExpressions = collectExpressions;
         this.executorService = executorService;
         this.inputs = inputs;
+        this.inputTypes = inputTypes;
         this.overwrites = overwrites;
         this.outputNames = outputNames;
         this.outputFormat = outputFormat;
         this.compressionType = compressionType;
-        this.uri = uri;
+        this.uris = uris;
     }
 
     @Override
@@ -80,9 +86,10 @@ public class FileWriterProjector implements Projector {
             batchIterator,
             new FileWriterCountCollector(
                 executorService,
-                uri,
+                uris,
                 compressionType,
                 inputs,
+                inputTypes,
                 collectExpressions,
                 overwrites,
                 outputNames,
@@ -22,15 +22,60 @@
 
 package io.crate.execution.engine.export;
 
+import com.github.luben.zstd.ZstdOutputStream;
+import io.crate.execution.dsl.projection.WriterProjection;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.concurrent.Executor;
+import java.util.zip.GZIPOutputStream;
 
 public abstract class Output {
 
+    private static final int COMPRESSION_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * Number of buffers which may wait for the compression, bounds the memory used per output
+     */
+    private static final int MAX_PENDING_COMPRESSION_BUFFERS = 4;
+
     /**
      * calling this method creates & acquires an OutputStream which must be closed by the caller if it is no longer needed
      *
      * @throws IOException in case the Output can't be created (e.g. due to file permission errors or something like that)
      */
     public abstract OutputStream acquireOutputStream() throws IOException;
+
+    /**
+     * Wraps the given stream into a stream which compresses the data in the background on the executor,
+     * so that the compression runs concurrently to the thread writing the rows.
+     */
+    static OutputStream compressed(OutputStream outputStream,
+                                   @Nullable WriterProjection.CompressionType compressionType,
+                                   Executor executor) throws IOException {
+        if (compressionType == null) {
+            return outputStream;
+        }
+        OutputStream compressingStream;
+        switch (compressionType) {
+            case GZIP:
+                compressingStream = new GZIPOutputStream(outputStream, COMPRESSION_BUFFER_SIZE);
+                break;
+
+            case LZ4:
+                compressingStream = new LZ4FrameOutputStream(outputStream);
+                break;
+
+            case ZSTD:
+                compressingStream = new ZstdOutputStream(outputStream);
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unsupported compression type: " + compressionType);
+        }
+        return new PipelinedOutputStream(
+            executor, compressingStream, COMPRESSION_BUFFER_SIZE, MAX_PENDING_COMPRESSION_BUFFERS);
+    }
 }
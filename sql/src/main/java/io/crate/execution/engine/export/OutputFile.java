@@ -32,18 +32,21 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
-import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.Executor;
 
 public class OutputFile extends Output {
 
     private final String path;
     private final boolean overwrite;
-    private final boolean compression;
+    @Nullable
+    private final WriterProjection.CompressionType compressionType;
+    private final Executor executor;
 
-    public OutputFile(URI uri, @Nullable WriterProjection.CompressionType compressionType) {
+    public OutputFile(URI uri, @Nullable WriterProjection.CompressionType compressionType, Executor executor) {
         Preconditions.checkArgument(uri.getHost() == null);
         this.path = uri.getPath();
-        compression = compressionType != null;
+        this.compressionType = compressionType;
+        this.executor = executor;
         this.overwrite = true;
     }
 
@@ -58,10 +61,10 @@ public class OutputFile extends Output {
                 throw new IOException("Output path is a directory: " + path);
             }
         }
-        OutputStream os = new FileOutputStream(outFile);
-        if (compression) {
-            os = new GZIPOutputStream(os);
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(outFile));
+        if (compressionType != null) {
+            return compressed(os, compressionType, executor);
         }
-        return new BufferedOutputStream(os);
+        return os;
     }
 }
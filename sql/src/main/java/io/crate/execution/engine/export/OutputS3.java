@@ -47,28 +47,24 @@ import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.zip.GZIPOutputStream;
 
 @NotThreadSafe
 public class OutputS3 extends Output {
 
     private final ExecutorService executorService;
     private final URI uri;
-    private final boolean compression;
+    private final WriterProjection.CompressionType compressionType;
 
     public OutputS3(ExecutorService executorService, URI uri, WriterProjection.CompressionType compressionType) {
         this.executorService = executorService;
         this.uri = uri;
-        compression = compressionType != null;
+        this.compressionType = compressionType;
     }
 
     @Override
     public OutputStream acquireOutputStream() throws IOException {
         OutputStream outputStream = new S3OutputStream(executorService, uri, new S3ClientHelper());
-        if (compression) {
-            outputStream = new GZIPOutputStream(outputStream);
-        }
-        return outputStream;
+        return compressed(outputStream, compressionType, executorService);
     }
 
 
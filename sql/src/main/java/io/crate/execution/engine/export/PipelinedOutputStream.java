@@ -0,0 +1,191 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.export;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An OutputStream which writes to the delegate in the background, so that an expensive delegate (e.g. a compressing
+ * stream) doesn't slow down the thread producing the data.
+ * <p>
+ * The data is collected in buffers of {@code bufferSize} bytes which are handed over to a task on the executor
+ * writing them to the delegate in order. At most {@code maxPendingBuffers} buffers are in flight, if the delegate
+ * can't keep up, writes block until a buffer has been written.
+ * No thread is blocked while there are no buffers to write, so an abandoned stream doesn't leak a thread.
+ * <p>
+ * Failures of the delegate are thrown on the next write, flush or close.
+ */
+class PipelinedOutputStream extends OutputStream {
+
+    private static final class Buffer {
+        final byte[] bytes;
+        final int length;
+
+        Buffer(byte[] bytes, int length) {
+            this.bytes = bytes;
+            this.length = length;
+        }
+    }
+
+    private final Executor executor;
+    private final OutputStream delegate;
+    private final int bufferSize;
+    private final int maxPendingBuffers;
+    private final Semaphore freeBuffers;
+    private final ConcurrentLinkedQueue<Buffer> pendingBuffers = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<byte[]> recycledBuffers = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean writing = new AtomicBoolean(false);
+    private volatile Throwable failure;
+
+    private byte[] buffer;
+    private int position = 0;
+    private boolean closed = false;
+
+    PipelinedOutputStream(Executor executor, OutputStream delegate, int bufferSize, int maxPendingBuffers) {
+        this.executor = executor;
+        this.delegate = delegate;
+        this.bufferSize = bufferSize;
+        this.maxPendingBuffers = maxPendingBuffers;
+        this.freeBuffers = new Semaphore(maxPendingBuffers);
+        this.buffer = new byte[bufferSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (position == bufferSize) {
+            handOver();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (position == bufferSize) {
+                handOver();
+            }
+            int n = Math.min(len, bufferSize - position);
+            System.arraycopy(b, off, buffer, position, n);
+            position += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Waits until all data written so far has been written to the delegate and flushes it.
+     */
+    @Override
+    public void flush() throws IOException {
+        handOver();
+        awaitPendingBuffers();
+        delegate.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            handOver();
+        } finally {
+            // the background task must be done with the delegate before it's closed
+            freeBuffers.acquireUninterruptibly(maxPendingBuffers);
+            delegate.close();
+        }
+        throwIfFailed();
+    }
+
+    private void handOver() throws IOException {
+        throwIfFailed();
+        if (position == 0) {
+            return;
+        }
+        try {
+            freeBuffers.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the output");
+        }
+        pendingBuffers.add(new Buffer(buffer, position));
+        byte[] recycled = recycledBuffers.poll();
+        buffer = recycled == null ? new byte[bufferSize] : recycled;
+        position = 0;
+        if (writing.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::writePendingBuffers);
+            } catch (RejectedExecutionException e) {
+                writePendingBuffers();
+            }
+        }
+    }
+
+    private void writePendingBuffers() {
+        do {
+            Buffer pending;
+            while ((pending = pendingBuffers.poll()) != null) {
+                if (failure == null) {
+                    try {
+                        delegate.write(pending.bytes, 0, pending.length);
+                    } catch (Throwable t) {
+                        failure = t;
+                    }
+                }
+                recycledBuffers.add(pending.bytes);
+                freeBuffers.release();
+            }
+            writing.set(false);
+            // a buffer may have been handed over after the queue was found empty, but before writing was reset
+        } while (pendingBuffers.isEmpty() == false && writing.compareAndSet(false, true));
+    }
+
+    private void awaitPendingBuffers() throws IOException {
+        try {
+            freeBuffers.acquire(maxPendingBuffers);
+            freeBuffers.release(maxPendingBuffers);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the output");
+        }
+        throwIfFailed();
+    }
+
+    private void throwIfFailed() throws IOException {
+        Throwable t = failure;
+        if (t != null) {
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            }
+            throw new IOException(t);
+        }
+    }
+}
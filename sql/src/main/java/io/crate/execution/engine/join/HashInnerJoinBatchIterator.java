@@ -29,7 +29,12 @@ import io.crate.data.Row;
 import io.crate.data.UnsafeArrayRow;
 import io.crate.data.join.CombinedRow;
 import io.crate.data.join.JoinBatchIterator;
+import org.apache.lucene.util.IOUtils;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -75,9 +80,39 @@ import java.util.function.Predicate;
  * <p>
  * This information is not available for the {@link HashInnerJoinBatchIterator}, so it's the responsibility of the
  * caller to provide those two functions that operate on the left and right rows accordingly and return the hash values.
+ * <p>
+ * If {@link HashJoinPartitions} are provided and the left side doesn't fit into the first block, the iterator switches
+ * to a partitioned (grace) hash join instead of re-reading the right side once per block:
+ *
+ * <pre>
+ *     for (leftRow in left) {
+ *         write leftRow to leftPartitions[hash(leftRow)]
+ *     }
+ *     for (rightRow in right) {
+ *         write rightRow to rightPartitions[hash(rightRow)]
+ *     }
+ *     for (partition in partitions) {
+ *         for (block in blocks(leftPartitions[partition])) {     // usually a single block
+ *             for (rightRow in rightPartitions[partition]) {
+ *                 emit matches as above
+ *             }
+ *         }
+ *     }
+ * </pre>
+ *
+ * Both sides are consumed exactly once. All rows of the left side are consumed before the right side, so this mode
+ * must not be used if the join is distributed, see {@link RamBlockSizeCalculator}.
  */
 public class HashInnerJoinBatchIterator extends JoinBatchIterator<Row, Row, Row> {
 
+    private enum Mode {
+        BLOCKS,
+        PARTITION_LEFT,
+        PARTITION_RIGHT,
+        JOIN_PARTITIONS,
+        DONE
+    }
+
     private final Predicate<Row> joinCondition;
 
     /**
@@ -96,6 +131,15 @@ public class HashInnerJoinBatchIterator extends JoinBatchIterator<Row, Row, Row>
     private int numberOfLeftBatchesLoadedForBlock;
     private Iterator<Object[]> leftMatchingRowsIterator;
 
+    @Nullable
+    private final HashJoinPartitions partitions;
+    private Mode mode = Mode.BLOCKS;
+    private boolean firstBlock = true;
+    private boolean closed = false;
+    private int partition;
+    private Iterator<Row> partitionLeftRows;
+    private Iterator<Row> partitionRightRows;
+
     public HashInnerJoinBatchIterator(RamAccountingBatchIterator<Row> left,
                                       BatchIterator<Row> right,
                                       CombinedRow combiner,
@@ -103,7 +147,19 @@ public class HashInnerJoinBatchIterator extends JoinBatchIterator<Row, Row, Row>
                                       Function<Row, Integer> hashBuilderForLeft,
                                       Function<Row, Integer> hashBuilderForRight,
                                       IntSupplier calculateBlockSize) {
+        this(left, right, combiner, joinCondition, hashBuilderForLeft, hashBuilderForRight, calculateBlockSize, null);
+    }
+
+    public HashInnerJoinBatchIterator(RamAccountingBatchIterator<Row> left,
+                                      BatchIterator<Row> right,
+                                      CombinedRow combiner,
+                                      Predicate<Row> joinCondition,
+                                      Function<Row, Integer> hashBuilderForLeft,
+                                      Function<Row, Integer> hashBuilderForRight,
+                                      IntSupplier calculateBlockSize,
+                                      @Nullable HashJoinPartitions partitions) {
         super(left, right, combiner);
+        this.partitions = partitions;
         this.joinCondition = joinCondition;
         this.hashBuilderForLeft = hashBuilderForLeft;
         this.hashBuilderForRight = hashBuilderForRight;
@@ -129,6 +185,29 @@ public class HashInnerJoinBatchIterator extends JoinBatchIterator<Row, Row, Row>
         recreateBuffer();
         ((RamAccountingBatchIterator) left).releaseAccountedRows();
         leftMatchingRowsIterator = null;
+        mode = Mode.BLOCKS;
+        firstBlock = true;
+        closePartitions();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            super.close();
+        } finally {
+            IOUtils.closeWhileHandlingException(partitions);
+        }
+    }
+
+    @Override
+    public void kill(@Nonnull Throwable throwable) {
+        closed = true;
+        try {
+            super.kill(throwable);
+        } finally {
+            IOUtils.closeWhileHandlingException(partitions);
+        }
     }
 
     @Override
@@ -142,6 +221,9 @@ public class HashInnerJoinBatchIterator extends JoinBatchIterator<Row, Row, Row>
     @Override
     public boolean moveNext() {
         while (buildBufferAndMatchRight() == false) {
+            if (mode != Mode.BLOCKS) {
+                return moveNextPartitioned();
+            }
             if (right.allLoaded() && leftBatchHasItems == false && left.allLoaded()) {
                 // both sides are fully loaded, we're done here
                 return false;
@@ -151,6 +233,7 @@ public class HashInnerJoinBatchIterator extends JoinBatchIterator<Row, Row, Row>
             } else if (right.allLoaded()) {
                 right.moveToStart();
                 activeIt = left;
+                firstBlock = false;
                 recreateBuffer();
                 ((RamAccountingBatchIterator) left).releaseAccountedRows();
             } else {
@@ -163,10 +246,7 @@ public class HashInnerJoinBatchIterator extends JoinBatchIterator<Row, Row, Row>
     }
 
     private void recreateBuffer() {
-        blockSize = calculateBlockSize.getAsInt();
-        buffer.release();
-        buffer.ensureCapacity(blockSize);
-        numberOfRowsInBuffer = 0;
+        clearBuffer();
 
         // A batch is not guaranteed to deliver PAGE_SIZE number of rows. It could be more or less.
         // So we cannot rely on that to decide if processing 1 block is done, we must also know and track how much
@@ -175,7 +255,17 @@ public class HashInnerJoinBatchIterator extends JoinBatchIterator<Row, Row, Row>
         numberOfLeftBatchesLoadedForBlock = leftBatchHasItems ? 1 : 0;
     }
 
+    private void clearBuffer() {
+        blockSize = calculateBlockSize.getAsInt();
+        buffer.release();
+        buffer.ensureCapacity(blockSize);
+        numberOfRowsInBuffer = 0;
+    }
+
     private boolean buildBufferAndMatchRight() {
+        if (mode != Mode.BLOCKS) {
+            return false;
+        }
         if (activeIt == left) {
             while (leftBatchHasItems = left.moveNext()) {
                 Object[] currentRow = left.currentElement().materialize();
@@ -191,6 +281,12 @@ public class HashInnerJoinBatchIterator extends JoinBatchIterator<Row, Row, Row>
                 return false;
             }
 
+            if (partitions != null && firstBlock && numberOfRowsInBuffer == blockSize) {
+                // the left side might not fit into a single block, avoid re-reading the right side for each block
+                mode = Mode.PARTITION_LEFT;
+                return false;
+            }
+
             if (mustSwitchToRight()) {
                 activeIt = right;
             }
@@ -239,6 +335,153 @@ public class HashInnerJoinBatchIterator extends JoinBatchIterator<Row, Row, Row>
         return false;
     }
 
+    private boolean moveNextPartitioned() {
+        try {
+            switch (mode) {
+                case PARTITION_LEFT:
+                    if (partitionLeft() == false) {
+                        return false;
+                    }
+                    if (partitions.isOpen() == false) {
+                        // the first block contains all rows of the left side, no need to partition
+                        mode = Mode.BLOCKS;
+                        activeIt = right;
+                        return moveNext();
+                    }
+                    mode = Mode.PARTITION_RIGHT;
+                    activeIt = right;
+                    // fall through
+
+                case PARTITION_RIGHT:
+                    if (partitionRight() == false) {
+                        return false;
+                    }
+                    partitions.finishWriting();
+                    partition = -1;
+                    partitionLeftRows = null;
+                    partitionRightRows = null;
+                    mode = Mode.JOIN_PARTITIONS;
+                    // fall through
+
+                case JOIN_PARTITIONS:
+                    if (closed) {
+                        throw new IllegalStateException("BatchIterator is closed");
+                    }
+                    if (joinPartitions()) {
+                        return true;
+                    }
+                    mode = Mode.DONE;
+                    buffer.release();
+                    numberOfRowsInBuffer = 0;
+                    closePartitions();
+                    return false;
+
+                case DONE:
+                    return false;
+
+                default:
+                    throw new AssertionError("Unexpected mode: " + mode);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return true if all rows of the left side are consumed, false if the next batch of the left side must be loaded
+     */
+    private boolean partitionLeft() throws IOException {
+        while (leftBatchHasItems = left.moveNext()) {
+            Row row = left.currentElement();
+            if (partitions.isOpen() == false) {
+                partitions.open(blockSize);
+                for (List<Object[]> rows : buffer.values()) {
+                    for (Object[] cells : rows) {
+                        leftRow.cells(cells);
+                        partitions.addLeft(hashBuilderForLeft.apply(leftRow), cells);
+                    }
+                }
+                buffer.release();
+                numberOfRowsInBuffer = 0;
+            }
+            partitions.addLeft(hashBuilderForLeft.apply(row), row);
+        }
+        if (partitions.isOpen()) {
+            ((RamAccountingBatchIterator) left).releaseAccountedRows();
+        }
+        return left.allLoaded();
+    }
+
+    /**
+     * @return true if all rows of the right side are consumed, false if the next batch of the right side must be loaded
+     */
+    private boolean partitionRight() throws IOException {
+        while (right.moveNext()) {
+            Row row = right.currentElement();
+            partitions.addRight(hashBuilderForRight.apply(row), row);
+        }
+        return right.allLoaded();
+    }
+
+    /**
+     * Joins the partitions pair by pair. Each left partition is loaded into the buffer, if it is bigger than the
+     * block size it is loaded block by block and the right partition is read once per block.
+     *
+     * @return true if a match is found, false if all partitions are processed
+     */
+    private boolean joinPartitions() {
+        while (true) {
+            if (leftMatchingRowsIterator != null && findMatchingRows()) {
+                return true;
+            }
+            leftMatchingRowsIterator = null;
+            if (partitionRightRows != null) {
+                while (partitionRightRows.hasNext()) {
+                    Row rightRow = partitionRightRows.next();
+                    List<Object[]> leftMatchingRows = buffer.get(hashBuilderForRight.apply(rightRow));
+                    if (leftMatchingRows != null) {
+                        leftMatchingRowsIterator = leftMatchingRows.iterator();
+                        combiner.setRight(rightRow);
+                        if (findMatchingRows()) {
+                            return true;
+                        }
+                    }
+                }
+                partitionRightRows = null;
+            }
+            if (partitionLeftRows == null || partitionLeftRows.hasNext() == false) {
+                partition++;
+                if (partition >= partitions.numPartitions()) {
+                    return false;
+                }
+                if (partitions.left(partition).numRows() == 0 || partitions.right(partition).numRows() == 0) {
+                    // no matches possible
+                    partitionLeftRows = null;
+                    continue;
+                }
+                partitionLeftRows = partitions.left(partition).iterator();
+            }
+            clearBuffer();
+            while (numberOfRowsInBuffer < blockSize && partitionLeftRows.hasNext()) {
+                Row row = partitionLeftRows.next();
+                addToBuffer(row.materialize(), hashBuilderForLeft.apply(row));
+            }
+            partitionRightRows = partitions.right(partition).iterator();
+        }
+    }
+
+    private void closePartitions() {
+        if (partitions != null) {
+            partitionLeftRows = null;
+            partitionRightRows = null;
+            try {
+                partitions.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
     private boolean mustSwitchToRight() {
         return left.allLoaded()
                || numberOfRowsInBuffer == blockSize
@@ -31,11 +31,14 @@ import io.crate.data.Row;
 import io.crate.data.RowConsumer;
 import io.crate.data.join.CombinedRow;
 import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.distribution.RuntimeFilter;
 import io.crate.expression.InputFactory;
 import io.crate.expression.symbol.Symbol;
 import io.crate.metadata.TransactionContext;
+import io.crate.planner.node.dql.join.JoinType;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 
+import javax.annotation.Nullable;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
@@ -47,10 +50,12 @@ public class HashJoinOperation implements CompletionListenable {
     private final CompletableFuture<BatchIterator<Row>> leftBatchIterator = new CompletableFuture<>();
     private final CompletableFuture<BatchIterator<Row>> rightBatchIterator = new CompletableFuture<>();
     private final CompletableFuture<Void> completionFuture = new CompletableFuture<>();
+    private final CompletableFuture<RuntimeFilter> runtimeFilter = new CompletableFuture<>();
 
     public HashJoinOperation(int numLeftCols,
                              int numRightCols,
                              RowConsumer nlResultConsumer,
+                             JoinType joinType,
                              Predicate<Row> joinPredicate,
                              List<Symbol> joinLeftInputs,
                              List<Symbol> joinRightInputs,
@@ -59,23 +64,31 @@ public class HashJoinOperation implements CompletionListenable {
                              InputFactory inputFactory,
                              CircuitBreaker circuitBreaker,
                              long estimatedRowSizeForLeft,
-                             long numberOfRowsForLeft) {
+                             long numberOfRowsForLeft,
+                             @Nullable HashJoinPartitions partitions,
+                             int runtimeFilterColumn) {
 
         CompletableFuture.allOf(leftBatchIterator, rightBatchIterator)
             .whenComplete((result, failure) -> {
                 if (failure == null) {
                     BatchIterator<Row> joinIterator;
                     try {
+                        BatchIterator<Row> left = leftBatchIterator.join();
+                        if (runtimeFilterColumn >= 0) {
+                            left = new RuntimeFilterBuildingBatchIterator(left, runtimeFilterColumn, runtimeFilter);
+                        }
                         joinIterator = new ListenableBatchIterator<>(createHashJoinIterator(
-                            leftBatchIterator.join(),
+                            left,
                             numLeftCols,
                             rightBatchIterator.join(),
                             numRightCols,
+                            joinType,
                             joinPredicate,
                             getHashBuilderFromSymbols(txnCtx, inputFactory, joinLeftInputs),
                             getHashBuilderFromSymbols(txnCtx, inputFactory, joinRightInputs),
                             rowAccounting,
-                            new RamBlockSizeCalculator(Paging.PAGE_SIZE, circuitBreaker, estimatedRowSizeForLeft, numberOfRowsForLeft)
+                            new RamBlockSizeCalculator(Paging.PAGE_SIZE, circuitBreaker, estimatedRowSizeForLeft, numberOfRowsForLeft),
+                            partitions
                         ), completionFuture);
                         nlResultConsumer.accept(joinIterator, null);
                     } catch (Exception e) {
@@ -92,6 +105,14 @@ public class HashJoinOperation implements CompletionListenable {
         return completionFuture;
     }
 
+    /**
+     * A filter for the rows of the right side, created from the join key values of the left side.
+     * Completed with null if there are too many distinct values, never completed if no filter is created.
+     */
+    public CompletableFuture<RuntimeFilter> runtimeFilter() {
+        return runtimeFilter;
+    }
+
     public RowConsumer leftConsumer() {
         return JoinOperations.getBatchConsumer(leftBatchIterator, false);
     }
@@ -121,19 +142,44 @@ public class HashJoinOperation implements CompletionListenable {
                                                              int leftNumCols,
                                                              BatchIterator<Row> right,
                                                              int rightNumCols,
+                                                             JoinType joinType,
                                                              Predicate<Row> joinCondition,
                                                              Function<Row, Integer> hashBuilderForLeft,
                                                              Function<Row, Integer> hashBuilderForRight,
                                                              RowAccounting rowAccounting,
-                                                             RamBlockSizeCalculator blockSizeCalculator) {
+                                                             RamBlockSizeCalculator blockSizeCalculator,
+                                                             @Nullable HashJoinPartitions partitions) {
         CombinedRow combiner = new CombinedRow(leftNumCols, rightNumCols);
-        return new HashInnerJoinBatchIterator(
-            new RamAccountingBatchIterator<>(left, rowAccounting),
-            right,
-            combiner,
-            joinCondition,
-            hashBuilderForLeft,
-            hashBuilderForRight,
-            blockSizeCalculator);
+        switch (joinType) {
+            case INNER:
+                return new HashInnerJoinBatchIterator(
+                    new RamAccountingBatchIterator<>(left, rowAccounting),
+                    right,
+                    combiner,
+                    joinCondition,
+                    hashBuilderForLeft,
+                    hashBuilderForRight,
+                    blockSizeCalculator,
+                    partitions);
+
+            case LEFT:
+            case FULL:
+            case SEMI:
+            case ANTI:
+                return new HashOuterJoinBatchIterator(
+                    new RamAccountingBatchIterator<>(left, rowAccounting),
+                    right,
+                    combiner,
+                    joinType,
+                    joinCondition,
+                    hashBuilderForLeft,
+                    hashBuilderForRight,
+                    blockSizeCalculator,
+                    partitions);
+
+            default:
+                // RIGHT joins are planned as LEFT joins with switched sides
+                throw new AssertionError("Invalid joinType for hash join: " + joinType);
+        }
     }
 }
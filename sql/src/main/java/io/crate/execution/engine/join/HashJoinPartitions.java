@@ -0,0 +1,170 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import com.carrotsearch.hppc.BitMixer;
+import io.crate.Streamer;
+import io.crate.data.Row;
+import io.crate.execution.engine.spill.RowSpillFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Spill files for the partitioned (grace) mode of the {@link HashInnerJoinBatchIterator} and the
+ * {@link HashOuterJoinBatchIterator}.
+ * <p>
+ * The rows of both sides are distributed into {@link #numPartitions()} pairs of spill files based on the hash of their
+ * join condition inputs. Rows which can match each other end up in the same partition pair, so each pair can be joined
+ * independently from the others.
+ */
+public final class HashJoinPartitions implements Closeable {
+
+    private static final int MIN_PARTITIONS = 4;
+
+    /**
+     * Each spill file holds a write buffer while the rows are partitioned, so the number of partitions is bounded.
+     * Partitions which don't fit into a single block are joined block-wise.
+     */
+    private static final int MAX_PARTITIONS = 32;
+
+    private final Path spillPath;
+    private final Streamer<?>[] leftStreamers;
+    private final Streamer<?>[] rightStreamers;
+    private final long numberOfRowsForLeft;
+
+    private RowSpillFile[] leftPartitions;
+    private RowSpillFile[] rightPartitions;
+
+    public HashJoinPartitions(Path spillPath,
+                              Streamer<?>[] leftStreamers,
+                              Streamer<?>[] rightStreamers,
+                              long numberOfRowsForLeft) {
+        this.spillPath = spillPath;
+        this.leftStreamers = leftStreamers;
+        this.rightStreamers = rightStreamers;
+        this.numberOfRowsForLeft = numberOfRowsForLeft;
+    }
+
+    /**
+     * Creates the spill files, the number of partitions is chosen so that each partition of the left side is
+     * expected to fit into a block of the given size.
+     */
+    void open(int blockSize) throws IOException {
+        assert isOpen() == false : "Partitions must be closed before they can be re-opened";
+        int numPartitions = numPartitions(numberOfRowsForLeft, blockSize);
+        leftPartitions = new RowSpillFile[numPartitions];
+        rightPartitions = new RowSpillFile[numPartitions];
+        try {
+            for (int i = 0; i < numPartitions; i++) {
+                leftPartitions[i] = RowSpillFile.create(spillPath, leftStreamers);
+                rightPartitions[i] = RowSpillFile.create(spillPath, rightStreamers);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    static int numPartitions(long numberOfRowsForLeft, int blockSize) {
+        if (numberOfRowsForLeft <= 0) {
+            // no statistics available
+            return MAX_PARTITIONS;
+        }
+        long numBlocks = (numberOfRowsForLeft + blockSize - 1) / blockSize;
+        // leave some room for skew and outdated statistics
+        return (int) Math.max(MIN_PARTITIONS, Math.min(MAX_PARTITIONS, numBlocks * 2));
+    }
+
+    boolean isOpen() {
+        return leftPartitions != null;
+    }
+
+    int numPartitions() {
+        return leftPartitions.length;
+    }
+
+    void addLeft(int hash, Row row) throws IOException {
+        leftPartitions[partition(hash)].add(row);
+    }
+
+    void addLeft(int hash, Object[] cells) throws IOException {
+        leftPartitions[partition(hash)].add(cells);
+    }
+
+    void addRight(int hash, Row row) throws IOException {
+        rightPartitions[partition(hash)].add(row);
+    }
+
+    /**
+     * The hash values are mixed before they're used to select a partition. On a distributed join the rows are routed
+     * to the nodes by their hash values, so the hash values of the rows received by one node can share a pattern.
+     */
+    private int partition(int hash) {
+        return Math.floorMod(BitMixer.mix32(hash), leftPartitions.length);
+    }
+
+    void finishWriting() throws IOException {
+        for (int i = 0; i < leftPartitions.length; i++) {
+            leftPartitions[i].finishWriting();
+            rightPartitions[i].finishWriting();
+        }
+    }
+
+    RowSpillFile left(int partition) {
+        return leftPartitions[partition];
+    }
+
+    RowSpillFile right(int partition) {
+        return rightPartitions[partition];
+    }
+
+    /**
+     * Deletes all spill files, the partitions can be opened again afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        if (leftPartitions == null) {
+            return;
+        }
+        IOException failure = null;
+        for (RowSpillFile[] partitions : new RowSpillFile[][] { leftPartitions, rightPartitions }) {
+            for (RowSpillFile spillFile : partitions) {
+                if (spillFile == null) {
+                    continue;
+                }
+                try {
+                    spillFile.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+        }
+        leftPartitions = null;
+        rightPartitions = null;
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
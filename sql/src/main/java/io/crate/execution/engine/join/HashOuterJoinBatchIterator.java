@@ -0,0 +1,568 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntObjectHashMap;
+import io.crate.data.BatchIterator;
+import io.crate.data.Paging;
+import io.crate.data.Row;
+import io.crate.data.UnsafeArrayRow;
+import io.crate.data.join.CombinedRow;
+import io.crate.data.join.JoinBatchIterator;
+import io.crate.data.join.LuceneLongBitSetWrapper;
+import io.crate.planner.node.dql.join.JoinType;
+import org.apache.lucene.util.IOUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Hash join for the {@link JoinType#LEFT}, {@link JoinType#FULL}, {@link JoinType#SEMI} and {@link JoinType#ANTI}
+ * join types. A {@link JoinType#RIGHT} join must be executed as {@link JoinType#LEFT} join with switched sides.
+ * <p>
+ * Like {@link HashInnerJoinBatchIterator} the left side is the build side and is processed in blocks, the right side
+ * is the probe side and is iterated once per block. Additionally, the rows of the block which had a match are tracked,
+ * so that they can be emitted (SEMI) or the rows without a match can be emitted (LEFT, FULL, ANTI) once the right side
+ * has been consumed:
+ *
+ * <pre>
+ *     for (block in blocks(left)) {
+ *         for (rightRow in right) {
+ *             for (leftRow in block.get(hash(rightRow))) {
+ *                 if (joinCondition matches) {
+ *                     mark leftRow as matched
+ *                     mark rightRow as matched              // FULL
+ *                     emit(leftRow, rightRow)               // LEFT, FULL
+ *                 }
+ *             }
+ *         }
+ *         for (leftRow in block) {
+ *             if (leftRow is matched) {
+ *                 emit(leftRow)                             // SEMI
+ *             } else {
+ *                 emit(leftRow, null)                       // LEFT, FULL, ANTI
+ *             }
+ *         }
+ *     }
+ *     for (rightRow in right) {
+ *         if (rightRow is not matched) {
+ *             emit(null, rightRow)                          // FULL
+ *         }
+ *     }
+ * </pre>
+ *
+ * The matched rows of the right side are tracked by their position, which relies on the right side emitting the rows
+ * in the same order after {@link BatchIterator#moveToStart()}.
+ * <p>
+ * Like {@link HashInnerJoinBatchIterator}, if {@link HashJoinPartitions} are provided and the left side doesn't fit
+ * into the first block, both sides are written into hash partitioned spill files. The partition pairs are then joined
+ * one by one as described above, with the partition files taking the place of the left and right side. Rows which
+ * can match each other end up in the same partition pair, so the unmatched rows of a partition are unmatched overall.
+ * <p>
+ * For SEMI and ANTI joins only the columns of the left side are set, the right side is always null.
+ */
+public class HashOuterJoinBatchIterator extends JoinBatchIterator<Row, Row, Row> {
+
+    private enum Phase {
+        BUILD,
+        PROBE,
+        EMIT_BLOCK,
+        EMIT_UNMATCHED_RIGHT,
+        PARTITION_LEFT,
+        PARTITION_RIGHT,
+        DONE
+    }
+
+    private final JoinType joinType;
+    private final Predicate<Row> joinCondition;
+    private final Function<Row, Integer> hashBuilderForLeft;
+    private final Function<Row, Integer> hashBuilderForRight;
+    private final IntSupplier calculateBlockSize;
+
+    /**
+     * Used to avoid instantiating multiple times RowN when matching/emitting rows of the block
+     */
+    private final UnsafeArrayRow leftRow = new UnsafeArrayRow();
+    private final ArrayList<Object[]> blockRows = new ArrayList<>();
+    private final IntObjectHashMap<IntArrayList> blockRowsByHash = new IntObjectHashMap<>(0);
+    private final BitSet matchedBlockRows = new BitSet();
+    private LuceneLongBitSetWrapper matchedRightRows = new LuceneLongBitSetWrapper();
+
+    private Phase phase = Phase.BUILD;
+    private int blockSize;
+    private int numberOfLeftBatchesForBlock;
+    private int numberOfLeftBatchesLoadedForBlock;
+    private boolean leftBatchHasItems = false;
+    private boolean leftExhausted = false;
+
+    private IntArrayList matchingBlockRows;
+    private int matchingBlockRowsIdx;
+    private long rightRowIdx = -1;
+    private int emitBlockRowIdx;
+
+    @Nullable
+    private final HashJoinPartitions partitions;
+    private boolean partitioned = false;
+    private boolean firstBlock = true;
+    private boolean closed = false;
+    private int partition;
+    private Iterator<Row> partitionLeftRows;
+    private Iterator<Row> partitionRightRows;
+
+    public HashOuterJoinBatchIterator(RamAccountingBatchIterator<Row> left,
+                                      BatchIterator<Row> right,
+                                      CombinedRow combiner,
+                                      JoinType joinType,
+                                      Predicate<Row> joinCondition,
+                                      Function<Row, Integer> hashBuilderForLeft,
+                                      Function<Row, Integer> hashBuilderForRight,
+                                      IntSupplier calculateBlockSize) {
+        this(left, right, combiner, joinType, joinCondition, hashBuilderForLeft, hashBuilderForRight, calculateBlockSize,
+            null);
+    }
+
+    public HashOuterJoinBatchIterator(RamAccountingBatchIterator<Row> left,
+                                      BatchIterator<Row> right,
+                                      CombinedRow combiner,
+                                      JoinType joinType,
+                                      Predicate<Row> joinCondition,
+                                      Function<Row, Integer> hashBuilderForLeft,
+                                      Function<Row, Integer> hashBuilderForRight,
+                                      IntSupplier calculateBlockSize,
+                                      @Nullable HashJoinPartitions partitions) {
+        super(left, right, combiner);
+        this.partitions = partitions;
+        assert joinType == JoinType.LEFT || joinType == JoinType.FULL
+               || joinType == JoinType.SEMI || joinType == JoinType.ANTI
+            : "Hash outer join doesn't support join type " + joinType;
+        this.joinType = joinType;
+        this.joinCondition = joinCondition;
+        this.hashBuilderForLeft = hashBuilderForLeft;
+        this.hashBuilderForRight = hashBuilderForRight;
+        this.calculateBlockSize = calculateBlockSize;
+        recreateBlock();
+        // initially 1 page/batch is loaded
+        numberOfLeftBatchesLoadedForBlock = 1;
+    }
+
+    @Override
+    public Row currentElement() {
+        return combiner.currentElement();
+    }
+
+    @Override
+    public void moveToStart() {
+        left.moveToStart();
+        right.moveToStart();
+        activeIt = left;
+        phase = Phase.BUILD;
+        leftBatchHasItems = false;
+        leftExhausted = false;
+        matchedRightRows = new LuceneLongBitSetWrapper();
+        rightRowIdx = -1;
+        partitioned = false;
+        firstBlock = true;
+        closePartitions();
+        recreateBlock();
+        ((RamAccountingBatchIterator) left).releaseAccountedRows();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            super.close();
+        } finally {
+            IOUtils.closeWhileHandlingException(partitions);
+        }
+    }
+
+    @Override
+    public void kill(@Nonnull Throwable throwable) {
+        closed = true;
+        try {
+            super.kill(throwable);
+        } finally {
+            IOUtils.closeWhileHandlingException(partitions);
+        }
+    }
+
+    @Override
+    public CompletionStage<?> loadNextBatch() {
+        if (activeIt == left) {
+            numberOfLeftBatchesLoadedForBlock++;
+        }
+        return super.loadNextBatch();
+    }
+
+    @Override
+    public boolean moveNext() {
+        if (closed && partitioned) {
+            throw new IllegalStateException("BatchIterator is closed");
+        }
+        while (true) {
+            switch (phase) {
+                case BUILD:
+                    if (buildBlock() == false) {
+                        // left needs the next batch loaded
+                        return false;
+                    }
+                    if (partitions != null && firstBlock && leftExhausted == false && blockRows.size() == blockSize) {
+                        // the left side might not fit into a single block, avoid re-reading the right side for each block
+                        phase = Phase.PARTITION_LEFT;
+                        break;
+                    }
+                    firstBlock = false;
+                    if (blockRows.isEmpty()) {
+                        startFinalPhase();
+                    } else {
+                        activeIt = right;
+                        phase = Phase.PROBE;
+                    }
+                    break;
+
+                case PROBE:
+                    if (probe()) {
+                        return true;
+                    }
+                    if (partitioned == false && right.allLoaded() == false) {
+                        return false;
+                    }
+                    emitBlockRowIdx = 0;
+                    phase = Phase.EMIT_BLOCK;
+                    break;
+
+                case EMIT_BLOCK:
+                    if (emitFromBlock()) {
+                        return true;
+                    }
+                    rightRowIdx = -1;
+                    if (partitioned) {
+                        partitionRightRows = partitions.right(partition).iterator();
+                    } else {
+                        right.moveToStart();
+                    }
+                    if (leftExhausted) {
+                        startFinalPhase();
+                    } else {
+                        if (partitioned == false) {
+                            activeIt = left;
+                            ((RamAccountingBatchIterator) left).releaseAccountedRows();
+                        }
+                        recreateBlock();
+                        phase = Phase.BUILD;
+                    }
+                    break;
+
+                case EMIT_UNMATCHED_RIGHT:
+                    if (emitUnmatchedRight()) {
+                        return true;
+                    }
+                    if (partitioned) {
+                        nextPartition();
+                        break;
+                    }
+                    if (right.allLoaded() == false) {
+                        return false;
+                    }
+                    phase = Phase.DONE;
+                    break;
+
+                case PARTITION_LEFT:
+                    if (partitionLeft() == false) {
+                        return false;
+                    }
+                    activeIt = right;
+                    if (partitions.isOpen() == false) {
+                        // the first block contains all rows of the left side, no need to partition
+                        leftExhausted = true;
+                        firstBlock = false;
+                        phase = Phase.PROBE;
+                    } else {
+                        phase = Phase.PARTITION_RIGHT;
+                    }
+                    break;
+
+                case PARTITION_RIGHT:
+                    if (partitionRight() == false) {
+                        return false;
+                    }
+                    finishPartitions();
+                    partitioned = true;
+                    partition = -1;
+                    nextPartition();
+                    break;
+
+                case DONE:
+                    return false;
+
+                default:
+                    throw new AssertionError("Unexpected phase: " + phase);
+            }
+        }
+    }
+
+    private void startFinalPhase() {
+        if (joinType == JoinType.FULL) {
+            if (partitioned == false) {
+                activeIt = right;
+            }
+            combiner.nullLeft();
+            phase = Phase.EMIT_UNMATCHED_RIGHT;
+        } else if (partitioned) {
+            nextPartition();
+        } else {
+            activeIt = left;
+            phase = Phase.DONE;
+        }
+    }
+
+    /**
+     * Moves on to the next partition pair which can produce rows, takes the place of the left and right side.
+     */
+    private void nextPartition() {
+        partition++;
+        while (partition < partitions.numPartitions()
+               && partitions.left(partition).numRows() == 0
+               && joinType != JoinType.FULL) {
+            // only a FULL join emits rows of a partition without left rows
+            partition++;
+        }
+        if (partition >= partitions.numPartitions()) {
+            phase = Phase.DONE;
+            blockRows.clear();
+            blockRowsByHash.release();
+            closePartitions();
+            return;
+        }
+        partitionLeftRows = partitions.left(partition).iterator();
+        partitionRightRows = partitions.right(partition).iterator();
+        matchedRightRows = new LuceneLongBitSetWrapper();
+        rightRowIdx = -1;
+        leftExhausted = false;
+        recreateBlock();
+        phase = Phase.BUILD;
+    }
+
+    /**
+     * @return true if all rows of the left side are consumed, false if the next batch of the left side must be loaded
+     */
+    private boolean partitionLeft() {
+        try {
+            while (leftBatchHasItems = left.moveNext()) {
+                Row row = left.currentElement();
+                if (partitions.isOpen() == false) {
+                    partitions.open(blockSize);
+                    for (Object[] cells : blockRows) {
+                        leftRow.cells(cells);
+                        partitions.addLeft(hashBuilderForLeft.apply(leftRow), cells);
+                    }
+                    blockRows.clear();
+                    blockRowsByHash.release();
+                }
+                partitions.addLeft(hashBuilderForLeft.apply(row), row);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (partitions.isOpen()) {
+            ((RamAccountingBatchIterator) left).releaseAccountedRows();
+        }
+        return left.allLoaded();
+    }
+
+    /**
+     * @return true if all rows of the right side are consumed, false if the next batch of the right side must be loaded
+     */
+    private boolean partitionRight() {
+        try {
+            while (right.moveNext()) {
+                Row row = right.currentElement();
+                partitions.addRight(hashBuilderForRight.apply(row), row);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return right.allLoaded();
+    }
+
+    private void finishPartitions() {
+        try {
+            partitions.finishWriting();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void closePartitions() {
+        if (partitions != null) {
+            partitionLeftRows = null;
+            partitionRightRows = null;
+            try {
+                partitions.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void recreateBlock() {
+        blockSize = calculateBlockSize.getAsInt();
+        blockRows.clear();
+        blockRowsByHash.release();
+        blockRowsByHash.ensureCapacity(blockSize);
+        matchedBlockRows.clear();
+        matchingBlockRows = null;
+
+        // A batch is not guaranteed to deliver PAGE_SIZE number of rows. It could be more or less.
+        // So we cannot rely on that to decide if processing 1 block is done, we must also know and track how much
+        // batches should be required for processing 1 block.
+        numberOfLeftBatchesForBlock = Math.max(1, (int) Math.ceil((double) blockSize / Paging.PAGE_SIZE));
+        numberOfLeftBatchesLoadedForBlock = leftBatchHasItems ? 1 : 0;
+    }
+
+    /**
+     * @return true if the block is complete, false if the next batch of the left side must be loaded
+     */
+    private boolean buildBlock() {
+        if (partitioned) {
+            while (blockRows.size() < blockSize && partitionLeftRows.hasNext()) {
+                addToBlock(partitionLeftRows.next());
+            }
+            leftExhausted = partitionLeftRows.hasNext() == false;
+            return true;
+        }
+        while (blockRows.size() < blockSize) {
+            leftBatchHasItems = left.moveNext();
+            if (leftBatchHasItems) {
+                addToBlock(left.currentElement());
+            } else if (left.allLoaded()) {
+                leftExhausted = true;
+                return true;
+            } else {
+                return blockRows.isEmpty() == false
+                       && numberOfLeftBatchesLoadedForBlock >= numberOfLeftBatchesForBlock;
+            }
+        }
+        return true;
+    }
+
+    private void addToBlock(Row row) {
+        int hash = hashBuilderForLeft.apply(row);
+        IntArrayList rowsWithSameHash = blockRowsByHash.get(hash);
+        if (rowsWithSameHash == null) {
+            rowsWithSameHash = new IntArrayList(1);
+            blockRowsByHash.put(hash, rowsWithSameHash);
+        }
+        rowsWithSameHash.add(blockRows.size());
+        blockRows.add(row.materialize());
+    }
+
+    /**
+     * @return the next row of the right side or of the current right partition,
+     *         null if it is consumed or the next batch of the right side must be loaded
+     */
+    @Nullable
+    private Row nextRightRow() {
+        if (partitioned) {
+            return partitionRightRows.hasNext() ? partitionRightRows.next() : null;
+        }
+        return right.moveNext() ? right.currentElement() : null;
+    }
+
+    /**
+     * @return true if a match must be emitted, false if the right side is consumed or needs to load the next batch
+     */
+    private boolean probe() {
+        boolean emitMatches = joinType == JoinType.LEFT || joinType == JoinType.FULL;
+        while (true) {
+            if (matchingBlockRows != null) {
+                while (matchingBlockRowsIdx < matchingBlockRows.size()) {
+                    int blockRowIdx = matchingBlockRows.get(matchingBlockRowsIdx);
+                    matchingBlockRowsIdx++;
+                    if (emitMatches == false && matchedBlockRows.get(blockRowIdx)) {
+                        // the left row is already known to have a match
+                        continue;
+                    }
+                    leftRow.cells(blockRows.get(blockRowIdx));
+                    combiner.setLeft(leftRow);
+                    if (joinCondition.test(combiner.currentElement())) {
+                        matchedBlockRows.set(blockRowIdx);
+                        if (joinType == JoinType.FULL) {
+                            matchedRightRows.set(rightRowIdx);
+                        }
+                        if (emitMatches) {
+                            return true;
+                        }
+                    }
+                }
+                matchingBlockRows = null;
+            }
+            Row row = nextRightRow();
+            if (row == null) {
+                return false;
+            }
+            rightRowIdx++;
+            matchingBlockRows = blockRowsByHash.get(hashBuilderForRight.apply(row));
+            matchingBlockRowsIdx = 0;
+            combiner.setRight(row);
+        }
+    }
+
+    private boolean emitFromBlock() {
+        boolean emitMatched = joinType == JoinType.SEMI;
+        while (emitBlockRowIdx < blockRows.size()) {
+            int blockRowIdx = emitBlockRowIdx;
+            emitBlockRowIdx++;
+            if (matchedBlockRows.get(blockRowIdx) == emitMatched) {
+                leftRow.cells(blockRows.get(blockRowIdx));
+                combiner.setLeft(leftRow);
+                combiner.nullRight();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean emitUnmatchedRight() {
+        Row row;
+        while ((row = nextRightRow()) != null) {
+            rightRowIdx++;
+            if (matchedRightRows.get(rightRowIdx) == false) {
+                combiner.setRight(row);
+                return true;
+            }
+        }
+        return false;
+    }
+}
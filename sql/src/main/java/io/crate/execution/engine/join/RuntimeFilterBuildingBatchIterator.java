@@ -0,0 +1,86 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import io.crate.data.BatchIterator;
+import io.crate.data.ForwardingBatchIterator;
+import io.crate.data.Row;
+import io.crate.execution.engine.distribution.RuntimeFilter;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Wraps the build side of a hash join and creates a {@link RuntimeFilter} from the values of the join key column.
+ * <p>
+ * The filter is completed once all rows of the build side have been consumed. If the build side is consumed in
+ * several blocks the probe side has been consumed before the filter is completed, so it is of no use then.
+ * The filter is completed with null if there are too many distinct values.
+ */
+class RuntimeFilterBuildingBatchIterator extends ForwardingBatchIterator<Row> {
+
+    /**
+     * The filter is about 1 byte per value, larger filters are not selective enough to be worth sending them
+     */
+    static final int MAX_VALUES = 256 * 1024;
+
+    private final BatchIterator<Row> delegate;
+    private final int joinKeyColumn;
+    private final CompletableFuture<RuntimeFilter> runtimeFilter;
+    private RuntimeFilter.Builder filterBuilder = new RuntimeFilter.Builder(MAX_VALUES);
+
+    RuntimeFilterBuildingBatchIterator(BatchIterator<Row> delegate,
+                                       int joinKeyColumn,
+                                       CompletableFuture<RuntimeFilter> runtimeFilter) {
+        this.delegate = delegate;
+        this.joinKeyColumn = joinKeyColumn;
+        this.runtimeFilter = runtimeFilter;
+    }
+
+    @Override
+    protected BatchIterator<Row> delegate() {
+        return delegate;
+    }
+
+    @Override
+    public boolean moveNext() {
+        if (delegate.moveNext()) {
+            if (runtimeFilter.isDone() == false) {
+                filterBuilder.add(delegate.currentElement().get(joinKeyColumn));
+            }
+            return true;
+        }
+        if (runtimeFilter.isDone() == false && delegate.allLoaded()) {
+            runtimeFilter.complete(filterBuilder.build());
+            filterBuilder = null;
+        }
+        return false;
+    }
+
+    @Override
+    public void moveToStart() {
+        super.moveToStart();
+        if (runtimeFilter.isDone() == false) {
+            filterBuilder.reset();
+        }
+    }
+}
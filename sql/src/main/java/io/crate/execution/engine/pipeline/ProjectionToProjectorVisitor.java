@@ -69,9 +69,12 @@ import io.crate.execution.engine.indexing.IndexWriterProjector;
 import io.crate.execution.engine.indexing.ShardDMLExecutor;
 import io.crate.execution.engine.indexing.ShardingUpsertExecutor;
 import io.crate.execution.engine.indexing.UpsertResultContext;
+import io.crate.execution.engine.sort.ExternalSortCollector;
+import io.crate.execution.engine.sort.ExternalSortingProjector;
 import io.crate.execution.engine.sort.OrderingByPosition;
 import io.crate.execution.engine.sort.SortingProjector;
 import io.crate.execution.engine.sort.SortingTopNProjector;
+import io.crate.execution.engine.spill.SpillSettings;
 import io.crate.execution.engine.window.WindowProjector;
 import io.crate.execution.jobs.NodeJobsCounter;
 import io.crate.execution.support.ThreadPools;
@@ -82,6 +85,7 @@ import io.crate.expression.reference.StaticTableDefinition;
 import io.crate.expression.reference.sys.SysRowUpdater;
 import io.crate.expression.symbol.Literal;
 import io.crate.expression.symbol.Symbol;
+import io.crate.expression.symbol.Symbols;
 import io.crate.metadata.ColumnIdent;
 import io.crate.metadata.Functions;
 import io.crate.metadata.Reference;
@@ -89,6 +93,7 @@ import io.crate.metadata.RelationName;
 import io.crate.metadata.RowGranularity;
 import io.crate.metadata.TransactionContext;
 import io.crate.planner.operators.SubQueryResults;
+import io.crate.types.DataType;
 import io.crate.types.DataTypes;
 import io.crate.types.StringType;
 import org.elasticsearch.Version;
@@ -103,7 +108,10 @@ import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import javax.annotation.Nullable;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -145,6 +153,9 @@ public class ProjectionToProjectorVisitor
     @Nullable
     private final ShardId shardId;
     private final int numProcessors;
+    private final double spillThreshold;
+    @Nullable
+    private final Path spillPath;
 
     public ProjectionToProjectorVisitor(ClusterService clusterService,
                                         NodeJobsCounter nodeJobsCounter,
@@ -173,6 +184,8 @@ public class ProjectionToProjectorVisitor
         this.bigArrays = bigArrays;
         this.shardId = shardId;
         this.numProcessors = EsExecutors.numberOfProcessors(settings);
+        this.spillThreshold = SpillSettings.SPILL_THRESHOLD_SETTING.setting().get(settings);
+        this.spillPath = SpillSettings.isSpillEnabled(spillThreshold) ? SpillSettings.spillPath(settings) : null;
     }
 
     public ProjectionToProjectorVisitor(ClusterService clusterService,
@@ -233,14 +246,39 @@ public class ProjectionToProjectorVisitor
         for (int i = numOutputs; i < inputs.size(); i++) {
             orderByIndices[idx++] = i;
         }
-        if (projection.limit() > TopN.NO_LIMIT) {
+        Comparator<Object[]> ordering = OrderingByPosition.arrayOrdering(
+            orderByIndices, projection.reverseFlags(), projection.nullsFirst());
+        int limit = projection.limit();
+        int offset = projection.offset();
+        if (spillPath != null && (limit == TopN.NO_LIMIT || (limit + offset) > UNBOUNDED_COLLECTOR_THRESHOLD)) {
+            // writing the runs blocks on IO, so use the generic pool to not occupy search threads
+            var genericThreadPool = (ThreadPoolExecutor) threadPool.executor(ThreadPool.Names.GENERIC);
+            List<DataType> inputTypes = new ArrayList<>(inputs.size());
+            inputTypes.addAll(Symbols.typeView(projection.outputs()));
+            inputTypes.addAll(Symbols.typeView(projection.orderBy()));
+            return new ExternalSortingProjector(new ExternalSortCollector(
+                inputs,
+                ctx.expressions(),
+                inputTypes,
+                numOutputs,
+                ordering,
+                limit,
+                offset,
+                context.ramAccountingContext,
+                spillThreshold,
+                spillPath,
+                ThreadPools.numIdleThreads(genericThreadPool, numProcessors),
+                genericThreadPool
+            ));
+        }
+        if (limit > TopN.NO_LIMIT) {
             return new SortingTopNProjector(
                 inputs,
                 ctx.expressions(),
                 numOutputs,
-                OrderingByPosition.arrayOrdering(orderByIndices, projection.reverseFlags(), projection.nullsFirst()),
-                projection.limit(),
-                projection.offset(),
+                ordering,
+                limit,
+                offset,
                 UNBOUNDED_COLLECTOR_THRESHOLD
             );
         }
@@ -248,8 +286,8 @@ public class ProjectionToProjectorVisitor
             inputs,
             ctx.expressions(),
             numOutputs,
-            OrderingByPosition.arrayOrdering(orderByIndices, projection.reverseFlags(), projection.nullsFirst()),
-            projection.offset()
+            ordering,
+            offset
         );
     }
 
@@ -281,7 +319,9 @@ public class ProjectionToProjectorVisitor
             ctx.aggregations().toArray(new AggregationContext[0]),
             context.ramAccountingContext,
             indexVersionCreated,
-            bigArrays
+            bigArrays,
+            spillThreshold,
+            spillPath
         );
     }
 
@@ -319,7 +359,10 @@ public class ProjectionToProjectorVisitor
         assert uri != null : "URI must not be null";
 
         StringBuilder sb = new StringBuilder(uri);
-        Symbol resolvedFileName = normalizer.normalize(WriterProjection.DIRECTORY_TO_FILENAME, context.txnCtx);
+        Symbol directoryToFileName = projection.outputFormat() == WriterProjection.OutputFormat.COLUMNAR
+            ? WriterProjection.DIRECTORY_TO_COLUMNAR_FILENAME
+            : WriterProjection.DIRECTORY_TO_FILENAME;
+        Symbol resolvedFileName = normalizer.normalize(directoryToFileName, context.txnCtx);
         assert resolvedFileName instanceof Literal : "resolvedFileName must be a Literal, but is: " + resolvedFileName;
         assert resolvedFileName.valueType() == StringType.INSTANCE :
             "resolvedFileName.valueType() must be " + StringType.INSTANCE;
@@ -328,20 +371,32 @@ public class ProjectionToProjectorVisitor
         if (!uri.endsWith("/")) {
             sb.append("/");
         }
-        sb.append(fileName);
-        if (projection.compressionType() == WriterProjection.CompressionType.GZIP) {
-            sb.append(".gz");
+        String compressionExtension = projection.compressionType() == null
+            ? ""
+            : projection.compressionType().fileExtension();
+        List<String> uris;
+        if (projection.numWriters() == 1) {
+            uris = Collections.singletonList(sb.append(fileName).append(compressionExtension).toString());
+        } else {
+            // each writer writes a part file: <table>_<shard>_<partition>_<part>.<extension>
+            int extensionStart = fileName.lastIndexOf('.');
+            String baseName = fileName.substring(0, extensionStart);
+            String extension = fileName.substring(extensionStart);
+            uris = new ArrayList<>(projection.numWriters());
+            for (int i = 0; i < projection.numWriters(); i++) {
+                uris.add(sb + baseName + "_" + i + extension + compressionExtension);
+            }
         }
-        uri = sb.toString();
 
         Map<ColumnIdent, Object> overwrites =
             symbolMapToObject(projection.overwrites(), ctx, context.txnCtx);
 
         return new FileWriterProjector(
             threadPool.generic(),
-            uri,
+            uris,
             projection.compressionType(),
             inputs,
+            Symbols.typeView(projection.inputs()),
             ctx.expressions(),
             overwrites,
             projection.outputNames(),
@@ -619,7 +674,9 @@ public class ProjectionToProjectorVisitor
             bigArrays,
             indexVersionCreated,
             ThreadPools.numIdleThreads(searchThreadPool, numProcessors),
-            searchThreadPool
+            searchThreadPool,
+            spillThreshold,
+            spillPath
         );
     }
 
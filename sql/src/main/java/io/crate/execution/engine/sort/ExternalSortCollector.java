@@ -0,0 +1,417 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.sort;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+import io.crate.Streamer;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.breaker.SizeEstimator;
+import io.crate.breaker.SizeEstimatorFactory;
+import io.crate.data.BatchIterator;
+import io.crate.data.BatchIterators;
+import io.crate.data.CollectingBatchIterator;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.pipeline.TopN;
+import io.crate.execution.engine.spill.RowSpillFile;
+import io.crate.types.DataType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+import static io.crate.concurrent.CompletableFutures.supplyAsync;
+
+/**
+ * Collector implementation which sorts the rows and applies offset and an optional limit, like
+ * {@link SortingProjector} and {@link UnboundedSortingTopNCollector}, but which doesn't require all rows to fit
+ * into memory.
+ *
+ * <p>
+ * The rows are buffered in memory until the used bytes of the circuit breaker reach the {@code spillThreshold}
+ * fraction of its limit. Then:
+ * </p>
+ *
+ * <pre>
+ *  - The buffered rows are handed over to the executor which sorts them and writes them as a sorted run
+ *    into a {@link RowSpillFile}. Up to {@code numAvailableThreads} runs are sorted and written concurrently
+ *    while the collector continues to consume rows. The number of available threads is evaluated on each spill.
+ *  - If a limit is given, a run only contains the first {@code limit + offset} rows.
+ *  - Once all rows are consumed the remaining rows are written as last run and the runs are merged by
+ *    streaming over all run files at once (k-way merge).
+ * </pre>
+ *
+ * If the threshold is never reached, the rows are sorted in memory and no file is written.
+ * The spill files are deleted on {@link #releaseSpillFiles()}, which first waits for the runs which are still
+ * being sorted and written.
+ */
+public class ExternalSortCollector implements Collector<Row, ExternalSortCollector.Runs, Iterable<Row>> {
+
+    /**
+     * Checking the circuit breaker is cheap, but not free, so only check it after this many rows have been added
+     */
+    private static final int SPILL_CHECK_INTERVAL = 1024;
+
+    /**
+     * Per row overhead of the buffer: the Object[] header and the reference to it within the list
+     */
+    private static final long ROW_OVERHEAD_BYTES = 24L;
+
+    private final Collection<? extends Input<?>> inputs;
+    private final Iterable<? extends CollectExpression<Row, ?>> expressions;
+    private final int numOutputs;
+    private final Comparator<Object[]> comparator;
+    private final int limit;
+    private final int offset;
+    private final RamAccountingContext ramAccountingContext;
+    private final double spillThreshold;
+    private final Path spillPath;
+    private final IntSupplier numAvailableThreads;
+    private final Executor executor;
+    private final Streamer<?>[] streamers;
+    private final List<SizeEstimator<Object>> sizeEstimators;
+    /**
+     * The created spill files and the runs which are being sorted and written, both guarded by {@code spillFiles}
+     */
+    private final List<RowSpillFile> spillFiles = new ArrayList<>();
+    private final Set<PendingRun> runsInFlight = new HashSet<>();
+    private volatile boolean closed = false;
+
+    /**
+     * @param inputs              contains output {@link Input}s and orderBy {@link Input}s
+     * @param expressions         expressions linked to the inputs
+     * @param inputTypes          the types of the inputs, used to serialize the rows and to estimate their size
+     * @param numOutputs          number of output columns
+     * @param comparator          used to sort the rows
+     * @param limit               the max number of rows the result should contain or {@link TopN#NO_LIMIT}
+     * @param offset              the number of rows to skip (after sort)
+     * @param spillThreshold      fraction of the circuit breaker limit at which the buffered rows are spilled
+     * @param spillPath           directory in which the sorted runs are written
+     * @param numAvailableThreads provides the max number of runs which are sorted and written concurrently
+     * @param executor            executor used to sort and write the runs; as writing a run blocks on IO this
+     *                            should be an executor meant for blocking operations
+     */
+    public ExternalSortCollector(Collection<? extends Input<?>> inputs,
+                                 Iterable<? extends CollectExpression<Row, ?>> expressions,
+                                 List<? extends DataType> inputTypes,
+                                 int numOutputs,
+                                 Comparator<Object[]> comparator,
+                                 int limit,
+                                 int offset,
+                                 RamAccountingContext ramAccountingContext,
+                                 double spillThreshold,
+                                 Path spillPath,
+                                 IntSupplier numAvailableThreads,
+                                 Executor executor) {
+        Preconditions.checkArgument(limit > 0 || limit == TopN.NO_LIMIT, "Invalid LIMIT: value must be > 0; got: " + limit);
+        Preconditions.checkArgument(offset >= 0, "Invalid OFFSET: value must be >= 0; got: " + offset);
+        assert inputs.size() == inputTypes.size() : "Must have a type for each input";
+        this.inputs = inputs;
+        this.expressions = expressions;
+        this.numOutputs = numOutputs;
+        this.comparator = comparator;
+        this.limit = limit;
+        this.offset = offset;
+        this.ramAccountingContext = ramAccountingContext;
+        this.spillThreshold = spillThreshold;
+        this.spillPath = spillPath;
+        this.numAvailableThreads = numAvailableThreads;
+        this.executor = executor;
+        this.streamers = new Streamer[inputTypes.size()];
+        this.sizeEstimators = new ArrayList<>(inputTypes.size());
+        for (int i = 0; i < inputTypes.size(); i++) {
+            DataType<?> type = inputTypes.get(i);
+            streamers[i] = type.streamer();
+            sizeEstimators.add(SizeEstimatorFactory.create(type));
+        }
+    }
+
+    static final class Runs {
+
+        private List<Object[]> rows = new ArrayList<>();
+
+        /**
+         * The bytes accounted for the rows of the current in-memory buffer
+         */
+        private long bufferedBytes = 0L;
+
+        private final ArrayDeque<PendingRun> pendingRuns = new ArrayDeque<>();
+        private final List<RowSpillFile> writtenRuns = new ArrayList<>();
+    }
+
+    private static final class PendingRun {
+
+        private final CompletableFuture<RowSpillFile> future;
+        private final long bytes;
+
+        PendingRun(CompletableFuture<RowSpillFile> future, long bytes) {
+            this.future = future;
+            this.bytes = bytes;
+        }
+    }
+
+    @Override
+    public Supplier<Runs> supplier() {
+        return Runs::new;
+    }
+
+    @Override
+    public BiConsumer<Runs, Row> accumulator() {
+        return this::onNextRow;
+    }
+
+    @Override
+    public BinaryOperator<Runs> combiner() {
+        return (runs1, runs2) -> {
+            throw new UnsupportedOperationException("combine not supported");
+        };
+    }
+
+    @Override
+    public Function<Runs, Iterable<Row>> finisher() {
+        return this::finish;
+    }
+
+    @Override
+    public Set<Characteristics> characteristics() {
+        return Collections.emptySet();
+    }
+
+    private void onNextRow(Runs runs, Row row) {
+        for (CollectExpression<Row, ?> expression : expressions) {
+            expression.setNextRow(row);
+        }
+        Object[] cells = new Object[inputs.size()];
+        long rowBytes = ROW_OVERHEAD_BYTES;
+        int i = 0;
+        for (Input<?> input : inputs) {
+            Object value = input.value();
+            cells[i] = value;
+            rowBytes += sizeEstimators.get(i).estimateSize(value);
+            i++;
+        }
+        ramAccountingContext.addBytes(rowBytes);
+        runs.bufferedBytes += rowBytes;
+        runs.rows.add(cells);
+
+        if (runs.rows.size() % SPILL_CHECK_INTERVAL == 0) {
+            releaseWrittenRuns(runs, false);
+            if (ramAccountingContext.reachedBreakerLimitFraction(spillThreshold)) {
+                if (runs.pendingRuns.size() >= Math.max(1, numAvailableThreads.getAsInt())) {
+                    // all threads are busy with previous runs; wait for the oldest to finish instead of buffering more
+                    releaseWrittenRuns(runs, true);
+                }
+                startRun(runs);
+            }
+        }
+    }
+
+    private void startRun(Runs runs) {
+        List<Object[]> rows = runs.rows;
+        PendingRun pendingRun = new PendingRun(supplyAsync(() -> sortAndWrite(rows), executor), runs.bufferedBytes);
+        synchronized (spillFiles) {
+            runsInFlight.add(pendingRun);
+        }
+        runs.pendingRuns.add(pendingRun);
+        runs.rows = new ArrayList<>();
+        runs.bufferedBytes = 0L;
+    }
+
+    /**
+     * Release the memory of the runs which have been written to disk.
+     *
+     * @param waitForOldest if true, block until the oldest pending run is written
+     */
+    private void releaseWrittenRuns(Runs runs, boolean waitForOldest) {
+        PendingRun pendingRun;
+        while ((pendingRun = runs.pendingRuns.peek()) != null && (pendingRun.future.isDone() || waitForOldest)) {
+            runs.pendingRuns.poll();
+            runs.writtenRuns.add(pendingRun.future.join());
+            releaseRunBytes(pendingRun);
+            waitForOldest = false;
+        }
+    }
+
+    /**
+     * Releases the bytes of a run unless {@link #releaseSpillFiles()} already did so.
+     */
+    private void releaseRunBytes(PendingRun pendingRun) {
+        boolean inFlight;
+        synchronized (spillFiles) {
+            inFlight = runsInFlight.remove(pendingRun);
+        }
+        if (inFlight) {
+            ramAccountingContext.releaseBytes(pendingRun.bytes);
+        }
+    }
+
+    private RowSpillFile sortAndWrite(List<Object[]> rows) {
+        ensureNotClosed();
+        rows.sort(comparator);
+        int numRows = limit == TopN.NO_LIMIT ? rows.size() : Math.min(rows.size(), limit + offset);
+        RowSpillFile run = null;
+        try {
+            run = createSpillFile();
+            for (int i = 0; i < numRows; i++) {
+                if (i % SPILL_CHECK_INTERVAL == 0) {
+                    ensureNotClosed();
+                }
+                run.add(rows.get(i));
+            }
+            run.finishWriting();
+            return run;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private RowSpillFile createSpillFile() throws IOException {
+        synchronized (spillFiles) {
+            // checked within the lock, so that a file is never added after releaseSpillFiles closed the files
+            ensureNotClosed();
+            RowSpillFile spillFile = RowSpillFile.create(spillPath, streamers);
+            spillFiles.add(spillFile);
+            return spillFile;
+        }
+    }
+
+    /**
+     * Aborts sorting and writing a run if the spill files have been released in the meantime,
+     * for example because the query was killed.
+     */
+    private void ensureNotClosed() {
+        if (closed) {
+            throw new CancellationException("Spill files of the sort have already been released");
+        }
+    }
+
+    private Iterable<Row> finish(Runs runs) {
+        if (runs.pendingRuns.isEmpty() && runs.writtenRuns.isEmpty()) {
+            List<Object[]> rows = runs.rows;
+            rows.sort(comparator);
+            return toRows(rows);
+        }
+        if (runs.rows.isEmpty() == false) {
+            startRun(runs);
+        }
+        while (runs.pendingRuns.isEmpty() == false) {
+            releaseWrittenRuns(runs, true);
+        }
+        List<Iterable<Object[]>> sortedRuns = new ArrayList<>(runs.writtenRuns.size());
+        for (RowSpillFile run : runs.writtenRuns) {
+            sortedRuns.add(Iterables.transform(run, Row::materialize));
+        }
+        return toRows(Iterables.mergeSorted(sortedRuns, comparator));
+    }
+
+    private Iterable<Row> toRows(Iterable<Object[]> sortedRows) {
+        Iterable<Object[]> rows = Iterables.skip(sortedRows, offset);
+        if (limit != TopN.NO_LIMIT) {
+            rows = Iterables.limit(rows, limit);
+        }
+        return () -> {
+            RowN row = new RowN(numOutputs);
+            return Iterables.transform(rows, cells -> {
+                row.cells(cells);
+                return (Row) row;
+            }).iterator();
+        };
+    }
+
+    /**
+     * Creates a {@link BatchIterator} which emits the sorted rows of {@code source} and
+     * deletes the spill files once it is closed.
+     */
+    public BatchIterator<Row> newBatchIterator(BatchIterator<Row> source) {
+        return CollectingBatchIterator.newInstance(
+            () -> {
+                try {
+                    source.close();
+                } finally {
+                    releaseSpillFiles();
+                }
+            },
+            source::kill,
+            () -> BatchIterators.collect(source, this),
+            true
+        );
+    }
+
+    /**
+     * Deletes the spill files. Must be called once the result is no longer used.
+     * <p>
+     * Runs which are still being sorted and written, for example because the collect failed or was killed,
+     * are aborted and waited for before the files are deleted, and their bytes are released.
+     */
+    public void releaseSpillFiles() {
+        List<PendingRun> pendingRuns;
+        synchronized (spillFiles) {
+            closed = true;
+            pendingRuns = new ArrayList<>(runsInFlight);
+            runsInFlight.clear();
+        }
+        for (PendingRun pendingRun : pendingRuns) {
+            try {
+                pendingRun.future.join();
+            } catch (CompletionException | CancellationException ignored) {
+                // the run was aborted or its failure has been propagated to the collect
+            }
+            ramAccountingContext.releaseBytes(pendingRun.bytes);
+        }
+        IOException failure = null;
+        synchronized (spillFiles) {
+            for (RowSpillFile spillFile : spillFiles) {
+                try {
+                    spillFile.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            spillFiles.clear();
+        }
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+    }
+}
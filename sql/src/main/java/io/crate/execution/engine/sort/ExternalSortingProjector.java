@@ -0,0 +1,53 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.sort;
+
+import io.crate.data.BatchIterator;
+import io.crate.data.Projector;
+import io.crate.data.Row;
+
+/**
+ * Sort rows by ordering criteria and process given offset and an optional limit before emitting,
+ * using an {@link ExternalSortCollector}.
+ * <p>
+ * Compared to {@link SortingProjector} and {@link SortingTopNProjector} the rows don't need to fit into memory;
+ * sorted runs are spilled to disk once the circuit breaker reaches the spill threshold.
+ */
+public class ExternalSortingProjector implements Projector {
+
+    private final ExternalSortCollector collector;
+
+    public ExternalSortingProjector(ExternalSortCollector collector) {
+        this.collector = collector;
+    }
+
+    @Override
+    public BatchIterator<Row> apply(BatchIterator<Row> batchIterator) {
+        return collector.newBatchIterator(batchIterator);
+    }
+
+    @Override
+    public boolean providesIndependentScroll() {
+        return true;
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.spill;
+
+import io.crate.Streamer;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A temporary file to which rows are written using {@link Streamer}s and which can be read back any number of times.
+ *
+ * <pre>
+ *     file = RowSpillFile.create(dir, streamers);
+ *     file.add(row);
+ *     ...
+ *     file.finishWriting();
+ *
+ *     for (Row row : file) {
+ *         // the row is shared, copy the cells if they must be retained
+ *     }
+ *     file.close();    // deletes the file
+ * </pre>
+ */
+public final class RowSpillFile implements Iterable<Row>, Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final Streamer[] streamers;
+    private final List<StreamInput> openInputs = new ArrayList<>();
+
+    @Nullable
+    private OutputStreamStreamOutput out;
+    private long numRows = 0;
+
+    public static RowSpillFile create(Path directory, Streamer<?>[] streamers) throws IOException {
+        Files.createDirectories(directory);
+        Path path = Files.createTempFile(directory, "rows-", ".spill");
+        return new RowSpillFile(path, streamers);
+    }
+
+    private RowSpillFile(Path path, Streamer<?>[] streamers) throws IOException {
+        this.path = path;
+        this.streamers = streamers;
+        this.out = new OutputStreamStreamOutput(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE));
+    }
+
+    public void add(Row row) throws IOException {
+        assert out != null : "Cannot add rows after finishWriting has been called";
+        assert row.numColumns() == streamers.length : "Row must have a value for each streamer";
+        for (int i = 0; i < streamers.length; i++) {
+            //noinspection unchecked
+            streamers[i].writeValueTo(out, row.get(i));
+        }
+        numRows++;
+    }
+
+    public void add(Object[] cells) throws IOException {
+        assert out != null : "Cannot add rows after finishWriting has been called";
+        assert cells.length == streamers.length : "Row must have a value for each streamer";
+        for (int i = 0; i < streamers.length; i++) {
+            //noinspection unchecked
+            streamers[i].writeValueTo(out, cells[i]);
+        }
+        numRows++;
+    }
+
+    /**
+     * Flushes and closes the output. Must be called before the rows can be read.
+     */
+    public void finishWriting() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    public long numRows() {
+        return numRows;
+    }
+
+    /**
+     * @return an iterator over all rows of the file. The returned {@link Row} instance is re-used.
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    @Override
+    public Iterator<Row> iterator() {
+        assert out == null : "finishWriting must be called before the rows can be read";
+        StreamInput in;
+        try {
+            in = new InputStreamStreamInput(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        synchronized (openInputs) {
+            openInputs.add(in);
+        }
+        Object[] cells = new Object[streamers.length];
+        RowN row = new RowN(cells);
+        return new Iterator<>() {
+
+            long rowIdx = 0;
+
+            @Override
+            public boolean hasNext() {
+                if (rowIdx < numRows) {
+                    return true;
+                }
+                closeInput(in);
+                return false;
+            }
+
+            @Override
+            public Row next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("Spill file has no more rows");
+                }
+                try {
+                    for (int i = 0; i < streamers.length; i++) {
+                        cells[i] = streamers[i].readValueFrom(in);
+                    }
+                } catch (IOException e) {
+                    closeInput(in);
+                    throw new UncheckedIOException(e);
+                }
+                rowIdx++;
+                return row;
+            }
+        };
+    }
+
+    private void closeInput(StreamInput in) {
+        synchronized (openInputs) {
+            if (openInputs.remove(in)) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                    // we're only reading, nothing gets lost
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes all open streams and deletes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+            synchronized (openInputs) {
+                for (StreamInput in : openInputs) {
+                    in.close();
+                }
+                openInputs.clear();
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.spill;
+
+import io.crate.settings.CrateSetting;
+import io.crate.types.DataTypes;
+import org.elasticsearch.common.io.PathUtils;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.env.Environment;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Settings of operations which can spill intermediate results to disk instead of tripping the query circuit breaker.
+ */
+public final class SpillSettings {
+
+    /**
+     * Fraction of the query circuit breaker limit at which operations start to spill to disk.
+     * A value of 1.0 disables spilling, the circuit breaker trips before the threshold can be reached.
+     */
+    public static final CrateSetting<Double> SPILL_THRESHOLD_SETTING = CrateSetting.of(Setting.doubleSetting(
+        "indices.breaker.query.spill_threshold", 1.0d, 0.0d, Setting.Property.NodeScope), DataTypes.DOUBLE);
+
+    private static final String SPILL_DIRECTORY_NAME = "spill";
+
+    private SpillSettings() {
+    }
+
+    public static boolean isSpillEnabled(double spillThreshold) {
+        return spillThreshold < 1.0d;
+    }
+
+    /**
+     * @return the directory where spill files are written to: a sub-directory of the first data path of the node
+     */
+    public static Path spillPath(Settings settings) {
+        List<String> dataPaths = Environment.PATH_DATA_SETTING.get(settings);
+        Path dataPath;
+        if (dataPaths.isEmpty() == false) {
+            dataPath = PathUtils.get(dataPaths.get(0));
+        } else if (Environment.PATH_HOME_SETTING.exists(settings)) {
+            dataPath = PathUtils.get(Environment.PATH_HOME_SETTING.get(settings)).resolve("data");
+        } else {
+            dataPath = PathUtils.get(System.getProperty("java.io.tmpdir"));
+        }
+        return dataPath.resolve(SPILL_DIRECTORY_NAME);
+    }
+}
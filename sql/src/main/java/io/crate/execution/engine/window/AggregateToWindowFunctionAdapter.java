@@ -32,23 +32,52 @@ import io.crate.expression.symbol.Function;
 import io.crate.expression.symbol.Symbol;
 import io.crate.metadata.FunctionInfo;
 import io.crate.metadata.TransactionContext;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.Version;
 import org.elasticsearch.common.util.BigArrays;
 
 import javax.annotation.Nullable;
 import java.util.List;
 
+/**
+ * Computes an {@link AggregationFunction} over the frame of each row.
+ * <p>
+ * The frames of successive rows usually overlap, so the aggregated state of the previous frame is re-used:
+ * <ul>
+ *     <li>If the frame only grows at the end, the new rows are added to the state.</li>
+ *     <li>If the frame start moves as well and the aggregation supports
+ *     {@link AggregationFunction#removeFromAggregatedState(RamAccountingContext, Object, Input[])}, the rows which
+ *     left the frame are removed from the state and the new rows are added.</li>
+ *     <li>If the aggregation has an immutable state (e.g. min/max), a segment tree which holds pre-aggregated
+ *     states of ranges of the partition is built once per partition and each frame is computed out of
+ *     {@code O(log(partitionSize))} of those states.</li>
+ *     <li>Otherwise the state is re-computed from all rows of the frame.</li>
+ * </ul>
+ */
 public class AggregateToWindowFunctionAdapter implements WindowFunction {
 
     private final AggregationFunction aggregationFunction;
     private final RamAccountingContext ramAccountingContext;
     private final Version indexVersionCreated;
     private final BigArrays bigArrays;
+    private final ArrayRow row = new ArrayRow();
     private Object accumulatedState;
 
+    private int seenFrameLowerBound = -1;
     private int seenFrameUpperBound = -1;
+    /**
+     * Number of rows of the accumulated state which have no null arguments
+     */
+    private long numNonNullRowsInState;
     private Object resultForCurrentFrame;
 
+    /**
+     * Pre-aggregated states of the current partition, see {@link #buildSegmentTree}
+     */
+    @Nullable
+    private Object[] segmentTree;
+    private Object emptyImmutableState;
+
     public AggregateToWindowFunctionAdapter(AggregationFunction aggregationFunction,
                                             Version indexVersionCreated,
                                             BigArrays bigArrays,
@@ -75,34 +104,142 @@ public class AggregateToWindowFunctionAdapter implements WindowFunction {
                           WindowFrameState frame,
                           List<? extends CollectExpression<Row, ?>> expressions,
                           Input... args) {
+        int lowerBound = frame.lowerBound();
+        int upperBound = frame.upperBoundExclusive();
         if (idxInPartition == 0) {
-            accumulatedState = aggregationFunction.newState(ramAccountingContext, indexVersionCreated, bigArrays);
-            seenFrameUpperBound = -1;
-            executeAggregateForFrame(frame, expressions, args);
-        } else if (frame.upperBoundExclusive() > seenFrameUpperBound) {
-            executeAggregateForFrame(frame, expressions, args);
+            releaseSegmentTree();
+        } else if (lowerBound == seenFrameLowerBound && upperBound == seenFrameUpperBound) {
+            return resultForCurrentFrame;
         }
+
+        if (idxInPartition == 0 || lowerBound < seenFrameLowerBound || upperBound < seenFrameUpperBound) {
+            recomputeState(frame, lowerBound, upperBound, expressions, args);
+        } else if (lowerBound == seenFrameLowerBound) {
+            addRows(frame, seenFrameUpperBound, upperBound, expressions, args);
+        } else if (aggregationFunction.isRemovableCumulative()) {
+            if (lowerBound >= seenFrameUpperBound) {
+                // no overlap with the previous frame
+                recomputeState(frame, lowerBound, upperBound, expressions, args);
+            } else {
+                removeRows(frame, seenFrameLowerBound, lowerBound, expressions, args);
+                addRows(frame, seenFrameUpperBound, upperBound, expressions, args);
+            }
+        } else if (aggregationFunction.hasImmutableState()) {
+            if (segmentTree == null) {
+                buildSegmentTree(frame, expressions, args);
+            }
+            accumulatedState = querySegmentTree(segmentTree, lowerBound, upperBound);
+        } else {
+            recomputeState(frame, lowerBound, upperBound, expressions, args);
+        }
+        seenFrameLowerBound = lowerBound;
+        seenFrameUpperBound = upperBound;
+        resultForCurrentFrame = aggregationFunction.terminatePartial(ramAccountingContext, accumulatedState);
         return resultForCurrentFrame;
     }
 
-    private void executeAggregateForFrame(WindowFrameState frame, List<? extends CollectExpression<Row, ?>> expressions, Input... inputs) {
-        /*
-         * The successive frames have overlapping rows (especially now as we currently only support UNBOUNDED PRECEDING - CURRENT_ROW frames).
-         * We want to accumulate the rows we haven't processed yet (the difference between the rows in the current frame to the rows in the previous frame, if any).
-         */
-        int unseenRowsInCurrentFrameStart = seenFrameUpperBound > 0 ? seenFrameUpperBound : frame.lowerBound();
-        var row = new ArrayRow();
-        for (int i = unseenRowsInCurrentFrameStart; i < frame.upperBoundExclusive(); i++) {
-            Object[] cells = frame.getRowAtIndexOrNull(i);
-            assert cells != null : "No row at idx=" + i + " in current frame=" + frame;
-            row.cells(cells);
-            for (int j = 0, expressionsSize = expressions.size(); j < expressionsSize; j++) {
-                expressions.get(j).setNextRow(row);
+    private void recomputeState(WindowFrameState frame,
+                                int lowerBound,
+                                int upperBound,
+                                List<? extends CollectExpression<Row, ?>> expressions,
+                                Input... args) {
+        accumulatedState = aggregationFunction.newState(ramAccountingContext, indexVersionCreated, bigArrays);
+        numNonNullRowsInState = 0;
+        addRows(frame, lowerBound, upperBound, expressions, args);
+    }
+
+    private void addRows(WindowFrameState frame,
+                         int from,
+                         int to,
+                         List<? extends CollectExpression<Row, ?>> expressions,
+                         Input... args) {
+        for (int i = from; i < to; i++) {
+            setNextRow(frame, i, expressions);
+            if (hasNoNullArgs(args)) {
+                numNonNullRowsInState++;
             }
-            accumulatedState = aggregationFunction.iterate(ramAccountingContext, accumulatedState, inputs);
+            accumulatedState = aggregationFunction.iterate(ramAccountingContext, accumulatedState, args);
+        }
+    }
+
+    private void removeRows(WindowFrameState frame,
+                            int from,
+                            int to,
+                            List<? extends CollectExpression<Row, ?>> expressions,
+                            Input... args) {
+        for (int i = from; i < to; i++) {
+            setNextRow(frame, i, expressions);
+            if (hasNoNullArgs(args)) {
+                numNonNullRowsInState--;
+            }
+            accumulatedState = aggregationFunction.removeFromAggregatedState(ramAccountingContext, accumulatedState, args);
+        }
+        if (numNonNullRowsInState == 0) {
+            // Results like `sum` must be null again and not 0 if no values are left
+            accumulatedState = aggregationFunction.newState(ramAccountingContext, indexVersionCreated, bigArrays);
+        }
+    }
+
+    private static boolean hasNoNullArgs(Input... args) {
+        for (Input arg : args) {
+            if (arg.value() == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void setNextRow(WindowFrameState frame, int idxInPartition, List<? extends CollectExpression<Row, ?>> expressions) {
+        row.cells(frame.getRowInPartition(idxInPartition));
+        for (int j = 0, expressionsSize = expressions.size(); j < expressionsSize; j++) {
+            expressions.get(j).setNextRow(row);
+        }
+    }
+
+    /**
+     * Builds a segment tree over the rows of the partition.
+     * The leaves at {@code [n, 2n)} hold the state of a single row, each inner node {@code i} holds the reduced
+     * states of its children {@code 2i} and {@code 2i + 1}.
+     * This requires states which are not mutated by reduce, as they are shared by multiple nodes.
+     */
+    private void buildSegmentTree(WindowFrameState frame,
+                                  List<? extends CollectExpression<Row, ?>> expressions,
+                                  Input... args) {
+        int n = frame.partitionSize();
+        ramAccountingContext.addBytes(2L * n * RamUsageEstimator.NUM_BYTES_OBJECT_REF);
+        Object[] tree = new Object[2 * n];
+        emptyImmutableState = aggregationFunction.newState(ramAccountingContext, indexVersionCreated, bigArrays);
+        for (int i = 0; i < n; i++) {
+            setNextRow(frame, i, expressions);
+            tree[n + i] = aggregationFunction.iterate(ramAccountingContext, emptyImmutableState, args);
+        }
+        for (int i = n - 1; i > 0; i--) {
+            tree[i] = aggregationFunction.reduce(ramAccountingContext, tree[2 * i], tree[2 * i + 1]);
+        }
+        segmentTree = tree;
+    }
+
+    private Object querySegmentTree(Object[] tree, int lowerBound, int upperBoundExclusive) {
+        int n = tree.length / 2;
+        Object left = emptyImmutableState;
+        Object right = emptyImmutableState;
+        // left and right are accumulated separately to keep the order of the rows
+        for (int l = lowerBound + n, r = upperBoundExclusive + n; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                left = aggregationFunction.reduce(ramAccountingContext, left, tree[l++]);
+            }
+            if ((r & 1) == 1) {
+                right = aggregationFunction.reduce(ramAccountingContext, tree[--r], right);
+            }
+        }
+        return aggregationFunction.reduce(ramAccountingContext, left, right);
+    }
+
+    private void releaseSegmentTree() {
+        if (segmentTree != null) {
+            ramAccountingContext.releaseBytes((long) segmentTree.length * RamUsageEstimator.NUM_BYTES_OBJECT_REF);
+            segmentTree = null;
+            emptyImmutableState = null;
         }
-        
-        resultForCurrentFrame = aggregationFunction.terminatePartial(ramAccountingContext, accumulatedState);
-        seenFrameUpperBound = frame.upperBoundExclusive();
     }
 }
@@ -0,0 +1,215 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+
+package io.crate.execution.engine.window;
+
+import io.crate.Streamer;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.breaker.RowAccounting;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.spill.RowSpillFile;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.ToIntFunction;
+
+/**
+ * Buffers the input rows of a window function computation.
+ *
+ * <p>
+ * The rows are kept in memory until the used bytes of the circuit breaker reach the {@code spillThreshold} fraction
+ * of its limit. Then the rows are hash partitioned by their PARTITION BY values into {@link #NUM_SPILL_PARTITIONS}
+ * files and their memory is released. All following rows are written to the files directly.
+ * </p>
+ *
+ * All rows of a window partition end up in the same file, so the files can be loaded, sorted and computed one by one.
+ * Peak memory is then bounded by the largest file instead of the whole input.
+ * The spill files are deleted on {@link #close()}.
+ */
+final class SpillableWindowRows implements Closeable {
+
+    static final int NUM_SPILL_PARTITIONS = 32;
+
+    /**
+     * Checking the circuit breaker is cheap, but not free, so only check it after this many rows have been added
+     */
+    private static final int SPILL_CHECK_INTERVAL = 1024;
+
+    private final RowAccounting rowAccounting;
+    private final RamAccountingContext ramAccountingContext;
+    private final double spillThreshold;
+    private final Path spillPath;
+    private final Streamer<?>[] streamers;
+    private final ToIntFunction<Object[]> partitionHash;
+    private final int numWindowFunctions;
+    private final RowN sourceCellsView;
+    private final ArrayList<Object[]> rows = new ArrayList<>();
+
+    @Nullable
+    private RowSpillFile[] partitions;
+
+    SpillableWindowRows(RowAccounting rowAccounting,
+                        RamAccountingContext ramAccountingContext,
+                        double spillThreshold,
+                        Path spillPath,
+                        Streamer<?>[] streamers,
+                        ToIntFunction<Object[]> partitionHash,
+                        int numWindowFunctions) {
+        this.rowAccounting = rowAccounting;
+        this.ramAccountingContext = ramAccountingContext;
+        this.spillThreshold = spillThreshold;
+        this.spillPath = spillPath;
+        this.streamers = streamers;
+        this.partitionHash = partitionHash;
+        this.numWindowFunctions = numWindowFunctions;
+        this.sourceCellsView = new RowN(streamers.length);
+    }
+
+    void add(Row row) {
+        try {
+            if (partitions == null) {
+                rowAccounting.accountForAndMaybeBreak(row);
+                rows.add(WindowFunctionBatchIterator.materializeWithSpare(row, numWindowFunctions));
+                if (rows.size() % SPILL_CHECK_INTERVAL == 0
+                    && ramAccountingContext.reachedBreakerLimitFraction(spillThreshold)) {
+                    spill();
+                }
+            } else {
+                Object[] cells = row.materialize();
+                partitions[partition(cells)].add(cells);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    boolean spilled() {
+        return partitions != null;
+    }
+
+    /**
+     * @return the rows which are held in memory; only valid if the rows haven't been spilled.
+     */
+    List<Object[]> rows() {
+        assert partitions == null : "rows have been spilled, use spilledPartitions() instead";
+        return rows;
+    }
+
+    /**
+     * Returns the rows of the spill files, one list per file.
+     * The rows of a file are loaded once the previous list has been consumed and the memory of the previous list is
+     * released at that point.
+     * The returned iterable can be iterated multiple times.
+     */
+    Iterable<List<Object[]>> spilledPartitions() throws IOException {
+        assert partitions != null : "rows must have been spilled";
+        for (RowSpillFile partition : partitions) {
+            partition.finishWriting();
+        }
+        return () -> new Iterator<>() {
+
+            int idx = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (idx < partitions.length && partitions[idx].numRows() == 0) {
+                    idx++;
+                }
+                return idx < partitions.length;
+            }
+
+            @Override
+            public List<Object[]> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("No more spilled partitions");
+                }
+                rowAccounting.release();
+                RowSpillFile partition = partitions[idx];
+                idx++;
+                ArrayList<Object[]> partitionRows = new ArrayList<>((int) partition.numRows());
+                for (Row row : partition) {
+                    rowAccounting.accountForAndMaybeBreak(row);
+                    partitionRows.add(WindowFunctionBatchIterator.materializeWithSpare(row, numWindowFunctions));
+                }
+                return partitionRows;
+            }
+        };
+    }
+
+    private void spill() throws IOException {
+        partitions = new RowSpillFile[NUM_SPILL_PARTITIONS];
+        for (int i = 0; i < NUM_SPILL_PARTITIONS; i++) {
+            partitions[i] = RowSpillFile.create(spillPath, streamers);
+        }
+        for (Object[] cells : rows) {
+            sourceCellsView.cells(cells);
+            partitions[partition(cells)].add(sourceCellsView);
+        }
+        rows.clear();
+        rows.trimToSize();
+        rowAccounting.release();
+    }
+
+    private int partition(Object[] cells) {
+        int h = partitionHash.applyAsInt(cells);
+        // spread the bits, keys are often sequential numbers
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return Math.floorMod(h, NUM_SPILL_PARTITIONS);
+    }
+
+    /**
+     * Deletes the spill files and releases the memory of the buffered rows.
+     */
+    @Override
+    public void close() throws IOException {
+        rows.clear();
+        rowAccounting.release();
+        if (partitions != null) {
+            IOException failure = null;
+            for (RowSpillFile partition : partitions) {
+                if (partition == null) {
+                    continue;
+                }
+                try {
+                    partition.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            partitions = null;
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+
+package io.crate.execution.engine.window;
+
+import io.crate.breaker.RowAccounting;
+import io.crate.data.BatchIterator;
+import io.crate.data.Buckets;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.collect.CollectExpression;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Computes window functions over a source which is already sorted by the PARTITION BY and ORDER BY values of the
+ * window definition.
+ * <p>
+ * Only the rows of the current partition are buffered: Once the first row of the next partition is read from the
+ * source, the window functions are computed for the buffered partition and its rows are emitted.
+ * Afterwards the memory of the partition is released and the next partition is buffered.
+ * Peak memory is therefore bounded by the largest partition instead of the whole input.
+ */
+final class StreamingWindowFunctionBatchIterator implements BatchIterator<Row> {
+
+    private final BatchIterator<Row> source;
+    private final RowAccounting rowAccounting;
+    @Nullable
+    private final Comparator<Object[]> cmpPartitionBy;
+    @Nullable
+    private final Comparator<Object[]> cmpOrderBy;
+    private final WindowFrameBounds frameBounds;
+    private final int numCellsInSourceRow;
+    private final List<WindowFunction> windowFunctions;
+    private final List<? extends CollectExpression<Row, ?>> argsExpressions;
+    private final Input[][] args;
+    private final Function<Object[], Row> arrayToRow = Buckets.arrayToSharedRow();
+    private final RowN sourceCellsView;
+
+    private final ArrayList<Object[]> partitionRows = new ArrayList<>();
+
+    /**
+     * The row which has been read from the source to detect the end of the buffered partition.
+     * It belongs to the next partition and is added to the buffer once the current partition has been emitted.
+     */
+    @Nullable
+    private Object[] firstRowOfNextPartition;
+
+    @Nullable
+    private Iterator<Object[]> computedRows;
+    private boolean sourceExhausted = false;
+    private Row current;
+
+    StreamingWindowFunctionBatchIterator(BatchIterator<Row> source,
+                                         RowAccounting rowAccounting,
+                                         @Nullable Comparator<Object[]> cmpPartitionBy,
+                                         @Nullable Comparator<Object[]> cmpOrderBy,
+                                         WindowFrameBounds frameBounds,
+                                         int numCellsInSourceRow,
+                                         List<WindowFunction> windowFunctions,
+                                         List<? extends CollectExpression<Row, ?>> argsExpressions,
+                                         Input[]... args) {
+        this.source = source;
+        this.rowAccounting = rowAccounting;
+        this.cmpPartitionBy = cmpPartitionBy;
+        this.cmpOrderBy = cmpOrderBy;
+        this.frameBounds = frameBounds;
+        this.numCellsInSourceRow = numCellsInSourceRow;
+        this.windowFunctions = windowFunctions;
+        this.argsExpressions = argsExpressions;
+        this.args = args;
+        this.sourceCellsView = new RowN(numCellsInSourceRow);
+    }
+
+    @Override
+    public Row currentElement() {
+        return current;
+    }
+
+    @Override
+    public void moveToStart() {
+        source.moveToStart();
+        clearPartition();
+        firstRowOfNextPartition = null;
+        sourceExhausted = false;
+        current = null;
+    }
+
+    @Override
+    public boolean moveNext() {
+        while (true) {
+            if (computedRows != null) {
+                if (computedRows.hasNext()) {
+                    current = arrayToRow.apply(computedRows.next());
+                    return true;
+                }
+                clearPartition();
+                if (firstRowOfNextPartition != null) {
+                    addToPartition(firstRowOfNextPartition);
+                    firstRowOfNextPartition = null;
+                }
+            }
+            if (sourceExhausted) {
+                if (partitionRows.isEmpty()) {
+                    current = null;
+                    return false;
+                }
+                computePartition();
+                continue;
+            }
+            if (source.moveNext()) {
+                Object[] cells = WindowFunctionBatchIterator.materializeWithSpare(
+                    source.currentElement(), windowFunctions.size());
+                if (isStartOfNextPartition(cells)) {
+                    firstRowOfNextPartition = cells;
+                    computePartition();
+                } else {
+                    addToPartition(cells);
+                }
+            } else if (source.allLoaded()) {
+                sourceExhausted = true;
+            } else {
+                current = null;
+                return false;
+            }
+        }
+    }
+
+    private boolean isStartOfNextPartition(Object[] cells) {
+        return cmpPartitionBy != null
+               && partitionRows.isEmpty() == false
+               && cmpPartitionBy.compare(partitionRows.get(0), cells) != 0;
+    }
+
+    private void addToPartition(Object[] cells) {
+        sourceCellsView.cells(cells);
+        rowAccounting.accountForAndMaybeBreak(sourceCellsView);
+        partitionRows.add(cells);
+    }
+
+    private void computePartition() {
+        // the rows are already sorted, so there is no need to compare partition values within the buffered partition
+        computedRows = WindowFunctionBatchIterator.computeWindowFunctions(
+            partitionRows,
+            null,
+            cmpOrderBy,
+            frameBounds,
+            numCellsInSourceRow,
+            windowFunctions,
+            argsExpressions,
+            args
+        ).iterator();
+    }
+
+    private void clearPartition() {
+        computedRows = null;
+        partitionRows.clear();
+        rowAccounting.release();
+    }
+
+    @Override
+    public void close() {
+        source.close();
+        clearPartition();
+    }
+
+    @Override
+    public CompletionStage<?> loadNextBatch() {
+        return source.loadNextBatch();
+    }
+
+    @Override
+    public boolean allLoaded() {
+        return source.allLoaded();
+    }
+
+    @Override
+    public void kill(@Nonnull Throwable throwable) {
+        source.kill(throwable);
+    }
+
+    @Override
+    public boolean involvesIO() {
+        return source.involvesIO();
+    }
+}
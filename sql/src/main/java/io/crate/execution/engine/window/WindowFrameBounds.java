@@ -0,0 +1,216 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.window;
+
+import io.crate.analyze.WindowFrameDefinition;
+import io.crate.sql.tree.FrameBound;
+import io.crate.sql.tree.WindowFrame;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.function.Function;
+
+import static io.crate.sql.tree.FrameBound.Type.CURRENT_ROW;
+import static io.crate.sql.tree.FrameBound.Type.UNBOUNDED_PRECEDING;
+
+/**
+ * Computes the bounds of the window frame of a row based on a {@link WindowFrameDefinition} with evaluated offsets.
+ * <p>
+ * The bounds are computed row by row in the order of the sorted partition. Except for rows with a null ORDER BY value,
+ * the frame of a row never starts or ends before the frame of the previous row. The bounds of {@code RANGE} frames with
+ * an offset are therefore found by advancing the bounds of the previous row instead of searching the whole partition.
+ */
+public final class WindowFrameBounds {
+
+    /**
+     * {@code RANGE BETWEEN UNBOUNDED PRECEDING AND CURRENT ROW}
+     */
+    public static final WindowFrameBounds DEFAULT = new WindowFrameBounds(
+        WindowFrame.Type.RANGE, UNBOUNDED_PRECEDING, null, CURRENT_ROW, null, null, false);
+
+    private final WindowFrame.Type type;
+    private final FrameBound.Type startType;
+    @Nullable
+    private final Number startOffset;
+    private final FrameBound.Type endType;
+    @Nullable
+    private final Number endOffset;
+    @Nullable
+    private final Function<Object[], Object> orderByValue;
+    private final int direction;
+
+    /**
+     * @param orderByValue returns the value of the ORDER BY column of a row,
+     *                     required for {@code RANGE} frames with {@code PRECEDING} or {@code FOLLOWING} offsets.
+     * @param descending   true if the rows are sorted by the ORDER BY column in descending order.
+     */
+    public WindowFrameBounds(WindowFrame.Type type,
+                             FrameBound.Type startType,
+                             @Nullable Number startOffset,
+                             FrameBound.Type endType,
+                             @Nullable Number endOffset,
+                             @Nullable Function<Object[], Object> orderByValue,
+                             boolean descending) {
+        validateOffset(startType, startOffset);
+        validateOffset(endType, endOffset);
+        assert type == WindowFrame.Type.ROWS || orderByValue != null || (hasOffset(startType) == false && hasOffset(endType) == false)
+            : "RANGE frames with offsets require the value of the ORDER BY column";
+        this.type = type;
+        this.startType = startType;
+        this.startOffset = startOffset;
+        this.endType = endType;
+        this.endOffset = endOffset;
+        this.orderByValue = orderByValue;
+        this.direction = descending ? -1 : 1;
+    }
+
+    private static boolean hasOffset(FrameBound.Type boundType) {
+        return boundType == FrameBound.Type.PRECEDING || boundType == FrameBound.Type.FOLLOWING;
+    }
+
+    private static void validateOffset(FrameBound.Type boundType, @Nullable Number offset) {
+        if (hasOffset(boundType) && (offset == null || offset.doubleValue() < 0)) {
+            throw new IllegalArgumentException("Frame " + boundType.name() + " offset must not be null or negative");
+        }
+    }
+
+    /**
+     * @param idx       the index of the current row
+     * @param peerStart the index of the first row with the same ORDER BY values as the current row
+     * @param prevStart the start of the frame of the previous row or {@code pStart} for the first row of a partition
+     * @return the index of the first row of the frame of the current row
+     */
+    int start(List<Object[]> rows, int pStart, int pEnd, int idx, int peerStart, int prevStart) {
+        switch (startType) {
+            case UNBOUNDED_PRECEDING:
+                return pStart;
+
+            case CURRENT_ROW:
+                return type == WindowFrame.Type.ROWS ? idx : peerStart;
+
+            case PRECEDING:
+                if (type == WindowFrame.Type.ROWS) {
+                    return (int) Math.max(pStart, idx - startOffset.longValue());
+                }
+                return rangeStart(rows, pEnd, idx, peerStart, prevStart, -startOffset.doubleValue());
+
+            case FOLLOWING:
+                if (type == WindowFrame.Type.ROWS) {
+                    return (int) Math.min(pEnd, idx + startOffset.longValue());
+                }
+                return rangeStart(rows, pEnd, idx, peerStart, prevStart, startOffset.doubleValue());
+
+            default:
+                throw new IllegalArgumentException("Frame start cannot be " + startType.name());
+        }
+    }
+
+    /**
+     * @param idx     the index of the current row
+     * @param peerEnd the index of the first row after the current row with different ORDER BY values
+     * @param prevEnd the end of the frame of the previous row or {@code pStart} for the first row of a partition
+     * @return the index of the row after the last row of the frame of the current row
+     */
+    int endExclusive(List<Object[]> rows, int pStart, int pEnd, int idx, int peerEnd, int prevEnd) {
+        switch (endType) {
+            case UNBOUNDED_FOLLOWING:
+                return pEnd;
+
+            case CURRENT_ROW:
+                return type == WindowFrame.Type.ROWS ? idx + 1 : peerEnd;
+
+            case PRECEDING:
+                if (type == WindowFrame.Type.ROWS) {
+                    return (int) Math.max(pStart, idx + 1 - endOffset.longValue());
+                }
+                return rangeEnd(rows, pEnd, idx, peerEnd, prevEnd, -endOffset.doubleValue());
+
+            case FOLLOWING:
+                if (type == WindowFrame.Type.ROWS) {
+                    return (int) Math.min(pEnd, idx + 1 + endOffset.longValue());
+                }
+                return rangeEnd(rows, pEnd, idx, peerEnd, prevEnd, endOffset.doubleValue());
+
+            default:
+                throw new IllegalArgumentException("Frame end cannot be " + endType.name());
+        }
+    }
+
+    /**
+     * @return the first row with a distance to the current row of at least {@code minDistance} in sort order
+     */
+    private int rangeStart(List<Object[]> rows, int pEnd, int idx, int peerStart, int prevStart, double minDistance) {
+        Object currentValue = orderByValue.apply(rows.get(idx));
+        if (currentValue == null) {
+            // rows with null values are only in the frame of each other
+            return peerStart;
+        }
+        double current = ((Number) currentValue).doubleValue();
+        int start = prevStart;
+        while (start < pEnd) {
+            Object value = orderByValue.apply(rows.get(start));
+            if (value != null && direction * (((Number) value).doubleValue() - current) >= minDistance) {
+                break;
+            }
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * @return the row after the last row with a distance to the current row of at most {@code maxDistance}
+     */
+    private int rangeEnd(List<Object[]> rows, int pEnd, int idx, int peerEnd, int prevEnd, double maxDistance) {
+        Object currentValue = orderByValue.apply(rows.get(idx));
+        if (currentValue == null) {
+            return peerEnd;
+        }
+        double current = ((Number) currentValue).doubleValue();
+        int end = prevEnd;
+        while (end < pEnd) {
+            Object value = orderByValue.apply(rows.get(end));
+            if (value == null) {
+                if (end < idx) {
+                    // nulls sorted first, they're not part of the frame but the frame ends after them
+                    end++;
+                    continue;
+                }
+                break;
+            }
+            if (direction * (((Number) value).doubleValue() - current) > maxDistance) {
+                break;
+            }
+            end++;
+        }
+        return end;
+    }
+
+    @Override
+    public String toString() {
+        return "WindowFrameBounds{" +
+               "type=" + type +
+               ", start=" + startType + (startOffset == null ? "" : " " + startOffset) +
+               ", end=" + endType + (endOffset == null ? "" : " " + endOffset) +
+               '}';
+    }
+}
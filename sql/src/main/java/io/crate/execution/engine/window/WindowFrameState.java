@@ -34,6 +34,7 @@ public final class WindowFrameState {
     private int lowerBound;
     private int upperBoundExclusive;
     private int partitionStart;
+    private int partitionEnd;
 
     WindowFrameState(int lowerBound, int upperBoundExclusive, List<Object[]> rows) {
         this.lowerBound = lowerBound;
@@ -41,7 +42,7 @@ public final class WindowFrameState {
         this.rows = rows;
     }
 
-    int lowerBound() {
+    public int lowerBound() {
         return lowerBound;
     }
 
@@ -60,6 +61,21 @@ public final class WindowFrameState {
         return upperBoundExclusive - lowerBound;
     }
 
+    /**
+     * Returns the number of rows of the partition the frame belongs to.
+     */
+    int partitionSize() {
+        return partitionEnd - partitionStart;
+    }
+
+    /**
+     * Returns the row at the given index in the partition, regardless of the bounds of the frame.
+     */
+    Object[] getRowInPartition(int index) {
+        assert index >= 0 && index < partitionSize() : "Index " + index + " is not within the partition";
+        return rows.get(partitionStart + index);
+    }
+
     /**
      * Return the row at the given index in the frame or null if the index is out of bounds.
      */
@@ -72,8 +88,9 @@ public final class WindowFrameState {
         return rows.get(globalIdx);
     }
 
-    void updateBounds(int pStart, int wBegin, int wEnd) {
+    void updateBounds(int pStart, int pEnd, int wBegin, int wEnd) {
         this.partitionStart = pStart;
+        this.partitionEnd = pEnd;
         this.lowerBound = wBegin - pStart;
         this.upperBoundExclusive = wEnd - pStart;
     }
@@ -84,6 +101,7 @@ public final class WindowFrameState {
                "lowerBound=" + lowerBound +
                ", upperBoundExclusive=" + upperBoundExclusive +
                ", partitionStart=" + partitionStart +
+               ", partitionEnd=" + partitionEnd +
                '}';
     }
 }
@@ -24,9 +24,11 @@ package io.crate.execution.engine.window;
 
 import com.google.common.collect.Iterables;
 import io.crate.breaker.RowAccounting;
+import io.crate.concurrent.CompletableFutures;
 import io.crate.data.BatchIterator;
 import io.crate.data.BatchIterators;
 import io.crate.data.Buckets;
+import io.crate.data.CloseAssertingBatchIterator;
 import io.crate.data.CollectingBatchIterator;
 import io.crate.data.Input;
 import io.crate.data.Row;
@@ -36,6 +38,8 @@ import org.apache.logging.log4j.Logger;
 import org.elasticsearch.common.logging.Loggers;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
@@ -45,6 +49,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.IntSupplier;
+import java.util.stream.Collector;
 import java.util.stream.Collectors;
 
 /**
@@ -59,6 +64,11 @@ import java.util.stream.Collectors;
  * on a in-memory list with RandomAccess instead of using the BatchIterator interface for the source.
  * </p>
  *
+ * <p>
+ * If the source is already sorted by the PARTITION BY and ORDER BY values, {@link #ofSortedSource} can be used
+ * instead, which only keeps one partition at a time in memory.
+ * </p>
+ *
  * <pre>
  *     Partition
  *      |
@@ -84,6 +94,32 @@ public final class WindowFunctionBatchIterator {
                                         List<WindowFunction> windowFunctions,
                                         List<? extends CollectExpression<Row, ?>> argsExpressions,
                                         Input[]... args) {
+        return of(
+            source,
+            rowAccounting,
+            cmpPartitionBy,
+            cmpOrderBy,
+            WindowFrameBounds.DEFAULT,
+            numCellsInSourceRow,
+            numAvailableThreads,
+            executor,
+            windowFunctions,
+            argsExpressions,
+            args
+        );
+    }
+
+    public static BatchIterator<Row> of(BatchIterator<Row> source,
+                                        RowAccounting rowAccounting,
+                                        Comparator<Object[]> cmpPartitionBy,
+                                        Comparator<Object[]> cmpOrderBy,
+                                        WindowFrameBounds frameBounds,
+                                        int numCellsInSourceRow,
+                                        IntSupplier numAvailableThreads,
+                                        Executor executor,
+                                        List<WindowFunction> windowFunctions,
+                                        List<? extends CollectExpression<Row, ?>> argsExpressions,
+                                        Input[]... args) {
         // As optimization we use 1 list that acts both as inputs(source) and as outputs.
         // The window function results are injected during the computation into spare cells that are eagerly created
         Function<Row, Object[]> materialize = row -> {
@@ -98,6 +134,7 @@ public final class WindowFunctionBatchIterator {
                     rows,
                     cmpPartitionBy,
                     cmpOrderBy,
+                    frameBounds,
                     numCellsInSourceRow,
                     numAvailableThreads,
                     executor,
@@ -110,7 +147,112 @@ public final class WindowFunctionBatchIterator {
         );
     }
 
-    private static Object[] materializeWithSpare(Row row, int numWindowFunctions) {
+    /**
+     * Creates a BatchIterator which computes the window functions over a source that is already sorted by the
+     * PARTITION BY and ORDER BY values. Unlike {@link #of} only one partition at a time is held in memory.
+     */
+    public static BatchIterator<Row> ofSortedSource(BatchIterator<Row> source,
+                                                    RowAccounting rowAccounting,
+                                                    @Nullable Comparator<Object[]> cmpPartitionBy,
+                                                    @Nullable Comparator<Object[]> cmpOrderBy,
+                                                    WindowFrameBounds frameBounds,
+                                                    int numCellsInSourceRow,
+                                                    List<WindowFunction> windowFunctions,
+                                                    List<? extends CollectExpression<Row, ?>> argsExpressions,
+                                                    Input[]... args) {
+        return new CloseAssertingBatchIterator<>(new StreamingWindowFunctionBatchIterator(
+            source,
+            rowAccounting,
+            cmpPartitionBy,
+            cmpOrderBy,
+            frameBounds,
+            numCellsInSourceRow,
+            windowFunctions,
+            argsExpressions,
+            args
+        ));
+    }
+
+    /**
+     * Like {@link #of}, but the rows are buffered in {@link SpillableWindowRows}.
+     * If the rows had to be spilled, the spill files are sorted and computed one after another.
+     */
+    static BatchIterator<Row> ofSpillableRows(BatchIterator<Row> source,
+                                              SpillableWindowRows windowRows,
+                                              Comparator<Object[]> cmpPartitionBy,
+                                              @Nullable Comparator<Object[]> cmpOrderBy,
+                                              WindowFrameBounds frameBounds,
+                                              int numCellsInSourceRow,
+                                              IntSupplier numAvailableThreads,
+                                              Executor executor,
+                                              List<WindowFunction> windowFunctions,
+                                              List<? extends CollectExpression<Row, ?>> argsExpressions,
+                                              Input[]... args) {
+        Comparator<Object[]> cmpPartitionThenOrderBy = joinCmp(cmpPartitionBy, cmpOrderBy);
+        Collector<Row, SpillableWindowRows, SpillableWindowRows> addToWindowRows = Collector.of(
+            () -> windowRows,
+            SpillableWindowRows::add,
+            (rows1, rows2) -> {
+                throw new UnsupportedOperationException("combine not supported");
+            }
+        );
+        Function<SpillableWindowRows, CompletableFuture<Iterable<Object[]>>> computeWindows = bufferedRows -> {
+            if (bufferedRows.spilled() == false) {
+                return sortAndComputeWindowFunctions(
+                    bufferedRows.rows(),
+                    cmpPartitionBy,
+                    cmpOrderBy,
+                    frameBounds,
+                    numCellsInSourceRow,
+                    numAvailableThreads,
+                    executor,
+                    windowFunctions,
+                    argsExpressions,
+                    args
+                );
+            }
+            Iterable<List<Object[]>> partitions;
+            try {
+                partitions = bufferedRows.spilledPartitions();
+            } catch (IOException e) {
+                return CompletableFutures.failedFuture(e);
+            }
+            return CompletableFuture.completedFuture(Iterables.concat(Iterables.transform(partitions, rows -> {
+                rows.sort(cmpPartitionThenOrderBy);
+                return computeWindowFunctions(
+                    rows,
+                    cmpPartitionBy,
+                    cmpOrderBy,
+                    frameBounds,
+                    numCellsInSourceRow,
+                    windowFunctions,
+                    argsExpressions,
+                    args
+                );
+            })));
+        };
+        return CollectingBatchIterator.newInstance(
+            () -> {
+                try {
+                    source.close();
+                } finally {
+                    try {
+                        windowRows.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            },
+            source::kill,
+            () -> BatchIterators
+                .collect(source, addToWindowRows)
+                .thenCompose(computeWindows)
+                .thenApply(rows -> Iterables.transform(rows, Buckets.arrayToSharedRow()::apply)),
+            true
+        );
+    }
+
+    static Object[] materializeWithSpare(Row row, int numWindowFunctions) {
         Object[] cells = new Object[row.numColumns() + numWindowFunctions];
         for (int i = 0; i < row.numColumns(); i++) {
             cells[i] = row.get(i);
@@ -128,11 +270,37 @@ public final class WindowFunctionBatchIterator {
         List<WindowFunction> windowFunctions,
         List<? extends CollectExpression<Row, ?>> argsExpressions,
         Input[]... args) {
+        return sortAndComputeWindowFunctions(
+            rows,
+            cmpPartitionBy,
+            cmpOrderBy,
+            WindowFrameBounds.DEFAULT,
+            numCellsInSourceRow,
+            numAvailableThreads,
+            executor,
+            windowFunctions,
+            argsExpressions,
+            args
+        );
+    }
+
+    static CompletableFuture<Iterable<Object[]>> sortAndComputeWindowFunctions(
+        List<Object[]> rows,
+        @Nullable Comparator<Object[]> cmpPartitionBy,
+        @Nullable Comparator<Object[]> cmpOrderBy,
+        WindowFrameBounds frameBounds,
+        int numCellsInSourceRow,
+        IntSupplier numAvailableThreads,
+        Executor executor,
+        List<WindowFunction> windowFunctions,
+        List<? extends CollectExpression<Row, ?>> argsExpressions,
+        Input[]... args) {
 
         Function<List<Object[]>, Iterable<Object[]>> computeWindowsFn = sortedRows -> computeWindowFunctions(
             sortedRows,
             cmpPartitionBy,
             cmpOrderBy,
+            frameBounds,
             numCellsInSourceRow,
             windowFunctions,
             argsExpressions,
@@ -148,13 +316,14 @@ public final class WindowFunctionBatchIterator {
         }
     }
 
-    private static Iterable<Object[]> computeWindowFunctions(List<Object[]> sortedRows,
-                                                             @Nullable Comparator<Object[]> cmpPartitionBy,
-                                                             @Nullable Comparator<Object[]> cmpOrderBy,
-                                                             int numCellsInSourceRow,
-                                                             List<WindowFunction> windowFunctions,
-                                                             List<? extends CollectExpression<Row, ?>> argsExpressions,
-                                                             Input[]... args) {
+    static Iterable<Object[]> computeWindowFunctions(List<Object[]> sortedRows,
+                                                     @Nullable Comparator<Object[]> cmpPartitionBy,
+                                                     @Nullable Comparator<Object[]> cmpOrderBy,
+                                                     WindowFrameBounds frameBounds,
+                                                     int numCellsInSourceRow,
+                                                     List<WindowFunction> windowFunctions,
+                                                     List<? extends CollectExpression<Row, ?>> argsExpressions,
+                                                     Input[]... args) {
         return () -> new Iterator<>() {
 
             private boolean isTraceEnabled = LOGGER.isTraceEnabled();
@@ -168,6 +337,12 @@ public final class WindowFunctionBatchIterator {
             private int i = 0;
             private int idxInPartition = 0;
 
+            // peers are rows with the same ORDER BY values as the current row
+            private int peerStart = pStart;
+            private int peerEnd = pStart;
+            private int wBegin = pStart;
+            private int wEnd = pStart;
+
             @Override
             public boolean hasNext() {
                 return i < end;
@@ -182,10 +357,17 @@ public final class WindowFunctionBatchIterator {
                     pStart = i;
                     idxInPartition = 0;
                     pEnd = findFirstNonPeer(sortedRows, pStart, end, cmpPartitionBy);
+                    peerEnd = pStart;
+                    wBegin = pStart;
+                    wEnd = pStart;
+                }
+                if (i >= peerEnd) {
+                    peerStart = i;
+                    peerEnd = findFirstNonPeer(sortedRows, i, pEnd, cmpOrderBy);
                 }
-                int wBegin = pStart; // UNBOUNDED PRECEDING -> Frame always starts at the start of the partition
-                int wEnd = findFirstNonPeer(sortedRows, i, pEnd, cmpOrderBy);
-                frame.updateBounds(pStart, wBegin, wEnd);
+                wBegin = frameBounds.start(sortedRows, pStart, pEnd, i, peerStart, wBegin);
+                wEnd = Math.max(wBegin, frameBounds.endExclusive(sortedRows, pStart, pEnd, i, peerEnd, wEnd));
+                frame.updateBounds(pStart, pEnd, wBegin, wEnd);
                 final Object[] row = computeAndInjectResults(
                     sortedRows, numCellsInSourceRow, windowFunctions, frame, i, idxInPartition, argsExpressions, args);
 
@@ -23,10 +23,16 @@
 package io.crate.execution.engine.window;
 
 import com.google.common.base.Supplier;
+import io.crate.Streamer;
+import io.crate.analyze.FrameBoundDefinition;
 import io.crate.analyze.OrderBy;
+import io.crate.analyze.WindowDefinition;
+import io.crate.analyze.WindowFrameDefinition;
 import io.crate.breaker.RamAccountingContext;
 import io.crate.breaker.RowAccounting;
 import io.crate.breaker.RowAccountingWithEstimators;
+import io.crate.breaker.ScopedRamAccounting;
+import io.crate.data.ArrayRow;
 import io.crate.data.BatchIterator;
 import io.crate.data.Input;
 import io.crate.data.Projector;
@@ -40,16 +46,25 @@ import io.crate.expression.symbol.Symbols;
 import io.crate.metadata.FunctionImplementation;
 import io.crate.metadata.Functions;
 import io.crate.metadata.TransactionContext;
+import io.crate.sql.tree.FrameBound;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
 import org.elasticsearch.Version;
 import org.elasticsearch.common.util.BigArrays;
 
+import javax.annotation.Nullable;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.function.IntSupplier;
+import java.util.function.ToIntFunction;
 
 import static io.crate.execution.engine.sort.Comparators.createComparator;
 
@@ -57,6 +72,7 @@ public class WindowProjector implements Projector {
 
     private final Comparator<Object[]> cmpPartitionBy;
     private final Comparator<Object[]> cmpOrderBy;
+    private final WindowFrameBounds frameBounds;
     private final int cellOffset;
     private final ArrayList<WindowFunction> windowFunctions;
     private final List<CollectExpression<Row, ?>> argsExpressions;
@@ -64,6 +80,8 @@ public class WindowProjector implements Projector {
     private final IntSupplier numThreads;
     private final Executor executor;
     private final RowAccounting rowAccounting;
+    private final boolean sourceIsSorted;
+    private final Supplier<SpillableWindowRows> createSpillableRows;
 
     public static WindowProjector fromProjection(WindowAggProjection projection,
                                                  Functions functions,
@@ -73,7 +91,9 @@ public class WindowProjector implements Projector {
                                                  BigArrays bigArrays,
                                                  Version indexVersionCreated,
                                                  IntSupplier numThreads,
-                                                 Executor executor) {
+                                                 Executor executor,
+                                                 double spillThreshold,
+                                                 @Nullable Path spillPath) {
         LinkedHashMap<io.crate.expression.symbol.WindowFunction, List<Symbol>> functionsWithInputs = projection.functionsWithInputs();
         ArrayList<WindowFunction> windowFunctions = new ArrayList<>(functionsWithInputs.size());
         List<CollectExpression<Row, ?>> windowFuncArgsExpressions = new ArrayList<>(functionsWithInputs.size());
@@ -106,12 +126,32 @@ public class WindowProjector implements Projector {
         Supplier<InputFactory.Context<CollectExpression<Row, ?>>> createInputFactoryContext =
             () -> inputFactory.ctxForInputColumns(txnCtx);
         int arrayListElementOverHead = 32;
+        List<DataType> sourceTypes = Symbols.typeView(projection.standalone());
+        // only the bytes of the buffered rows must be released once they are emitted or spilled,
+        // the window functions account their memory within the same context
         RowAccountingWithEstimators accounting = new RowAccountingWithEstimators(
-            Symbols.typeView(projection.standalone()), ramAccountingContext, arrayListElementOverHead);
+            sourceTypes, new ScopedRamAccounting(ramAccountingContext), arrayListElementOverHead);
+        Supplier<SpillableWindowRows> createSpillableRows = null;
+        if (spillPath != null && !partitions.isEmpty() && !projection.sourceIsSorted()) {
+            Streamer<?>[] streamers = DataTypes.getStreamers(sourceTypes);
+            ToIntFunction<Object[]> partitionHash = createPartitionHash(partitions, createInputFactoryContext);
+            createSpillableRows = () -> new SpillableWindowRows(
+                accounting,
+                ramAccountingContext,
+                spillThreshold,
+                spillPath,
+                streamers,
+                partitionHash,
+                windowFunctions.size()
+            );
+        }
         return new WindowProjector(
             accounting,
+            projection.sourceIsSorted(),
+            createSpillableRows,
             partitions.isEmpty() ? null : createComparator(createInputFactoryContext, new OrderBy(windowDefinition.partitions())),
             createComparator(createInputFactoryContext, windowDefinition.orderBy()),
+            createFrameBounds(windowDefinition, createInputFactoryContext),
             projection.standalone().size(),
             windowFunctions,
             windowFuncArgsExpressions,
@@ -121,9 +161,100 @@ public class WindowProjector implements Projector {
         );
     }
 
+    static <T extends CollectExpression<Row, ?>> WindowFrameBounds createFrameBounds(
+        WindowDefinition windowDefinition,
+        Supplier<InputFactory.Context<T>> createInputFactoryContext) {
+
+        WindowFrameDefinition frameDefinition = windowDefinition.windowFrameDefinition();
+        if (frameDefinition.equals(WindowDefinition.DEFAULT_WINDOW_FRAME)) {
+            return WindowFrameBounds.DEFAULT;
+        }
+        FrameBoundDefinition start = frameDefinition.start();
+        FrameBoundDefinition end = frameDefinition.end() == null
+            ? new FrameBoundDefinition(FrameBound.Type.CURRENT_ROW)
+            : frameDefinition.end();
+        Function<Object[], Object> orderByValue = null;
+        boolean descending = false;
+        OrderBy orderBy = windowDefinition.orderBy();
+        if (orderBy != null && orderBy.orderBySymbols().size() == 1) {
+            InputFactory.Context<T> ctx = createInputFactoryContext.get();
+            Input<?> input = ctx.add(orderBy.orderBySymbols().get(0));
+            List<T> expressions = ctx.expressions();
+            ArrayRow row = new ArrayRow();
+            orderByValue = cells -> {
+                row.cells(cells);
+                for (int i = 0; i < expressions.size(); i++) {
+                    expressions.get(i).setNextRow(row);
+                }
+                return input.value();
+            };
+            descending = orderBy.reverseFlags()[0];
+        }
+        return new WindowFrameBounds(
+            frameDefinition.type(),
+            start.type(),
+            evaluateOffset(start, createInputFactoryContext),
+            end.type(),
+            evaluateOffset(end, createInputFactoryContext),
+            orderByValue,
+            descending
+        );
+    }
+
+    /**
+     * Creates a function which computes a hash of the PARTITION BY values of a row.
+     * Rows which belong to the same window partition have the same hash.
+     */
+    private static ToIntFunction<Object[]> createPartitionHash(
+        List<Symbol> partitions,
+        Supplier<InputFactory.Context<CollectExpression<Row, ?>>> createInputFactoryContext) {
+
+        InputFactory.Context<CollectExpression<Row, ?>> ctx = createInputFactoryContext.get();
+        ctx.add(partitions);
+        List<Input<?>> inputs = ctx.topLevelInputs();
+        List<CollectExpression<Row, ?>> expressions = ctx.expressions();
+        ArrayRow row = new ArrayRow();
+        return cells -> {
+            row.cells(cells);
+            for (int i = 0; i < expressions.size(); i++) {
+                expressions.get(i).setNextRow(row);
+            }
+            int hash = 1;
+            for (int i = 0; i < inputs.size(); i++) {
+                Object value = inputs.get(i).value();
+                if (value instanceof Object[]) {
+                    hash = 31 * hash + Arrays.deepHashCode((Object[]) value);
+                } else {
+                    hash = 31 * hash + Objects.hashCode(value);
+                }
+            }
+            return hash;
+        };
+    }
+
+    @Nullable
+    private static <T extends CollectExpression<Row, ?>> Number evaluateOffset(
+        FrameBoundDefinition bound,
+        Supplier<InputFactory.Context<T>> createInputFactoryContext) {
+
+        Symbol value = bound.value();
+        if (value == null) {
+            return null;
+        }
+        Object offset = createInputFactoryContext.get().add(value).value();
+        if (!(offset instanceof Number)) {
+            throw new IllegalArgumentException(
+                "Frame " + bound.type().name() + " offset must be a numeric value, got: " + offset);
+        }
+        return (Number) offset;
+    }
+
     private WindowProjector(RowAccounting rowAccounting,
+                            boolean sourceIsSorted,
+                            @Nullable Supplier<SpillableWindowRows> createSpillableRows,
                             Comparator<Object[]> cmpPartitionBy,
                             Comparator<Object[]> cmpOrderBy,
+                            WindowFrameBounds frameBounds,
                             int cellOffset,
                             ArrayList<WindowFunction> windowFunctions,
                             List<CollectExpression<Row, ?>> argsExpressions,
@@ -131,8 +262,11 @@ public class WindowProjector implements Projector {
                             IntSupplier numThreads,
                             Executor executor) {
         this.rowAccounting = rowAccounting;
+        this.sourceIsSorted = sourceIsSorted;
+        this.createSpillableRows = createSpillableRows;
         this.cmpPartitionBy = cmpPartitionBy;
         this.cmpOrderBy = cmpOrderBy;
+        this.frameBounds = frameBounds;
         this.cellOffset = cellOffset;
         this.windowFunctions = windowFunctions;
         this.argsExpressions = argsExpressions;
@@ -143,11 +277,40 @@ public class WindowProjector implements Projector {
 
     @Override
     public BatchIterator<Row> apply(BatchIterator<Row> source) {
+        if (sourceIsSorted) {
+            return WindowFunctionBatchIterator.ofSortedSource(
+                source,
+                rowAccounting,
+                cmpPartitionBy,
+                cmpOrderBy,
+                frameBounds,
+                cellOffset,
+                windowFunctions,
+                argsExpressions,
+                args
+            );
+        }
+        if (createSpillableRows != null) {
+            return WindowFunctionBatchIterator.ofSpillableRows(
+                source,
+                createSpillableRows.get(),
+                cmpPartitionBy,
+                cmpOrderBy,
+                frameBounds,
+                cellOffset,
+                numThreads,
+                executor,
+                windowFunctions,
+                argsExpressions,
+                args
+            );
+        }
         return WindowFunctionBatchIterator.of(
             source,
             rowAccounting,
             cmpPartitionBy,
             cmpOrderBy,
+            frameBounds,
             cellOffset,
             numThreads,
             executor,
@@ -30,6 +30,8 @@ import java.util.concurrent.CompletableFuture;
 /**
  * A {@link DownstreamRXTask} which receives paged buckets from upstreams
  * and forwards the merged bucket results to the consumers for further processing.
+ *
+ * Upstreams may send several pages without waiting for a response, see {@link PipelinedPageBucketReceiver}.
  */
 public class DistResultRXTask implements Task, DownstreamRXTask {
 
@@ -47,7 +49,8 @@ public class DistResultRXTask implements Task, DownstreamRXTask {
         this.id = id;
         this.name = name;
         this.numBuckets = numBuckets;
-        this.pageBucketReceiver = pageBucketReceiver;
+        this.pageBucketReceiver = new PipelinedPageBucketReceiver(
+            pageBucketReceiver, PipelinedPageBucketReceiver.DEFAULT_PAGE_CREDITS);
         this.completionFuture = pageBucketReceiver.completionFuture().handle((result, ex) -> {
             long bytesUsed = ramAccountingContext.totalBytes();
             ramAccountingContext.close();
@@ -74,10 +74,12 @@ import io.crate.execution.engine.distribution.StreamBucket;
 import io.crate.execution.engine.distribution.merge.PagingIterator;
 import io.crate.execution.engine.fetch.FetchTask;
 import io.crate.execution.engine.join.HashJoinOperation;
+import io.crate.execution.engine.join.HashJoinPartitions;
 import io.crate.execution.engine.join.NestedLoopOperation;
 import io.crate.execution.engine.pipeline.ProjectingRowConsumer;
 import io.crate.execution.engine.pipeline.ProjectionToProjectorVisitor;
 import io.crate.execution.engine.pipeline.ProjectorFactory;
+import io.crate.execution.engine.spill.SpillSettings;
 import io.crate.expression.InputFactory;
 import io.crate.expression.RowFilter;
 import io.crate.expression.eval.EvaluatingNormalizer;
@@ -102,6 +104,7 @@ import org.elasticsearch.node.Node;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import javax.annotation.Nullable;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collection;
@@ -133,6 +136,8 @@ public class JobSetup {
     private final PKLookupOperation pkLookupOperation;
     private final ExecutorService searchTp;
     private final String nodeName;
+    @Nullable
+    private final Path spillPath;
 
     @Inject
     public JobSetup(Settings settings,
@@ -150,6 +155,8 @@ public class JobSetup {
                     ShardCollectSource shardCollectSource,
                     BigArrays bigArrays) {
         this.nodeName = Node.NODE_NAME_SETTING.get(settings);
+        double spillThreshold = SpillSettings.SPILL_THRESHOLD_SETTING.setting().get(settings);
+        this.spillPath = SpillSettings.isSpillEnabled(spillThreshold) ? SpillSettings.spillPath(settings) : null;
         this.collectOperation = collectOperation;
         this.clusterService = clusterService;
         this.countOperation = countOperation;
@@ -823,10 +830,22 @@ public class JobSetup {
                 lastConsumer, phase.projections(), phase.jobId(), context.txnCtx(), ramAccountingContext, projectorFactory);
             Predicate<Row> joinCondition = RowFilter.create(context.transactionContext, inputFactory, phase.joinCondition());
 
+            HashJoinPartitions partitions = null;
+            // A distributed join must not consume the whole left side before it switches to the right side,
+            // this could dead lock with the other nodes executing the join (see RamBlockSizeCalculator)
+            if (spillPath != null && phase.nodeIds().size() == 1) {
+                partitions = new HashJoinPartitions(
+                    spillPath,
+                    DataTypes.getStreamers(phase.leftOutputTypes()),
+                    DataTypes.getStreamers(phase.rightOutputTypes()),
+                    phase.numberOfRowsForLeft()
+                );
+            }
             HashJoinOperation joinOperation = new HashJoinOperation(
                 phase.numLeftOutputs(),
                 phase.numRightOutputs(),
                 firstConsumer,
+                phase.joinType(),
                 joinCondition,
                 phase.leftJoinConditionInputs(),
                 phase.rightJoinConditionInputs(),
@@ -839,7 +858,9 @@ public class JobSetup {
                 inputFactory,
                 breaker(),
                 phase.estimatedRowSizeForLeft(),
-                phase.numberOfRowsForLeft());
+                phase.numberOfRowsForLeft(),
+                partitions,
+                phase.runtimeFilterColumn());
             DistResultRXTask left = pageDownstreamContextForNestedLoop(
                 phase.phaseId(),
                 context,
@@ -860,6 +881,14 @@ public class JobSetup {
             );
             if (right != null) {
                 context.registerSubContext(right);
+                if (phase.runtimeFilterColumn() >= 0) {
+                    PageBucketReceiver rightReceiver = right.getBucketReceiver((byte) 0);
+                    joinOperation.runtimeFilter().thenAccept(runtimeFilter -> {
+                        if (runtimeFilter != null) {
+                            rightReceiver.setRuntimeFilter(runtimeFilter);
+                        }
+                    });
+                }
             }
             context.registerSubContext(new JoinTask(
                 phase,
@@ -28,7 +28,9 @@ import io.crate.data.Bucket;
 import io.crate.data.Killable;
 import io.crate.execution.dsl.phases.MergePhase;
 import io.crate.execution.engine.distribution.DistributingConsumerFactory;
+import io.crate.execution.engine.distribution.RuntimeFilter;
 
+import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.concurrent.CompletableFuture;
 
@@ -72,6 +74,42 @@ public interface PageBucketReceiver extends CompletionListenable, Killable {
      */
     void setBucket(int bucketIdx, Bucket rows, boolean isLast, PageResultListener pageResultListener);
 
+    /**
+     * Receives a page of a bucket from an upstream which may send several pages without waiting for the
+     * {@link PageResultListener} of the previous page to be called. The pages of a bucket can arrive in any order,
+     * {@code pageIdx} is used to restore their order.
+     * <p>
+     * Receivers which don't support pages in flight ({@link #pageCredits()} is 1) can only receive the pages in order,
+     * so the default implementation ignores the {@code pageIdx}.
+     * @param pageIdx The index of the page within the bucket, starting with 0.
+     */
+    default void setBucket(int bucketIdx, int pageIdx, Bucket rows, boolean isLast, PageResultListener pageResultListener) {
+        setBucket(bucketIdx, rows, isLast, pageResultListener);
+    }
+
+    /**
+     * The number of pages each upstream may send before it has to wait for a {@link PageResultListener} response.
+     * This is communicated to the upstreams with each response.
+     */
+    default int pageCredits() {
+        return 1;
+    }
+
+    /**
+     * Sets a filter which is sent to the upstreams with the next response, so that they can skip rows which aren't
+     * needed. Receivers which can't pass the filter on ignore it.
+     */
+    default void setRuntimeFilter(RuntimeFilter runtimeFilter) {
+    }
+
+    /**
+     * @return the filter if it hasn't been sent to the upstream of the bucket yet, otherwise null.
+     */
+    @Nullable
+    default RuntimeFilter takeRuntimeFilter(int bucketIdx) {
+        return null;
+    }
+
     Streamer<?>[] streamers();
 
     /**
@@ -0,0 +1,280 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.execution.jobs;
+
+import io.crate.Streamer;
+import io.crate.data.Bucket;
+import io.crate.execution.engine.distribution.RuntimeFilter;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link PageBucketReceiver} which allows upstreams to have several pages of their bucket in flight.
+ * <p>
+ * Up to {@code pageCredits - 1} pages of an upstream are buffered and acknowledged right away; once the buffer is full
+ * the response to a page is delayed until it can be buffered or the delegate consumed it.
+ * The pages are forwarded to the delegate one at a time and ordered by their page index, so that the delegate sees
+ * the same sequence of pages as if the upstream waited for each response.
+ * <p>
+ * Buckets set without a page index are forwarded to the delegate as is.
+ * <p>
+ * A {@link RuntimeFilter} is handed out once per upstream, see {@link #takeRuntimeFilter(int)}.
+ */
+class PipelinedPageBucketReceiver implements PageBucketReceiver {
+
+    static final int DEFAULT_PAGE_CREDITS = 4;
+
+    private final PageBucketReceiver delegate;
+    private final int pageCredits;
+    private final Map<Integer, Upstream> upstreamsByBucketIdx = new ConcurrentHashMap<>();
+    private final Set<Integer> bucketIdxsWithRuntimeFilter = ConcurrentHashMap.newKeySet();
+    @Nullable
+    private volatile RuntimeFilter runtimeFilter;
+
+    PipelinedPageBucketReceiver(PageBucketReceiver delegate, int pageCredits) {
+        assert pageCredits > 0 : "pageCredits must be greater than 0";
+        this.delegate = delegate;
+        this.pageCredits = pageCredits;
+        delegate.completionFuture().whenComplete((result, t) -> {
+            for (Upstream upstream : upstreamsByBucketIdx.values()) {
+                upstream.finish();
+            }
+        });
+    }
+
+    @Override
+    public void setBucket(int bucketIdx, Bucket rows, boolean isLast, PageResultListener pageResultListener) {
+        delegate.setBucket(bucketIdx, rows, isLast, pageResultListener);
+    }
+
+    @Override
+    public void setBucket(int bucketIdx, int pageIdx, Bucket rows, boolean isLast, PageResultListener pageResultListener) {
+        if (delegate.completionFuture().isDone()) {
+            // the delegate releases the listener
+            delegate.setBucket(bucketIdx, rows, isLast, pageResultListener);
+            return;
+        }
+        Upstream upstream = upstreamsByBucketIdx.computeIfAbsent(bucketIdx, Upstream::new);
+        upstream.receive(pageIdx, new Page(rows, isLast, pageResultListener));
+        if (delegate.completionFuture().isDone()) {
+            // completed concurrently, the completion might have missed this upstream
+            upstream.finish();
+        }
+    }
+
+    @Override
+    public int pageCredits() {
+        return pageCredits;
+    }
+
+    @Override
+    public void setRuntimeFilter(RuntimeFilter runtimeFilter) {
+        this.runtimeFilter = runtimeFilter;
+    }
+
+    @Nullable
+    @Override
+    public RuntimeFilter takeRuntimeFilter(int bucketIdx) {
+        RuntimeFilter filter = runtimeFilter;
+        if (filter != null && bucketIdxsWithRuntimeFilter.add(bucketIdx)) {
+            return filter;
+        }
+        return null;
+    }
+
+    @Override
+    public Streamer<?>[] streamers() {
+        return delegate.streamers();
+    }
+
+    @Override
+    public CompletableFuture<?> completionFuture() {
+        return delegate.completionFuture();
+    }
+
+    @Override
+    public void consumeRows() {
+        delegate.consumeRows();
+    }
+
+    @Override
+    public void kill(@Nonnull Throwable t) {
+        delegate.kill(t);
+    }
+
+    @Override
+    public String toString() {
+        return "PipelinedPageBucketReceiver{" +
+               "pageCredits=" + pageCredits +
+               ", delegate=" + delegate +
+               '}';
+    }
+
+    private static class Page {
+
+        private final Bucket rows;
+        private final boolean isLast;
+        private final PageResultListener listener;
+        private boolean acknowledged = false;
+
+        Page(Bucket rows, boolean isLast, PageResultListener listener) {
+            this.rows = rows;
+            this.isLast = isLast;
+            this.listener = listener;
+        }
+    }
+
+    private class Upstream {
+
+        private final int bucketIdx;
+
+        @GuardedBy("this")
+        private final TreeMap<Integer, Page> pendingPages = new TreeMap<>();
+        @GuardedBy("this")
+        private int nextPageIdx = 0;
+        @GuardedBy("this")
+        private int numAcknowledgedPendingPages = 0;
+        @GuardedBy("this")
+        private boolean delegateHasPage = false;
+        @GuardedBy("this")
+        private boolean forwarding = false;
+        @GuardedBy("this")
+        private boolean finished = false;
+
+        Upstream(int bucketIdx) {
+            this.bucketIdx = bucketIdx;
+        }
+
+        void receive(int pageIdx, Page page) {
+            boolean isFinished;
+            boolean acknowledge = false;
+            synchronized (this) {
+                isFinished = finished;
+                if (isFinished == false) {
+                    pendingPages.put(pageIdx, page);
+                    acknowledge = tryAcknowledge(page);
+                }
+            }
+            if (isFinished) {
+                page.listener.needMore(false);
+                return;
+            }
+            if (acknowledge) {
+                page.listener.needMore(true);
+            }
+            forwardNextPage();
+        }
+
+        @GuardedBy("this")
+        private boolean tryAcknowledge(Page page) {
+            // The last page is always answered by the delegate, it decides if the upstream is done
+            if (page.isLast || numAcknowledgedPendingPages >= pageCredits - 1) {
+                return false;
+            }
+            page.acknowledged = true;
+            numAcknowledgedPendingPages++;
+            return true;
+        }
+
+        private void forwardNextPage() {
+            while (true) {
+                Page page;
+                Page acknowledgedPage = null;
+                synchronized (this) {
+                    // If the delegate responds within setBucket, the loop of the outer call forwards the next page.
+                    // This keeps the order in which the delegate processes the pages.
+                    if (finished || delegateHasPage || forwarding) {
+                        return;
+                    }
+                    page = pendingPages.remove(nextPageIdx);
+                    if (page == null) {
+                        return;
+                    }
+                    nextPageIdx++;
+                    delegateHasPage = true;
+                    forwarding = true;
+                    if (page.acknowledged) {
+                        // the page left the buffer, the free slot is granted to the oldest page waiting for a response
+                        numAcknowledgedPendingPages--;
+                        for (Page pendingPage : pendingPages.values()) {
+                            if (pendingPage.acknowledged == false) {
+                                if (tryAcknowledge(pendingPage)) {
+                                    acknowledgedPage = pendingPage;
+                                }
+                                break;
+                            }
+                        }
+                    }
+                }
+                if (acknowledgedPage != null) {
+                    acknowledgedPage.listener.needMore(true);
+                }
+                try {
+                    delegate.setBucket(bucketIdx, page.rows, page.isLast, needMore -> onDelegateResponse(page, needMore));
+                } finally {
+                    synchronized (this) {
+                        forwarding = false;
+                    }
+                }
+            }
+        }
+
+        private void onDelegateResponse(Page page, boolean needMore) {
+            if (page.acknowledged == false) {
+                page.listener.needMore(needMore);
+            }
+            if (needMore) {
+                synchronized (this) {
+                    delegateHasPage = false;
+                }
+                forwardNextPage();
+            } else {
+                finish();
+            }
+        }
+
+        void finish() {
+            List<PageResultListener> listeners = new ArrayList<>();
+            synchronized (this) {
+                finished = true;
+                for (Page pendingPage : pendingPages.values()) {
+                    if (pendingPage.acknowledged == false) {
+                        listeners.add(pendingPage.listener);
+                    }
+                }
+                pendingPages.clear();
+            }
+            for (PageResultListener listener : listeners) {
+                listener.needMore(false);
+            }
+        }
+    }
+}
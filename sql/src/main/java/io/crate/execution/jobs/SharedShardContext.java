@@ -65,7 +65,8 @@ public class SharedShardContext {
     public Engine.Searcher acquireSearcher() throws IndexNotFoundException {
         if (searcher == null) {
             Engine.Searcher searcher = indexShard().acquireSearcher("shared-shard-context");
-            this.searcher = RefCountSearcher.create(searcher, wrapSearcher);
+            // once all references are released the searcher is closed, the next caller must acquire a new one
+            this.searcher = RefCountSearcher.create(searcher, wrapSearcher, () -> this.searcher = null);
         }
         searcher.inc();
         return searcher;
@@ -93,14 +94,18 @@ public class SharedShardContext {
 
         private final AtomicInteger refs = new AtomicInteger();
         private final Engine.Searcher searcher;
+        private final Runnable onClose;
 
-        static RefCountSearcher create(Engine.Searcher searcher, UnaryOperator<IndexSearcher> wrapSearcher) {
-            return new RefCountSearcher(searcher, wrapSearcher.apply(searcher.searcher()));
+        static RefCountSearcher create(Engine.Searcher searcher,
+                                       UnaryOperator<IndexSearcher> wrapSearcher,
+                                       Runnable onClose) {
+            return new RefCountSearcher(searcher, wrapSearcher.apply(searcher.searcher()), onClose);
         }
 
-        private RefCountSearcher(Engine.Searcher searcher, IndexSearcher indexSearcher) {
+        private RefCountSearcher(Engine.Searcher searcher, IndexSearcher indexSearcher, Runnable onClose) {
             super(searcher.source(), indexSearcher, () -> {});
             this.searcher = searcher;
+            this.onClose = onClose;
         }
 
         @Override
@@ -113,6 +118,7 @@ public class SharedShardContext {
             int remainingRefs = refs.decrementAndGet();
             traceLog(remainingRefs, "Close called on RefCountSearcher; Remaining refs: {}");
             if (remainingRefs == 0) {
+                onClose.run();
                 searcher.close();
             }
         }
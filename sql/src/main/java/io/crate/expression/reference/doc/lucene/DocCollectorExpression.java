@@ -26,6 +26,7 @@ import io.crate.metadata.doc.DocSysColumns;
 import io.crate.types.DataType;
 import org.apache.lucene.index.LeafReaderContext;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -41,6 +42,7 @@ public class DocCollectorExpression extends LuceneCollectorExpression<Map<String
     @Override
     public void startCollect(CollectorContext context) {
         sourceLookup = context.sourceLookup();
+        sourceLookup.register(Collections.emptyList());
     }
 
     @Override
@@ -92,6 +94,7 @@ public class DocCollectorExpression extends LuceneCollectorExpression<Map<String
         @Override
         public void startCollect(CollectorContext context) {
             sourceLookup = context.sourceLookup();
+            sourceLookup.register(path);
         }
 
         @Override
@@ -38,9 +38,11 @@ import java.util.RandomAccess;
 public final class SourceLookup {
 
     private final SourceFieldVisitor fieldsVisitor = new SourceFieldVisitor();
+    private final SourceParser sourceParser = new SourceParser();
     private LeafReader reader;
     private int doc;
     private Map<String, Object> source;
+    private boolean sourceIsPartial = false;
     private boolean docVisited = false;
 
     SourceLookup() {
@@ -54,17 +56,41 @@ public final class SourceLookup {
         fieldsVisitor.reset();
         this.docVisited = false;
         this.source = null;
+        this.sourceIsPartial = false;
         this.reader = context.reader();
         this.doc = doc;
     }
 
+    /**
+     * Registers a path which will be looked up using {@link #get(List)}.
+     * If all looked up paths are registered, only the values of the registered paths are parsed from the source.
+     * An empty path is used to register the whole source.
+     */
+    public void register(List<String> path) {
+        sourceParser.register(path);
+    }
+
     public Object get(List<String> path) {
-        ensureSourceParsed();
+        if (source == null) {
+            if (sourceParser.covers(path) && !sourceParser.coversFullSource()) {
+                ensureDocVisited();
+                source = sourceParser.parse(fieldsVisitor.source());
+                sourceIsPartial = true;
+            } else {
+                source = loadSource();
+            }
+        } else if (sourceIsPartial && !sourceParser.covers(path)) {
+            source = loadSource();
+            sourceIsPartial = false;
+        }
         return extractValue(source, path, 0);
     }
 
     public Map<String, Object> sourceAsMap() {
-        ensureSourceParsed();
+        if (source == null || sourceIsPartial) {
+            source = loadSource();
+            sourceIsPartial = false;
+        }
         return source;
     }
 
@@ -78,12 +104,6 @@ public final class SourceLookup {
         return XContentHelper.convertToMap(fieldsVisitor.source(), false, XContentType.JSON).v2();
     }
 
-    private void ensureSourceParsed() {
-        if (source == null) {
-            source = loadSource();
-        }
-    }
-
     private void ensureDocVisited() {
         if (docVisited) {
             return;
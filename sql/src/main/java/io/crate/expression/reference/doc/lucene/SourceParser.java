@@ -0,0 +1,190 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.expression.reference.doc.lucene;
+
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses the {@code _source} of a document into a map which only contains the registered paths.
+ * <p>
+ * The source is parsed as a stream; sub-trees which aren't part of any registered path are skipped without
+ * creating any objects, and parsing stops as soon as all registered top-level columns have been read.
+ * <p>
+ * Values of the resulting map are equal to the values of the full source map for all registered paths,
+ * so that {@link SourceLookup#extractValue(Map, List, int)} can be used on either of them.
+ */
+final class SourceParser {
+
+    private final Node root = new Node();
+
+    /**
+     * Register a path which must be included in the parsed map. An empty path registers the whole source.
+     */
+    void register(List<String> path) {
+        Node node = root;
+        for (String name : path) {
+            if (node.includeAll) {
+                return;
+            }
+            node = node.children.computeIfAbsent(name, k -> new Node());
+        }
+        node.includeAll = true;
+        node.children.clear();
+    }
+
+    /**
+     * @return true if the values of {@code path} are included in the map returned by {@link #parse(BytesReference)}
+     */
+    boolean covers(List<String> path) {
+        Node node = root;
+        for (int i = 0; i < path.size(); i++) {
+            if (node.includeAll) {
+                return true;
+            }
+            node = node.children.get(path.get(i));
+            if (node == null) {
+                return false;
+            }
+        }
+        return node.includeAll;
+    }
+
+    boolean coversFullSource() {
+        return root.includeAll;
+    }
+
+    Map<String, Object> parse(BytesReference source) {
+        try (XContentParser parser = XContentHelper.createParser(
+            NamedXContentRegistry.EMPTY,
+            DeprecationHandler.THROW_UNSUPPORTED_OPERATION,
+            source,
+            XContentType.JSON)) {
+
+            XContentParser.Token token = parser.nextToken();
+            if (root.includeAll) {
+                return parser.map();
+            }
+            if (token != XContentParser.Token.START_OBJECT) {
+                throw new ElasticsearchParseException("Failed to parse source, expected an object but got " + token);
+            }
+            return parseObject(parser, root, true);
+        } catch (IOException e) {
+            throw new ElasticsearchParseException("Failed to parse source", e);
+        }
+    }
+
+    /**
+     * Parses the object the parser is positioned on (START_OBJECT)
+     *
+     * @param isRoot if true the parser isn't advanced to the end of the object once all required children are read.
+     */
+    private static Map<String, Object> parseObject(XContentParser parser, Node node, boolean isRoot) throws IOException {
+        HashMap<String, Object> map = new HashMap<>();
+        int missingChildren = node.children.size();
+        if (missingChildren == 0 && isRoot) {
+            return map;
+        }
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) == XContentParser.Token.FIELD_NAME) {
+            String name = parser.currentName();
+            token = parser.nextToken();
+            Node child = missingChildren == 0 ? null : node.children.get(name);
+            if (child == null) {
+                parser.skipChildren();
+                continue;
+            }
+            if (map.containsKey(name) == false) {
+                // only count the first occurrence, the source may contain duplicate keys
+                missingChildren--;
+            }
+            map.put(name, parseValue(parser, token, child));
+            if (missingChildren == 0 && isRoot) {
+                return map;
+            }
+        }
+        assert token == XContentParser.Token.END_OBJECT : "Expected END_OBJECT but got " + token;
+        return map;
+    }
+
+    private static Object parseValue(XContentParser parser, XContentParser.Token token, Node node) throws IOException {
+        if (token == XContentParser.Token.START_OBJECT) {
+            return node.includeAll ? parser.map() : parseObject(parser, node, false);
+        }
+        if (token == XContentParser.Token.START_ARRAY) {
+            return node.includeAll ? parser.list() : parseArray(parser, node);
+        }
+        return scalarValue(parser, token);
+    }
+
+    /**
+     * Parses an array whose objects only need to contain the children of {@code node}.
+     * Nested arrays are read completely, as they aren't traversed by {@link SourceLookup#extractValue(Map, List, int)}.
+     */
+    private static List<Object> parseArray(XContentParser parser, Node node) throws IOException {
+        ArrayList<Object> list = new ArrayList<>();
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+            if (token == XContentParser.Token.START_OBJECT) {
+                list.add(parseObject(parser, node, false));
+            } else if (token == XContentParser.Token.START_ARRAY) {
+                list.add(parser.list());
+            } else {
+                list.add(scalarValue(parser, token));
+            }
+        }
+        return list;
+    }
+
+    private static Object scalarValue(XContentParser parser, XContentParser.Token token) throws IOException {
+        switch (token) {
+            case VALUE_STRING:
+                return parser.text();
+            case VALUE_NUMBER:
+                return parser.numberValue();
+            case VALUE_BOOLEAN:
+                return parser.booleanValue();
+            case VALUE_EMBEDDED_OBJECT:
+                return parser.binaryValue();
+            default:
+                return null;
+        }
+    }
+
+    private static final class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+        private boolean includeAll = false;
+    }
+}
@@ -22,7 +22,6 @@
 package io.crate.expression.reference.file;
 
 import io.crate.metadata.ColumnIdent;
-import org.apache.lucene.util.UnicodeUtil;
 import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.compress.NotXContentException;
@@ -31,11 +30,14 @@ import org.elasticsearch.common.xcontent.XContentType;
 
 import javax.annotation.Nullable;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 public class LineContext {
 
     private byte[] rawSource;
+    private int rawSourceOffset;
+    private int rawSourceLength;
     private Map<String, Object> parsedSource;
     private String currentUri;
     private String currentUriFailure;
@@ -44,9 +46,7 @@ public class LineContext {
     @Nullable
     String sourceAsString() {
         if (rawSource != null) {
-            char[] chars = new char[rawSource.length];
-            int len = UnicodeUtil.UTF8toUTF16(rawSource, 0, rawSource.length, chars);
-            return new String(chars, 0, len);
+            return new String(rawSource, rawSourceOffset, rawSourceLength, StandardCharsets.UTF_8);
         }
         return null;
     }
@@ -56,7 +56,8 @@ public class LineContext {
         if (parsedSource == null) {
             if (rawSource != null) {
                 try {
-                    parsedSource = XContentHelper.convertToMap(new BytesArray(rawSource), false, XContentType.JSON).v2();
+                    parsedSource = XContentHelper.convertToMap(
+                        new BytesArray(rawSource, rawSourceOffset, rawSourceLength), false, XContentType.JSON).v2();
                 } catch (ElasticsearchParseException | NotXContentException e) {
                     throw new RuntimeException("JSON parser error: " + e.getMessage(), e);
                 }
@@ -74,7 +75,16 @@ public class LineContext {
     }
 
     public void rawSource(byte[] bytes) {
+        rawSource(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Sets the source to {@code bytes[offset..offset+length)}. The bytes are referenced, not copied.
+     */
+    public void rawSource(byte[] bytes, int offset, int length) {
         this.rawSource = bytes;
+        this.rawSourceOffset = offset;
+        this.rawSourceLength = length;
         this.parsedSource = null;
     }
 
@@ -22,6 +22,7 @@
 
 package io.crate.expression.reference.sys.node;
 
+import io.crate.action.sql.StatementCacheStats;
 import io.crate.monitor.ExtendedOsStats;
 import io.crate.protocols.ConnectionStats;
 import io.crate.types.DataTypes;
@@ -62,6 +63,7 @@ public class NodeStatsContext implements Streamable {
     private ThreadPoolStats threadPools;
     private HttpStats httpStats;
     private ConnectionStats psqlStats;
+    private StatementCacheStats statementCacheStats;
 
     private String osName;
     private String osArch;
@@ -195,6 +197,10 @@ public class NodeStatsContext implements Streamable {
         return psqlStats;
     }
 
+    public StatementCacheStats statementCacheStats() {
+        return statementCacheStats;
+    }
+
     public long openTransportConnections() {
         return openTransportConnections;
     }
@@ -291,6 +297,10 @@ public class NodeStatsContext implements Streamable {
         this.psqlStats = psqlStats;
     }
 
+    public void statementCacheStats(StatementCacheStats statementCacheStats) {
+        this.statementCacheStats = statementCacheStats;
+    }
+
     void openTransportConnections(long openTransportConnections) {
         this.openTransportConnections = openTransportConnections;
     }
@@ -316,6 +326,7 @@ public class NodeStatsContext implements Streamable {
         threadPools = in.readOptionalWriteable(ThreadPoolStats::new);
         httpStats = in.readOptionalWriteable(HttpStats::new);
         psqlStats = in.readOptionalWriteable(ConnectionStats::new);
+        statementCacheStats = in.readOptionalWriteable(StatementCacheStats::new);
         openTransportConnections = in.readLong();
         clusterStateVersion = in.readLong();
 
@@ -355,6 +366,7 @@ public class NodeStatsContext implements Streamable {
         out.writeOptionalWriteable(threadPools);
         out.writeOptionalWriteable(httpStats);
         out.writeOptionalWriteable(psqlStats);
+        out.writeOptionalWriteable(statementCacheStats);
         out.writeLong(openTransportConnections);
         out.writeLong(clusterStateVersion);
 
@@ -24,6 +24,8 @@ package io.crate.expression.reference.sys.node;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
+import io.crate.action.sql.StatementCache;
+import io.crate.action.sql.StatementCacheStats;
 import io.crate.metadata.ColumnIdent;
 import io.crate.metadata.sys.SysNodesTableInfo;
 import io.crate.monitor.ExtendedNodeInfo;
@@ -72,6 +74,7 @@ public class NodeStatsContextFieldResolver {
     private final ThreadPool threadPool;
     private final ExtendedNodeInfo extendedNodeInfo;
     private final Supplier<ConnectionStats> psqlStats;
+    private final Supplier<StatementCacheStats> statementCacheStats;
     private final Supplier<TransportAddress> boundPostgresAddress;
     private final LongSupplier numOpenTransportConnections;
     private final ProcessService processService;
@@ -88,7 +91,8 @@ public class NodeStatsContextFieldResolver {
                                          TransportService transportService,
                                          ThreadPool threadPool,
                                          ExtendedNodeInfo extendedNodeInfo,
-                                         PostgresNetty postgresNetty) {
+                                         PostgresNetty postgresNetty,
+                                         StatementCache statementCache) {
         this(
             clusterService::localNode,
             nodeService.getMonitorService(),
@@ -97,6 +101,7 @@ public class NodeStatsContextFieldResolver {
             threadPool,
             extendedNodeInfo,
             () -> new ConnectionStats(postgresNetty.openConnections(), postgresNetty.totalConnections()),
+            statementCache::stats,
             () -> {
                 BoundTransportAddress boundTransportAddress = postgresNetty.boundAddress();
                 if (boundTransportAddress == null) {
@@ -117,6 +122,7 @@ public class NodeStatsContextFieldResolver {
                                   ThreadPool threadPool,
                                   ExtendedNodeInfo extendedNodeInfo,
                                   Supplier<ConnectionStats> psqlStats,
+                                  Supplier<StatementCacheStats> statementCacheStats,
                                   Supplier<TransportAddress> boundPostgresAddress,
                                   LongSupplier numOpenTransportConnections,
                                   LongSupplier clusterStateVersion) {
@@ -130,6 +136,7 @@ public class NodeStatsContextFieldResolver {
         this.threadPool = threadPool;
         this.extendedNodeInfo = extendedNodeInfo;
         this.psqlStats = psqlStats;
+        this.statementCacheStats = statementCacheStats;
         this.boundPostgresAddress = boundPostgresAddress;
         this.numOpenTransportConnections = numOpenTransportConnections;
         this.clusterStateVersion = clusterStateVersion;
@@ -243,6 +250,12 @@ public class NodeStatsContextFieldResolver {
                     nodeStatsContext.openTransportConnections(numOpenTransportConnections.getAsLong());
                 }
             })
+            .put(SysNodesTableInfo.Columns.STATEMENT_CACHE, new Consumer<NodeStatsContext>() {
+                @Override
+                public void accept(NodeStatsContext context) {
+                    context.statementCacheStats(statementCacheStats.get());
+                }
+            })
             .put(SysNodesTableInfo.Columns.OS, new Consumer<NodeStatsContext>() {
                 @Override
                 public void accept(NodeStatsContext context) {
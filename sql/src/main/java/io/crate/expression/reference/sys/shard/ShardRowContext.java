@@ -24,6 +24,7 @@ package io.crate.expression.reference.sys.shard;
 
 import com.google.common.base.Suppliers;
 import io.crate.blob.v2.BlobShard;
+import io.crate.execution.engine.collect.QueryResultCache;
 import io.crate.metadata.IndexParts;
 import io.crate.metadata.PartitionName;
 import io.crate.metadata.RelationName;
@@ -42,6 +43,8 @@ public class ShardRowContext {
     @Nullable
     private final BlobShard blobShard;
     private final ClusterService clusterService;
+    @Nullable
+    private final QueryResultCache.Stats queryResultCacheStats;
     private final Supplier<Long> sizeSupplier;
     private final IndexParts indexParts;
     private final String partitionIdent;
@@ -55,7 +58,13 @@ public class ShardRowContext {
     private final String templateName;
 
     public ShardRowContext(IndexShard indexShard, ClusterService clusterService) {
-        this(indexShard, null, clusterService, Suppliers.memoizeWithExpiration(() -> {
+        this(indexShard, clusterService, null);
+    }
+
+    public ShardRowContext(IndexShard indexShard,
+                           ClusterService clusterService,
+                           @Nullable QueryResultCache.Stats queryResultCacheStats) {
+        this(indexShard, null, clusterService, queryResultCacheStats, Suppliers.memoizeWithExpiration(() -> {
             StoreStats storeStats = indexShard.storeStats();
             if (storeStats == null) {
                 // will return null if already closed due to shard deletion
@@ -66,16 +75,18 @@ public class ShardRowContext {
     }
 
     public ShardRowContext(BlobShard blobShard, ClusterService clusterService) {
-        this(blobShard.indexShard(), blobShard, clusterService, blobShard::getTotalSize);
+        this(blobShard.indexShard(), blobShard, clusterService, null, blobShard::getTotalSize);
     }
 
     private ShardRowContext(IndexShard indexShard,
                             @Nullable BlobShard blobShard,
                             ClusterService clusterService,
+                            @Nullable QueryResultCache.Stats queryResultCacheStats,
                             Supplier<Long> sizeSupplier) {
         this.indexShard = indexShard;
         this.blobShard = blobShard;
         this.clusterService = clusterService;
+        this.queryResultCacheStats = queryResultCacheStats;
         this.sizeSupplier = sizeSupplier;
         ShardId shardId = indexShard.shardId();
         String indexName = shardId.getIndexName();
@@ -108,6 +119,14 @@ public class ShardRowContext {
         return clusterService;
     }
 
+    /**
+     * @return the query result cache statistics of the shard, null for blob shards
+     */
+    @Nullable
+    public QueryResultCache.Stats queryResultCacheStats() {
+        return queryResultCacheStats;
+    }
+
     public IndexParts indexParts() {
         return indexParts;
     }
@@ -24,6 +24,7 @@ package io.crate.metadata.sys;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import io.crate.action.sql.SessionContext;
+import io.crate.action.sql.StatementCacheStats;
 import io.crate.analyze.WhereClause;
 import io.crate.execution.engine.collect.NestableCollectExpression;
 import io.crate.expression.reference.ObjectCollectExpression;
@@ -129,6 +130,12 @@ public class SysNodesTableInfo extends StaticTableInfo {
         static final ColumnIdent CONNECTIONS_TRANSPORT = ColumnIdent.getChild(CONNECTIONS, "transport");
         static final ColumnIdent CONNECTIONS_TRANSPORT_OPEN = ColumnIdent.getChild(CONNECTIONS_TRANSPORT, "open");
 
+        public static final ColumnIdent STATEMENT_CACHE = new ColumnIdent("statement_cache");
+        static final ColumnIdent STATEMENT_CACHE_ENTRIES = ColumnIdent.getChild(STATEMENT_CACHE, "entries");
+        static final ColumnIdent STATEMENT_CACHE_HITS = ColumnIdent.getChild(STATEMENT_CACHE, "hits");
+        static final ColumnIdent STATEMENT_CACHE_MISSES = ColumnIdent.getChild(STATEMENT_CACHE, "misses");
+        static final ColumnIdent STATEMENT_CACHE_EVICTIONS = ColumnIdent.getChild(STATEMENT_CACHE, "evictions");
+
         public static final ColumnIdent OS = new ColumnIdent(SYS_COL_OS);
 
         public static final ColumnIdent OS_INFO = new ColumnIdent(SYS_COL_OS_INFO);
@@ -305,9 +312,33 @@ public class SysNodesTableInfo extends StaticTableInfo {
                 }
             })
             .put(Columns.CONNECTIONS, SysNodesTableInfo::createConnectionsExpression)
+            .put(Columns.STATEMENT_CACHE, SysNodesTableInfo::createStatementCacheExpression)
             .build();
     }
 
+    private static ObjectCollectExpression<NodeStatsContext> createStatementCacheExpression() {
+        return new ObjectCollectExpression<>(
+            ImmutableMap.of(
+                Columns.STATEMENT_CACHE_ENTRIES.path().get(0),
+                NestableCollectExpression.<NodeStatsContext, StatementCacheStats>withNullableProperty(
+                    NodeStatsContext::statementCacheStats,
+                    StatementCacheStats::entries),
+                Columns.STATEMENT_CACHE_HITS.path().get(0),
+                NestableCollectExpression.<NodeStatsContext, StatementCacheStats>withNullableProperty(
+                    NodeStatsContext::statementCacheStats,
+                    StatementCacheStats::hits),
+                Columns.STATEMENT_CACHE_MISSES.path().get(0),
+                NestableCollectExpression.<NodeStatsContext, StatementCacheStats>withNullableProperty(
+                    NodeStatsContext::statementCacheStats,
+                    StatementCacheStats::misses),
+                Columns.STATEMENT_CACHE_EVICTIONS.path().get(0),
+                NestableCollectExpression.<NodeStatsContext, StatementCacheStats>withNullableProperty(
+                    NodeStatsContext::statementCacheStats,
+                    StatementCacheStats::evictions)
+            )
+        );
+    }
+
     private static ObjectCollectExpression<NodeStatsContext> createConnectionsExpression() {
         return new ObjectCollectExpression<>(
             ImmutableMap.of(
@@ -437,6 +468,13 @@ public class SysNodesTableInfo extends StaticTableInfo {
                         .build())
                     .build())
 
+                .register(Columns.STATEMENT_CACHE, ObjectType.builder()
+                    .setInnerType("entries", DataTypes.LONG)
+                    .setInnerType("hits", DataTypes.LONG)
+                    .setInnerType("misses", DataTypes.LONG)
+                    .setInnerType("evictions", DataTypes.LONG)
+                    .build())
+
                 .register(Columns.OS, ObjectType.builder()
                     .setInnerType("uptime", DataTypes.LONG)
                     .setInnerType("timestamp", DataTypes.TIMESTAMPZ)
@@ -35,6 +35,7 @@ import io.crate.expression.reference.sys.shard.NodeNestableInput;
 import io.crate.expression.reference.sys.shard.ShardMinLuceneVersionExpression;
 import io.crate.expression.reference.sys.shard.ShardNumDocsExpression;
 import io.crate.expression.reference.sys.shard.ShardPartitionOrphanedExpression;
+import io.crate.expression.reference.sys.shard.ShardQueryResultCacheExpression;
 import io.crate.expression.reference.sys.shard.ShardRecoveryExpression;
 import io.crate.expression.reference.sys.shard.ShardRowContext;
 import io.crate.metadata.ColumnIdent;
@@ -116,6 +117,8 @@ public class SysShardsTableInfo extends StaticTableInfo {
         static final ColumnIdent RECOVERY_SIZE_PERCENT =
             new ColumnIdent("recovery", ImmutableList.of("size", "percent"));
 
+        static final ColumnIdent QUERY_RESULT_CACHE = new ColumnIdent("query_result_cache");
+
         static final ColumnIdent PATH = new ColumnIdent("path");
         static final ColumnIdent BLOB_PATH = new ColumnIdent("blob_path");
 
@@ -145,6 +148,7 @@ public class SysShardsTableInfo extends StaticTableInfo {
                 () -> NestableCollectExpression.forFunction(r -> r.indexShard().routingEntry().state().toString()))
             .put(Columns.ORPHAN_PARTITION, ShardPartitionOrphanedExpression::new)
             .put(Columns.RECOVERY, ShardRecoveryExpression::new)
+            .put(Columns.QUERY_RESULT_CACHE, ShardQueryResultCacheExpression::new)
             .put(Columns.PATH, () -> NestableCollectExpression.forFunction(ShardRowContext::path))
             .put(Columns.BLOB_PATH, () -> NestableCollectExpression.forFunction(ShardRowContext::blobPath))
             .put(Columns.MIN_LUCENE_VERSION, ShardMinLuceneVersionExpression::new)
@@ -191,6 +195,21 @@ public class SysShardsTableInfo extends StaticTableInfo {
                     return this;
                 }
             })
+            .put(Columns.QUERY_RESULT_CACHE, () -> new NestableCollectExpression<>() {
+                @Override
+                public void setNextRow(UnassignedShard unassignedShard) {
+                }
+
+                @Override
+                public Object value() {
+                    return null;
+                }
+
+                @Override
+                public NestableInput getChild(String name) {
+                    return this;
+                }
+            })
             .put(Columns.PATH,
                 () -> NestableCollectExpression.constant(null))
             .put(Columns.BLOB_PATH,
@@ -256,6 +275,12 @@ public class SysShardsTableInfo extends StaticTableInfo {
                     .setInnerType("size", TYPE_RECOVERY_SIZE)
                     .setInnerType("files", TYPE_RECOVERY_FILES)
                     .build())
+                .register(Columns.QUERY_RESULT_CACHE, ObjectType.builder()
+                    .setInnerType("hits", LongType.INSTANCE)
+                    .setInnerType("misses", LongType.INSTANCE)
+                    .setInnerType("evictions", LongType.INSTANCE)
+                    .setInnerType("size", LongType.INSTANCE)
+                    .build())
                 .register(Columns.PATH, DataTypes.STRING)
                 .register(Columns.BLOB_PATH, DataTypes.STRING)
                 .register(Columns.MIN_LUCENE_VERSION, StringType.INSTANCE)
@@ -21,51 +21,241 @@
 
 package io.crate.operation.collect.files;
 
-import com.fasterxml.jackson.databind.MappingIterator;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.csv.CsvMapper;
-import com.fasterxml.jackson.dataformat.csv.CsvObjectReader;
-import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+/**
+ * Converts CSV lines to JSON objects, using the values of the header line as keys.
+ * <p>
+ * The lines are parsed directly on their UTF-8 encoded bytes and written as JSON into a buffer which is reused
+ * for every line, so that no objects are created per line.
+ * Values may be quoted with {@code "}, a {@code "} within a quoted value is escaped as {@code ""}.
+ * Spaces around values are trimmed. All values are strings.
+ */
 public class CSVLineParser {
 
-    private List<Object> keyList;
-    private ObjectMapper objectMapper = new ObjectMapper();
-    private CsvObjectReader csvReader = new CsvMapper().enable(CsvParser.Feature.TRIM_SPACES)
-        .readerWithTypedSchemaFor(String.class);
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    private List<String> keyList;
+    private byte[][] jsonKeys;
+
+    private byte[] out = new byte[256];
+    private int outLength;
+    private final BytesRef result = new BytesRef();
+
+    // the current value, either a slice of the line or of quotedValue if the value was quoted
+    private byte[] valueBytes;
+    private int valueOffset;
+    private int valueLength;
+    private byte[] quotedValue = new byte[64];
 
     public void parseHeader(BufferedReader currentReader) throws IOException {
         String header = currentReader.readLine();
-        keyList = csvReader.readValues(header.getBytes(StandardCharsets.UTF_8)).readAll();
+        byte[] bytes = header == null ? BytesRef.EMPTY_BYTES : header.getBytes(StandardCharsets.UTF_8);
+        parseHeader(bytes, 0, bytes.length);
+    }
+
+    public void parseHeader(byte[] bytes, int offset, int length) throws IOException {
+        int end = endOfLine(bytes, offset, length);
+        keyList = new ArrayList<>();
+        if (end > offset) {
+            int pos = offset;
+            while (true) {
+                pos = readValue(bytes, pos, end);
+                keyList.add(new String(valueBytes, valueOffset, valueLength, StandardCharsets.UTF_8));
+                if (pos == end) {
+                    break;
+                }
+                pos++;
+            }
+        }
         Set<Object> keySet = new HashSet<>(keyList);
         keySet.remove("");
 
         if (keySet.size() != keyList.size() || keySet.size() == 0) {
             throw new IllegalArgumentException("Invalid header: duplicate entries or no entries present");
         }
+        jsonKeys = new byte[keyList.size()][];
+        for (int i = 0; i < keyList.size(); i++) {
+            outLength = 0;
+            byte[] key = keyList.get(i).getBytes(StandardCharsets.UTF_8);
+            appendJsonString(key, 0, key.length);
+            append((byte) ':');
+            jsonKeys[i] = Arrays.copyOf(out, outLength);
+        }
     }
 
     public byte[] parse(String row) throws IOException {
-        MappingIterator<Object> iterator = csvReader.readValues(row.getBytes(StandardCharsets.UTF_8));
-        HashMap<Object, Object> csvAsMap = new HashMap<>();
-        int i = 0;
-        while (iterator.hasNext()) {
-            if (iterator.hasNext() && i >= keyList.size()) {
-                throw new IllegalArgumentException("Number of values exceeds number of keys");
+        byte[] bytes = row.getBytes(StandardCharsets.UTF_8);
+        BytesRef json = parse(bytes, 0, bytes.length);
+        return Arrays.copyOfRange(json.bytes, json.offset, json.offset + json.length);
+    }
+
+    /**
+     * Converts the CSV line {@code bytes[offset..offset+length)} to a JSON object.
+     * The result is only valid until the next line is parsed.
+     */
+    public BytesRef parse(byte[] bytes, int offset, int length) throws IOException {
+        int end = endOfLine(bytes, offset, length);
+        outLength = 0;
+        append((byte) '{');
+        if (end > offset) {
+            int pos = offset;
+            int i = 0;
+            while (true) {
+                if (i >= jsonKeys.length) {
+                    throw new IllegalArgumentException("Number of values exceeds number of keys");
+                }
+                pos = readValue(bytes, pos, end);
+                if (i > 0) {
+                    append((byte) ',');
+                }
+                append(jsonKeys[i], 0, jsonKeys[i].length);
+                appendJsonString(valueBytes, valueOffset, valueLength);
+                i++;
+                if (pos == end) {
+                    break;
+                }
+                pos++;
+            }
+        }
+        append((byte) '}');
+        result.bytes = out;
+        result.offset = 0;
+        result.length = outLength;
+        return result;
+    }
+
+    private static int endOfLine(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        while (end > offset && (bytes[end - 1] == '\n' || bytes[end - 1] == '\r')) {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    /**
+     * Reads the value starting at {@code pos} into {@link #valueBytes}, {@link #valueOffset} and {@link #valueLength}
+     *
+     * @return the position of the separator after the value or {@code end}
+     */
+    private int readValue(byte[] bytes, int pos, int end) throws IOException {
+        while (pos < end && isSpace(bytes[pos])) {
+            pos++;
+        }
+        if (pos < end && bytes[pos] == '"') {
+            pos++;
+            int length = 0;
+            while (true) {
+                if (pos >= end) {
+                    throw new IOException("Missing closing quote for value");
+                }
+                byte b = bytes[pos];
+                if (b == '"') {
+                    if (pos + 1 < end && bytes[pos + 1] == '"') {
+                        pos++;
+                    } else {
+                        pos++;
+                        break;
+                    }
+                }
+                quotedValue = ArrayUtil.grow(quotedValue, length + 1);
+                quotedValue[length++] = b;
+                pos++;
+            }
+            while (pos < end && isSpace(bytes[pos])) {
+                pos++;
             }
+            if (pos < end && bytes[pos] != ',') {
+                throw new IOException("Expected a separator after the quoted value");
+            }
+            valueBytes = quotedValue;
+            valueOffset = 0;
+            valueLength = length;
+            return pos;
+        }
+        int start = pos;
+        while (pos < end && bytes[pos] != ',') {
+            pos++;
+        }
+        int valueEnd = pos;
+        while (valueEnd > start && isSpace(bytes[valueEnd - 1])) {
+            valueEnd--;
+        }
+        valueBytes = bytes;
+        valueOffset = start;
+        valueLength = valueEnd - start;
+        return pos;
+    }
+
+    private void append(byte b) {
+        out = ArrayUtil.grow(out, outLength + 1);
+        out[outLength++] = b;
+    }
+
+    private void append(byte[] bytes, int offset, int length) {
+        out = ArrayUtil.grow(out, outLength + length);
+        System.arraycopy(bytes, offset, out, outLength, length);
+        outLength += length;
+    }
 
-            csvAsMap.put(keyList.get(i), iterator.next());
-            i++;
+    private void appendJsonString(byte[] bytes, int offset, int length) {
+        append((byte) '"');
+        int end = offset + length;
+        int start = offset;
+        for (int i = offset; i < end; i++) {
+            byte b = bytes[i];
+            if (b == '"' || b == '\\' || (b >= 0 && b < 0x20)) {
+                append(bytes, start, i - start);
+                appendEscaped(b);
+                start = i + 1;
+            }
         }
-        return objectMapper.writeValueAsBytes(csvAsMap);
+        append(bytes, start, end - start);
+        append((byte) '"');
     }
 
+    private void appendEscaped(byte b) {
+        append((byte) '\\');
+        switch (b) {
+            case '"':
+            case '\\':
+                append(b);
+                break;
+            case '\b':
+                append((byte) 'b');
+                break;
+            case '\f':
+                append((byte) 'f');
+                break;
+            case '\n':
+                append((byte) 'n');
+                break;
+            case '\r':
+                append((byte) 'r');
+                break;
+            case '\t':
+                append((byte) 't');
+                break;
+            default:
+                append((byte) 'u');
+                append((byte) '0');
+                append((byte) '0');
+                append(HEX_DIGITS[b >> 4]);
+                append(HEX_DIGITS[b & 0xF]);
+        }
+    }
 }
@@ -0,0 +1,297 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.planner;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.crate.Streamer;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Statistics of the values of a column, computed from a sample of the rows of a table by {@link TableStatsService}.
+ * <p>
+ * Similar to the statistics of PostgreSQL these consist of:
+ * <ul>
+ *     <li>the fraction of rows where the column is null</li>
+ *     <li>an estimate of the number of distinct (non-null) values</li>
+ *     <li>the most common values and their frequencies</li>
+ *     <li>an equi-depth histogram of the remaining values: each bucket contains roughly the same number of rows</li>
+ * </ul>
+ * The statistics are computed on one node and published to all other nodes, see
+ * {@link io.crate.execution.engine.collect.stats.TransportAnalyzeAction}.
+ */
+public final class ColumnStats<T> implements Writeable {
+
+    @VisibleForTesting
+    static final int MAX_MOST_COMMON_VALUES = 10;
+    @VisibleForTesting
+    static final int MAX_HISTOGRAM_BUCKETS = 100;
+
+    private final DataType<T> type;
+    private final double nullFraction;
+    private final double approxDistinct;
+    private final List<T> mostCommonValues;
+    private final double[] mostCommonFrequencies;
+    private final List<T> histogram;
+
+    private ColumnStats(DataType<T> type,
+                        double nullFraction,
+                        double approxDistinct,
+                        List<T> mostCommonValues,
+                        double[] mostCommonFrequencies,
+                        List<T> histogram) {
+        this.type = type;
+        this.nullFraction = nullFraction;
+        this.approxDistinct = approxDistinct;
+        this.mostCommonValues = mostCommonValues;
+        this.mostCommonFrequencies = mostCommonFrequencies;
+        this.histogram = histogram;
+    }
+
+    @SuppressWarnings("unchecked")
+    public ColumnStats(StreamInput in) throws IOException {
+        type = DataTypes.fromStream(in);
+        nullFraction = in.readDouble();
+        approxDistinct = in.readDouble();
+        Streamer<T> streamer = type.streamer();
+        mostCommonValues = readValues(in, streamer);
+        mostCommonFrequencies = in.readDoubleArray();
+        histogram = readValues(in, streamer);
+    }
+
+    private static <T> List<T> readValues(StreamInput in, Streamer<T> streamer) throws IOException {
+        int numValues = in.readVInt();
+        List<T> values = new ArrayList<>(numValues);
+        for (int i = 0; i < numValues; i++) {
+            values.add(streamer.readValueFrom(in));
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        DataTypes.toStream(type, out);
+        out.writeDouble(nullFraction);
+        out.writeDouble(approxDistinct);
+        Streamer<T> streamer = type.streamer();
+        writeValues(out, streamer, mostCommonValues);
+        out.writeDoubleArray(mostCommonFrequencies);
+        writeValues(out, streamer, histogram);
+    }
+
+    private static <T> void writeValues(StreamOutput out, Streamer<T> streamer, List<T> values) throws IOException {
+        out.writeVInt(values.size());
+        for (T value : values) {
+            streamer.writeValueTo(out, value);
+        }
+    }
+
+    /**
+     * @param samples the values of the column of the sampled rows, including nulls
+     * @param totalRowCount the number of rows of the table, used to extrapolate the number of distinct values
+     */
+    public static <T> ColumnStats<T> fromSample(List<T> samples, DataType<T> type, long totalRowCount) {
+        int sampleSize = samples.size();
+        if (sampleSize == 0) {
+            return new ColumnStats<>(type, 0.0, 0.0, List.of(), new double[0], List.of());
+        }
+        Comparator<T> comparator = type::compareValueTo;
+        List<T> values = new ArrayList<>(sampleSize);
+        for (T sample : samples) {
+            if (sample != null) {
+                values.add(sample);
+            }
+        }
+        values.sort(comparator);
+        int numNonNull = values.size();
+        double nullFraction = (double) (sampleSize - numNonNull) / sampleSize;
+
+        // Distinct values and their number of occurrences in the sample, in sort order
+        List<T> distinctValues = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        int numSingletons = 0;
+        for (int i = 0; i < numNonNull; ) {
+            T value = values.get(i);
+            int end = i + 1;
+            while (end < numNonNull && comparator.compare(value, values.get(end)) == 0) {
+                end++;
+            }
+            int count = end - i;
+            distinctValues.add(value);
+            counts.add(count);
+            if (count == 1) {
+                numSingletons++;
+            }
+            i = end;
+        }
+        int numDistinct = distinctValues.size();
+        double approxDistinct = estimateDistinct(
+            numNonNull, numDistinct, numSingletons, Math.max(totalRowCount, sampleSize) * (1.0 - nullFraction));
+
+        // Values which occur more often than the average are considered most common
+        List<Integer> mcvCandidates = new ArrayList<>();
+        double avgCount = numDistinct == 0 ? 0.0 : (double) numNonNull / numDistinct;
+        for (int i = 0; i < numDistinct; i++) {
+            int count = counts.get(i);
+            if (count > 1 && count > avgCount) {
+                mcvCandidates.add(i);
+            }
+        }
+        mcvCandidates.sort((a, b) -> Integer.compare(counts.get(b), counts.get(a)));
+        int numMostCommon = Math.min(MAX_MOST_COMMON_VALUES, mcvCandidates.size());
+        List<T> mostCommonValues = new ArrayList<>(numMostCommon);
+        double[] mostCommonFrequencies = new double[numMostCommon];
+        boolean[] isMostCommon = new boolean[numDistinct];
+        for (int i = 0; i < numMostCommon; i++) {
+            int idx = mcvCandidates.get(i);
+            isMostCommon[idx] = true;
+            mostCommonValues.add(distinctValues.get(idx));
+            mostCommonFrequencies[i] = (double) counts.get(idx) / sampleSize;
+        }
+
+        // Histogram over all values which aren't most common values
+        List<T> remaining = new ArrayList<>(numNonNull);
+        int numRemainingDistinct = 0;
+        for (int i = 0; i < numDistinct; i++) {
+            if (isMostCommon[i] == false) {
+                numRemainingDistinct++;
+                T value = distinctValues.get(i);
+                for (int c = counts.get(i); c > 0; c--) {
+                    remaining.add(value);
+                }
+            }
+        }
+        List<T> histogram;
+        int numBuckets = Math.min(MAX_HISTOGRAM_BUCKETS, numRemainingDistinct - 1);
+        if (numBuckets < 1) {
+            histogram = List.of();
+        } else {
+            histogram = new ArrayList<>(numBuckets + 1);
+            int lastIdx = remaining.size() - 1;
+            for (int i = 0; i <= numBuckets; i++) {
+                histogram.add(remaining.get((int) ((long) i * lastIdx / numBuckets)));
+            }
+        }
+        return new ColumnStats<>(
+            type,
+            nullFraction,
+            approxDistinct,
+            Collections.unmodifiableList(mostCommonValues),
+            mostCommonFrequencies,
+            Collections.unmodifiableList(histogram)
+        );
+    }
+
+    /**
+     * Estimates the number of distinct values in the table using the Duj1 estimator of Haas and Stokes:
+     * <pre>
+     *     n * d / (n - f1 + f1 * n / N)
+     * </pre>
+     * where n is the number of sampled values, d the number of distinct values in the sample,
+     * f1 the number of values which occur exactly once in the sample and N the total number of values.
+     */
+    @VisibleForTesting
+    static double estimateDistinct(int sampleSize, int numDistinct, int numSingletons, double totalCount) {
+        if (sampleSize == 0) {
+            return 0.0;
+        }
+        if (sampleSize >= totalCount) {
+            return numDistinct;
+        }
+        if (numSingletons == sampleSize) {
+            // all values are unique in the sample, assume the column is unique
+            return totalCount;
+        }
+        double estimate = sampleSize * numDistinct / (sampleSize - numSingletons + numSingletons * sampleSize / totalCount);
+        return Math.max(numDistinct, Math.min(estimate, totalCount));
+    }
+
+    public DataType<T> type() {
+        return type;
+    }
+
+    /**
+     * The fraction of rows where the column is null.
+     */
+    public double nullFraction() {
+        return nullFraction;
+    }
+
+    /**
+     * An estimate of the number of distinct non-null values.
+     */
+    public double approxDistinct() {
+        return approxDistinct;
+    }
+
+    public List<T> mostCommonValues() {
+        return mostCommonValues;
+    }
+
+    /**
+     * The fraction of all rows which contain the corresponding value of {@link #mostCommonValues()}.
+     */
+    public double[] mostCommonFrequencies() {
+        return mostCommonFrequencies;
+    }
+
+    /**
+     * The bounds of the histogram buckets over all values which aren't part of {@link #mostCommonValues()}.
+     * Contains {@code numBuckets + 1} values in ascending order, or is empty if there are too few values.
+     */
+    public List<T> histogram() {
+        return histogram;
+    }
+
+    /**
+     * Estimates the fraction of rows where the column is equal to {@code value}.
+     */
+    public double selectivityOfEq(@Nullable T value) {
+        if (value == null) {
+            return nullFraction;
+        }
+        double mostCommonFraction = 0.0;
+        for (int i = 0; i < mostCommonValues.size(); i++) {
+            if (type.compareValueTo(mostCommonValues.get(i), value) == 0) {
+                return mostCommonFrequencies[i];
+            }
+            mostCommonFraction += mostCommonFrequencies[i];
+        }
+        double otherDistinct = approxDistinct - mostCommonValues.size();
+        if (otherDistinct < 1.0) {
+            return 0.0;
+        }
+        double otherFraction = Math.max(0.0, 1.0 - nullFraction - mostCommonFraction);
+        return otherFraction / otherDistinct;
+    }
+}
@@ -45,6 +45,7 @@ import io.crate.planner.node.dql.join.Join;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -101,9 +102,12 @@ public final class PlanPrinter {
         }
 
         private ImmutableMap.Builder<String, Object> process(DistributionInfo info) {
-            return ImmutableMap.<String, Object>builder()
-                .put("distributedByColumn", info.distributeByColumn())
-                .put("type", info.distributionType().toString());
+            ImmutableMap.Builder<String, Object> builder = ImmutableMap.<String, Object>builder()
+                .put("distributedByColumn", info.distributeByColumn());
+            if (info.distributeByColumns().length > 1) {
+                builder.put("distributedByColumns", Arrays.toString(info.distributeByColumns()));
+            }
+            return builder.put("type", info.distributionType().toString());
         }
 
         private ImmutableMap.Builder<String, Object> upstreamPhase(UpstreamPhase phase, ImmutableMap.Builder<String, Object> b) {
@@ -212,10 +216,17 @@ public final class PlanPrinter {
 
         @Override
         public ImmutableMap.Builder<String, Object> visitJoin(Join plan, Void context) {
-            return createMap(plan, createSubMap()
+            ImmutableMap.Builder<String, Object> subMap = createSubMap()
                 .put("left", process(plan.left(), context).build())
                 .put("right", process(plan.right(), context).build())
-                .put("joinPhase", phaseMap(plan.joinPhase())));
+                .put("joinPhase", phaseMap(plan.joinPhase()));
+            if (plan.estimatedRows() >= 0) {
+                subMap.put("estimatedRows", plan.estimatedRows());
+            }
+            if (plan.cost() >= 0) {
+                subMap.put("cost", plan.cost());
+            }
+            return createMap(plan, subMap);
         }
 
         @Override
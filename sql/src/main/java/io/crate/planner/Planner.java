@@ -24,6 +24,7 @@ package io.crate.planner;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import io.crate.analyze.AnalyzeAnalyzedStatement;
 import io.crate.analyze.AnalyzedBegin;
 import io.crate.analyze.AnalyzedCommit;
 import io.crate.analyze.AnalyzedDecommissionNodeStatement;
@@ -67,6 +68,7 @@ import io.crate.planner.node.ddl.DropTablePlan;
 import io.crate.planner.node.ddl.UpdateSettingsPlan;
 import io.crate.planner.node.ddl.GenericDDLPlan;
 import io.crate.planner.node.dml.LegacyUpsertById;
+import io.crate.planner.node.management.AnalyzePlan;
 import io.crate.planner.node.management.ExplainPlan;
 import io.crate.planner.node.management.KillPlan;
 import io.crate.planner.node.management.ShowCreateTablePlan;
@@ -344,6 +346,11 @@ public class Planner extends AnalyzedStatementVisitor<PlannerContext, Plan> {
             new KillPlan();
     }
 
+    @Override
+    public Plan visitAnalyzeAnalyzedStatement(AnalyzeAnalyzedStatement analysis, PlannerContext context) {
+        return new AnalyzePlan(analysis.relationName());
+    }
+
     @Override
     public Plan visitDeallocateAnalyzedStatement(DeallocateAnalyzedStatement analysis, PlannerContext context) {
         return NoopPlan.INSTANCE;
@@ -25,21 +25,51 @@ package io.crate.planner;
 import com.carrotsearch.hppc.ObjectObjectHashMap;
 import com.carrotsearch.hppc.ObjectObjectMap;
 import com.google.common.annotations.VisibleForTesting;
+import io.crate.metadata.ColumnIdent;
 import io.crate.metadata.RelationName;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Holds table statistics that are updated periodically by {@link TableStatsService}.
+ * The statistics are computed on the elected master node, or the node executing ANALYZE, and published to all nodes.
  */
 public class TableStats {
 
     private static final Stats EMPTY_STATS = new Stats();
 
     private volatile ObjectObjectMap<RelationName, Stats> tableStats = new ObjectObjectHashMap<>(0);
+    private volatile Map<RelationName, Map<ColumnIdent, ColumnStats>> columnStats = Map.of();
 
     public void updateTableStats(ObjectObjectMap<RelationName, Stats> tableStats) {
         this.tableStats = tableStats;
     }
 
+    /**
+     * Replaces the column statistics of a single table. Statistics of other tables are retained.
+     */
+    public synchronized void updateColumnStats(RelationName relationName, Map<ColumnIdent, ColumnStats> stats) {
+        HashMap<RelationName, Map<ColumnIdent, ColumnStats>> newColumnStats = new HashMap<>(columnStats);
+        newColumnStats.put(relationName, Map.copyOf(stats));
+        columnStats = newColumnStats;
+    }
+
+    /**
+     * Returns the statistics of a column collected by the last ANALYZE or periodic statistics update.
+     * Returns null if no statistics are available for the column.
+     */
+    @Nullable
+    public ColumnStats columnStats(RelationName relationName, ColumnIdent column) {
+        Map<ColumnIdent, ColumnStats> statsByColumn = columnStats.get(relationName);
+        return statsByColumn == null ? null : statsByColumn.get(column);
+    }
+
     /**
      * Returns the number of docs a table has.
      * <p>
@@ -81,7 +111,7 @@ public class TableStats {
     }
 
     @VisibleForTesting
-    public static class Stats {
+    public static class Stats implements Writeable {
 
         @VisibleForTesting
         final long numDocs;
@@ -98,5 +128,16 @@ public class TableStats {
             this.numDocs = numDocs;
             this.sizeInBytes = sizeInBytes;
         }
+
+        public Stats(StreamInput in) throws IOException {
+            numDocs = in.readLong();
+            sizeInBytes = in.readLong();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeLong(numDocs);
+            out.writeLong(sizeInBytes);
+        }
     }
 }
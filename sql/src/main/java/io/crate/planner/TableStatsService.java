@@ -29,16 +29,30 @@ import com.google.common.annotations.VisibleForTesting;
 import io.crate.action.sql.BaseResultReceiver;
 import io.crate.action.sql.SQLOperations;
 import io.crate.action.sql.Session;
+import io.crate.concurrent.CompletableFutures;
 import io.crate.data.Row;
+import io.crate.execution.engine.collect.stats.PublishTableStatsRequest;
+import io.crate.execution.engine.collect.stats.Samples;
+import io.crate.execution.engine.collect.stats.TableSampler;
+import io.crate.execution.engine.collect.stats.TransportAnalyzeAction;
+import io.crate.metadata.ColumnIdent;
+import io.crate.metadata.Reference;
 import io.crate.metadata.RelationName;
+import io.crate.metadata.Schemas;
+import io.crate.metadata.doc.DocSchemaInfo;
+import io.crate.metadata.doc.DocTableInfo;
+import io.crate.metadata.table.SchemaInfo;
+import io.crate.metadata.table.TableInfo;
 import io.crate.settings.CrateSetting;
 import io.crate.sql.parser.SqlParser;
 import io.crate.sql.tree.Statement;
+import io.crate.types.DataType;
 import io.crate.types.DataTypes;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.inject.Provider;
 import org.elasticsearch.common.inject.Singleton;
 import org.elasticsearch.common.lucene.BytesRefs;
 import org.elasticsearch.common.settings.Setting;
@@ -47,10 +61,25 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 /**
  * Periodically refresh {@link TableStats} based on {@link #refreshInterval}.
+ * <p>
+ * Besides the number of docs and the size of each table, the statistics of the primitive top-level columns of
+ * the user tables are computed from a sample of up to {@link #SAMPLE_SIZE} rows, see {@link ColumnStats}.
+ * The periodic refresh only collects the column statistics if {@link #STATS_SERVICE_COLUMN_STATS_SETTING} is
+ * enabled, ANALYZE always collects them.
+ * Only the elected master node, or the node executing ANALYZE, computes the statistics and publishes them to all
+ * nodes using the {@link TransportAnalyzeAction}. The statistics are only held in memory.
  */
 @Singleton
 public class TableStatsService implements Runnable {
@@ -61,35 +90,58 @@ public class TableStatsService implements Runnable {
         "stats.service.interval", TimeValue.timeValueHours(1), Setting.Property.NodeScope, Setting.Property.Dynamic),
         DataTypes.STRING);
 
+    public static final CrateSetting<Boolean> STATS_SERVICE_COLUMN_STATS_SETTING = CrateSetting.of(Setting.boolSetting(
+        "stats.service.column_stats", false, Setting.Property.NodeScope, Setting.Property.Dynamic),
+        DataTypes.BOOLEAN);
+
     static final String STMT = "select cast(sum(num_docs) as long), cast(sum(size) as long), schema_name, table_name " +
                                "from sys.shards where primary=true group by 3, 4";
     private static final Statement PARSED_STMT = SqlParser.createStatement(STMT);
 
+    /**
+     * Number of rows sampled per table to compute the {@link ColumnStats}.
+     * With this sample size the estimated frequencies of the most common values and the histogram bounds
+     * are reasonably accurate, independent of the size of the table.
+     * <p>
+     * Each shard reads at most {@code SAMPLE_SIZE} evenly spaced docs, see {@link TableSampler}, so the cost
+     * of sampling is bounded by the number of shards, not the number of rows.
+     */
+    @VisibleForTesting
+    static final int SAMPLE_SIZE = 30_000;
+
     private final ClusterService clusterService;
     private final ThreadPool threadPool;
-    private final TableStatsResultReceiver resultReceiver;
+    private final Schemas schemas;
     private final Session session;
+    private final Provider<TransportAnalyzeAction> analyzeAction;
+    private final AtomicBoolean updateInProgress = new AtomicBoolean(false);
 
     @VisibleForTesting
     ThreadPool.Cancellable refreshScheduledTask;
     @VisibleForTesting
     TimeValue refreshInterval;
+    private volatile boolean collectColumnStats;
 
     @Inject
     public TableStatsService(Settings settings,
                              ThreadPool threadPool,
                              ClusterService clusterService,
-                             TableStats tableStats,
-                             SQLOperations sqlOperations) {
+                             Schemas schemas,
+                             SQLOperations sqlOperations,
+                             Provider<TransportAnalyzeAction> analyzeAction) {
         this.threadPool = threadPool;
+        this.analyzeAction = analyzeAction;
         this.clusterService = clusterService;
-        resultReceiver = new TableStatsResultReceiver(tableStats::updateTableStats);
+        this.schemas = schemas;
         refreshInterval = STATS_SERVICE_REFRESH_INTERVAL_SETTING.setting().get(settings);
         refreshScheduledTask = scheduleRefresh(refreshInterval);
+        collectColumnStats = STATS_SERVICE_COLUMN_STATS_SETTING.setting().get(settings);
         session = sqlOperations.newSystemSession();
 
         clusterService.getClusterSettings().addSettingsUpdateConsumer(
             STATS_SERVICE_REFRESH_INTERVAL_SETTING.setting(), this::setRefreshInterval);
+        clusterService.getClusterSettings().addSettingsUpdateConsumer(
+            STATS_SERVICE_COLUMN_STATS_SETTING.setting(), value -> collectColumnStats = value);
     }
 
     @Override
@@ -107,11 +159,124 @@ public class TableStatsService implements Runnable {
             return;
         }
 
+        if (clusterService.state().nodes().isLocalNodeElectedMaster() == false) {
+            // The statistics are computed once on the master and published to all nodes
+            return;
+        }
+
+        if (updateInProgress.compareAndSet(false, true) == false) {
+            logger.debug("Skipping table stats update, the previous update is still in progress");
+            return;
+        }
+        // Sampling the columns of all tables is expensive, without the setting only the doc counts are refreshed
+        collectStats(collectColumnStats ? null : List.of())
+            .thenCompose(request -> analyzeAction.get().publish(request))
+            .whenComplete((numNodes, t) -> {
+                updateInProgress.set(false);
+                if (t != null) {
+                    logger.warn("Could not update table stats", t);
+                }
+            });
+    }
+
+    /**
+     * Computes the number of docs and size of all tables and the column statistics of the given tables.
+     * The result isn't applied to the {@link TableStats} of this node but has to be published,
+     * see {@link TransportAnalyzeAction#publish(PublishTableStatsRequest)}.
+     *
+     * @param relationNames the tables to collect column statistics for, or null to collect them for all user tables.
+     *                      If empty, only the number of docs and size are collected.
+     */
+    public CompletableFuture<PublishTableStatsRequest> collectStats(@Nullable Collection<RelationName> relationNames) {
+        CompletableFuture<ObjectObjectMap<RelationName, TableStats.Stats>> newTableStats = new CompletableFuture<>();
+        TableStatsResultReceiver resultReceiver = new TableStatsResultReceiver(newTableStats::complete);
         try {
             session.quickExec(STMT, stmt -> PARSED_STMT, resultReceiver, Row.EMPTY);
         } catch (Throwable t) {
             logger.error("error retrieving table stats", t);
+            return CompletableFutures.failedFuture(t);
+        }
+        return resultReceiver.completionFuture().thenCombine(newTableStats, (ignored, stats) -> stats)
+            .thenCompose(stats -> {
+                Map<RelationName, Map<ColumnIdent, ColumnStats>> columnStats = new HashMap<>();
+                // Tables are sampled one after another to limit the load on the cluster
+                CompletableFuture<Void> result = CompletableFuture.completedFuture(null);
+                for (DocTableInfo table : tablesToAnalyze(relationNames)) {
+                    RelationName relationName = table.ident();
+                    TableStats.Stats tableStat = stats.get(relationName);
+                    long numDocs = tableStat == null ? -1 : tableStat.numDocs;
+                    result = result
+                        .thenCompose(r -> collectColumnStats(table, numDocs))
+                        .thenAccept(statsByColumn -> {
+                            if (statsByColumn != null) {
+                                columnStats.put(relationName, statsByColumn);
+                            }
+                        });
+                }
+                return result.thenApply(r -> new PublishTableStatsRequest(stats, columnStats));
+            });
+    }
+
+    private List<DocTableInfo> tablesToAnalyze(@Nullable Collection<RelationName> relationNames) {
+        List<DocTableInfo> tables = new ArrayList<>();
+        for (SchemaInfo schema : schemas) {
+            if (schema instanceof DocSchemaInfo) {
+                for (TableInfo table : schema.getTables()) {
+                    if (table instanceof DocTableInfo
+                        && (relationNames == null || relationNames.contains(table.ident()))) {
+                        tables.add((DocTableInfo) table);
+                    }
+                }
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Returns a future with the statistics of the sampled columns, or with null if they couldn't be collected.
+     */
+    private CompletableFuture<Map<ColumnIdent, ColumnStats>> collectColumnStats(DocTableInfo table, long numDocs) {
+        List<Reference> columns = sampledColumns(table);
+        if (columns.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        RelationName relationName = table.ident();
+        return analyzeAction.get().fetchSamples(relationName, columns, SAMPLE_SIZE).handle((samples, t) -> {
+            if (t == null) {
+                return toColumnStats(columns, samples, numDocs);
+            }
+            logger.warn("Could not collect column statistics of table " + relationName, t);
+            return null;
+        });
+    }
+
+    private static List<Reference> sampledColumns(DocTableInfo table) {
+        List<Reference> columns = new ArrayList<>();
+        for (Reference column : table.columns()) {
+            // The values of partitioned by columns are not stored in the docs but part of the partition name
+            if (DataTypes.PRIMITIVE_TYPES.contains(column.valueType())
+                && !table.partitionedBy().contains(column.column())) {
+                columns.add(column);
+            }
+        }
+        return columns;
+    }
+
+    @SuppressWarnings("unchecked")
+    @VisibleForTesting
+    static Map<ColumnIdent, ColumnStats> toColumnStats(List<Reference> columns, Samples samples, long numDocs) {
+        HashMap<ColumnIdent, ColumnStats> stats = new HashMap<>(columns.size());
+        List<Object[]> records = samples.records();
+        for (int i = 0; i < columns.size(); i++) {
+            Reference column = columns.get(i);
+            DataType type = column.valueType();
+            List<Object> values = new ArrayList<>(records.size());
+            for (Object[] record : records) {
+                values.add(type.value(record[i]));
+            }
+            stats.put(column.column(), ColumnStats.fromSample(values, type, numDocs));
         }
+        return stats;
     }
 
     static class TableStatsResultReceiver extends BaseResultReceiver {
@@ -26,6 +26,7 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 public class DistributionInfo implements Streamable {
 
@@ -34,14 +35,23 @@ public class DistributionInfo implements Streamable {
     public static final DistributionInfo DEFAULT_MODULO = new DistributionInfo(DistributionType.MODULO);
 
     private DistributionType distributionType;
-    private int distributeByColumn;
+    private int[] distributeByColumns;
 
     protected DistributionInfo() {
     }
 
     public DistributionInfo(DistributionType distributionType, int distributeByColumn) {
+        this(distributionType, new int[] { distributeByColumn });
+    }
+
+    /**
+     * @param distributeByColumns the columns whose values decide to which node a row is sent
+     *                            if the distribution type is {@link DistributionType#MODULO}
+     */
+    public DistributionInfo(DistributionType distributionType, int[] distributeByColumns) {
+        assert distributeByColumns.length > 0 : "There must be at least one distributeBy column";
         this.distributionType = distributionType;
-        this.distributeByColumn = distributeByColumn;
+        this.distributeByColumns = distributeByColumns;
     }
 
     public DistributionInfo(DistributionType distributionType) {
@@ -53,7 +63,11 @@ public class DistributionInfo implements Streamable {
     }
 
     public int distributeByColumn() {
-        return distributeByColumn;
+        return distributeByColumns[0];
+    }
+
+    public int[] distributeByColumns() {
+        return distributeByColumns;
     }
 
     @Override
@@ -63,13 +77,13 @@ public class DistributionInfo implements Streamable {
 
         DistributionInfo that = (DistributionInfo) o;
 
-        return distributeByColumn == that.distributeByColumn && distributionType == that.distributionType;
+        return Arrays.equals(distributeByColumns, that.distributeByColumns) && distributionType == that.distributionType;
     }
 
     @Override
     public int hashCode() {
         int result = distributionType.hashCode();
-        result = 31 * result + distributeByColumn;
+        result = 31 * result + Arrays.hashCode(distributeByColumns);
         return result;
     }
 
@@ -77,20 +91,27 @@ public class DistributionInfo implements Streamable {
     public String toString() {
         return "DistributionInfo{" +
                "distributionType=" + distributionType +
-               ", distributeByColumn=" + distributeByColumn +
+               ", distributeByColumns=" + Arrays.toString(distributeByColumns) +
                '}';
     }
 
     @Override
     public void readFrom(StreamInput in) throws IOException {
         distributionType = DistributionType.values()[in.readVInt()];
-        distributeByColumn = in.readVInt();
+        int numColumns = in.readVInt();
+        distributeByColumns = new int[numColumns];
+        for (int i = 0; i < numColumns; i++) {
+            distributeByColumns[i] = in.readVInt();
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVInt(distributionType.ordinal());
-        out.writeVInt(distributeByColumn);
+        out.writeVInt(distributeByColumns.length);
+        for (int column : distributeByColumns) {
+            out.writeVInt(column);
+        }
     }
 
     public static DistributionInfo fromStream(StreamInput in) throws IOException {
@@ -69,6 +69,13 @@ public class Join implements ExecutionPlan, ResultDescription {
     @Nullable
     private PositionalOrderBy orderBy;
 
+    private final long estimatedRows;
+    private final long cost;
+
+    /**
+     * @param estimatedRows the estimated number of rows of the join result, -1 if unknown
+     * @param cost the estimated cost of the join and all joins below it, -1 if unknown
+     */
     public Join(JoinPhase joinPhase,
                 ExecutionPlan left,
                 ExecutionPlan right,
@@ -76,7 +83,9 @@ public class Join implements ExecutionPlan, ResultDescription {
                 int offset,
                 int maxRowsPerNode,
                 int numOutputs,
-                @Nullable PositionalOrderBy orderBy) {
+                @Nullable PositionalOrderBy orderBy,
+                long estimatedRows,
+                long cost) {
         this.left = left;
         this.right = right;
         this.joinPhase = joinPhase;
@@ -85,6 +94,8 @@ public class Join implements ExecutionPlan, ResultDescription {
         this.maxRowsPerNode = maxRowsPerNode;
         this.orderBy = orderBy;
         this.numOutputs = numOutputs;
+        this.estimatedRows = estimatedRows;
+        this.cost = cost;
     }
 
     public ExecutionPlan left() {
@@ -99,6 +110,14 @@ public class Join implements ExecutionPlan, ResultDescription {
         return joinPhase;
     }
 
+    public long estimatedRows() {
+        return estimatedRows;
+    }
+
+    public long cost() {
+        return cost;
+    }
+
     @Override
     public ResultDescription resultDescription() {
         return this;
@@ -181,6 +200,8 @@ public class Join implements ExecutionPlan, ResultDescription {
                offset == join.offset &&
                numOutputs == join.numOutputs &&
                maxRowsPerNode == join.maxRowsPerNode &&
+               estimatedRows == join.estimatedRows &&
+               cost == join.cost &&
                Objects.equals(left, join.left) &&
                Objects.equals(right, join.right) &&
                Objects.equals(joinPhase, join.joinPhase) &&
@@ -189,6 +210,6 @@ public class Join implements ExecutionPlan, ResultDescription {
 
     @Override
     public int hashCode() {
-        return Objects.hash(left, right, joinPhase, limit, offset, numOutputs, maxRowsPerNode, orderBy);
+        return Objects.hash(left, right, joinPhase, limit, offset, numOutputs, maxRowsPerNode, orderBy, estimatedRows, cost);
     }
 }
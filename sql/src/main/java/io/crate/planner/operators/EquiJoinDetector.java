@@ -40,7 +40,7 @@ import java.util.Set;
  * <p>
  * Using hash join is possible under following assumptions:
  * <ul>
- * <li>it's a {@link JoinType#INNER} join type</li>
+ * <li>it's not a {@link JoinType#CROSS} join type</li>
  * <li>the join condition contains no {@link OrOperator}</li>
  * <li>the join condition contains at least one {@link EqOperator}</li>
  * <li>at least one argument of the {@link EqOperator} must NOT contain fields to multiple tables</li>
@@ -51,14 +51,13 @@ public class EquiJoinDetector {
     private static final Visitor VISITOR = new Visitor();
 
     public static boolean isHashJoinPossible(JoinType joinType, Symbol joinCondition) {
-        if (joinType != JoinType.INNER) {
+        if (joinType == JoinType.CROSS || joinCondition == null) {
             return false;
         }
         return isEquiJoin(joinCondition);
     }
 
     private static boolean isEquiJoin(Symbol joinCondition) {
-        assert joinCondition != null : "join condition must not be null on inner joins";
         Context context = new Context();
         VISITOR.process(joinCondition, context);
         return context.isHashJoinPossible;
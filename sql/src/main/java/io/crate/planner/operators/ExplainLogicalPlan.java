@@ -171,10 +171,10 @@ public class ExplainLogicalPlan {
 
         @Override
         public ImmutableMap.Builder<String, Object> visitNestedLoopJoin(NestedLoopJoin logicalPlan, Context context) {
-            ImmutableMap.Builder<String, Object> mapBuilder = createMap(logicalPlan, createSubMap()
+            ImmutableMap.Builder<String, Object> mapBuilder = createMap(logicalPlan, putCosts(logicalPlan, createSubMap()
                 .put("left", explainMap(logicalPlan.lhs, context))
                 .put("right", explainMap(logicalPlan.rhs, context))
-                .put("joinType", logicalPlan.joinType()));
+                .put("joinType", logicalPlan.joinType())));
 
             if (logicalPlan.joinCondition() != null) {
                 mapBuilder.put("joinCondition", SymbolPrinter.INSTANCE.printQualified(logicalPlan.joinCondition()));
@@ -184,12 +184,25 @@ public class ExplainLogicalPlan {
 
         @Override
         public ImmutableMap.Builder<String, Object> visitHashJoin(HashJoin logicalPlan, Context context) {
-            return createMap(logicalPlan, createSubMap()
+            return createMap(logicalPlan, putCosts(logicalPlan, createSubMap()
                 .put("left", explainMap(logicalPlan.lhs, context))
                 .put("right", explainMap(logicalPlan.rhs, context))
                 .put("joinType", logicalPlan.joinType())
                 .put("joinCondition",
-                    SymbolPrinter.INSTANCE.printQualified(logicalPlan.joinCondition())));
+                    SymbolPrinter.INSTANCE.printQualified(logicalPlan.joinCondition()))));
+        }
+
+        private static ImmutableMap.Builder<String, Object> putCosts(LogicalPlan join,
+                                                                     ImmutableMap.Builder<String, Object> subMap) {
+            long estimatedRows = join.numExpectedRows();
+            if (estimatedRows >= 0) {
+                subMap.put("estimatedRows", estimatedRows);
+            }
+            long cost = JoinCosts.cost(join);
+            if (cost >= 0) {
+                subMap.put("cost", cost);
+            }
+            return subMap;
         }
 
         @Override
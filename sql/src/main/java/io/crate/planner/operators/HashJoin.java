@@ -60,26 +60,39 @@ import static io.crate.planner.operators.LogicalPlanner.NO_LIMIT;
 
 class HashJoin extends TwoInputPlan {
 
+    private final JoinType joinType;
     private final Symbol joinCondition;
     private final TableStats tableStats;
+    private final long estimatedRows;
     @VisibleForTesting
     final AnalyzedRelation concreteRelation;
 
+    /**
+     * @param estimatedRows the estimated number of rows of the join result, see {@link JoinCosts}; -1 if unknown.
+     */
     HashJoin(LogicalPlan lhs,
              LogicalPlan rhs,
+             JoinType joinType,
              Symbol joinCondition,
              AnalyzedRelation concreteRelation,
-             TableStats tableStats) {
+             TableStats tableStats,
+             long estimatedRows) {
         super(lhs, rhs, new ArrayList<>());
         this.concreteRelation = concreteRelation;
+        this.joinType = joinType;
         this.joinCondition = joinCondition;
-        this.outputs.addAll(lhs.outputs());
-        this.outputs.addAll(rhs.outputs());
+        this.estimatedRows = estimatedRows;
+        if (joinType == JoinType.SEMI) {
+            this.outputs.addAll(lhs.outputs());
+        } else {
+            this.outputs.addAll(lhs.outputs());
+            this.outputs.addAll(rhs.outputs());
+        }
         this.tableStats = tableStats;
     }
 
     JoinType joinType() {
-        return JoinType.INNER;
+        return joinType;
     }
 
     Symbol joinCondition() {
@@ -113,10 +126,17 @@ class HashJoin extends TwoInputPlan {
         LogicalPlan leftLogicalPlan = lhs;
         LogicalPlan rightLogicalPlan = rhs;
 
+        JoinType joinType = this.joinType;
         boolean tablesSwitched = false;
-        // We move smaller table to the right side since benchmarking
+        // The left side is the build side of the hash join, rows of the left side without a match can be emitted
+        // once all rows of the right side are consumed. A RIGHT join is therefore executed as LEFT join with switched
+        // tables. LEFT, SEMI and ANTI joins must keep their sides.
+        //
+        // Otherwise we move smaller table to the right side since benchmarking
         // revealed that this improves performance in most cases.
-        if (lhs.numExpectedRows() < rhs.numExpectedRows()) {
+        if (joinType == JoinType.RIGHT
+            || ((joinType == JoinType.INNER || joinType == JoinType.FULL) && lhs.numExpectedRows() < rhs.numExpectedRows())) {
+            joinType = joinType.invert();
             tablesSwitched = true;
             leftLogicalPlan = rhs;
             rightLogicalPlan = lhs;
@@ -137,6 +157,7 @@ class HashJoin extends TwoInputPlan {
         List<Symbol> rightOutputs = rightLogicalPlan.outputs();
         MergePhase leftMerge = null;
         MergePhase rightMerge = null;
+        int runtimeFilterColumn = -1;
 
         // We can only run the join distributed if no remaining limit or offset must be applied on the source relations.
         // Because on distributed joins, every join is running on a slice (modulo) set of the data and so no limit/offset
@@ -144,6 +165,9 @@ class HashJoin extends TwoInputPlan {
         // shards are merged
         boolean isDistributed = leftResultDesc.hasRemainingLimitOrOffset() == false
                                 && rightResultDesc.hasRemainingLimitOrOffset() == false;
+        boolean isBroadcast = isDistributed
+                              && joinType == JoinType.INNER
+                              && isBroadcastCheaper(leftLogicalPlan, rightLogicalPlan, joinExecutionNodes.size());
 
         if (joinExecutionNodes.size() == 1
             && joinExecutionNodes.equals(rightResultDesc.nodeIds())
@@ -153,11 +177,22 @@ class HashJoin extends TwoInputPlan {
             // are on the same node
             leftExecutionPlan.setDistributionInfo(DistributionInfo.DEFAULT_SAME_NODE);
             rightExecutionPlan.setDistributionInfo(DistributionInfo.DEFAULT_SAME_NODE);
+        } else if (isBroadcast) {
+            // Run the join on all nodes of the left side and send all rows of the smaller right side to each of them.
+            // Every row of the left side is joined exactly once, so this is only correct for inner joins.
+            leftExecutionPlan.setDistributionInfo(DistributionInfo.DEFAULT_SAME_NODE);
+            rightExecutionPlan.setDistributionInfo(DistributionInfo.DEFAULT_BROADCAST);
+            rightMerge = JoinOperations.buildMergePhaseForJoin(plannerContext, rightResultDesc, joinExecutionNodes);
         } else {
             if (isDistributed) {
                 // Run the join distributed by modulo distribution algorithm
                 leftOutputs = setModuloDistribution(hashSymbols.v1(), leftLogicalPlan.outputs(), leftExecutionPlan);
                 rightOutputs = setModuloDistribution(hashSymbols.v2(), rightLogicalPlan.outputs(), rightExecutionPlan);
+                if (joinType != JoinType.FULL) {
+                    // Rows of the right side without a match are only emitted by FULL joins, all other join types
+                    // can let the upstreams of the right side skip rows whose distribution value isn't on the left side
+                    runtimeFilterColumn = leftOutputs.indexOf(hashSymbols.v1().get(0));
+                }
             } else {
                 // Run the join non-distributed on the handler node
                 joinExecutionNodes = Collections.singletonList(plannerContext.handlerNode());
@@ -180,12 +215,15 @@ class HashJoin extends TwoInputPlan {
             leftOutputs.size(),
             rightOutputs.size(),
             joinExecutionNodes,
+            joinType,
             InputColumns.create(joinCondition, joinOutputs),
             InputColumns.create(hashSymbols.v1(), new InputColumns.SourceSymbols(leftOutputs)),
             InputColumns.create(hashSymbols.v2(), new InputColumns.SourceSymbols(rightOutputs)),
             Symbols.typeView(leftOutputs),
+            Symbols.typeView(rightOutputs),
             leftLogicalPlan.estimatedRowSize(),
-            leftLogicalPlan.numExpectedRows());
+            leftLogicalPlan.numExpectedRows(),
+            runtimeFilterColumn);
         return new Join(
             joinPhase,
             leftExecutionPlan,
@@ -194,10 +232,26 @@ class HashJoin extends TwoInputPlan {
             0,
             TopN.NO_LIMIT,
             outputs.size(),
-            null
+            null,
+            numExpectedRows(),
+            JoinCosts.cost(this)
         );
     }
 
+    /**
+     * Broadcasting the right side sends all of its rows to each of the nodes, whereas the modulo distribution
+     * sends the rows of both sides once, but most of them to another node.
+     */
+    @VisibleForTesting
+    static boolean isBroadcastCheaper(LogicalPlan left, LogicalPlan right, int numNodes) {
+        long leftRows = left.numExpectedRows();
+        long rightRows = right.numExpectedRows();
+        if (numNodes <= 1 || leftRows < 0 || rightRows < 0) {
+            return false;
+        }
+        return (double) rightRows * numNodes < (double) leftRows + rightRows;
+    }
+
     private Tuple<List<Symbol>, List<Symbol>> extractHashJoinSymbolsFromJoinSymbolsAndSplitPerSide(boolean switchedTables) {
         Map<AnalyzedRelation, List<Symbol>> hashJoinSymbols = HashJoinConditionSymbolsExtractor.extract(joinCondition);
 
@@ -217,11 +271,15 @@ class HashJoin extends TwoInputPlan {
 
     @Override
     protected LogicalPlan updateSources(LogicalPlan newLeftSource, LogicalPlan newRightSource) {
-        return new HashJoin(newLeftSource, newRightSource, joinCondition, concreteRelation, tableStats);
+        return new HashJoin(
+            newLeftSource, newRightSource, joinType, joinCondition, concreteRelation, tableStats, estimatedRows);
     }
 
     @Override
     public long numExpectedRows() {
+        if (estimatedRows >= 0) {
+            return estimatedRows;
+        }
         // We don't have any cardinality estimates, so just take the bigger table
         return Math.max(lhs.numExpectedRows(), rhs.numExpectedRows());
     }
@@ -0,0 +1,226 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.planner.operators;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.crate.analyze.QueriedTable;
+import io.crate.analyze.relations.AnalyzedRelation;
+import io.crate.expression.operator.AndOperator;
+import io.crate.expression.operator.EqOperator;
+import io.crate.expression.symbol.Field;
+import io.crate.expression.symbol.Function;
+import io.crate.expression.symbol.Literal;
+import io.crate.expression.symbol.Symbol;
+import io.crate.metadata.Reference;
+import io.crate.planner.ColumnStats;
+import io.crate.planner.TableStats;
+import io.crate.sql.tree.QualifiedName;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Estimates the number of rows of joins, used to find a cheap join order and to decide how a join is executed.
+ * <p>
+ * The number of rows of a join of the relations R1..Rn is estimated as
+ * <pre>
+ *     |R1| * ... * |Rn| * sel(c1) * ... * sel(cm)
+ * </pre>
+ * where c1..cm are the conditions between the relations. The selectivity of an equi-join condition {@code a = b}
+ * is {@code 1 / max(ndv(a), ndv(b))}, where ndv is the number of distinct values of a column taken from the
+ * {@link ColumnStats} collected by ANALYZE. If a column has no statistics it is assumed that it has as many distinct
+ * values as the smaller of the two joined relations has rows; this models a join between a foreign key and a
+ * primary key.
+ */
+final class JoinCosts {
+
+    static final double UNKNOWN = -1.0;
+
+    /**
+     * Default selectivities for conditions without statistics, the same as used by PostgreSQL.
+     */
+    @VisibleForTesting
+    static final double DEFAULT_EQ_SELECTIVITY = 0.005;
+    @VisibleForTesting
+    static final double DEFAULT_SELECTIVITY = 1.0 / 3.0;
+
+    private final Map<QualifiedName, ? extends AnalyzedRelation> sources;
+    private final Map<Set<QualifiedName>, Symbol> conditions;
+    private final TableStats tableStats;
+    private final Map<QualifiedName, Double> rowsByRelation = new HashMap<>();
+
+    /**
+     * @param conditions the join conditions and the parts of the WHERE clause which weren't pushed down into the
+     *                   relations, by the relations they refer to
+     */
+    JoinCosts(Map<QualifiedName, ? extends AnalyzedRelation> sources,
+              Map<Set<QualifiedName>, Symbol> conditions,
+              TableStats tableStats) {
+        this.sources = sources;
+        this.conditions = conditions;
+        this.tableStats = tableStats;
+    }
+
+    /**
+     * Returns the estimated number of rows of the join of the given relations, or {@link #UNKNOWN}
+     * if the number of rows of one of the relations is not known.
+     */
+    double rows(Collection<QualifiedName> relations) {
+        double rows = 1.0;
+        for (QualifiedName relation : relations) {
+            double relationRows = rows(relation);
+            if (relationRows < 0) {
+                return UNKNOWN;
+            }
+            rows *= relationRows;
+        }
+        for (Map.Entry<Set<QualifiedName>, Symbol> entry : conditions.entrySet()) {
+            if (relations.containsAll(entry.getKey())) {
+                rows *= selectivity(entry.getValue());
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Like {@link #rows(Collection)} but rounded to a number of rows, or -1 if unknown.
+     */
+    long numExpectedRows(Collection<QualifiedName> relations) {
+        double rows = rows(relations);
+        return rows < 0 ? -1L : (long) Math.ceil(rows);
+    }
+
+    /**
+     * Returns the sum of the estimated number of rows of all join results of the join tree of the given plan,
+     * or -1 if the number of rows of a join is unknown.
+     */
+    static long cost(LogicalPlan plan) {
+        if (plan instanceof HashJoin || plan instanceof NestedLoopJoin) {
+            TwoInputPlan join = (TwoInputPlan) plan;
+            long rows = join.numExpectedRows();
+            long lhsCost = cost(join.lhs);
+            long rhsCost = cost(join.rhs);
+            if (rows < 0 || lhsCost < 0 || rhsCost < 0) {
+                return -1L;
+            }
+            return rows + lhsCost + rhsCost;
+        }
+        if (plan instanceof OneInputPlan) {
+            return cost(((OneInputPlan) plan).source);
+        }
+        return 0L;
+    }
+
+    /**
+     * Returns the estimated number of rows of a single relation after its filter is applied,
+     * or {@link #UNKNOWN} if there are no statistics for the relation.
+     */
+    double rows(QualifiedName relationName) {
+        return rowsByRelation.computeIfAbsent(relationName, this::estimateRows);
+    }
+
+    private double estimateRows(QualifiedName relationName) {
+        AnalyzedRelation relation = sources.get(relationName);
+        if (!(relation instanceof QueriedTable)) {
+            return UNKNOWN;
+        }
+        QueriedTable<?> queriedTable = (QueriedTable<?>) relation;
+        long numDocs = tableStats.numDocs(queriedTable.tableRelation().tableInfo().ident());
+        if (numDocs < 0) {
+            return UNKNOWN;
+        }
+        if (queriedTable.where().hasQuery()) {
+            return numDocs * selectivity(queriedTable.where().query());
+        }
+        return numDocs;
+    }
+
+    private double selectivity(Symbol condition) {
+        if (condition instanceof Literal) {
+            Object value = ((Literal) condition).value();
+            return value == null || Boolean.FALSE.equals(value) ? 0.0 : 1.0;
+        }
+        if (!(condition instanceof Function)) {
+            return DEFAULT_SELECTIVITY;
+        }
+        Function function = (Function) condition;
+        String name = function.info().ident().name();
+        List<Symbol> args = function.arguments();
+        if (name.equals(AndOperator.NAME)) {
+            return selectivity(args.get(0)) * selectivity(args.get(1));
+        }
+        if (name.equals(EqOperator.NAME)) {
+            return eqSelectivity(args.get(0), args.get(1));
+        }
+        return DEFAULT_SELECTIVITY;
+    }
+
+    @SuppressWarnings("unchecked")
+    private double eqSelectivity(Symbol left, Symbol right) {
+        if (right instanceof Literal) {
+            ColumnStats stats = columnStats(left);
+            if (stats == null) {
+                return DEFAULT_EQ_SELECTIVITY;
+            }
+            return stats.selectivityOfEq(stats.type().value(((Literal) right).value()));
+        }
+        if (left instanceof Field && right instanceof Field) {
+            double leftRows = rows(((Field) left).relation().getQualifiedName());
+            double rightRows = rows(((Field) right).relation().getQualifiedName());
+            if (leftRows < 0 || rightRows < 0) {
+                return DEFAULT_EQ_SELECTIVITY;
+            }
+            double defaultDistinct = Math.min(leftRows, rightRows);
+            double distinct = Math.max(
+                approxDistinct(left, defaultDistinct),
+                approxDistinct(right, defaultDistinct));
+            return distinct < 1.0 ? 1.0 : 1.0 / distinct;
+        }
+        return DEFAULT_EQ_SELECTIVITY;
+    }
+
+    private double approxDistinct(Symbol column, double defaultDistinct) {
+        ColumnStats stats = columnStats(column);
+        return stats == null ? defaultDistinct : stats.approxDistinct();
+    }
+
+    @Nullable
+    private ColumnStats columnStats(Symbol column) {
+        if (column instanceof Field) {
+            Field field = (Field) column;
+            AnalyzedRelation relation = sources.get(field.relation().getQualifiedName());
+            if (relation instanceof QueriedTable) {
+                column = ((QueriedTable<?>) relation).outputs().get(field.index());
+            }
+        }
+        if (column instanceof Reference) {
+            Reference ref = (Reference) column;
+            return tableStats.columnStats(ref.ident().tableIdent(), ref.column());
+        }
+        return null;
+    }
+}
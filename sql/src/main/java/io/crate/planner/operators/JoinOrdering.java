@@ -28,10 +28,12 @@ import io.crate.sql.tree.QualifiedName;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.ToDoubleFunction;
 
 /**
  * Utility class which is used by the {@link JoinPlanBuilder} for the building of
@@ -39,6 +41,12 @@ import java.util.Set;
  */
 final class JoinOrdering {
 
+    /**
+     * Joins of up to this number of relations are ordered using dynamic programming, larger joins are ordered greedily.
+     */
+    @VisibleForTesting
+    static final int MAX_RELATIONS_FOR_EXHAUSTIVE_SEARCH = 10;
+
     private JoinOrdering() {
     }
 
@@ -128,4 +136,110 @@ final class JoinOrdering {
         // Add the rest of the relations to the end of the collection
         sets.forEach(bestOrder::addAll);
     }
+
+    /**
+     * Returns the order of the relations which results in the cheapest tree of two-relation join nodes
+     * (assuming the relations are consumed from left to right).
+     * The cost of a join tree is the sum of the number of rows of all its intermediate join results.
+     *
+     * @param relations    all relations, e.g. [t1, t2, t3]
+     * @param estimateRows estimates the number of rows of the join of the given relations
+     */
+    static List<QualifiedName> orderByCost(List<QualifiedName> relations,
+                                           ToDoubleFunction<Collection<QualifiedName>> estimateRows) {
+        if (relations.size() <= MAX_RELATIONS_FOR_EXHAUSTIVE_SEARCH) {
+            return orderByCostExhaustive(relations, estimateRows);
+        }
+        return orderByCostGreedy(relations, estimateRows);
+    }
+
+    /**
+     * Finds the cheapest order by dynamic programming over all subsets of the relations:
+     * The cheapest tree for a subset S is the cheapest tree for S without R joined with R, for any R in S.
+     */
+    private static List<QualifiedName> orderByCostExhaustive(List<QualifiedName> relations,
+                                                             ToDoubleFunction<Collection<QualifiedName>> estimateRows) {
+        int numRelations = relations.size();
+        int numSubsets = 1 << numRelations;
+        double[] costs = new double[numSubsets];
+        int[] lastRelation = new int[numSubsets];
+        for (int subset = 1; subset < numSubsets; subset++) {
+            if (Integer.bitCount(subset) == 1) {
+                lastRelation[subset] = Integer.numberOfTrailingZeros(subset);
+                continue;
+            }
+            double rows = estimateRows.applyAsDouble(subsetOf(relations, subset));
+            costs[subset] = Double.POSITIVE_INFINITY;
+            // iterate backwards so that the original order is kept if the costs are equal
+            for (int i = numRelations - 1; i >= 0; i--) {
+                int relation = 1 << i;
+                if ((subset & relation) != 0) {
+                    double cost = costs[subset ^ relation] + rows;
+                    if (cost < costs[subset]) {
+                        costs[subset] = cost;
+                        lastRelation[subset] = i;
+                    }
+                }
+            }
+        }
+        List<QualifiedName> order = new ArrayList<>(numRelations);
+        for (int subset = numSubsets - 1; subset != 0; subset ^= 1 << lastRelation[subset]) {
+            order.add(relations.get(lastRelation[subset]));
+        }
+        Collections.reverse(order);
+        return order;
+    }
+
+    private static List<QualifiedName> subsetOf(List<QualifiedName> relations, int subset) {
+        List<QualifiedName> result = new ArrayList<>(Integer.bitCount(subset));
+        for (int i = 0; i < relations.size(); i++) {
+            if ((subset & (1 << i)) != 0) {
+                result.add(relations.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Starts with the pair of relations with the smallest join result and adds the relation
+     * which results in the smallest join result until all relations are joined.
+     */
+    @VisibleForTesting
+    static List<QualifiedName> orderByCostGreedy(List<QualifiedName> relations,
+                                              ToDoubleFunction<Collection<QualifiedName>> estimateRows) {
+        List<QualifiedName> order = new ArrayList<>(relations.size());
+        List<QualifiedName> remaining = new ArrayList<>(relations);
+        double minRows = Double.POSITIVE_INFINITY;
+        int firstIdx = 0;
+        int secondIdx = 1;
+        for (int i = 0; i < remaining.size(); i++) {
+            for (int j = i + 1; j < remaining.size(); j++) {
+                double rows = estimateRows.applyAsDouble(List.of(remaining.get(i), remaining.get(j)));
+                if (rows < minRows) {
+                    minRows = rows;
+                    firstIdx = i;
+                    secondIdx = j;
+                }
+            }
+        }
+        order.add(remaining.get(firstIdx));
+        order.add(remaining.get(secondIdx));
+        remaining.remove(secondIdx);
+        remaining.remove(firstIdx);
+        while (!remaining.isEmpty()) {
+            minRows = Double.POSITIVE_INFINITY;
+            int nextIdx = 0;
+            for (int i = 0; i < remaining.size(); i++) {
+                order.add(remaining.get(i));
+                double rows = estimateRows.applyAsDouble(order);
+                order.remove(order.size() - 1);
+                if (rows < minRows) {
+                    minRows = rows;
+                    nextIdx = i;
+                }
+            }
+            order.add(remaining.remove(nextIdx));
+        }
+        return order;
+    }
 }
@@ -42,8 +42,10 @@ import io.crate.sql.tree.QualifiedName;
 import org.elasticsearch.common.util.set.Sets;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -61,6 +63,9 @@ import java.util.stream.Stream;
  * We currently support the {@link NestedLoopJoin} and {@link HashJoin} operators (the hash join operator is
  * enabled by the {@link io.crate.metadata.settings.session.SessionSettingRegistry#HASH_JOIN_KEY} setting and its
  * application is mandated by {@link EquiJoinDetector}).
+ * <p>
+ * If only inner joins are involved and the number of rows of all relations is known, the relations are joined in
+ * the order with the lowest estimated cost, see {@link JoinOrdering#orderByCost} and {@link JoinCosts}.
  */
 public class JoinPlanBuilder implements LogicalPlan.Builder {
 
@@ -99,13 +104,28 @@ public class JoinPlanBuilder implements LogicalPlan.Builder {
 
         final boolean noOuterJoin = joinPairs.values().stream().noneMatch(p -> p.joinType().isOuter());
 
+        Map<Set<QualifiedName>, Symbol> conditions = new HashMap<>(queryParts);
+        for (Map.Entry<Set<QualifiedName>, JoinPair> entry : joinPairs.entrySet()) {
+            conditions.merge(entry.getKey(), entry.getValue().condition(), AndOperator::of);
+        }
+        JoinCosts joinCosts = new JoinCosts(mss.sources(), conditions, tableStats);
+
         Collection<QualifiedName> orderedRelationNames;
         if (mss.sources().size() > 2) {
-            orderedRelationNames = JoinOrdering.getOrderedRelationNames(
-                mss.sources().keySet(),
-                joinPairs.keySet(),
-                queryParts.keySet()
-            );
+            boolean onlyInnerJoins = joinPairs.values().stream().allMatch(p -> p.joinType() == JoinType.INNER);
+            boolean rowsKnown = mss.sources().keySet().stream().allMatch(name -> joinCosts.rows(name) >= 0);
+            if (onlyInnerJoins && rowsKnown) {
+                orderedRelationNames = JoinOrdering.orderByCost(
+                    new ArrayList<>(mss.sources().keySet()),
+                    joinCosts::rows
+                );
+            } else {
+                orderedRelationNames = JoinOrdering.getOrderedRelationNames(
+                    mss.sources().keySet(),
+                    joinPairs.keySet(),
+                    queryParts.keySet()
+                );
+            }
         } else {
             orderedRelationNames = mss.sources().keySet();
         }
@@ -161,7 +181,8 @@ public class JoinPlanBuilder implements LogicalPlan.Builder {
             query,
             noOuterJoin,
             txnCtx.sessionContext(),
-            tableStats);
+            tableStats,
+            joinCosts.numExpectedRows(joinNames));
 
         joinPlan = Filter.create(joinPlan, query);
         while (it.hasNext()) {
@@ -178,7 +199,8 @@ public class JoinPlanBuilder implements LogicalPlan.Builder {
                 noOuterJoin,
                 lhs,
                 functions,
-                txnCtx);
+                txnCtx,
+                joinCosts);
             joinNames.add(nextRel.getQualifiedName());
         }
         assert queryParts.isEmpty() : "Must've applied all queryParts";
@@ -196,14 +218,17 @@ public class JoinPlanBuilder implements LogicalPlan.Builder {
                                               Symbol query,
                                               boolean orderByCanBePushedDown,
                                               SessionContext sessionContext,
-                                              TableStats tableStats) {
+                                              TableStats tableStats,
+                                              long estimatedRows) {
         if (isHashJoinPossible(joinType, joinCondition, sessionContext)) {
             return new HashJoin(
                 lhsPlan,
                 rhsPlan,
+                joinType,
                 joinCondition,
                 rhs,
-                tableStats);
+                tableStats,
+                estimatedRows);
         } else {
             return new NestedLoopJoin(
                 lhsPlan,
@@ -212,7 +237,8 @@ public class JoinPlanBuilder implements LogicalPlan.Builder {
                 joinCondition,
                 !query.symbolType().isValueSymbol(),
                 orderByCanBePushedDown,
-                lhs);
+                lhs,
+                estimatedRows);
         }
     }
 
@@ -242,7 +268,8 @@ public class JoinPlanBuilder implements LogicalPlan.Builder {
                                             boolean orderByCanBePushedDown,
                                             QueriedRelation leftRelation,
                                             Functions functions,
-                                            CoordinatorTxnCtx txnCtx) {
+                                            CoordinatorTxnCtx txnCtx,
+                                            JoinCosts joinCosts) {
         QualifiedName nextName = nextRel.getQualifiedName();
 
         Set<Symbol> usedFromNext = new LinkedHashSet<>();
@@ -275,6 +302,8 @@ public class JoinPlanBuilder implements LogicalPlan.Builder {
                 queryParts.remove(Collections.singleton(nextName)))
                 .filter(Objects::nonNull).iterator()
         );
+        Set<QualifiedName> joinedNames = new HashSet<>(joinNames);
+        joinedNames.add(nextName);
         return Filter.create(
             createJoinPlan(
                 source,
@@ -286,7 +315,8 @@ public class JoinPlanBuilder implements LogicalPlan.Builder {
                 query,
                 orderByCanBePushedDown,
                 txnCtx.sessionContext(),
-                tableStats),
+                tableStats,
+                joinCosts.numExpectedRows(joinedNames)),
             query
         );
     }
@@ -71,17 +71,23 @@ class NestedLoopJoin extends TwoInputPlan {
     private final JoinType joinType;
     private final boolean noOuterJoin;
     private final boolean isFiltered;
+    private final long estimatedRows;
     private boolean orderByWasPushedDown = false;
 
+    /**
+     * @param estimatedRows the estimated number of rows of the join result, see {@link JoinCosts}; -1 if unknown.
+     */
     NestedLoopJoin(LogicalPlan lhs,
                    LogicalPlan rhs,
                    JoinType joinType,
                    @Nullable Symbol joinCondition,
                    boolean isFiltered,
                    boolean noOuterJoin,
-                   AnalyzedRelation topMostLeftRelation) {
+                   AnalyzedRelation topMostLeftRelation,
+                   long estimatedRows) {
         super(lhs, rhs, new ArrayList<>());
         this.joinType = joinType;
+        this.estimatedRows = estimatedRows;
         this.isFiltered = isFiltered || joinCondition != null;
         if (joinType == JoinType.SEMI) {
             this.outputs.addAll(lhs.outputs());
@@ -101,8 +107,9 @@ class NestedLoopJoin extends TwoInputPlan {
                    boolean isFiltered,
                    boolean noOuterJoin,
                    AnalyzedRelation topMostLeftRelation,
+                   long estimatedRows,
                    boolean orderByWasPushedDown) {
-        this(lhs, rhs, joinType, joinCondition, isFiltered, noOuterJoin, topMostLeftRelation);
+        this(lhs, rhs, joinType, joinCondition, isFiltered, noOuterJoin, topMostLeftRelation, estimatedRows);
         this.orderByWasPushedDown = orderByWasPushedDown;
     }
 
@@ -208,7 +215,9 @@ class NestedLoopJoin extends TwoInputPlan {
             0,
             TopN.NO_LIMIT,
             outputs.size(),
-            orderByFromLeft
+            orderByFromLeft,
+            numExpectedRows(),
+            JoinCosts.cost(this)
         );
     }
 
@@ -261,11 +270,15 @@ class NestedLoopJoin extends TwoInputPlan {
             isFiltered,
             noOuterJoin,
             topMostLeftRelation,
+            estimatedRows,
             orderByWasPushedDown);
     }
 
     @Override
     public long numExpectedRows() {
+        if (estimatedRows >= 0) {
+            return estimatedRows;
+        }
         if (joinType == JoinType.CROSS) {
             return lhs.numExpectedRows() * rhs.numExpectedRows();
         } else {
@@ -24,10 +24,12 @@ package io.crate.planner.operators;
 
 import io.crate.analyze.OrderBy;
 import io.crate.analyze.WindowDefinition;
+import io.crate.analyze.WindowFrameDefinition;
 import io.crate.collections.Lists2;
 import io.crate.data.Row;
 import io.crate.exceptions.UnsupportedFeatureException;
 import io.crate.execution.dsl.phases.MergePhase;
+import io.crate.execution.dsl.projection.EvalProjection;
 import io.crate.execution.dsl.projection.Projection;
 import io.crate.execution.dsl.projection.WindowAggProjection;
 import io.crate.execution.dsl.projection.builder.InputColumns;
@@ -39,9 +41,15 @@ import io.crate.planner.ExecutionPlan;
 import io.crate.planner.ExplainLeaf;
 import io.crate.planner.Merge;
 import io.crate.planner.PlannerContext;
+import io.crate.planner.PositionalOrderBy;
 import io.crate.planner.ResultDescription;
+import io.crate.planner.consumer.OrderByPositionVisitor;
 import io.crate.planner.distribution.DistributionInfo;
 import io.crate.planner.distribution.DistributionType;
+import io.crate.sql.tree.FrameBound;
+import io.crate.sql.tree.WindowFrame;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
@@ -67,10 +75,7 @@ public class WindowAgg extends OneInputPlan {
         }
 
         for (WindowFunction windowFunction : windowFunctions) {
-            WindowDefinition windowDefinition = windowFunction.windowDefinition();
-            if (!windowDefinition.windowFrameDefinition().equals(WindowDefinition.DEFAULT_WINDOW_FRAME)) {
-                throw new UnsupportedFeatureException("Custom frame definitions are not supported");
-            }
+            ensureFrameIsSupported(windowFunction.windowDefinition());
         }
 
         return (tableStats, usedBeforeNextFetch) -> {
@@ -102,6 +107,44 @@ public class WindowAgg extends OneInputPlan {
         };
     }
 
+    private static void ensureFrameIsSupported(WindowDefinition windowDefinition) {
+        WindowFrameDefinition frame = windowDefinition.windowFrameDefinition();
+        FrameBound.Type start = frame.start().type();
+        FrameBound.Type end = frame.end() == null ? FrameBound.Type.CURRENT_ROW : frame.end().type();
+        if (start == FrameBound.Type.UNBOUNDED_FOLLOWING) {
+            throw new IllegalArgumentException("Frame start cannot be UNBOUNDED FOLLOWING");
+        }
+        if (end == FrameBound.Type.UNBOUNDED_PRECEDING) {
+            throw new IllegalArgumentException("Frame end cannot be UNBOUNDED PRECEDING");
+        }
+        if (start == FrameBound.Type.CURRENT_ROW && end == FrameBound.Type.PRECEDING) {
+            throw new IllegalArgumentException("Frame starting from current row cannot have preceding rows");
+        }
+        if (start == FrameBound.Type.FOLLOWING
+            && (end == FrameBound.Type.PRECEDING || end == FrameBound.Type.CURRENT_ROW)) {
+            throw new IllegalArgumentException("Frame starting from following row cannot have preceding rows");
+        }
+        if (frame.type() == WindowFrame.Type.RANGE && (hasOffset(start) || hasOffset(end))) {
+            OrderBy orderBy = windowDefinition.orderBy();
+            if (orderBy == null || orderBy.orderBySymbols().size() != 1) {
+                throw new UnsupportedFeatureException(
+                    "RANGE frames with PRECEDING or FOLLOWING offsets require exactly one ORDER BY column");
+            }
+            DataType<?> orderByType = orderBy.orderBySymbols().get(0).valueType();
+            if (!DataTypes.NUMERIC_PRIMITIVE_TYPES.contains(orderByType)
+                && orderByType.id() != DataTypes.TIMESTAMPZ.id()
+                && orderByType.id() != DataTypes.TIMESTAMP.id()) {
+                throw new UnsupportedFeatureException(
+                    "RANGE frames with PRECEDING or FOLLOWING offsets are not supported for ORDER BY columns of type "
+                    + orderByType.getName());
+            }
+        }
+    }
+
+    private static boolean hasOffset(FrameBound.Type boundType) {
+        return boundType == FrameBound.Type.PRECEDING || boundType == FrameBound.Type.FOLLOWING;
+    }
+
     private WindowAgg(LogicalPlan source, WindowDefinition windowDefinition, List<WindowFunction> windowFunctions, List<Symbol> standalone) {
         super(source, Lists2.concat(standalone, windowFunctions));
         this.windowDefinition = windowDefinition;
@@ -133,19 +176,16 @@ public class WindowAgg extends OneInputPlan {
             List<Symbol> inputs = InputColumns.create(windowFunction.arguments(), sourceSymbols);
             functionsWithInputs.put(windowFunction, inputs);
         }
-        List<Projection> projections = new ArrayList<>();
-        WindowAggProjection windowAggProjection = new WindowAggProjection(
-            windowDefinition.map(s -> InputColumns.create(s, sourceSymbols)),
-            functionsWithInputs,
-            InputColumns.create(this.standalone, sourceSymbols)
-        );
-        projections.add(windowAggProjection);
+        SubQueryAndParamBinder binder = new SubQueryAndParamBinder(params, subQueryResults);
+        // If the source can provide the rows sorted by the partition and order by symbols, the window functions
+        // can be computed one partition at a time instead of having to buffer and sort all rows.
+        OrderBy requiredOrder = createOrderByInclPartitionBy(windowDefinition);
         ExecutionPlan sourcePlan = source.build(
             plannerContext,
             projectionBuilder,
             TopN.NO_LIMIT,
             TopN.NO_OFFSET,
-            null,
+            source instanceof Collect ? requiredOrder : null,
             pageSizeHint,
             params,
             subQueryResults
@@ -155,16 +195,29 @@ public class WindowAgg extends OneInputPlan {
         boolean nonDistExecution = windowDefinition.partitions().isEmpty()
                                    || resultDescription.hasRemainingLimitOrOffset()
                                    || executesOnHandler;
+        int[] distributeByColumns = null;
+        if (!nonDistExecution) {
+            distributeByColumns = addPartitionValuesForDistribution(sourcePlan, sourceSymbols, binder);
+            resultDescription = sourcePlan.resultDescription();
+        }
+        boolean sourceIsSorted = isSortedBy(resultDescription.orderBy(), requiredOrder, source.outputs());
+        List<Projection> projections = new ArrayList<>();
+        WindowAggProjection windowAggProjection = new WindowAggProjection(
+            windowDefinition.map(binder.andThen(s -> InputColumns.create(s, sourceSymbols))),
+            functionsWithInputs,
+            InputColumns.create(this.standalone, sourceSymbols),
+            sourceIsSorted
+        );
+        projections.add(windowAggProjection);
         if (nonDistExecution) {
             sourcePlan = Merge.ensureOnHandler(sourcePlan, plannerContext);
             for (Projection projection : projections) {
                 sourcePlan.addProjection(projection);
             }
         } else {
-            sourcePlan.setDistributionInfo(new DistributionInfo(
-                DistributionType.MODULO,
-                source.outputs().indexOf(windowDefinition.partitions().iterator().next()))
-            );
+            // All rows of a partition are sent to the same node, so the window functions can be computed
+            // on all nodes in parallel and only the results have to be merged on the handler.
+            sourcePlan.setDistributionInfo(new DistributionInfo(DistributionType.MODULO, distributeByColumns));
             MergePhase distWindowAgg = new MergePhase(
                 UUID.randomUUID(),
                 plannerContext.nextExecutionPhaseId(),
@@ -175,7 +228,8 @@ public class WindowAgg extends OneInputPlan {
                 resultDescription.streamOutputs(),
                 projections,
                 DistributionInfo.DEFAULT_BROADCAST,
-                null
+                // merging the sorted upstreams keeps the rows of each node sorted
+                sourceIsSorted ? resultDescription.orderBy() : null
             );
             return new Merge(
                 sourcePlan,
@@ -190,6 +244,50 @@ public class WindowAgg extends OneInputPlan {
         return sourcePlan;
     }
 
+    /**
+     * Returns the positions of the PARTITION BY values within the rows of the source plan, which are used to
+     * distribute the rows. Partition expressions which aren't outputs of the source (e.g. {@code x % 10}) are added
+     * to the rows with an {@link EvalProjection}, as they must be evaluated before the rows are distributed.
+     */
+    private int[] addPartitionValuesForDistribution(ExecutionPlan sourcePlan,
+                                                    InputColumns.SourceSymbols sourceSymbols,
+                                                    SubQueryAndParamBinder binder) {
+        List<Symbol> sourceOutputs = source.outputs();
+        List<Symbol> partitions = windowDefinition.partitions();
+        int[] distributeByColumns = new int[partitions.size()];
+        List<Symbol> missingPartitionValues = new ArrayList<>();
+        for (int i = 0; i < partitions.size(); i++) {
+            Symbol partition = partitions.get(i);
+            int idx = sourceOutputs.indexOf(partition);
+            if (idx < 0) {
+                idx = sourceOutputs.size() + missingPartitionValues.size();
+                missingPartitionValues.add(partition);
+            }
+            distributeByColumns[i] = idx;
+        }
+        if (!missingPartitionValues.isEmpty()) {
+            List<Symbol> evalOutputs = Lists2.concat(sourceOutputs, missingPartitionValues);
+            sourcePlan.addProjection(new EvalProjection(
+                InputColumns.create(Lists2.map(evalOutputs, binder), sourceSymbols)));
+        }
+        return distributeByColumns;
+    }
+
+    /**
+     * @return true if the source, described by {@code sourceOrder}, provides the rows sorted by {@code requiredOrder}
+     */
+    static boolean isSortedBy(@Nullable PositionalOrderBy sourceOrder,
+                              @Nullable OrderBy requiredOrder,
+                              List<Symbol> sourceOutputs) {
+        if (sourceOrder == null || requiredOrder == null) {
+            return false;
+        }
+        int[] positions = OrderByPositionVisitor.orderByPositionsOrNull(requiredOrder.orderBySymbols(), sourceOutputs);
+        return positions != null
+               && sourceOrder.equals(
+                   new PositionalOrderBy(positions, requiredOrder.reverseFlags(), requiredOrder.nullsFirst()));
+    }
+
     @Nullable
     static OrderBy createOrderByInclPartitionBy(WindowDefinition windowDefinition) {
         var orderBy = windowDefinition.orderBy();
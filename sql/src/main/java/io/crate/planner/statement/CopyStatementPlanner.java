@@ -379,7 +379,8 @@ public final class CopyStatementPlanner {
             statement.compressionType(),
             statement.overwrites(),
             statement.outputNames(),
-            outputFormat);
+            outputFormat,
+            statement.numWriters());
 
         LogicalPlan logicalPlan = logicalPlanner.normalizeAndPlan(
             statement.subQueryRelation(), context, subqueryPlanner, FetchMode.NEVER_CLEAR);
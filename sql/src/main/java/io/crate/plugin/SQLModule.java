@@ -22,6 +22,7 @@
 package io.crate.plugin;
 
 import io.crate.action.sql.SQLOperations;
+import io.crate.action.sql.StatementCache;
 import io.crate.execution.ddl.DDLStatementDispatcher;
 import io.crate.expression.udf.UserDefinedFunctionService;
 import io.crate.metadata.DanglingArtifactsService;
@@ -43,6 +44,7 @@ public class SQLModule extends AbstractModule {
         bind(FulltextAnalyzerResolver.class).asEagerSingleton();
         bind(PostgresNetty.class).asEagerSingleton();
         bind(SQLOperations.class).asEagerSingleton();
+        bind(StatementCache.class).asEagerSingleton();
         bind(Planner.class).asEagerSingleton();
         bind(TableStats.class).asEagerSingleton();
         bind(TableStatsService.class).asEagerSingleton();
@@ -23,15 +23,19 @@ package io.crate.plugin;
 
 import com.google.common.collect.ImmutableList;
 import io.crate.action.sql.SQLOperations;
+import io.crate.action.sql.StatementCache;
 import io.crate.analyze.repositories.RepositorySettingsModule;
 import io.crate.auth.AuthSettings;
 import io.crate.breaker.CircuitBreakerModule;
+import io.crate.breaker.CrateCircuitBreakerService;
 import io.crate.cluster.gracefulstop.DecommissionAllocationDecider;
 import io.crate.cluster.gracefulstop.DecommissioningService;
 import io.crate.execution.TransportExecutorModule;
 import io.crate.execution.engine.aggregation.impl.AggregationImplModule;
 import io.crate.execution.engine.collect.CollectOperationModule;
+import io.crate.execution.engine.collect.QueryResultCache;
 import io.crate.execution.engine.collect.files.FileCollectModule;
+import io.crate.execution.engine.spill.SpillSettings;
 import io.crate.execution.engine.window.WindowFunctionModule;
 import io.crate.execution.jobs.JobModule;
 import io.crate.execution.jobs.TasksService;
@@ -116,6 +120,8 @@ public class SQLPlugin extends Plugin implements ActionPlugin, MapperPlugin, Clu
         List<Setting<?>> settings = new ArrayList<>();
         settings.add(AnalyzerSettings.CUSTOM_ANALYSIS_SETTING_GROUP);
         settings.add(SQLOperations.NODE_READ_ONLY_SETTING);
+        settings.add(StatementCache.STATEMENT_CACHE_SIZE_SETTING);
+        settings.add(StatementCache.STATEMENT_CACHE_MAX_STATEMENT_LENGTH_SETTING);
 
         // Postgres settings are node settings
         settings.add(PostgresNetty.PSQL_ENABLED_SETTING.setting());
@@ -135,6 +141,13 @@ public class SQLPlugin extends Plugin implements ActionPlugin, MapperPlugin, Clu
         settings.add(SslConfigSettings.SSL_KEYSTORE_PASSWORD.setting());
         settings.add(SslConfigSettings.SSL_KEYSTORE_KEY_PASSWORD.setting());
 
+        // Spilling to disk is configured per node
+        settings.add(SpillSettings.SPILL_THRESHOLD_SETTING.setting());
+
+        // The query result cache is configured per node
+        settings.add(QueryResultCache.QUERY_RESULT_CACHE_ENABLED_SETTING.setting());
+        settings.add(CrateCircuitBreakerService.QUERY_RESULT_CACHE_CIRCUIT_BREAKER_LIMIT_SETTING.setting());
+
         // also add CrateSettings
         for (CrateSetting crateSetting : CrateSettings.CRATE_CLUSTER_SETTINGS) {
             settings.add(crateSetting.setting());
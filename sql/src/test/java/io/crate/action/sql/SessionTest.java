@@ -36,6 +36,7 @@ import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
 import io.crate.testing.SQLExecutor;
 import io.crate.types.DataType;
 import io.crate.types.DataTypes;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.junit.Test;
 
@@ -112,6 +113,7 @@ public class SessionTest extends CrateDummyClusterServiceUnitTest {
         Session session = new Session(
             sqlExecutor.analyzer,
             sqlExecutor.planner,
+            new StatementCache(Settings.EMPTY),
             new JobsLogs(() -> false),
             false,
             executor,
@@ -275,6 +277,7 @@ public class SessionTest extends CrateDummyClusterServiceUnitTest {
         Session session = new Session(
             sqlExecutor.analyzer,
             sqlExecutor.planner,
+            new StatementCache(Settings.EMPTY),
             new JobsLogs(() -> false),
             false,
             executor,
@@ -309,6 +312,7 @@ public class SessionTest extends CrateDummyClusterServiceUnitTest {
         Session session = new Session(
             sqlExecutor.analyzer,
             sqlExecutor.planner,
+            new StatementCache(Settings.EMPTY),
             new JobsLogs(() -> false),
             false,
             executor,
@@ -335,6 +339,7 @@ public class SessionTest extends CrateDummyClusterServiceUnitTest {
         Session session = new Session(
             sqlExecutor.analyzer,
             sqlExecutor.planner,
+            new StatementCache(Settings.EMPTY),
             new JobsLogs(() -> false),
             false,
             executor,
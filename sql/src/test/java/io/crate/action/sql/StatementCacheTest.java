@@ -0,0 +1,89 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.action.sql;
+
+import io.crate.sql.parser.ParsingException;
+import io.crate.sql.tree.Statement;
+import io.crate.test.integration.CrateUnitTest;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class StatementCacheTest extends CrateUnitTest {
+
+    @Test
+    public void testParsedStatementIsReused() {
+        StatementCache cache = new StatementCache(10, 100);
+        Statement statement = cache.parse("select * from t where x = ?");
+
+        assertThat(cache.parse("select * from t where x = ?"), sameInstance(statement));
+        StatementCacheStats stats = cache.stats();
+        assertThat(stats.entries(), is(1L));
+        assertThat(stats.hits(), is(1L));
+        assertThat(stats.misses(), is(1L));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedStatementIsEvicted() {
+        StatementCache cache = new StatementCache(1, 100);
+        Statement statement = cache.parse("select 1");
+        cache.parse("select 2");
+
+        assertThat(cache.parse("select 1"), not(sameInstance(statement)));
+        assertThat(cache.stats().evictions(), is(2L));
+    }
+
+    @Test
+    public void testCacheIsBypassedIfSizeIsZero() {
+        StatementCache cache = new StatementCache(0, 100);
+        Statement statement = cache.parse("select 1");
+
+        assertThat(cache.parse("select 1"), not(sameInstance(statement)));
+        assertThat(cache.stats().entries(), is(0L));
+        assertThat(cache.stats().misses(), is(0L));
+    }
+
+    @Test
+    public void testStatementLongerThanMaxLengthIsNotCached() {
+        StatementCache cache = new StatementCache(10, 10);
+        Statement statement = cache.parse("select * from t where x = 1");
+
+        assertThat(cache.parse("select * from t where x = 1"), not(sameInstance(statement)));
+        StatementCacheStats stats = cache.stats();
+        assertThat(stats.entries(), is(0L));
+        assertThat(stats.misses(), is(0L));
+    }
+
+    @Test
+    public void testInvalidStatementIsNotCached() {
+        StatementCache cache = new StatementCache(10, 100);
+        expectedException.expect(ParsingException.class);
+        try {
+            cache.parse("selec 1");
+        } finally {
+            assertThat(cache.stats().entries(), is(0L));
+        }
+    }
+}
@@ -130,6 +130,19 @@ public class CopyAnalyzerTest extends CrateDummyClusterServiceUnitTest {
         assertThat(analysis.inputFormat(), is(FileUriCollectPhase.InputFormat.CSV));
     }
 
+    @Test
+    public void convertCopyFrom_givenFormatIsSetToColumnarInStatement_thenInputFormatIsSetToColumnar() {
+        CopyFromAnalyzedStatement analysis = e.analyze("copy users from '/some/distant/file.ext' with (format='columnar')");
+        assertThat(analysis.inputFormat(), is(FileUriCollectPhase.InputFormat.COLUMNAR));
+    }
+
+    @Test
+    public void testCopyFromColumnarWithCompression() throws Exception {
+        expectedException.expect(UnsupportedFeatureException.class);
+        expectedException.expectMessage("Compression is not supported for the columnar format.");
+        e.analyze("copy users from '/blah' with (format='columnar', compression='gzip')");
+    }
+
     @Test
     public void convertCopyFrom_givenFormatIsNotSetInStatement_thenInputFormatDefaultsToJson() {
         CopyFromAnalyzedStatement analysis = e.analyze("copy users from '/some/distant/file.ext'");
@@ -179,6 +192,21 @@ public class CopyAnalyzerTest extends CrateDummyClusterServiceUnitTest {
         assertThat(analysis.compressionType(), is(WriterProjection.CompressionType.GZIP));
     }
 
+    @Test
+    public void testCopyToFileWithZstdCompressionAndNumWriters() throws Exception {
+        CopyToAnalyzedStatement analysis = e.analyze(
+            "copy users to directory '/blah' with (compression='zstd', num_writers=4)");
+        assertThat(analysis.compressionType(), is(WriterProjection.CompressionType.ZSTD));
+        assertThat(analysis.numWriters(), is(4));
+    }
+
+    @Test
+    public void testCopyToFileWithInvalidNumWriters() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("Failed to parse value [0] for setting [num_writers] must be >= 1");
+        e.analyze("copy users to directory '/blah' with (num_writers=0)");
+    }
+
     @Test
     public void testCopyToFileWithUnknownParams() throws Exception {
         expectedException.expect(IllegalArgumentException.class);
@@ -274,6 +302,20 @@ public class CopyAnalyzerTest extends CrateDummyClusterServiceUnitTest {
         e.analyze("copy users to directory '/blah' with (format='json_array')");
     }
 
+    @Test
+    public void testCopyToFileWithColumnarOutputFormatRequiresColumns() throws Exception {
+        expectedException.expect(UnsupportedFeatureException.class);
+        expectedException.expectMessage("Output format not supported without specifying columns.");
+        e.analyze("copy users to directory '/blah' with (format='columnar')");
+    }
+
+    @Test
+    public void testCopyToFileWithColumnarOutputFormatAndCompression() throws Exception {
+        expectedException.expect(UnsupportedFeatureException.class);
+        expectedException.expectMessage("Compression is not supported for the columnar format.");
+        e.analyze("copy users (id, name) to directory '/blah' with (format='columnar', compression='gzip')");
+    }
+
     @Test
     public void testCopyFromWithReferenceAssignedToProperty() throws Exception {
         expectedException.expect(IllegalArgumentException.class);
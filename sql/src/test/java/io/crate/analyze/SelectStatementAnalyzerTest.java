@@ -259,6 +259,7 @@ public class SelectStatementAnalyzerTest extends CrateDummyClusterServiceUnitTes
             "port",
             "process",
             "rest_url",
+            "statement_cache",
             "thread_pools",
             "version"
         ));
@@ -36,6 +36,7 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.xcontent.DeprecationHandler;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.index.mapper.SourceToParse;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -49,6 +50,7 @@ import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 
 public class SourceFromCellsTest extends CrateDummyClusterServiceUnitTest {
 
@@ -89,6 +91,27 @@ public class SourceFromCellsTest extends CrateDummyClusterServiceUnitTest {
         assertThat(source.utf8ToString(), is("{\"x\":1,\"y\":2,\"z\":3}"));
     }
 
+    @Test
+    public void testSourceToParseOfTopLevelPrimitivesContainsTypedValues() throws IOException {
+        InsertSourceFromCells sourceFromCells = new InsertSourceFromCells(
+            txnCtx, e.functions(), t1, "t1", GeneratedColumns.Validation.VALUE_MATCH, Arrays.asList(x, y));
+        SourceToParse sourceToParse = sourceFromCells.generateSourceToParse("t1", "1", new Object[]{1, 2});
+        assertThat(sourceToParse.source().utf8ToString(), is("{\"x\":1,\"y\":2,\"z\":3}"));
+        assertThat(sourceToParse.fieldNames(), is(new String[]{"x", "y", "z"}));
+        assertThat(sourceToParse.fieldValues(), is(new Object[]{1, 2, 3}));
+    }
+
+    @Test
+    public void testSourceToParseOfObjectColumnContainsNoTypedValues() throws IOException {
+        InsertSourceFromCells sourceFromCells = new InsertSourceFromCells(
+            txnCtx, e.functions(), t2, "t2", GeneratedColumns.Validation.VALUE_MATCH, Collections.singletonList(obj));
+        HashMap<Object, Object> m = new HashMap<>();
+        m.put("a", 10);
+        SourceToParse sourceToParse = sourceFromCells.generateSourceToParse("t2", "1", new Object[]{m});
+        assertThat(sourceToParse.fieldNames(), nullValue());
+        assertThat(sourceToParse.fieldValues(), nullValue());
+    }
+
     @Test
     public void testGenerateSourceRaisesAnErrorIfGeneratedColumnValueIsSuppliedByUserAndDoesNotMatch() throws IOException {
         InsertSourceFromCells sourceFromCells = new InsertSourceFromCells(
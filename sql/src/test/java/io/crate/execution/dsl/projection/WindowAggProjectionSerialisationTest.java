@@ -47,6 +47,7 @@ import java.util.Map;
 
 import static java.util.Collections.singletonList;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
 public class WindowAggProjectionSerialisationTest {
@@ -70,7 +71,8 @@ public class WindowAggProjectionSerialisationTest {
         WindowAggProjection windowAggProjection =
             new WindowAggProjection(partitionByOneWindowDef,
                 functionsWithInputs,
-                Collections.singletonList(Literal.of(42L)));
+                Collections.singletonList(Literal.of(42L)),
+                true);
         BytesStreamOutput output = new BytesStreamOutput();
         windowAggProjection.writeTo(output);
 
@@ -80,6 +82,7 @@ public class WindowAggProjectionSerialisationTest {
         Map<WindowFunction, List<Symbol>> deserialisedFunctionsByWindow = fromInput.functionsWithInputs();
 
         assertThat(deserialisedFunctionsByWindow, equalTo(functionsWithInputs));
+        assertThat(fromInput.sourceIsSorted(), is(true));
     }
 
     private FunctionImplementation getSumFunction() {
@@ -43,7 +43,8 @@ public class WriterProjectionTest extends CrateUnitTest {
             MapBuilder.<ColumnIdent, Symbol>newMapBuilder().put(
                 new ColumnIdent("partitionColumn"), Literal.of(1)).map(),
             ImmutableList.of("foo"),
-            WriterProjection.OutputFormat.JSON_OBJECT
+            WriterProjection.OutputFormat.JSON_OBJECT,
+            3
         );
 
         BytesStreamOutput out = new BytesStreamOutput();
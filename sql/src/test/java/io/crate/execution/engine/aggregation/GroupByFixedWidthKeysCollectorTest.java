@@ -0,0 +1,129 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import io.crate.breaker.RamAccountingContext;
+import io.crate.data.BatchIterator;
+import io.crate.data.BatchIterators;
+import io.crate.data.InMemoryBatchIterator;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.aggregation.impl.AggregationImplModule;
+import io.crate.execution.engine.aggregation.impl.SumAggregation;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.collect.InputCollectExpression;
+import io.crate.expression.symbol.AggregateMode;
+import io.crate.metadata.FunctionIdent;
+import io.crate.metadata.Functions;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.inject.ModulesBuilder;
+import org.elasticsearch.common.util.BigArrays;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.crate.data.SentinelRow.SENTINEL;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+
+public class GroupByFixedWidthKeysCollectorTest extends CrateUnitTest {
+
+    private static final RamAccountingContext RAM_ACCOUNTING_CONTEXT =
+        new RamAccountingContext("dummy", new NoopCircuitBreaker(CircuitBreaker.FIELDDATA));
+
+    private GroupByFixedWidthKeysCollector createCollector() {
+        Functions functions = new ModulesBuilder().add(new AggregationImplModule())
+            .createInjector().getInstance(Functions.class);
+        AggregationFunction sumAgg = (AggregationFunction) functions.getQualified(
+            new FunctionIdent(SumAggregation.NAME, Arrays.asList(DataTypes.INTEGER)));
+        InputCollectExpression firstKey = new InputCollectExpression(0);
+        InputCollectExpression secondKey = new InputCollectExpression(1);
+        InputCollectExpression value = new InputCollectExpression(2);
+
+        return new GroupByFixedWidthKeysCollector(
+            Arrays.asList(DataTypes.INTEGER, DataTypes.DOUBLE),
+            Arrays.asList(firstKey, secondKey),
+            new CollectExpression[]{firstKey, secondKey, value},
+            AggregateMode.ITER_FINAL,
+            new AggregationFunction[]{sumAgg},
+            new Input[][]{new Input[]{value}},
+            RAM_ACCOUNTING_CONTEXT,
+            Version.CURRENT,
+            BigArrays.NON_RECYCLING_INSTANCE
+        );
+    }
+
+    @Test
+    public void testGroupByMultipleKeysWithNullValues() throws Exception {
+        List<Row> inputRows = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            inputRows.add(new RowN(new Object[]{i % 3, i % 2 == 0 ? null : 1.5d, 1}));
+        }
+        BatchIterator<Row> inputRowsIterator = InMemoryBatchIterator.of(inputRows, SENTINEL);
+
+        Iterable<Row> rows = BatchIterators.collect(inputRowsIterator, createCollector())
+            .get(10, TimeUnit.SECONDS);
+
+        List<String> groups = new ArrayList<>();
+        for (Row row : rows) {
+            groups.add(row.get(0) + "| " + row.get(1) + "| " + row.get(2));
+        }
+        assertThat(groups, containsInAnyOrder(
+            "0| null| 167",
+            "0| 1.5| 167",
+            "1| null| 166",
+            "1| 1.5| 167",
+            "2| null| 167",
+            "2| 1.5| 166"
+        ));
+    }
+
+    @Test
+    public void testIterateOverResultTwice() throws Exception {
+        List<Row> inputRows = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            inputRows.add(new RowN(new Object[]{i, (double) i, i}));
+        }
+        BatchIterator<Row> inputRowsIterator = InMemoryBatchIterator.of(inputRows, SENTINEL);
+
+        Iterable<Row> rows = BatchIterators.collect(inputRowsIterator, createCollector())
+            .get(10, TimeUnit.SECONDS);
+        for (int i = 0; i < 2; i++) {
+            int index = 0;
+            for (Row row : rows) {
+                assertThat(row.get(0), is(index));
+                assertThat(row.get(1), is((double) index));
+                index++;
+            }
+            assertThat(index, is(100));
+        }
+    }
+}
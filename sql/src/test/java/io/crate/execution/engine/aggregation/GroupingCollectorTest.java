@@ -0,0 +1,173 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import io.crate.breaker.RamAccountingContext;
+import io.crate.data.BatchIterator;
+import io.crate.data.BatchIterators;
+import io.crate.data.InMemoryBatchIterator;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.aggregation.impl.AggregationImplModule;
+import io.crate.execution.engine.aggregation.impl.SumAggregation;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.collect.InputCollectExpression;
+import io.crate.expression.symbol.AggregateMode;
+import io.crate.metadata.FunctionIdent;
+import io.crate.metadata.Functions;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import org.apache.logging.log4j.LogManager;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+import org.elasticsearch.common.inject.ModulesBuilder;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.BigArrays;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static io.crate.data.SentinelRow.SENTINEL;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+
+public class GroupingCollectorTest extends CrateUnitTest {
+
+    private static RamAccountingContext newRamAccounting() {
+        return new RamAccountingContext(
+            "test",
+            new MemoryCircuitBreaker(
+                new ByteSizeValue(100, ByteSizeUnit.MB), 1.0, LogManager.getLogger(GroupingCollectorTest.class))
+        );
+    }
+
+    private static GroupingCollector<Object> newSpillingSumCollector(InputCollectExpression key,
+                                                                     RamAccountingContext ramAccounting,
+                                                                     Path spillPath) {
+        Functions functions = new ModulesBuilder().add(new AggregationImplModule())
+            .createInjector().getInstance(Functions.class);
+        AggregationFunction sumAgg = (AggregationFunction) functions.getQualified(
+            new FunctionIdent(SumAggregation.NAME, Arrays.asList(DataTypes.INTEGER)));
+        InputCollectExpression value = new InputCollectExpression(1);
+        return GroupingCollector.singleKey(
+            new CollectExpression[]{key, value},
+            AggregateMode.ITER_FINAL,
+            new AggregationFunction[]{sumAgg},
+            new Input[][]{new Input[]{value}},
+            ramAccounting,
+            key,
+            DataTypes.STRING,
+            Version.CURRENT,
+            BigArrays.NON_RECYCLING_INSTANCE,
+            0.0d,   // spill every time the spill check is done
+            spillPath
+        );
+    }
+
+    @Test
+    public void testGroupsAreSpilledAndMergedIfBreakerThresholdIsReached() throws Exception {
+        Path spillPath = createTempDir();
+        GroupingCollector<Object> collector = newSpillingSumCollector(
+            new InputCollectExpression(0), newRamAccounting(), spillPath);
+
+        List<Row> inputRows = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            inputRows.add(new RowN(new Object[]{"k" + (i % 3000), 1}));
+        }
+        BatchIterator<Row> inputRowsIterator = InMemoryBatchIterator.of(inputRows, SENTINEL);
+        Iterable<Row> rows = BatchIterators.collect(inputRowsIterator, collector).get(10, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 2; i++) {
+            Map<Object, Object> sumByKey = new HashMap<>();
+            for (Row row : rows) {
+                assertThat("Each key must only be emitted once", sumByKey.put(row.get(0), row.get(1)) == null, is(true));
+            }
+            assertThat(sumByKey.size(), is(3000));
+            assertThat(sumByKey.get("k0"), is(2L));
+            assertThat(sumByKey.get("k2999"), is(1L));
+        }
+
+        collector.releaseSpillFiles();
+        try (Stream<Path> files = Files.list(spillPath)) {
+            assertThat(files.count(), is(0L));
+        }
+    }
+
+    @Test
+    public void testPartitionsWhichDontFitIntoMemoryAreSplitUpWhileMerging() throws Exception {
+        Path spillPath = createTempDir();
+        GroupingCollector<Object> collector = newSpillingSumCollector(
+            new InputCollectExpression(0), newRamAccounting(), spillPath);
+
+        // more keys per partition than the spill check interval, so that the partitions are split up again
+        int numKeys = GroupingCollector.NUM_SPILL_PARTITIONS * 4000;
+        List<Row> inputRows = new ArrayList<>();
+        for (int i = 0; i < numKeys * 2; i++) {
+            inputRows.add(new RowN(new Object[]{"k" + (i % numKeys), 1}));
+        }
+        Iterable<Row> rows = BatchIterators.collect(InMemoryBatchIterator.of(inputRows, SENTINEL), collector)
+            .get(10, TimeUnit.SECONDS);
+
+        Map<Object, Object> sumByKey = new HashMap<>();
+        for (Row row : rows) {
+            assertThat("Each key must only be emitted once", sumByKey.put(row.get(0), row.get(1)) == null, is(true));
+        }
+        assertThat(sumByKey.size(), is(numKeys));
+        assertThat(sumByKey.get("k0"), is(2L));
+        assertThat(sumByKey.get("k" + (numKeys - 1)), is(2L));
+        collector.releaseSpillFiles();
+    }
+
+    @Test
+    public void testSpillOnlyReleasesTheBytesOfTheCollector() throws Exception {
+        RamAccountingContext ramAccounting = newRamAccounting();
+        // another user of the shared context which accounts bytes for every row
+        InputCollectExpression key = new InputCollectExpression(0) {
+            @Override
+            public void setNextRow(Row row) {
+                ramAccounting.addBytes(8);
+                super.setNextRow(row);
+            }
+        };
+        GroupingCollector<Object> collector = newSpillingSumCollector(key, ramAccounting, createTempDir());
+
+        List<Row> inputRows = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            inputRows.add(new RowN(new Object[]{"k" + i, 1}));
+        }
+        BatchIterators.collect(InMemoryBatchIterator.of(inputRows, SENTINEL), collector).get(10, TimeUnit.SECONDS);
+
+        assertThat(ramAccounting.totalBytes(), greaterThanOrEqualTo(8L * 5000));
+        collector.releaseSpillFiles();
+    }
+}
@@ -22,14 +22,21 @@
 package io.crate.execution.engine.aggregation.impl;
 
 import com.google.common.collect.ImmutableList;
+import io.crate.execution.engine.aggregation.AggregationFunction;
 import io.crate.expression.symbol.Literal;
 import io.crate.metadata.FunctionImplementation;
 import io.crate.metadata.SearchPath;
 import io.crate.operation.aggregation.AggregationTest;
 import io.crate.types.DataType;
 import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.util.BigArrays;
 import org.junit.Test;
 
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+
 public class AverageAggregationTest extends AggregationTest {
 
     private Object[][] executeAggregation(DataType dataType, Object[][] data) throws Exception {
@@ -48,6 +55,30 @@ public class AverageAggregationTest extends AggregationTest {
             null, name, ImmutableList.of(Literal.of(DataTypes.INTEGER, null)), SearchPath.pathWithPGCatalogAndDoc());
     }
 
+    @Test
+    public void testRemoveValuesFromIntegerAverage() throws Exception {
+        AggregationFunction avg = (AggregationFunction) getFunction("avg");
+        assertThat(avg.isRemovableCumulative(), is(true));
+
+        Object state = avg.newState(ramAccountingContext, Version.CURRENT, BigArrays.NON_RECYCLING_INSTANCE);
+        state = avg.iterate(ramAccountingContext, state, Literal.of(7));
+        state = avg.iterate(ramAccountingContext, state, Literal.of(3));
+        state = avg.iterate(ramAccountingContext, state, Literal.of(5));
+        state = avg.removeFromAggregatedState(ramAccountingContext, state, Literal.of(7));
+        state = avg.removeFromAggregatedState(ramAccountingContext, state, Literal.of(DataTypes.INTEGER, null));
+
+        assertThat(avg.terminatePartial(ramAccountingContext, state), is(4.0d));
+    }
+
+    @Test
+    public void testValuesCannotBeRemovedIfSumIsNotExact() throws Exception {
+        for (DataType<?> type : List.of(DataTypes.LONG, DataTypes.FLOAT, DataTypes.DOUBLE)) {
+            AggregationFunction avg = (AggregationFunction) functions.get(
+                null, "avg", ImmutableList.of(Literal.of(type, null)), SearchPath.pathWithPGCatalogAndDoc());
+            assertThat(avg.isRemovableCumulative(), is(false));
+        }
+    }
+
     @Test
     public void testDouble() throws Exception {
         Object[][] result = executeAggregation(DataTypes.DOUBLE, new Object[][]{{0.7d}, {0.3d}});
@@ -22,14 +22,19 @@
 package io.crate.execution.engine.aggregation.impl;
 
 import com.google.common.collect.ImmutableList;
+import io.crate.execution.engine.aggregation.AggregationFunction;
 import io.crate.expression.symbol.Literal;
 import io.crate.metadata.FunctionImplementation;
 import io.crate.metadata.SearchPath;
 import io.crate.operation.aggregation.AggregationTest;
 import io.crate.types.DataType;
 import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.util.BigArrays;
 import org.junit.Test;
 
+import static org.hamcrest.Matchers.is;
+
 public class SumAggregationTest extends AggregationTest {
 
     private Object[][] executeAggregation(DataType dataType, Object[][] data) throws Exception {
@@ -107,6 +112,26 @@ public class SumAggregationTest extends AggregationTest {
         assertEquals(10L, result[0][0]);
     }
 
+    @Test
+    public void testRemoveValuesFromLongSum() throws Exception {
+        AggregationFunction sum = (AggregationFunction) getSum(DataTypes.INTEGER);
+        assertThat(sum.isRemovableCumulative(), is(true));
+
+        Object state = sum.newState(ramAccountingContext, Version.CURRENT, BigArrays.NON_RECYCLING_INSTANCE);
+        state = sum.iterate(ramAccountingContext, state, Literal.of(7));
+        state = sum.iterate(ramAccountingContext, state, Literal.of(3));
+        state = sum.removeFromAggregatedState(ramAccountingContext, state, Literal.of(7));
+        state = sum.removeFromAggregatedState(ramAccountingContext, state, Literal.of(DataTypes.INTEGER, null));
+
+        assertThat(sum.terminatePartial(ramAccountingContext, state), is(3L));
+    }
+
+    @Test
+    public void testValuesCannotBeRemovedFromDoubleSum() throws Exception {
+        AggregationFunction sum = (AggregationFunction) getSum(DataTypes.DOUBLE);
+        assertThat(sum.isRemovableCumulative(), is(false));
+    }
+
     @Test(expected = NullPointerException.class)
     public void testUnsupportedType() throws Exception {
         Object[][] result = executeAggregation(DataTypes.STRING, new Object[][]{{"Youri"}, {"Ruben"}});
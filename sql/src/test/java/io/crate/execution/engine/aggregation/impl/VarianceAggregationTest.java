@@ -23,16 +23,21 @@ package io.crate.execution.engine.aggregation.impl;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import io.crate.execution.engine.aggregation.AggregationFunction;
 import io.crate.expression.symbol.Literal;
 import io.crate.metadata.FunctionImplementation;
 import io.crate.metadata.SearchPath;
 import io.crate.operation.aggregation.AggregationTest;
 import io.crate.types.DataType;
 import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.util.BigArrays;
 import org.junit.Test;
 
 import java.util.List;
 
+import static org.hamcrest.Matchers.is;
+
 public class VarianceAggregationTest extends AggregationTest {
 
     private Object[][] executeAggregation(DataType dataType, Object[][] data) throws Exception {
@@ -52,6 +57,30 @@ public class VarianceAggregationTest extends AggregationTest {
         return functions.get(null, "variance", ImmutableList.of(Literal.of(type, null)), SearchPath.pathWithPGCatalogAndDoc());
     }
 
+    @Test
+    public void testRemoveValuesFromShortVariance() throws Exception {
+        AggregationFunction variance = (AggregationFunction) getVariance(DataTypes.SHORT);
+        assertThat(variance.isRemovableCumulative(), is(true));
+
+        Object state = variance.newState(ramAccountingContext, Version.CURRENT, BigArrays.NON_RECYCLING_INSTANCE);
+        state = variance.iterate(ramAccountingContext, state, Literal.of(DataTypes.SHORT, (short) 1));
+        state = variance.iterate(ramAccountingContext, state, Literal.of(DataTypes.SHORT, (short) 7));
+        state = variance.iterate(ramAccountingContext, state, Literal.of(DataTypes.SHORT, (short) 3));
+        state = variance.removeFromAggregatedState(ramAccountingContext, state, Literal.of(DataTypes.SHORT, (short) 1));
+        state = variance.removeFromAggregatedState(ramAccountingContext, state, Literal.of(DataTypes.SHORT, null));
+
+        assertThat(variance.terminatePartial(ramAccountingContext, state), is(4.0d));
+    }
+
+    @Test
+    public void testValuesCannotBeRemovedIfSquaresAreNotExact() throws Exception {
+        for (DataType<?> type : List.of(DataTypes.INTEGER, DataTypes.LONG, DataTypes.TIMESTAMPZ,
+                                        DataTypes.FLOAT, DataTypes.DOUBLE)) {
+            AggregationFunction variance = (AggregationFunction) getVariance(type);
+            assertThat(variance.isRemovableCumulative(), is(false));
+        }
+    }
+
     @Test
     public void withNullArg() throws Exception {
         Object[][] result = executeAggregation(DataTypes.DOUBLE, new Object[][]{{null}, {null}});
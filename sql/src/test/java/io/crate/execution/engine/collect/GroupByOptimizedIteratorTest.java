@@ -22,21 +22,51 @@
 
 package io.crate.execution.engine.collect;
 
+import io.crate.breaker.RamAccountingContext;
+import io.crate.data.Row;
+import io.crate.exceptions.GroupByOnArrayUnsupportedException;
+import io.crate.execution.engine.aggregation.AggregationContext;
+import io.crate.execution.engine.aggregation.impl.CountAggregation;
+import io.crate.expression.InputFactory;
+import io.crate.expression.InputRow;
+import io.crate.expression.symbol.AggregateMode;
+import io.crate.expression.symbol.Aggregation;
+import io.crate.metadata.CoordinatorTxnCtx;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.store.ByteBuffersDirectory;
 import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.mapper.KeywordFieldMapper;
 import org.junit.Test;
 
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static io.crate.testing.TestingHelpers.getFunctions;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 public class GroupByOptimizedIteratorTest {
 
@@ -56,7 +86,8 @@ public class GroupByOptimizedIteratorTest {
         IndexSearcher indexSearcher = new IndexSearcher(DirectoryReader.open(iw));
 
         assertThat(
-            GroupByOptimizedIterator.hasHighCardinalityRatio(() -> new Engine.Searcher("dummy", indexSearcher, () -> {}), "x"),
+            GroupByOptimizedIterator.hasHighCardinalityRatio(
+                () -> new Engine.Searcher("dummy", indexSearcher, () -> {}), Collections.singletonList("x")),
             is(true)
         );
     }
@@ -76,8 +107,212 @@ public class GroupByOptimizedIteratorTest {
         IndexSearcher indexSearcher = new IndexSearcher(DirectoryReader.open(iw));
 
         assertThat(
-            GroupByOptimizedIterator.hasHighCardinalityRatio(() -> new Engine.Searcher("dummy", indexSearcher, () -> {}), "x"),
+            GroupByOptimizedIterator.hasHighCardinalityRatio(
+                () -> new Engine.Searcher("dummy", indexSearcher, () -> {}), Collections.singletonList("x")),
             is(false)
         );
     }
+
+    @Test
+    public void testHighCardinalityRatioUsesProductOfKeyCardinalities() throws Exception {
+        IndexWriter iw = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(new StandardAnalyzer()));
+        for (int i = 0; i < 20; i++) {
+            Document doc = new Document();
+            doc.add(new Field("x", new BytesRef(Integer.toString(i % 2)), KeywordFieldMapper.Defaults.FIELD_TYPE.clone()));
+            doc.add(new LongPoint("y", i % 3));
+            doc.add(new Field("z", new BytesRef(Integer.toString(i % 4)), KeywordFieldMapper.Defaults.FIELD_TYPE.clone()));
+            iw.addDocument(doc);
+        }
+        iw.commit();
+
+        IndexSearcher indexSearcher = new IndexSearcher(DirectoryReader.open(iw));
+        Supplier<Engine.Searcher> searcher = () -> new Engine.Searcher("dummy", indexSearcher, () -> {});
+
+        // 2 * 3 = 6 groups for 20 docs
+        assertThat(GroupByOptimizedIterator.hasHighCardinalityRatio(searcher, Arrays.asList("x", "y")), is(false));
+        // 2 * 3 * 4 = 24 groups for 20 docs
+        assertThat(GroupByOptimizedIterator.hasHighCardinalityRatio(searcher, Arrays.asList("x", "y", "z")), is(true));
+    }
+
+    @Test
+    public void testHighCardinalityRatioIsComputedAcrossSegments() throws Exception {
+        IndexWriter iw = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(new StandardAnalyzer()));
+        for (int i = 0; i < 100; i++) {
+            Document doc = new Document();
+            doc.add(new Field("x", new BytesRef(Integer.toString(i % 5)), KeywordFieldMapper.Defaults.FIELD_TYPE.clone()));
+            iw.addDocument(doc);
+        }
+        iw.commit();
+        // a small segment with a high cardinality ratio
+        Document doc = new Document();
+        doc.add(new Field("x", new BytesRef("1"), KeywordFieldMapper.Defaults.FIELD_TYPE.clone()));
+        iw.addDocument(doc);
+        iw.commit();
+
+        IndexSearcher indexSearcher = new IndexSearcher(DirectoryReader.open(iw));
+        assertThat(indexSearcher.getIndexReader().leaves().size(), is(2));
+
+        assertThat(
+            GroupByOptimizedIterator.hasHighCardinalityRatio(
+                () -> new Engine.Searcher("dummy", indexSearcher, () -> {}), Collections.singletonList("x")),
+            is(false)
+        );
+    }
+
+    private static Document doc(@Nullable String x, @Nullable Long y) {
+        Document doc = new Document();
+        if (x != null) {
+            doc.add(new SortedSetDocValuesField("x", new BytesRef(x)));
+        }
+        if (y != null) {
+            doc.add(new SortedNumericDocValuesField("y", y));
+        }
+        return doc;
+    }
+
+    private static IndexWriter createIndex(Document... docs) throws IOException {
+        IndexWriter iw = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(new StandardAnalyzer()));
+        for (Document doc : docs) {
+            iw.addDocument(doc);
+        }
+        iw.commit();
+        return iw;
+    }
+
+    /**
+     * Runs {@code select count(*) ... group by <fieldNames>} on the index and returns the counts by key
+     */
+    private static Map<List<Object>, Object> countGroupedBy(IndexWriter iw,
+                                                            List<String> fieldNames,
+                                                            List<DataType> keyTypes) throws IOException {
+        IndexSearcher indexSearcher = new IndexSearcher(DirectoryReader.open(iw));
+        List<GroupByOptimizedIterator.KeyColumn> keyColumns = new ArrayList<>();
+        for (int i = 0; i < fieldNames.size(); i++) {
+            keyColumns.add(GroupByOptimizedIterator.keyColumn(fieldNames.get(i), keyTypes.get(i)));
+        }
+        InputFactory.Context<CollectExpression<Row, ?>> ctxForAggregations =
+            new InputFactory(getFunctions()).ctxForAggregations(CoordinatorTxnCtx.systemTransactionContext());
+        ctxForAggregations.add(Collections.singletonList(
+            new Aggregation(CountAggregation.COUNT_STAR_FUNCTION, DataTypes.LONG, Collections.emptyList())));
+        List<AggregationContext> aggregations = ctxForAggregations.aggregations();
+        RamAccountingContext ramAccounting = new RamAccountingContext("dummy", new NoopCircuitBreaker("dummy"));
+
+        Map<List<Object>, Object[]> statesByKey = GroupByOptimizedIterator.applyAggregatesGroupedByKey(
+            BigArrays.NON_RECYCLING_INSTANCE,
+            new Engine.Searcher("dummy", indexSearcher, () -> {}),
+            keyColumns,
+            keyTypes,
+            ctxForAggregations,
+            aggregations,
+            Collections.emptyList(),
+            ramAccounting,
+            new InputRow(Collections.emptyList()),
+            new MatchAllDocsQuery()
+        );
+        Map<List<Object>, Object> countByKey = new HashMap<>();
+        for (Map.Entry<List<Object>, Object[]> entry : statesByKey.entrySet()) {
+            //noinspection unchecked
+            countByKey.put(entry.getKey(), AggregateMode.ITER_FINAL.finishCollect(
+                ramAccounting, aggregations.get(0).function(), entry.getValue()[0]));
+        }
+        return countByKey;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<List<Object>, Object> counts(Object... keysAndCounts) {
+        Map<List<Object>, Object> counts = new HashMap<>();
+        for (int i = 0; i < keysAndCounts.length; i += 2) {
+            counts.put((List<Object>) keysAndCounts[i], keysAndCounts[i + 1]);
+        }
+        return counts;
+    }
+
+    @Test
+    public void testGroupByMultipleStringKeysUsesPackedKeysAcrossSegments() throws Exception {
+        IndexWriter iw = createIndex(
+            doc("a", null), doc("b", null), doc("a", null), doc(null, null));
+        Document doc = new Document();
+        doc.add(new SortedSetDocValuesField("x", new BytesRef("b")));
+        doc.add(new SortedSetDocValuesField("z", new BytesRef("c")));
+        iw.addDocument(doc);
+        doc = new Document();
+        doc.add(new SortedSetDocValuesField("x", new BytesRef("a")));
+        iw.addDocument(doc);
+        iw.commit();
+
+        Map<List<Object>, Object> result = countGroupedBy(
+            iw, Arrays.asList("x", "z"), Arrays.asList(DataTypes.STRING, DataTypes.STRING));
+
+        assertThat(result, is(counts(
+            Arrays.asList("a", null), 3L,
+            Arrays.asList("b", null), 1L,
+            Arrays.asList("b", "c"), 1L,
+            Arrays.asList(null, null), 1L
+        )));
+    }
+
+    @Test
+    public void testGroupByStringAndNumericKeyUsesTupleKeys() throws Exception {
+        IndexWriter iw = createIndex(
+            doc("a", 1L),
+            doc("a", 1L),
+            doc("a", 2L),
+            doc("b", Long.MAX_VALUE),
+            doc(null, 2L),
+            doc("b", null));
+
+        Map<List<Object>, Object> result = countGroupedBy(
+            iw, Arrays.asList("x", "y"), Arrays.asList(DataTypes.STRING, DataTypes.LONG));
+
+        assertThat(result, is(counts(
+            Arrays.asList("a", 1L), 2L,
+            Arrays.asList("a", 2L), 1L,
+            Arrays.asList("b", Long.MAX_VALUE), 1L,
+            Arrays.asList(null, 2L), 1L,
+            Arrays.asList("b", null), 1L
+        )));
+    }
+
+    @Test
+    public void testGroupByNumericKeyWithNullAndNegativeValues() throws Exception {
+        IndexWriter iw = createIndex(
+            doc(null, -1L), doc(null, 0L), doc(null, -1L), doc(null, null));
+
+        Map<List<Object>, Object> result = countGroupedBy(
+            iw, Collections.singletonList("y"), Collections.singletonList(DataTypes.LONG));
+
+        assertThat(result, is(counts(
+            Collections.singletonList(-1L), 2L,
+            Collections.singletonList(0L), 1L,
+            Collections.singletonList(null), 1L
+        )));
+    }
+
+    @Test
+    public void testGroupByOnNumericArrayIsNotSupported() throws Exception {
+        Document doc = doc(null, 1L);
+        doc.add(new SortedNumericDocValuesField("y", 2L));
+        IndexWriter iw = createIndex(doc);
+
+        try {
+            countGroupedBy(iw, Collections.singletonList("y"), Collections.singletonList(DataTypes.LONG));
+            fail("Group by on an array must fail");
+        } catch (GroupByOnArrayUnsupportedException e) {
+            assertThat(e.getMessage(), is("Column \"y\" has a value that is an array. Group by doesn't work on Arrays"));
+        }
+    }
+
+    @Test
+    public void testGroupByOnStringArrayIsNotSupported() throws Exception {
+        Document doc = doc("a", null);
+        doc.add(new SortedSetDocValuesField("x", new BytesRef("b")));
+        IndexWriter iw = createIndex(doc);
+
+        try {
+            countGroupedBy(iw, Collections.singletonList("x"), Collections.singletonList(DataTypes.STRING));
+            fail("Group by on an array must fail");
+        } catch (GroupByOnArrayUnsupportedException e) {
+            assertThat(e.getMessage(), is("Column \"x\" has a value that is an array. Group by doesn't work on Arrays"));
+        }
+    }
 }
@@ -0,0 +1,146 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect;
+
+import io.crate.breaker.RamAccountingContext;
+import io.crate.execution.engine.aggregation.AggregationFunction;
+import io.crate.execution.engine.aggregation.impl.CountAggregation;
+import io.crate.execution.engine.aggregation.impl.MaximumAggregation;
+import io.crate.execution.engine.aggregation.impl.MinimumAggregation;
+import io.crate.metadata.FunctionIdent;
+import io.crate.metadata.Functions;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.util.BigArrays;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static io.crate.testing.TestingHelpers.getFunctions;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class MinMaxCountOptimizedIteratorTest extends CrateUnitTest {
+
+    private static final RamAccountingContext RAM_ACCOUNTING_CONTEXT =
+        new RamAccountingContext("dummy", new NoopCircuitBreaker(CircuitBreaker.FIELDDATA));
+
+    private List<AggregationFunction> functions;
+
+    @Before
+    public void prepareFunctions() {
+        Functions functions = getFunctions();
+        List<DataType> longArg = Collections.singletonList(DataTypes.LONG);
+        this.functions = Arrays.asList(
+            (AggregationFunction) functions.getQualified(new FunctionIdent(CountAggregation.NAME, Collections.emptyList())),
+            (AggregationFunction) functions.getQualified(new FunctionIdent(MinimumAggregation.NAME, longArg)),
+            (AggregationFunction) functions.getQualified(new FunctionIdent(MaximumAggregation.NAME, longArg))
+        );
+    }
+
+    private static IndexWriter createIndexWithTwoSegments() throws Exception {
+        IndexWriter iw = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(new StandardAnalyzer()));
+        for (long i = 10; i < 20; i++) {
+            iw.addDocument(createDoc(i));
+        }
+        iw.commit();
+        for (long i = -5; i < 5; i++) {
+            iw.addDocument(createDoc(i));
+        }
+        // a document without a value for x
+        Document doc = new Document();
+        doc.add(new StringField("id", "none", Field.Store.NO));
+        iw.addDocument(doc);
+        iw.commit();
+        return iw;
+    }
+
+    private static Document createDoc(long x) {
+        Document doc = new Document();
+        doc.add(new StringField("id", Long.toString(x), Field.Store.NO));
+        doc.add(new LongPoint("x", x));
+        return doc;
+    }
+
+    @Test
+    public void testCountMinAndMaxAreComputedFromTheSegmentMetadata() throws Exception {
+        IndexWriter iw = createIndexWithTwoSegments();
+        try (DirectoryReader reader = DirectoryReader.open(iw)) {
+            assertThat(reader.leaves().size(), is(2));
+
+            Object[] states = MinMaxCountOptimizedIterator.aggregateFromMetadata(
+                reader, functions, Arrays.asList(null, "x", "x"), RAM_ACCOUNTING_CONTEXT, BigArrays.NON_RECYCLING_INSTANCE);
+
+            assertThat(functions.get(0).terminatePartial(RAM_ACCOUNTING_CONTEXT, states[0]), is(21L));
+            assertThat(states[1], is(-5L));
+            assertThat(states[2], is(19L));
+        }
+    }
+
+    @Test
+    public void testMinAndMaxOfFieldWithoutValuesAreNull() throws Exception {
+        IndexWriter iw = createIndexWithTwoSegments();
+        try (DirectoryReader reader = DirectoryReader.open(iw)) {
+            Object[] states = MinMaxCountOptimizedIterator.aggregateFromMetadata(
+                reader, functions, Arrays.asList(null, "y", "y"), RAM_ACCOUNTING_CONTEXT, BigArrays.NON_RECYCLING_INSTANCE);
+
+            assertThat(functions.get(0).terminatePartial(RAM_ACCOUNTING_CONTEXT, states[0]), is(21L));
+            assertThat(states[1], nullValue());
+            assertThat(states[2], nullValue());
+        }
+    }
+
+    @Test
+    public void testSegmentsWithDeletionsCannotBeUsedForMinAndMax() throws Exception {
+        IndexWriter iw = createIndexWithTwoSegments();
+        iw.deleteDocuments(new Term("id", "19"));
+        iw.commit();
+        try (DirectoryReader reader = DirectoryReader.open(iw)) {
+            assertThat(
+                MinMaxCountOptimizedIterator.aggregateFromMetadata(
+                    reader, functions, Arrays.asList(null, "x", "x"), RAM_ACCOUNTING_CONTEXT, BigArrays.NON_RECYCLING_INSTANCE),
+                nullValue()
+            );
+
+            Object[] states = MinMaxCountOptimizedIterator.aggregateFromMetadata(
+                reader, functions.subList(0, 1), Collections.singletonList(null), RAM_ACCOUNTING_CONTEXT, BigArrays.NON_RECYCLING_INSTANCE);
+            assertThat(functions.get(0).terminatePartial(RAM_ACCOUNTING_CONTEXT, states[0]), is(20L));
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect;
+
+import io.crate.Streamer;
+import io.crate.analyze.WhereClause;
+import io.crate.data.BatchIterator;
+import io.crate.data.BatchIterators;
+import io.crate.data.Bucket;
+import io.crate.data.InMemoryBatchIterator;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.dsl.phases.RoutedCollectPhase;
+import io.crate.execution.dsl.projection.AggregationProjection;
+import io.crate.execution.dsl.projection.Projection;
+import io.crate.execution.engine.aggregation.impl.CountAggregation;
+import io.crate.execution.engine.distribution.StreamBucket;
+import io.crate.expression.symbol.AggregateMode;
+import io.crate.expression.symbol.Aggregation;
+import io.crate.expression.symbol.Function;
+import io.crate.expression.symbol.InputColumn;
+import io.crate.expression.symbol.Literal;
+import io.crate.expression.symbol.Symbol;
+import io.crate.metadata.FunctionIdent;
+import io.crate.metadata.FunctionInfo;
+import io.crate.metadata.Routing;
+import io.crate.metadata.RowGranularity;
+import io.crate.planner.distribution.DistributionInfo;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import org.apache.logging.log4j.LogManager;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.shard.ShardId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static io.crate.data.SentinelRow.SENTINEL;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class QueryResultCacheTest extends CrateUnitTest {
+
+    private static final ShardId SHARD_ID = new ShardId(new Index("t", UUID.randomUUID().toString()), 0);
+    private static final Streamer<?>[] STREAMERS = new Streamer[] { DataTypes.LONG.streamer() };
+
+    private IndexWriter indexWriter;
+    private DirectoryReader reader;
+
+    @Before
+    public void createReader() throws Exception {
+        indexWriter = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(new StandardAnalyzer()));
+        Document doc = new Document();
+        doc.add(new StringField("x", "foo", Field.Store.NO));
+        indexWriter.addDocument(doc);
+        indexWriter.commit();
+        reader = DirectoryReader.open(indexWriter);
+    }
+
+    @After
+    public void closeReader() throws Exception {
+        reader.close();
+        indexWriter.close();
+    }
+
+    private static QueryResultCache newCache(long limitInBytes) {
+        return new QueryResultCache(true, new MemoryCircuitBreaker(
+            new ByteSizeValue(limitInBytes, ByteSizeUnit.BYTES), 1.0, LogManager.getLogger(QueryResultCacheTest.class)));
+    }
+
+    private static List<Projection> countProjection() {
+        FunctionInfo countInfo = new FunctionInfo(
+            new FunctionIdent(CountAggregation.NAME, Collections.singletonList(DataTypes.LONG)), DataTypes.LONG);
+        return Collections.singletonList(new AggregationProjection(
+            Collections.singletonList(
+                new Aggregation(countInfo, CountAggregation.LongStateType.INSTANCE,
+                    Collections.singletonList(new InputColumn(0, DataTypes.LONG)))),
+            RowGranularity.SHARD,
+            AggregateMode.ITER_PARTIAL
+        ));
+    }
+
+    private static RoutedCollectPhase collectPhase(Symbol toCollect, List<Projection> projections) {
+        return new RoutedCollectPhase(
+            UUID.randomUUID(),
+            1,
+            "collect",
+            new Routing(Collections.emptyMap()),
+            RowGranularity.DOC,
+            Collections.singletonList(toCollect),
+            projections,
+            WhereClause.MATCH_ALL.queryOrFallback(),
+            DistributionInfo.DEFAULT_BROADCAST
+        );
+    }
+
+    private QueryResultCache.Key key(QueryResultCache cache, Symbol toCollect) {
+        RoutedCollectPhase phase = collectPhase(toCollect, countProjection());
+        return cache.key(SHARD_ID, reader, phase, phase.projections());
+    }
+
+    private static StreamBucket bucket(long... values) {
+        StreamBucket.Builder builder = new StreamBucket.Builder(STREAMERS, null);
+        for (long value : values) {
+            builder.add(new RowN(new Object[] { value }));
+        }
+        return builder.build();
+    }
+
+    private static List<Object[]> rows(Bucket bucket) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Row row : bucket) {
+            rows.add(row.materialize());
+        }
+        return rows;
+    }
+
+    @Test
+    public void testResultIsCachedOnceAllIteratorsAreConsumed() throws Exception {
+        QueryResultCache cache = newCache(1024 * 1024);
+        QueryResultCache.Stats stats = new QueryResultCache.Stats();
+        QueryResultCache.Key key = key(cache, Literal.of(1L));
+        assertThat(cache.get(key, stats), nullValue());
+
+        List<BatchIterator<Row>> iterators = cache.cacheOnCompletion(key, stats, STREAMERS, Arrays.asList(
+            InMemoryBatchIterator.of(new RowN(new Object[] { 10L }), SENTINEL),
+            InMemoryBatchIterator.of(new RowN(new Object[] { 20L }), SENTINEL)
+        ));
+        BatchIterators.collect(iterators.get(0), Collectors.counting()).get(5, TimeUnit.SECONDS);
+        assertThat(cache.size(), is(0));
+        BatchIterators.collect(iterators.get(1), Collectors.counting()).get(5, TimeUnit.SECONDS);
+        assertThat(cache.size(), is(1));
+
+        Bucket cachedRows = cache.get(key, stats);
+        assertThat(cachedRows, notNullValue());
+        assertThat(rows(cachedRows), is(Arrays.asList(new Object[] { 10L }, new Object[] { 20L })));
+        assertThat(stats.hits(), is(1L));
+        assertThat(stats.misses(), is(1L));
+        assertThat(stats.sizeInBytes() > 0, is(true));
+    }
+
+    @Test
+    public void testEntriesAreRemovedOnceTheReaderIsClosed() throws Exception {
+        QueryResultCache cache = newCache(1024 * 1024);
+        QueryResultCache.Stats stats = new QueryResultCache.Stats();
+        cache.put(key(cache, Literal.of(1L)), bucket(1L), stats);
+        assertThat(cache.size(), is(1));
+
+        reader.close();
+
+        assertThat(cache.size(), is(0));
+        assertThat(stats.evictions(), is(1L));
+        assertThat(stats.sizeInBytes(), is(0L));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvictedIfTheBreakerLimitIsReached() throws Exception {
+        long entrySize = bucket(1L).sizeInBytes() + 128L;
+        QueryResultCache cache = newCache(2 * entrySize);
+        QueryResultCache.Stats stats = new QueryResultCache.Stats();
+        QueryResultCache.Key key1 = key(cache, Literal.of(1L));
+        QueryResultCache.Key key2 = key(cache, Literal.of(2L));
+        QueryResultCache.Key key3 = key(cache, Literal.of(3L));
+
+        cache.put(key1, bucket(1L), stats);
+        cache.put(key2, bucket(2L), stats);
+        // key1 becomes the most recently used entry
+        assertThat(cache.get(key1, stats), notNullValue());
+        cache.put(key3, bucket(3L), stats);
+
+        assertThat(cache.size(), is(2));
+        assertThat(stats.evictions(), is(1L));
+        assertThat(cache.get(key2, stats), nullValue());
+        assertThat(rows(cache.get(key1, stats)).get(0)[0], is(1L));
+        assertThat(rows(cache.get(key3, stats)).get(0)[0], is(3L));
+    }
+
+    @Test
+    public void testPhaseWithNonDeterministicFunctionIsNotCacheable() {
+        FunctionInfo randomInfo = new FunctionInfo(
+            new FunctionIdent("random", Collections.emptyList()),
+            DataTypes.DOUBLE,
+            FunctionInfo.Type.SCALAR,
+            FunctionInfo.NO_FEATURES);
+        RoutedCollectPhase phase = collectPhase(
+            new Function(randomInfo, Collections.emptyList()), countProjection());
+
+        assertThat(QueryResultCache.isCacheable(phase, phase.projections()), is(false));
+        assertThat(newCache(1024).key(SHARD_ID, reader, phase, phase.projections()), nullValue());
+    }
+
+    @Test
+    public void testPhaseWithoutPartialAggregationIsNotCacheable() {
+        RoutedCollectPhase phase = collectPhase(Literal.of(1L), Collections.emptyList());
+
+        assertThat(QueryResultCache.isCacheable(phase, phase.projections()), is(false));
+    }
+}
@@ -33,6 +33,7 @@ import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.store.ByteBuffersDirectory;
@@ -44,6 +45,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import static org.hamcrest.Matchers.is;
+
 public class LuceneBatchIteratorTest extends CrateUnitTest {
 
     private List<LongColumnReference> columnRefs;
@@ -83,4 +86,41 @@ public class LuceneBatchIteratorTest extends CrateUnitTest {
         );
         tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
     }
+
+    @Test
+    public void testLuceneBatchIteratorOnlyExposesDocumentsOfGivenLeaves() throws Exception {
+        IndexWriter iw = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(new StandardAnalyzer()));
+        for (long i = 0; i < 30; i++) {
+            Document doc = new Document();
+            doc.add(new NumericDocValuesField("x", i));
+            iw.addDocument(doc);
+            if (i % 10 == 9) {
+                // flush a new segment every 10 documents
+                iw.commit();
+            }
+        }
+        IndexSearcher searcher = new IndexSearcher(DirectoryReader.open(iw));
+        List<LeafReaderContext> leaves = searcher.getTopReaderContext().leaves();
+        assertThat(leaves.size(), is(3));
+
+        List<LeafReaderContext> slice = Collections.singletonList(leaves.get(1));
+        List<Object[]> expectedSliceResult = new ArrayList<>();
+        for (long i = 0; i < slice.get(0).reader().maxDoc(); i++) {
+            expectedSliceResult.add(new Object[] { 10 + i });
+        }
+        BatchIteratorTester tester = new BatchIteratorTester(
+            () -> new LuceneBatchIterator(
+                searcher,
+                slice,
+                new MatchAllDocsQuery(),
+                null,
+                false,
+                new CollectorContext(mappedFieldType -> null),
+                new RamAccountingContext("dummy", new NoopCircuitBreaker("dummy")),
+                columnRefs,
+                columnRefs
+            )
+        );
+        tester.verifyResultAndEdgeCaseBehaviour(expectedSliceResult);
+    }
 }
@@ -24,11 +24,15 @@ package io.crate.execution.engine.collect.files;
 
 import com.google.common.collect.ImmutableMap;
 import io.crate.data.BatchIterator;
+import io.crate.data.BatchIterators;
+import io.crate.data.CloseAssertingBatchIterator;
 import io.crate.data.Input;
 import io.crate.data.Row;
 import io.crate.execution.dsl.phases.FileUriCollectPhase;
+import io.crate.execution.engine.columnar.ColumnarFileWriter;
 import io.crate.expression.InputFactory;
 import io.crate.expression.reference.file.FileLineReferenceResolver;
+import io.crate.expression.symbol.Literal;
 import io.crate.metadata.CoordinatorTxnCtx;
 import io.crate.metadata.TransactionContext;
 import io.crate.metadata.Functions;
@@ -43,16 +47,23 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+import static io.crate.execution.dsl.phases.FileUriCollectPhase.InputFormat.COLUMNAR;
 import static io.crate.execution.dsl.phases.FileUriCollectPhase.InputFormat.CSV;
 import static io.crate.execution.dsl.phases.FileUriCollectPhase.InputFormat.JSON;
 import static io.crate.testing.TestingHelpers.createReference;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThan;
 
 public class FileReadingIteratorTest extends CrateUnitTest {
 
@@ -161,6 +172,135 @@ public class FileReadingIteratorTest extends CrateUnitTest {
         tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
     }
 
+    @Test
+    public void testJsonFileIsSplitIntoRangesReadByAllLocalReaders() throws Exception {
+        tempFilePath = createTempFile("tempfile", ".json");
+        tmpFile = tempFilePath.toFile();
+        List<String> lines = new ArrayList<>();
+        try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < 100; i++) {
+                String line = "{\"id\": " + i + ", \"name\": \"" + "x".repeat(i % 17) + "\"}";
+                lines.add(line);
+                writer.write(line);
+                writer.write("\n");
+            }
+        }
+        fileUri = tempFilePath.toUri().toString();
+
+        List<String> readLines = new ArrayList<>();
+        int numLocalReaders = 4;
+        for (int i = 0; i < numLocalReaders; i++) {
+            List<String> linesOfReader = readAllLines(createRangeBatchIterator(fileUri, numLocalReaders, i, JSON));
+            assertThat(linesOfReader.size(), greaterThan(0));
+            readLines.addAll(linesOfReader);
+        }
+        assertThat(readLines, containsInAnyOrder(lines.toArray()));
+    }
+
+    @Test
+    public void testCsvFileIsSplitIntoRangesWhichAllUseTheHeader() throws Exception {
+        tempFilePath = createTempFile("tempfile", ".csv");
+        tmpFile = tempFilePath.toFile();
+        List<String> lines = new ArrayList<>();
+        try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8)) {
+            writer.write("name,id\n");
+            for (int i = 0; i < 50; i++) {
+                String name = "n" + "x".repeat(i % 13);
+                lines.add("{\"name\":\"" + name + "\",\"id\":\"" + i + "\"}");
+                writer.write(name + "," + i + "\n");
+            }
+        }
+        fileUri = tempFilePath.toUri().toString();
+
+        List<String> readLines = new ArrayList<>();
+        int numLocalReaders = 3;
+        for (int i = 0; i < numLocalReaders; i++) {
+            readLines.addAll(readAllLines(createRangeBatchIterator(fileUri, numLocalReaders, i, CSV)));
+        }
+        assertThat(readLines, containsInAnyOrder(lines.toArray()));
+    }
+
+    @Test
+    public void testColumnarFileIsSplitIntoRowGroups() throws Exception {
+        tempFilePath = createTempFile("tempfile", ".columnar");
+        List<String> lines = new ArrayList<>();
+        try (ColumnarFileWriter writer = new ColumnarFileWriter(
+            Files.newOutputStream(tempFilePath),
+            Arrays.asList("id", "name"),
+            Arrays.asList(DataTypes.INTEGER, DataTypes.STRING),
+            32)) {
+            for (int i = 0; i < 50; i++) {
+                String name = "n" + "x".repeat(i % 13);
+                lines.add("{\"id\":" + i + ",\"name\":\"" + name + "\"}");
+                writer.write(Arrays.asList(Literal.of(i), Literal.of(name)));
+            }
+        }
+        fileUri = tempFilePath.toUri().toString();
+
+        List<String> readLines = new ArrayList<>();
+        int numLocalReaders = 3;
+        for (int i = 0; i < numLocalReaders; i++) {
+            List<String> linesOfReader = readAllLines(createRangeBatchIterator(fileUri, numLocalReaders, i, COLUMNAR));
+            assertThat(linesOfReader.size(), greaterThan(0));
+            readLines.addAll(linesOfReader);
+        }
+        assertThat(readLines, containsInAnyOrder(lines.toArray()));
+    }
+
+    @Test
+    public void testReadAheadIteratorContract() throws Exception {
+        tempFilePath = createTempFile("tempfile", ".json");
+        tmpFile = tempFilePath.toFile();
+        try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8)) {
+            writer.write("{\"name\": \"Arthur\", \"id\": 4, \"details\": {\"age\": 38}}\n");
+            writer.write("{\"id\": 5, \"name\": \"Trillian\", \"details\": {\"age\": 33}}\n");
+        }
+        fileUri = tempFilePath.toUri().toString();
+
+        Supplier<BatchIterator<Row>> batchIteratorSupplier = () -> ReadAheadBatchIterator.newInstance(
+            createBatchIterator(Collections.singletonList(fileUri), null, JSON), 1);
+
+        List<Object[]> expectedResult = Arrays.asList(
+            new Object[]{JSON_AS_MAP_FIRST_LINE},
+            new Object[]{JSON_AS_MAP_SECOND_LINE});
+        BatchIteratorTester tester = new BatchIteratorTester(batchIteratorSupplier);
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    private static List<String> readAllLines(BatchIterator<Row> iterator) throws Exception {
+        List<String> lines = BatchIterators.collect(
+            iterator,
+            Collectors.mapping(row -> (String) row.get(0), Collectors.toList())
+        ).get(5, TimeUnit.SECONDS);
+        iterator.close();
+        return lines;
+    }
+
+    private BatchIterator<Row> createRangeBatchIterator(String fileUri,
+                                                        int numLocalReaders,
+                                                        int localReaderNumber,
+                                                        FileUriCollectPhase.InputFormat format) {
+        Reference raw = createReference("_raw", DataTypes.STRING);
+        InputFactory.Context<LineCollectorExpression<?>> ctx =
+            inputFactory.ctxForRefs(txnCtx, FileLineReferenceResolver::getImplementation);
+
+        List<Input<?>> inputs = Collections.singletonList(ctx.add(raw));
+        return new CloseAssertingBatchIterator<>(new FileReadingIterator(
+            Collections.singletonList(fileUri),
+            inputs,
+            ctx.expressions(),
+            null,
+            ImmutableMap.of(
+                LocalFsFileInputFactory.NAME, new LocalFsFileInputFactory()),
+            false,
+            1,
+            0,
+            numLocalReaders,
+            localReaderNumber,
+            16,
+            format));
+    }
+
     private BatchIterator<Row> createBatchIterator(Collection<String> fileUris, String compression, FileUriCollectPhase.InputFormat format) {
         Reference raw = createReference("_raw", DataTypes.STRING);
         InputFactory.Context<LineCollectorExpression<?>> ctx =
@@ -0,0 +1,68 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.files;
+
+import io.crate.test.integration.CrateUnitTest;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+
+public class Utf8LineReaderTest extends CrateUnitTest {
+
+    private static List<String> readLines(String input, int bufferSize) throws IOException {
+        Utf8LineReader reader = new Utf8LineReader(
+            new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), bufferSize);
+        List<String> lines = new ArrayList<>();
+        while (reader.readLine()) {
+            lines.add(new String(reader.buffer(), reader.lineOffset(), reader.lineLength(), StandardCharsets.UTF_8));
+        }
+        return lines;
+    }
+
+    @Test
+    public void testLinesAreSplitAtAllLineTerminators() throws Exception {
+        assertThat(readLines("a\nbb\r\nccc\rdddd", 64), contains("a", "bb", "ccc", "dddd"));
+    }
+
+    @Test
+    public void testEmptyLinesAreReturned() throws Exception {
+        assertThat(readLines("a\n\nb\r\n\r\n", 64), contains("a", "", "b", ""));
+    }
+
+    @Test
+    public void testLinesLongerThanTheBufferAreReadCompletely() throws Exception {
+        assertThat(readLines("0123456789\näöü€\n", 4), contains("0123456789", "äöü€"));
+    }
+
+    @Test
+    public void testCarriageReturnAndLineFeedInDifferentReads() throws Exception {
+        // "ab\r" fills the buffer, the \n is read with the next fill
+        assertThat(readLines("ab\r\ncd\n", 3), contains("ab", "cd"));
+    }
+}
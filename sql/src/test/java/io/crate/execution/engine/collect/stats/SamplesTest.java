@@ -0,0 +1,82 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.stats;
+
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+
+public class SamplesTest extends CrateUnitTest {
+
+    private static Samples samplesOf(String value, int numRecords, long numTotalDocs) {
+        List<Object[]> records = new ArrayList<>(numRecords);
+        for (int i = 0; i < numRecords; i++) {
+            records.add(new Object[]{value, i});
+        }
+        return new Samples(records, numTotalDocs);
+    }
+
+    @Test
+    public void testMergeTakesRecordsInProportionToNumberOfDocs() {
+        Samples merged = Samples.merge(
+            100, List.of(samplesOf("a", 100, 1000), samplesOf("b", 100, 3000), samplesOf("c", 0, 0)), random());
+
+        assertThat(merged.numTotalDocs(), is(4000L));
+        assertThat(merged.records().size(), is(100));
+        assertThat(merged.records().stream().filter(r -> r[0].equals("a")).count(), is(25L));
+        assertThat(merged.records().stream().filter(r -> r[0].equals("b")).count(), is(75L));
+    }
+
+    @Test
+    public void testMergeOfEmptySamples() {
+        Samples merged = Samples.merge(100, List.of(samplesOf("a", 0, 0)), random());
+        assertThat(merged.numTotalDocs(), is(0L));
+        assertThat(merged.records().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testStreaming() throws Exception {
+        List<DataType> types = List.of(DataTypes.STRING, DataTypes.INTEGER);
+        List<Object[]> records = new ArrayList<>();
+        records.add(new Object[]{"a", 1});
+        records.add(new Object[]{null, 2});
+        FetchSampleResponse response = new FetchSampleResponse(types, new Samples(records, 10));
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        response.writeTo(out);
+        FetchSampleResponse streamed = new FetchSampleResponse();
+        streamed.readFrom(out.bytes().streamInput());
+
+        assertThat(streamed.samples().numTotalDocs(), is(10L));
+        assertThat(streamed.samples().records().size(), is(2));
+        assertThat(streamed.samples().records().get(0), is(new Object[]{"a", 1}));
+        assertThat(streamed.samples().records().get(1), is(new Object[]{null, 2}));
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.stats;
+
+import io.crate.expression.reference.doc.lucene.CollectorContext;
+import io.crate.expression.reference.doc.lucene.DocIdCollectorExpression;
+import io.crate.expression.reference.doc.lucene.LuceneCollectorExpression;
+import io.crate.test.integration.CrateUnitTest;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+
+public class TableSamplerTest extends CrateUnitTest {
+
+    @Test
+    public void testOnlyEveryNthLiveDocIsRead() throws Exception {
+        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer()).setMergePolicy(NoMergePolicy.INSTANCE);
+        try (IndexWriter writer = new IndexWriter(new ByteBuffersDirectory(), config)) {
+            for (int i = 0; i < 1000; i++) {
+                Document doc = new Document();
+                doc.add(new StringField("id", Integer.toString(i), Field.Store.NO));
+                doc.add(new StringField("deleted", Boolean.toString(i % 100 < 50), Field.Store.NO));
+                writer.addDocument(doc);
+                if (i % 100 == 99) {
+                    writer.commit();
+                }
+            }
+            writer.deleteDocuments(new Term("deleted", "true"));
+            writer.commit();
+
+            try (DirectoryReader reader = DirectoryReader.open(writer)) {
+                assertThat(reader.leaves().size(), is(10));
+                List<LuceneCollectorExpression<?>> expressions = List.of(new DocIdCollectorExpression());
+                Samples samples = TableSampler.sampleShard(
+                    reader, expressions, new CollectorContext(fieldType -> null), 100, random());
+
+                // 100 docs are visited, 10 per segment, and the first half of each segment is deleted
+                assertThat(samples.records().size(), is(50));
+                assertThat(samples.numTotalDocs(), is(500L));
+                for (Object[] record : samples.records()) {
+                    // each of the live segments has 10 visited docs with 10 docs in between
+                    assertThat((int) record[0] % 10, is((int) samples.records().get(0)[0] % 10));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSamplesOfEmptyShard() throws Exception {
+        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
+        try (IndexWriter writer = new IndexWriter(new ByteBuffersDirectory(), config);
+             DirectoryReader reader = DirectoryReader.open(writer)) {
+            Samples samples = TableSampler.sampleShard(
+                reader,
+                List.of(new DocIdCollectorExpression()),
+                new CollectorContext(fieldType -> null),
+                100,
+                random());
+            assertThat(samples.records().isEmpty(), is(true));
+            assertThat(samples.numTotalDocs(), is(0L));
+        }
+    }
+}
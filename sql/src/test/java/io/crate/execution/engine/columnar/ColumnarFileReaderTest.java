@@ -0,0 +1,141 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.columnar;
+
+import io.crate.expression.symbol.Literal;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import io.crate.types.ObjectType;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+public class ColumnarFileReaderTest extends CrateUnitTest {
+
+    private static final List<String> COLUMNS = Arrays.asList("id", "name", "details");
+    private static final List<DataType> TYPES = Arrays.asList(DataTypes.LONG, DataTypes.STRING, ObjectType.untyped());
+
+    private static ColumnarFileReader.Source write(int numRows, long rowGroupSizeInBytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ColumnarFileWriter writer = new ColumnarFileWriter(out, COLUMNS, TYPES, rowGroupSizeInBytes)) {
+            for (long i = 0; i < numRows; i++) {
+                writer.write(Arrays.asList(
+                    Literal.of(i),
+                    Literal.of(i % 3 == 0 ? null : "name" + i),
+                    Literal.of(Collections.singletonMap("age", (Object) i))
+                ));
+            }
+        }
+        byte[] bytes = out.toByteArray();
+        return new ColumnarFileReader.Source() {
+            @Override
+            public InputStream open(long offset) {
+                return new ByteArrayInputStream(bytes, (int) offset, bytes.length - (int) offset);
+            }
+
+            @Override
+            public long size() {
+                return bytes.length;
+            }
+        };
+    }
+
+    private static List<List<Object>> readAll(ColumnarFileReader reader) throws IOException {
+        List<List<Object>> rows = new ArrayList<>();
+        while (reader.nextRow()) {
+            List<Object> row = new ArrayList<>(reader.numColumns());
+            for (int i = 0; i < reader.numColumns(); i++) {
+                row.add(reader.value(i));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    @Test
+    public void testWrittenRowsAreReadWithTheirTypes() throws Exception {
+        ColumnarFileReader.Source source = write(10, 64);
+        ColumnarFileFooter footer = ColumnarFileReader.readFooter(source);
+
+        assertThat(footer.columnNames(), is(COLUMNS));
+        assertThat(footer.columnTypes(), is(TYPES));
+        assertThat(footer.numRows(), is(10L));
+        assertThat(footer.numRowGroups(), greaterThan(1));
+
+        List<List<Object>> rows = readAll(new ColumnarFileReader(source, footer, 0, footer.numRowGroups()));
+        assertThat(rows.size(), is(10));
+        assertThat(rows.get(0), contains(0L, null, Collections.singletonMap("age", 0L)));
+        assertThat(rows.get(7), contains(7L, "name7", Collections.singletonMap("age", 7L)));
+    }
+
+    @Test
+    public void testRowGroupRangesContainAllRows() throws Exception {
+        ColumnarFileReader.Source source = write(20, 32);
+        ColumnarFileFooter footer = ColumnarFileReader.readFooter(source);
+        int middle = footer.numRowGroups() / 2;
+
+        List<List<Object>> rows = readAll(
+            new ColumnarFileReader(source, footer, 0, middle));
+        rows.addAll(readAll(
+            new ColumnarFileReader(source, footer, middle, footer.numRowGroups())));
+
+        List<Object> ids = new ArrayList<>();
+        for (List<Object> row : rows) {
+            ids.add(row.get(0));
+        }
+        assertThat(ids, contains(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L, 12L, 13L, 14L, 15L, 16L, 17L, 18L, 19L));
+    }
+
+    @Test
+    public void testReadingFooterOfFileWhichIsNotColumnarFails() throws Exception {
+        byte[] bytes = "{\"id\": 1, \"name\": \"Arthur\"}\n".getBytes(StandardCharsets.UTF_8);
+        ColumnarFileReader.Source source = new ColumnarFileReader.Source() {
+            @Override
+            public InputStream open(long offset) {
+                return new ByteArrayInputStream(bytes, (int) offset, bytes.length - (int) offset);
+            }
+
+            @Override
+            public long size() {
+                return bytes.length;
+            }
+        };
+
+        expectedException.expect(IOException.class);
+        expectedException.expectMessage("File is not a columnar file");
+        ColumnarFileReader.readFooter(source);
+    }
+}
@@ -52,7 +52,7 @@ public class DistributedResultRequestTest extends CrateUnitTest {
         builder.add(new RowN(new Object[] {"ab"}));
         builder.add(new RowN(new Object[] {null}));
         builder.add(new RowN(new Object[] {"cd"}));
-        DistributedResultRequest r1 = new DistributedResultRequest(uuid, 1, (byte) 3, 1, builder.build(), false);
+        DistributedResultRequest r1 = new DistributedResultRequest(uuid, 1, (byte) 3, 1, 7, builder.build(), false);
 
         BytesStreamOutput out = new BytesStreamOutput();
         r1.writeTo(out);
@@ -63,6 +63,7 @@ public class DistributedResultRequestTest extends CrateUnitTest {
         assertEquals(r1.readRows(streamers).size(), r2.readRows(streamers).size());
         assertThat(r1.isLast(), is(r2.isLast()));
         assertThat(r1.executionPhaseInputId(), is(r2.executionPhaseInputId()));
+        assertThat(r2.pageIdx(), is(7));
 
         assertThat(r2.readRows(streamers), contains(isRow("ab"), isNullRow(), isRow("cd")));
     }
@@ -41,6 +41,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.collect.Tuple;
 import org.hamcrest.Matchers;
 import org.junit.After;
 import org.junit.Before;
@@ -50,12 +51,16 @@ import org.mockito.invocation.InvocationOnMock;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doAnswer;
@@ -140,6 +145,96 @@ public class DistributingConsumerTest extends CrateUnitTest {
         collectingConsumer.getResult();
     }
 
+    @Test
+    public void testPagesAreSentWithoutWaitingForResponsesUpToTheGrantedPageCredits() throws Exception {
+        Streamer<?>[] streamers = { DataTypes.INTEGER.streamer() };
+        BlockingQueue<Tuple<DistributedResultRequest, ActionListener<DistributedResultResponse>>> requests =
+            new LinkedBlockingQueue<>();
+        TransportDistributedResultAction distributedResultAction = mock(TransportDistributedResultAction.class);
+        doAnswer((InvocationOnMock invocationOnMock) -> {
+            Object[] args = invocationOnMock.getArguments();
+            //noinspection unchecked
+            requests.add(new Tuple<>(
+                (DistributedResultRequest) args[1], (ActionListener<DistributedResultResponse>) args[2]));
+            return null;
+        }).when(distributedResultAction).pushResult(anyString(), any(), any());
+        DistributingConsumer distributingConsumer = new DistributingConsumer(
+            logger,
+            executorService,
+            UUID.randomUUID(),
+            new ModuloBucketBuilder(streamers, 1, 0),
+            1,
+            (byte) 0,
+            0,
+            Collections.singletonList("n1"),
+            distributedResultAction,
+            2,
+            DistributingConsumer.MAX_PAGES_IN_FLIGHT
+        );
+
+        distributingConsumer.accept(TestingBatchIterators.range(0, 100), null);
+
+        // no credits have been granted yet, so only a single page is in flight
+        Tuple<DistributedResultRequest, ActionListener<DistributedResultResponse>> firstPage =
+            requests.poll(5, TimeUnit.SECONDS);
+        assertThat(firstPage, notNullValue());
+        assertThat(firstPage.v1().pageIdx(), is(0));
+        assertThat(requests.poll(100, TimeUnit.MILLISECONDS), nullValue());
+
+        int numRows = firstPage.v1().readRows(streamers).size();
+        firstPage.v2().onResponse(new DistributedResultResponse(true, 3));
+        for (int pageIdx = 1; pageIdx <= 3; pageIdx++) {
+            Tuple<DistributedResultRequest, ActionListener<DistributedResultResponse>> page =
+                requests.poll(5, TimeUnit.SECONDS);
+            assertThat(page, notNullValue());
+            assertThat(page.v1().pageIdx(), is(pageIdx));
+            assertThat(page.v1().isLast(), is(false));
+            numRows += page.v1().readRows(streamers).size();
+            requests.add(page);
+        }
+        // all 3 granted pages are in flight
+        assertThat(requests.size(), is(3));
+
+        int expectedPageIdx = 1;
+        boolean isLast = false;
+        while (isLast == false) {
+            Tuple<DistributedResultRequest, ActionListener<DistributedResultResponse>> page =
+                requests.poll(5, TimeUnit.SECONDS);
+            assertThat(page, notNullValue());
+            assertThat(page.v1().pageIdx(), is(expectedPageIdx));
+            if (expectedPageIdx > 3) {
+                numRows += page.v1().readRows(streamers).size();
+            }
+            isLast = page.v1().isLast();
+            page.v2().onResponse(new DistributedResultResponse(isLast == false, 3));
+            expectedPageIdx++;
+        }
+        assertThat(numRows, is(100));
+    }
+
+    @Test
+    public void testPageSizeGrowsIfThePagesInFlightDontCoverTheRoundTrip() {
+        // 1000 rows are collected in 1ms and a round trip takes 10ms: with 2 pages in flight a page needs 5000 rows
+        int pageSize = DistributingConsumer.adaptPageSize(
+            1000, 1000, 2, 1000, 1000 * 10, TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(10));
+        assertThat(pageSize, is(3000));
+    }
+
+    @Test
+    public void testPageSizeDoesNotShrinkBelowTheInitialPageSizeOnFastRoundTrips() {
+        int pageSize = DistributingConsumer.adaptPageSize(
+            3000, 1000, 2, 3000, 3000 * 10, TimeUnit.MILLISECONDS.toNanos(3), TimeUnit.MICROSECONDS.toNanos(100));
+        assertThat(pageSize, is(2000));
+    }
+
+    @Test
+    public void testPageSizeIsLimitedByTheWidthOfTheRows() {
+        // 64kb per row allow 256 rows per page
+        int pageSize = DistributingConsumer.adaptPageSize(
+            1000, 1000, 2, 1000, 1000L * 64 * 1024, TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(1));
+        assertThat(pageSize, is(256));
+    }
+
     private DistributingConsumer createDistributingConsumer(Streamer<?>[] streamers, TransportDistributedResultAction distributedResultAction) {
         return new DistributingConsumer(
             logger,
@@ -151,7 +246,8 @@ public class DistributingConsumerTest extends CrateUnitTest {
             0,
             Collections.singletonList("n1"),
             distributedResultAction,
-            2 // pageSize
+            2, // pageSize
+            1  // maxPagesInFlight
         );
     }
 
@@ -24,12 +24,25 @@ package io.crate.execution.engine.distribution;
 
 import io.crate.Streamer;
 import io.crate.data.Bucket;
+import io.crate.data.Row;
 import io.crate.data.Row1;
+import io.crate.data.RowN;
 import io.crate.test.integration.CrateUnitTest;
 import io.crate.testing.TestingHelpers;
+import io.crate.types.ArrayType;
 import io.crate.types.DataTypes;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.core.Is.is;
 
 public class ModuloBucketBuilderTest extends CrateUnitTest {
@@ -54,4 +67,74 @@ public class ModuloBucketBuilderTest extends CrateUnitTest {
         assertThat(rowsD2.size(), is(2));
         assertThat(TestingHelpers.printedTable(rowsD2), is("1\n3\n"));
     }
+
+    @Test
+    public void testRowsWithSameValuesOfAllDistributeByColumnsEndUpInSameBucket() throws Exception {
+        final ModuloBucketBuilder builder = new ModuloBucketBuilder(
+            new Streamer[]{DataTypes.INTEGER.streamer(), new ArrayType(DataTypes.INTEGER).streamer()},
+            3,
+            new int[]{0, 1});
+
+        for (int i = 0; i < 60; i++) {
+            // a new array instance for every row, the identity hash code must not be used
+            builder.add(new RowN(new Object[]{i % 5, new Object[]{i % 4}}));
+        }
+        StreamBucket[] buckets = new StreamBucket[3];
+        builder.build(buckets);
+
+        Map<List<Object>, Integer> bucketByValues = new HashMap<>();
+        int numRows = 0;
+        for (int bucketIdx = 0; bucketIdx < buckets.length; bucketIdx++) {
+            for (Row row : buckets[bucketIdx]) {
+                List<Object> values = Arrays.asList(row.get(0), ((Object[]) row.get(1))[0]);
+                Integer previousBucketIdx = bucketByValues.put(values, bucketIdx);
+                assertThat(previousBucketIdx == null || previousBucketIdx == bucketIdx, is(true));
+                numRows++;
+            }
+        }
+        assertThat(numRows, is(60));
+        assertThat(bucketByValues.size(), is(20));
+    }
+
+    @Test
+    public void testRowsNotContainedInTheRuntimeFilterOfTheirBucketAreSkipped() throws Exception {
+        ModuloBucketBuilder builder = new ModuloBucketBuilder(new Streamer[]{DataTypes.INTEGER.streamer()}, 2, 0);
+        RuntimeFilter.Builder filterBuilder = new RuntimeFilter.Builder(10);
+        filterBuilder.add(2);
+        filterBuilder.add(3);
+        filterBuilder.add(null);
+
+        // the filter is received from the downstream of the first bucket
+        BytesStreamOutput out = new BytesStreamOutput();
+        filterBuilder.build().writeTo(out);
+        builder.setRuntimeFilter(0, new RuntimeFilter(out.bytes().streamInput()));
+
+        for (int i = 0; i < 2000; i++) {
+            builder.add(new Row1(i));
+        }
+        StreamBucket[] buckets = new StreamBucket[2];
+        builder.build(buckets);
+
+        // the filter may have false positives
+        List<Object> rowsOfFirstBucket = new ArrayList<>();
+        for (Row row : buckets[0]) {
+            rowsOfFirstBucket.add(row.get(0));
+        }
+        assertThat(rowsOfFirstBucket, hasItem(2));
+        assertThat(rowsOfFirstBucket.size(), lessThan(100));
+        assertThat(buckets[1].size(), is(1000));
+    }
+
+    @Test
+    public void testRuntimeFilterIsNotBuiltIfThereAreTooManyDistinctValues() {
+        RuntimeFilter.Builder filterBuilder = new RuntimeFilter.Builder(10);
+        for (int i = 0; i < 11; i++) {
+            filterBuilder.add(i);
+        }
+        assertThat(filterBuilder.build(), is(nullValue()));
+
+        filterBuilder.reset();
+        filterBuilder.add(1);
+        assertThat(filterBuilder.build().mightContain(ModuloBucketBuilder.hashCode(1)), is(true));
+    }
 }
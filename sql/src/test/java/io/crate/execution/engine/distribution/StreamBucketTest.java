@@ -0,0 +1,172 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.distribution;
+
+import io.crate.Streamer;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.ArrayType;
+import io.crate.types.DataTypes;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+public class StreamBucketTest extends CrateUnitTest {
+
+    private static final Streamer<?>[] STREAMERS = new Streamer[]{
+        DataTypes.LONG.streamer(),
+        DataTypes.INTEGER.streamer(),
+        DataTypes.SHORT.streamer(),
+        DataTypes.BYTE.streamer(),
+        DataTypes.DOUBLE.streamer(),
+        DataTypes.FLOAT.streamer(),
+        DataTypes.BOOLEAN.streamer(),
+        DataTypes.STRING.streamer(),
+        DataTypes.TIMESTAMP.streamer(),
+        new ArrayType(DataTypes.INTEGER).streamer()
+    };
+
+    private static Object[] randomCells(int idx) {
+        return new Object[]{
+            randomBoolean() ? null : randomLong(),
+            randomBoolean() ? null : randomInt(),
+            randomBoolean() ? null : randomShort(),
+            randomBoolean() ? null : randomByte(),
+            randomBoolean() ? null : randomDouble(),
+            randomBoolean() ? null : randomFloat(),
+            randomBoolean() ? null : randomBoolean(),
+            randomBoolean() ? null : "value" + (idx % 7),
+            randomBoolean() ? null : 1_550_000_000_000L + idx,
+            randomBoolean() ? null : new Object[]{idx, null}
+        };
+    }
+
+    private static StreamBucket streamed(StreamBucket bucket, Streamer<?>[] streamers) throws Exception {
+        BytesStreamOutput out = new BytesStreamOutput();
+        bucket.writeTo(out);
+        return new StreamBucket(out.bytes().streamInput(), streamers);
+    }
+
+    private static List<Object[]> rows(StreamBucket bucket) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Row row : bucket) {
+            rows.add(row.materialize());
+        }
+        return rows;
+    }
+
+    private static void assertRows(List<Object[]> actual, List<Object[]> expected) {
+        assertThat(actual.size(), is(expected.size()));
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+
+    @Test
+    public void testColumnarEncodedBucketCanBeStreamed() throws Exception {
+        StreamBucket.Builder builder = new StreamBucket.Builder(STREAMERS, null, StreamBucket.Encoding.COLUMNAR);
+        List<Object[]> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Object[] cells = randomCells(i);
+            expected.add(cells);
+            builder.add(new RowN(cells));
+        }
+        StreamBucket bucket = builder.build();
+        assertThat(bucket.encoding(), is(StreamBucket.Encoding.COLUMNAR));
+
+        StreamBucket streamedBucket = streamed(bucket, STREAMERS);
+        assertThat(streamedBucket.encoding(), is(StreamBucket.Encoding.COLUMNAR));
+        assertThat(streamedBucket.size(), is(100));
+        assertRows(rows(streamedBucket), expected);
+    }
+
+    @Test
+    public void testColumnarBuilderCanBeReusedAfterReset() throws Exception {
+        StreamBucket.Builder builder = new StreamBucket.Builder(STREAMERS, null, StreamBucket.Encoding.COLUMNAR);
+        builder.add(new RowN(randomCells(0)));
+        builder.build();
+        builder.reset();
+
+        Object[] cells = randomCells(1);
+        builder.add(new RowN(cells));
+        StreamBucket bucket = streamed(builder.build(), STREAMERS);
+        assertThat(bucket.size(), is(1));
+        assertArrayEquals(cells, bucket.iterator().next().materialize());
+    }
+
+    @Test
+    public void testStringsAreWrittenWithoutDictionaryIfThereAreTooManyDistinctValues() throws Exception {
+        Streamer<?>[] streamers = new Streamer[]{DataTypes.STRING.streamer()};
+        StreamBucket.Builder builder = new StreamBucket.Builder(streamers, null, StreamBucket.Encoding.COLUMNAR);
+        List<Object[]> expected = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            Object[] cells = new Object[]{i % 3 == 0 ? null : String.valueOf(i)};
+            expected.add(cells);
+            builder.add(new RowN(cells));
+        }
+        assertRows(rows(streamed(builder.build(), streamers)), expected);
+    }
+
+    @Test
+    public void testColumnarEncodingOfRepetitiveValuesIsSmallerThanRowEncoding() throws Exception {
+        Streamer<?>[] streamers = new Streamer[]{DataTypes.LONG.streamer(), DataTypes.STRING.streamer()};
+        StreamBucket.Builder rowBuilder = new StreamBucket.Builder(streamers, null);
+        StreamBucket.Builder columnsBuilder = new StreamBucket.Builder(streamers, null, StreamBucket.Encoding.COLUMNAR);
+        List<Object[]> expected = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            Object[] cells = new Object[]{1_550_000_000_000L + i, "category-" + (i % 10)};
+            expected.add(cells);
+            rowBuilder.add(new RowN(cells));
+            columnsBuilder.add(new RowN(cells));
+        }
+        StreamBucket rowBucket = rowBuilder.build();
+        StreamBucket columnsBucket = columnsBuilder.build();
+        assertThat(columnsBucket.sizeInBytes(), lessThan(rowBucket.sizeInBytes() / 4));
+        assertRows(rows(streamed(columnsBucket, streamers)), expected);
+    }
+
+    @Test
+    public void testModuloBucketBuilderUsesEncodingPerBucket() throws Exception {
+        Streamer<?>[] streamers = new Streamer[]{DataTypes.INTEGER.streamer()};
+        ModuloBucketBuilder builder = new ModuloBucketBuilder(
+            streamers,
+            new int[]{0},
+            new StreamBucket.Encoding[]{StreamBucket.Encoding.ROW, StreamBucket.Encoding.COLUMNAR});
+        for (int i = 0; i < 4; i++) {
+            builder.add(new RowN(new Object[]{i}));
+        }
+        StreamBucket[] buckets = new StreamBucket[2];
+        builder.build(buckets);
+
+        assertThat(buckets[0].encoding(), is(StreamBucket.Encoding.ROW));
+        assertThat(buckets[1].encoding(), is(StreamBucket.Encoding.COLUMNAR));
+        assertRows(rows(streamed(buckets[0], streamers)), List.of(new Object[]{0}, new Object[]{2}));
+        assertRows(rows(streamed(buckets[1], streamers)), List.of(new Object[]{1}, new Object[]{3}));
+    }
+}
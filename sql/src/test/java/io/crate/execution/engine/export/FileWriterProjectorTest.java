@@ -37,6 +37,8 @@ import org.junit.rules.TemporaryFolder;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.concurrent.ExecutorService;
@@ -63,8 +65,9 @@ public class FileWriterProjectorTest extends CrateUnitTest {
     public void testWriteRawToFile() throws Exception {
         Path file = createTempFile("out", "json");
 
-        FileWriterProjector fileWriterProjector = new FileWriterProjector(executorService, file.toUri().toString(),
-            null, null, ImmutableSet.of(), new HashMap<>(),
+        FileWriterProjector fileWriterProjector = new FileWriterProjector(executorService,
+            Collections.singletonList(file.toUri().toString()),
+            null, null, Collections.emptyList(), ImmutableSet.of(), new HashMap<>(),
             null, WriterProjection.OutputFormat.JSON_OBJECT);
 
         new TestingRowConsumer().accept(fileWriterProjector.apply(sourceSupplier.get()), null);
@@ -76,6 +79,25 @@ public class FileWriterProjectorTest extends CrateUnitTest {
                      "input line 04", TestingHelpers.readFile(file.toAbsolutePath().toString()));
     }
 
+    @Test
+    public void testWriteRawToSeveralFilesDistributesRowsRoundRobin() throws Exception {
+        Path first = createTempFile("out_0", "json");
+        Path second = createTempFile("out_1", "json");
+
+        FileWriterProjector fileWriterProjector = new FileWriterProjector(executorService,
+            Arrays.asList(first.toUri().toString(), second.toUri().toString()),
+            null, null, Collections.emptyList(), ImmutableSet.of(), new HashMap<>(),
+            null, WriterProjection.OutputFormat.JSON_OBJECT);
+
+        new TestingRowConsumer().accept(fileWriterProjector.apply(sourceSupplier.get()), null);
+
+        assertEquals("input line 00\n" +
+                     "input line 02\n" +
+                     "input line 04", TestingHelpers.readFile(first.toAbsolutePath().toString()));
+        assertEquals("input line 01\n" +
+                     "input line 03", TestingHelpers.readFile(second.toAbsolutePath().toString()));
+    }
+
     @Test
     public void testDirectoryAsFile() throws Exception {
         expectedException.expect(UnhandledServerException.class);
@@ -83,8 +105,9 @@ public class FileWriterProjectorTest extends CrateUnitTest {
 
         Path directory = createTempDir();
 
-        FileWriterProjector fileWriterProjector = new FileWriterProjector(executorService, directory.toUri().toString(),
-            null, null, ImmutableSet.of(), new HashMap<>(),
+        FileWriterProjector fileWriterProjector = new FileWriterProjector(executorService,
+            Collections.singletonList(directory.toUri().toString()),
+            null, null, Collections.emptyList(), ImmutableSet.of(), new HashMap<>(),
             null, WriterProjection.OutputFormat.JSON_OBJECT);
 
         new TestingRowConsumer().accept(fileWriterProjector.apply(sourceSupplier.get()), null);
@@ -97,8 +120,8 @@ public class FileWriterProjectorTest extends CrateUnitTest {
 
         String uri = Paths.get(folder.newFile().toURI()).resolve("out.json").toUri().toString();
 
-        FileWriterProjector fileWriterProjector = new FileWriterProjector(executorService, uri,
-            null, null, ImmutableSet.of(), new HashMap<>(),
+        FileWriterProjector fileWriterProjector = new FileWriterProjector(executorService, Collections.singletonList(uri),
+            null, null, Collections.emptyList(), ImmutableSet.of(), new HashMap<>(),
             null, WriterProjection.OutputFormat.JSON_OBJECT);
 
         new TestingRowConsumer().accept(fileWriterProjector.apply(sourceSupplier.get()), null);
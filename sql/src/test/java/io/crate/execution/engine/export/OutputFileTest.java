@@ -22,23 +22,105 @@
 
 package io.crate.execution.engine.export;
 
+import com.github.luben.zstd.ZstdInputStream;
+import io.crate.execution.dsl.projection.WriterProjection;
 import io.crate.test.integration.CrateUnitTest;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import org.junit.After;
 import org.junit.Test;
 
 import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
 
 public class OutputFileTest extends CrateUnitTest {
 
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @After
+    public void shutdownExecutor() throws Exception {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
     @Test
     public void testIsBufferedOutputStream() throws Exception {
         Path file = createTempFile("out", "json");
-        OutputFile outputFile = new OutputFile(file.toUri(), null);
+        OutputFile outputFile = new OutputFile(file.toUri(), null, executor);
         try (OutputStream os = outputFile.acquireOutputStream()) {
             assertThat(os, instanceOf(BufferedOutputStream.class));
         }
     }
+
+    @Test
+    public void testCompressedOutputIsPipelined() throws Exception {
+        Path file = createTempFile("out", "json.gz");
+        OutputFile outputFile = new OutputFile(file.toUri(), WriterProjection.CompressionType.GZIP, executor);
+        try (OutputStream os = outputFile.acquireOutputStream()) {
+            assertThat(os, instanceOf(PipelinedOutputStream.class));
+        }
+    }
+
+    @Test
+    public void testGzipCompressedOutputCanBeRead() throws Exception {
+        Path file = writeCompressed(WriterProjection.CompressionType.GZIP);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            assertThat(readString(in), is(expectedContent()));
+        }
+    }
+
+    @Test
+    public void testLz4CompressedOutputCanBeRead() throws Exception {
+        Path file = writeCompressed(WriterProjection.CompressionType.LZ4);
+        try (InputStream in = new LZ4FrameInputStream(Files.newInputStream(file))) {
+            assertThat(readString(in), is(expectedContent()));
+        }
+    }
+
+    @Test
+    public void testZstdCompressedOutputCanBeRead() throws Exception {
+        Path file = writeCompressed(WriterProjection.CompressionType.ZSTD);
+        try (InputStream in = new ZstdInputStream(Files.newInputStream(file))) {
+            assertThat(readString(in), is(expectedContent()));
+        }
+    }
+
+    private Path writeCompressed(WriterProjection.CompressionType compressionType) throws IOException {
+        Path file = createTempFile("out", "json" + compressionType.fileExtension());
+        OutputFile outputFile = new OutputFile(file.toUri(), compressionType, executor);
+        try (OutputStream os = outputFile.acquireOutputStream()) {
+            // more than one compression buffer to exercise the hand over to the executor
+            for (int i = 0; i < 100_000; i++) {
+                os.write(line(i));
+            }
+        }
+        return file;
+    }
+
+    private static byte[] line(int i) {
+        return ("{\"id\": " + i + "}\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String expectedContent() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            sb.append(new String(line(i), StandardCharsets.UTF_8));
+        }
+        return sb.toString();
+    }
+
+    private static String readString(InputStream in) throws IOException {
+        return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
 }
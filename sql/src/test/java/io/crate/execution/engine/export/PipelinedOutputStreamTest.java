@@ -0,0 +1,98 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.export;
+
+import io.crate.test.integration.CrateUnitTest;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+
+public class PipelinedOutputStreamTest extends CrateUnitTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @After
+    public void shutdownExecutor() throws Exception {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testAllBytesAreWrittenInOrder() throws Exception {
+        ByteArrayOutputStream delegate = new ByteArrayOutputStream();
+        byte[] expected = new byte[10_000];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = (byte) i;
+        }
+        try (OutputStream os = new PipelinedOutputStream(executor, delegate, 64, 2)) {
+            os.write(expected, 0, 5_000);
+            for (int i = 5_000; i < expected.length; i++) {
+                os.write(expected[i]);
+            }
+        }
+        assertThat(delegate.toByteArray(), is(expected));
+    }
+
+    @Test
+    public void testFlushWritesBufferedBytesToDelegate() throws Exception {
+        ByteArrayOutputStream delegate = new ByteArrayOutputStream();
+        try (OutputStream os = new PipelinedOutputStream(executor, delegate, 64, 2)) {
+            os.write(new byte[] {1, 2, 3});
+            os.flush();
+            assertThat(delegate.toByteArray(), is(new byte[] {1, 2, 3}));
+        }
+    }
+
+    @Test
+    public void testFailureOfDelegateIsThrownOnClose() throws Exception {
+        OutputStream failingDelegate = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("disk full");
+            }
+        };
+        expectedException.expect(IOException.class);
+        expectedException.expectMessage("disk full");
+        try (OutputStream os = new PipelinedOutputStream(executor, failingDelegate, 64, 2)) {
+            os.write(new byte[10]);
+        }
+    }
+
+    @Test
+    public void testWritesInlineIfExecutorRejects() throws Exception {
+        executor.shutdown();
+        ByteArrayOutputStream delegate = new ByteArrayOutputStream();
+        try (OutputStream os = new PipelinedOutputStream(executor, delegate, 4, 1)) {
+            os.write(new byte[] {1, 2, 3, 4, 5, 6});
+        }
+        assertThat(delegate.toByteArray(), is(new byte[] {1, 2, 3, 4, 5, 6}));
+    }
+}
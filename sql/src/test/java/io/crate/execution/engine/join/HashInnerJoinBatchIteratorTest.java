@@ -26,6 +26,7 @@ import com.carrotsearch.randomizedtesting.RandomizedRunner;
 import com.carrotsearch.randomizedtesting.annotations.Name;
 import com.carrotsearch.randomizedtesting.annotations.ParametersFactory;
 import com.carrotsearch.randomizedtesting.annotations.ThreadLeakScope;
+import io.crate.Streamer;
 import io.crate.breaker.RowAccounting;
 import io.crate.data.BatchIterator;
 import io.crate.data.Row;
@@ -33,18 +34,26 @@ import io.crate.data.join.CombinedRow;
 import io.crate.testing.BatchIteratorTester;
 import io.crate.testing.BatchSimulatingIterator;
 import io.crate.testing.TestingBatchIterators;
+import io.crate.types.DataTypes;
 import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static com.carrotsearch.randomizedtesting.RandomizedTest.$;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -52,6 +61,9 @@ import static org.mockito.Mockito.when;
 @ThreadLeakScope(ThreadLeakScope.Scope.NONE)
 public class HashInnerJoinBatchIteratorTest {
 
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
     private final CircuitBreaker circuitBreaker = mock(CircuitBreaker.class);
     private final List<Object[]> expectedResult;
     private final Supplier<RamAccountingBatchIterator<Row>> leftIterator;
@@ -190,4 +202,39 @@ public class HashInnerJoinBatchIteratorTest {
         BatchIteratorTester tester = new BatchIteratorTester(batchIteratorSupplier);
         tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
     }
+
+    private void assertGraceHashJoinResult(Function<Row, Integer> hashBuilder, int blockSize) throws Exception {
+        Path spillPath = tmpFolder.newFolder().toPath();
+        Streamer<?>[] streamers = new Streamer[] { DataTypes.INTEGER.streamer() };
+        Supplier<BatchIterator<Row>> batchIteratorSupplier = () -> new HashInnerJoinBatchIterator(
+            leftIterator.get(),
+            rightIterator.get(),
+            new CombinedRow(1, 1),
+            getCol0EqCol1JoinCondition(),
+            hashBuilder,
+            hashBuilder,
+            () -> blockSize,
+            new HashJoinPartitions(spillPath, streamers, streamers, 5)
+        );
+        BatchIteratorTester tester = new BatchIteratorTester(batchIteratorSupplier);
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+        try (Stream<Path> files = Files.list(spillPath)) {
+            assertThat("Spill files must be deleted", files.count(), is(0L));
+        }
+    }
+
+    @Test
+    public void testGraceHashJoinWithLeftSideBiggerThanBlock() throws Exception {
+        assertGraceHashJoinResult(getHashForLeft(), 2);
+    }
+
+    @Test
+    public void testGraceHashJoinWithHashCollisionsAndPartitionsBiggerThanBlock() throws Exception {
+        assertGraceHashJoinResult(getHashWithCollisions(), 1);
+    }
+
+    @Test
+    public void testGraceHashJoinNotUsedIfLeftSideFitsIntoBlock() throws Exception {
+        assertGraceHashJoinResult(getHashForLeft(), 20);
+    }
 }
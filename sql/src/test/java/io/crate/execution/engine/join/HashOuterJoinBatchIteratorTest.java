@@ -0,0 +1,218 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import com.carrotsearch.randomizedtesting.RandomizedRunner;
+import com.carrotsearch.randomizedtesting.annotations.Name;
+import com.carrotsearch.randomizedtesting.annotations.ParametersFactory;
+import com.carrotsearch.randomizedtesting.annotations.ThreadLeakScope;
+import io.crate.Streamer;
+import io.crate.breaker.RowAccounting;
+import io.crate.data.BatchIterator;
+import io.crate.data.Row;
+import io.crate.data.join.CombinedRow;
+import io.crate.planner.node.dql.join.JoinType;
+import io.crate.testing.BatchIteratorTester;
+import io.crate.testing.BatchSimulatingIterator;
+import io.crate.testing.TestingBatchIterators;
+import io.crate.types.DataTypes;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.carrotsearch.randomizedtesting.RandomizedTest.$;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+
+@RunWith(RandomizedRunner.class)
+@ThreadLeakScope(ThreadLeakScope.Scope.NONE)
+public class HashOuterJoinBatchIteratorTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private static final List<Integer> LEFT_VALUES = Arrays.asList(0, 0, 1, 2, 2, 3, 4, 4);
+    private static final List<Integer> RIGHT_VALUES = Arrays.asList(1, 1, 2, 3, 4, 4, 5, 5, 6);
+
+    private static final List<Object[]> MATCHES = Arrays.asList(
+        new Object[] { 1, 1 }, new Object[] { 1, 1 },
+        new Object[] { 2, 2 }, new Object[] { 2, 2 },
+        new Object[] { 3, 3 },
+        new Object[] { 4, 4 }, new Object[] { 4, 4 }, new Object[] { 4, 4 }, new Object[] { 4, 4 }
+    );
+    private static final List<Object[]> UNMATCHED_LEFT = Arrays.asList(
+        new Object[] { 0, null }, new Object[] { 0, null });
+    private static final List<Object[]> UNMATCHED_RIGHT = Arrays.asList(
+        new Object[] { null, 5 }, new Object[] { null, 5 }, new Object[] { null, 6 });
+
+    private final Supplier<RamAccountingBatchIterator<Row>> leftIterator;
+    private final Supplier<BatchIterator<Row>> rightIterator;
+
+    public HashOuterJoinBatchIteratorTest(@SuppressWarnings("unused") @Name("dataSetName") String testName,
+                                          @Name("dataForLeft") Supplier<RamAccountingBatchIterator<Row>> leftIterator,
+                                          @Name("dataForRight") Supplier<BatchIterator<Row>> rightIterator) {
+        this.leftIterator = leftIterator;
+        this.rightIterator = rightIterator;
+    }
+
+    @ParametersFactory
+    public static Iterable<Object[]> testParameters() {
+        return Arrays.asList(
+            $("plain",
+              (Supplier<RamAccountingBatchIterator<Row>>) () -> of(TestingBatchIterators.ofValues(LEFT_VALUES)),
+              (Supplier<BatchIterator<Row>>) () -> TestingBatchIterators.ofValues(RIGHT_VALUES)),
+            $("batchedSource",
+              (Supplier<RamAccountingBatchIterator<Row>>) () -> of(
+                  new BatchSimulatingIterator<>(TestingBatchIterators.ofValues(LEFT_VALUES), 2, 4, null)),
+              (Supplier<BatchIterator<Row>>) () ->
+                  new BatchSimulatingIterator<>(TestingBatchIterators.ofValues(RIGHT_VALUES), 2, 4, null)),
+            $("leftLoadedRightBatched",
+              (Supplier<RamAccountingBatchIterator<Row>>) () -> of(TestingBatchIterators.ofValues(LEFT_VALUES)),
+              (Supplier<BatchIterator<Row>>) () ->
+                  new BatchSimulatingIterator<>(TestingBatchIterators.ofValues(RIGHT_VALUES), 2, 4, null)));
+    }
+
+    private static RamAccountingBatchIterator<Row> of(BatchIterator<Row> batchIterator) {
+        return new RamAccountingBatchIterator<>(batchIterator, mock(RowAccounting.class));
+    }
+
+    private static Function<Row, Integer> getHash() {
+        return row -> Objects.hash(row.get(0));
+    }
+
+    private static Function<Row, Integer> getHashWithCollisions() {
+        return row -> (Integer) row.get(0) % 3;
+    }
+
+    private void assertJoinResult(JoinType joinType, List<Object[]> expectedResult) throws Exception {
+        for (Function<Row, Integer> hashBuilder : Arrays.asList(getHash(), getHashWithCollisions())) {
+            for (int blockSize : new int[] { 1, 3, 20 }) {
+                Supplier<BatchIterator<Row>> batchIteratorSupplier = () -> new HashOuterJoinBatchIterator(
+                    leftIterator.get(),
+                    rightIterator.get(),
+                    new CombinedRow(1, 1),
+                    joinType,
+                    row -> Objects.equals(row.get(0), row.get(1)),
+                    hashBuilder,
+                    hashBuilder,
+                    () -> blockSize
+                );
+                BatchIteratorTester tester = new BatchIteratorTester(batchIteratorSupplier);
+                tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+
+                assertGraceHashJoinResult(joinType, hashBuilder, blockSize, expectedResult);
+            }
+        }
+    }
+
+    private void assertGraceHashJoinResult(JoinType joinType,
+                                           Function<Row, Integer> hashBuilder,
+                                           int blockSize,
+                                           List<Object[]> expectedResult) throws Exception {
+        Path spillPath = tmpFolder.newFolder().toPath();
+        Streamer<?>[] streamers = new Streamer[] { DataTypes.INTEGER.streamer() };
+        Supplier<BatchIterator<Row>> batchIteratorSupplier = () -> new HashOuterJoinBatchIterator(
+            leftIterator.get(),
+            rightIterator.get(),
+            new CombinedRow(1, 1),
+            joinType,
+            row -> Objects.equals(row.get(0), row.get(1)),
+            hashBuilder,
+            hashBuilder,
+            () -> blockSize,
+            new HashJoinPartitions(spillPath, streamers, streamers, LEFT_VALUES.size())
+        );
+        BatchIteratorTester tester = new BatchIteratorTester(batchIteratorSupplier);
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+        try (Stream<Path> files = Files.list(spillPath)) {
+            assertThat("Spill files must be deleted", files.count(), is(0L));
+        }
+    }
+
+    @SafeVarargs
+    private static List<Object[]> concat(List<Object[]>... lists) {
+        List<Object[]> result = new ArrayList<>();
+        for (List<Object[]> list : lists) {
+            result.addAll(list);
+        }
+        return result;
+    }
+
+    @Test
+    public void testLeftHashJoin() throws Exception {
+        assertJoinResult(JoinType.LEFT, concat(MATCHES, UNMATCHED_LEFT));
+    }
+
+    @Test
+    public void testFullOuterHashJoin() throws Exception {
+        assertJoinResult(JoinType.FULL, concat(MATCHES, UNMATCHED_LEFT, UNMATCHED_RIGHT));
+    }
+
+    @Test
+    public void testSemiHashJoin() throws Exception {
+        assertJoinResult(JoinType.SEMI, Arrays.asList(
+            new Object[] { 1, null },
+            new Object[] { 2, null }, new Object[] { 2, null },
+            new Object[] { 3, null },
+            new Object[] { 4, null }, new Object[] { 4, null }
+        ));
+    }
+
+    @Test
+    public void testAntiHashJoin() throws Exception {
+        assertJoinResult(JoinType.ANTI, UNMATCHED_LEFT);
+    }
+
+    @Test
+    public void testFullOuterHashJoinWithEmptyLeftEmitsAllRightRows() throws Exception {
+        Supplier<BatchIterator<Row>> batchIteratorSupplier = () -> new HashOuterJoinBatchIterator(
+            of(TestingBatchIterators.ofValues(Collections.emptyList())),
+            rightIterator.get(),
+            new CombinedRow(1, 1),
+            JoinType.FULL,
+            row -> Objects.equals(row.get(0), row.get(1)),
+            getHash(),
+            getHash(),
+            () -> 5
+        );
+        List<Object[]> expectedResult = RIGHT_VALUES.stream()
+            .map(value -> new Object[] { null, value })
+            .collect(Collectors.toList());
+        BatchIteratorTester tester = new BatchIteratorTester(batchIteratorSupplier);
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+}
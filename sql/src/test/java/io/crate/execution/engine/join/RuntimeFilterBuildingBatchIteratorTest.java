@@ -0,0 +1,73 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import io.crate.data.BatchIterator;
+import io.crate.data.Row;
+import io.crate.execution.engine.distribution.RuntimeFilter;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.testing.BatchIteratorTester;
+import io.crate.testing.BatchSimulatingIterator;
+import io.crate.testing.TestingBatchIterators;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class RuntimeFilterBuildingBatchIteratorTest extends CrateUnitTest {
+
+    @Test
+    public void testRowsAreForwardedAndFilterIsCompletedOnceAllRowsAreConsumed() throws Exception {
+        CompletableFuture<RuntimeFilter> runtimeFilter = new CompletableFuture<>();
+        BatchIteratorTester tester = new BatchIteratorTester(() -> new RuntimeFilterBuildingBatchIterator(
+            new BatchSimulatingIterator<>(TestingBatchIterators.range(0, 10), 3, 4, null),
+            0,
+            runtimeFilter
+        ));
+        tester.verifyResultAndEdgeCaseBehaviour(
+            IntStream.range(0, 10).mapToObj(i -> new Object[]{i}).collect(Collectors.toList()));
+
+        RuntimeFilter filter = runtimeFilter.get(5, TimeUnit.SECONDS);
+        assertThat(filter, notNullValue());
+        for (int i = 0; i < 10; i++) {
+            assertThat(filter.mightContain(Integer.hashCode(i)), is(true));
+        }
+    }
+
+    @Test
+    public void testFilterIsCompletedWithNullIfThereAreTooManyDistinctValues() throws Exception {
+        CompletableFuture<RuntimeFilter> runtimeFilter = new CompletableFuture<>();
+        BatchIterator<Row> it = new RuntimeFilterBuildingBatchIterator(
+            TestingBatchIterators.range(0, RuntimeFilterBuildingBatchIterator.MAX_VALUES + 1), 0, runtimeFilter);
+        while (it.moveNext()) {
+            assertThat(runtimeFilter.isDone(), is(false));
+        }
+        assertThat(runtimeFilter.get(5, TimeUnit.SECONDS), nullValue());
+    }
+}
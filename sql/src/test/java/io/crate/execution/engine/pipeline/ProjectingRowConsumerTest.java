@@ -185,7 +185,8 @@ public class ProjectingRowConsumerTest extends CrateUnitTest {
             null,
             Collections.emptyMap(),
             Collections.emptyList(),
-            WriterProjection.OutputFormat.JSON_OBJECT);
+            WriterProjection.OutputFormat.JSON_OBJECT,
+            1);
 
         TestingRowConsumer consumer = new TestingRowConsumer();
         RowConsumer rowConsumer = ProjectingRowConsumer.create(
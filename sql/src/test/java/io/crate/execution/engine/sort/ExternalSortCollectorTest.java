@@ -0,0 +1,226 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.sort;
+
+import io.crate.breaker.RamAccountingContext;
+import io.crate.data.BatchIterators;
+import io.crate.data.InMemoryBatchIterator;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.collect.InputCollectExpression;
+import io.crate.execution.engine.pipeline.TopN;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import org.apache.logging.log4j.LogManager;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static io.crate.data.SentinelRow.SENTINEL;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+public class ExternalSortCollectorTest extends CrateUnitTest {
+
+    private ExecutorService executor;
+    private Path spillPath;
+
+    @Before
+    public void setUpExecutor() throws Exception {
+        executor = Executors.newFixedThreadPool(2);
+        spillPath = createTempDir();
+    }
+
+    @After
+    public void tearDownExecutor() throws Exception {
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private ExternalSortCollector createCollector(int limit, int offset) {
+        InputCollectExpression input = new InputCollectExpression(0);
+        RamAccountingContext ramAccounting = new RamAccountingContext(
+            "test",
+            new MemoryCircuitBreaker(
+                new ByteSizeValue(100, ByteSizeUnit.MB), 1.0, LogManager.getLogger(ExternalSortCollectorTest.class))
+        );
+        return new ExternalSortCollector(
+            Collections.singletonList(input),
+            Collections.singletonList(input),
+            Collections.singletonList(DataTypes.INTEGER),
+            1,
+            OrderingByPosition.arrayOrdering(0, false, false),
+            limit,
+            offset,
+            ramAccounting,
+            0.0d,   // spill every time the spill check is done
+            spillPath,
+            () -> 2,
+            executor
+        );
+    }
+
+    private List<Integer> sortAndCollect(ExternalSortCollector collector, List<Integer> numbers) throws Exception {
+        List<Row> inputRows = new ArrayList<>(numbers.size());
+        for (Integer number : numbers) {
+            inputRows.add(new RowN(new Object[]{number}));
+        }
+        Iterable<Row> rows = BatchIterators.collect(InMemoryBatchIterator.of(inputRows, SENTINEL), collector)
+            .get(10, TimeUnit.SECONDS);
+
+        List<Integer> result = new ArrayList<>();
+        for (Row row : rows) {
+            result.add((Integer) row.get(0));
+        }
+        List<Integer> secondIteration = new ArrayList<>();
+        for (Row row : rows) {
+            secondIteration.add((Integer) row.get(0));
+        }
+        assertThat(secondIteration, is(result));
+        return result;
+    }
+
+    private static List<Integer> randomNumbers(int count) {
+        List<Integer> numbers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            numbers.add(randomInt());
+        }
+        return numbers;
+    }
+
+    private void assertSpillFilesDeleted(ExternalSortCollector collector) throws Exception {
+        collector.releaseSpillFiles();
+        try (Stream<Path> files = Files.list(spillPath)) {
+            assertThat(files.count(), is(0L));
+        }
+    }
+
+    @Test
+    public void testRowsAreSortedViaSpilledRunsWithOffset() throws Exception {
+        List<Integer> numbers = randomNumbers(10_000);
+        ExternalSortCollector collector = createCollector(TopN.NO_LIMIT, 10);
+
+        List<Integer> result = sortAndCollect(collector, numbers);
+
+        List<Integer> expected = new ArrayList<>(numbers);
+        Collections.sort(expected);
+        assertThat(result, is(expected.subList(10, expected.size())));
+        try (Stream<Path> files = Files.list(spillPath)) {
+            assertThat("Rows must have been spilled into multiple runs", files.count() > 1, is(true));
+        }
+        assertSpillFilesDeleted(collector);
+    }
+
+    @Test
+    public void testRowsAreSortedViaSpilledRunsWithLimitAndOffset() throws Exception {
+        List<Integer> numbers = randomNumbers(5_000);
+        ExternalSortCollector collector = createCollector(1500, 20);
+
+        List<Integer> result = sortAndCollect(collector, numbers);
+
+        List<Integer> expected = new ArrayList<>(numbers);
+        Collections.sort(expected);
+        assertThat(result, is(expected.subList(20, 1520)));
+        assertSpillFilesDeleted(collector);
+    }
+
+    @Test
+    public void testRowsAreSortedInMemoryIfThresholdIsNotReached() throws Exception {
+        List<Integer> numbers = randomNumbers(100);
+        ExternalSortCollector collector = createCollector(TopN.NO_LIMIT, 0);
+
+        List<Integer> result = sortAndCollect(collector, numbers);
+
+        List<Integer> expected = new ArrayList<>(numbers);
+        Collections.sort(expected);
+        assertThat(result, is(expected));
+        try (Stream<Path> files = Files.list(spillPath)) {
+            assertThat(files.count(), is(0L));
+        }
+    }
+
+    @Test
+    public void testReleaseSpillFilesWaitsForRunsInFlightAfterFailedCollect() throws Exception {
+        CountDownLatch blockExecutor = new CountDownLatch(1);
+        for (int i = 0; i < 2; i++) {
+            executor.execute(() -> {
+                try {
+                    blockExecutor.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        ExternalSortCollector collector = createCollector(TopN.NO_LIMIT, 0);
+
+        // two runs are started at 1024 and 2048 rows, but can't be written until the executor is unblocked
+        Iterable<Row> failingRows = () -> new Iterator<>() {
+
+            int numRows = 0;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Row next() {
+                if (numRows++ == 2500) {
+                    throw new IllegalStateException("source failed");
+                }
+                return new RowN(new Object[]{numRows});
+            }
+        };
+        try {
+            BatchIterators.collect(InMemoryBatchIterator.of(failingRows, SENTINEL), collector).get(10, TimeUnit.SECONDS);
+            fail("collect must fail");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+        }
+
+        CompletableFuture<Void> release = CompletableFuture.runAsync(collector::releaseSpillFiles);
+        blockExecutor.countDown();
+        release.get(10, TimeUnit.SECONDS);
+
+        try (Stream<Path> files = Files.list(spillPath)) {
+            assertThat(files.count(), is(0L));
+        }
+    }
+}
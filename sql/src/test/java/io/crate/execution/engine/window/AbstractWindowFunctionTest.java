@@ -27,12 +27,14 @@ import io.crate.analyze.OrderBy;
 import io.crate.analyze.relations.AnalyzedRelation;
 import io.crate.analyze.relations.DocTableRelation;
 import io.crate.auth.user.User;
+import io.crate.breaker.RamAccountingContext;
 import io.crate.data.BatchIterator;
 import io.crate.data.BatchIterators;
 import io.crate.data.InMemoryBatchIterator;
 import io.crate.data.Input;
 import io.crate.data.Row;
 import io.crate.data.RowN;
+import io.crate.execution.engine.aggregation.AggregationFunction;
 import io.crate.execution.engine.collect.InputCollectExpression;
 import io.crate.expression.InputFactory;
 import io.crate.expression.reference.ReferenceResolver;
@@ -49,7 +51,11 @@ import io.crate.metadata.table.TestingTableInfo;
 import io.crate.sql.tree.QualifiedName;
 import io.crate.testing.SqlExpressions;
 import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.inject.AbstractModule;
+import org.elasticsearch.common.util.BigArrays;
 import org.hamcrest.Matcher;
 import org.junit.Before;
 import org.junit.Rule;
@@ -130,8 +136,18 @@ public abstract class AbstractWindowFunctionTest {
         argsCtx.add(windowFunctionSymbol.arguments());
 
         FunctionImplementation impl = functions.getQualified(windowFunctionSymbol.info().ident());
-        assert impl instanceof WindowFunction: "Got " + impl + " but expected a window function";
-        WindowFunction windowFunctionImpl = (WindowFunction) impl;
+        WindowFunction windowFunctionImpl;
+        if (impl instanceof AggregationFunction) {
+            windowFunctionImpl = new AggregateToWindowFunctionAdapter(
+                (AggregationFunction) impl,
+                Version.CURRENT,
+                BigArrays.NON_RECYCLING_INSTANCE,
+                new RamAccountingContext("dummy", new NoopCircuitBreaker(CircuitBreaker.FIELDDATA))
+            );
+        } else {
+            assert impl instanceof WindowFunction : "Got " + impl + " but expected a window function";
+            windowFunctionImpl = (WindowFunction) impl;
+        }
 
         int numCellsInSourceRows = inputRows[0].length;
         var windowDef = windowFunctionSymbol.windowDefinition();
@@ -141,6 +157,7 @@ public abstract class AbstractWindowFunctionTest {
             new IgnoreRowAccounting(),
             createComparator(() -> inputFactory.ctxForRefs(txnCtx, referenceResolver), partitionOrderBy),
             createComparator(() -> inputFactory.ctxForRefs(txnCtx, referenceResolver), windowDef.orderBy()),
+            WindowProjector.createFrameBounds(windowDef, () -> inputFactory.ctxForRefs(txnCtx, referenceResolver)),
             numCellsInSourceRows,
             () -> 1,
             Runnable::run,
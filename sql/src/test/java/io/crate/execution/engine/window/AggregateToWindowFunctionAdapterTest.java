@@ -0,0 +1,115 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.window;
+
+import io.crate.metadata.ColumnIdent;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.contains;
+
+public class AggregateToWindowFunctionAdapterTest extends AbstractWindowFunctionTest {
+
+    private static final Map<ColumnIdent, Integer> X_AND_Y = Map.of(new ColumnIdent("x"), 0, new ColumnIdent("y"), 1);
+
+    @Test
+    public void testSumOverSlidingRowsFrame() throws Exception {
+        assertEvaluate("sum(x) over(order by x rows between 1 preceding and 1 following)",
+            contains(3L, 6L, 9L, 12L, 9L),
+            Collections.singletonMap(new ColumnIdent("x"), 0),
+            new Object[]{1},
+            new Object[]{2},
+            new Object[]{3},
+            new Object[]{4},
+            new Object[]{5});
+    }
+
+    @Test
+    public void testSumIsNullIfAllValuesWereRemovedFromTheFrame() throws Exception {
+        assertEvaluate("sum(x) over(order by y rows between 1 preceding and current row)",
+            contains(1L, 1L, null),
+            X_AND_Y,
+            new Object[]{1, 1L},
+            new Object[]{null, 2L},
+            new Object[]{null, 3L});
+    }
+
+    @Test
+    public void testCountOverFrameEndingBeforeCurrentRow() throws Exception {
+        assertEvaluate("count(*) over(order by x rows between unbounded preceding and 1 preceding)",
+            contains(0L, 1L, 2L, 3L),
+            Collections.singletonMap(new ColumnIdent("x"), 0),
+            new Object[]{1},
+            new Object[]{2},
+            new Object[]{3},
+            new Object[]{4});
+    }
+
+    @Test
+    public void testMaxOverSlidingRowsFrameUsesPreAggregatedStates() throws Exception {
+        assertEvaluate("max(x) over(order by y rows between current row and 2 following)",
+            contains(4, 4, 5, 9, 9, 9),
+            X_AND_Y,
+            new Object[]{3, 1L},
+            new Object[]{1, 2L},
+            new Object[]{4, 3L},
+            new Object[]{1, 4L},
+            new Object[]{5, 5L},
+            new Object[]{9, 6L});
+    }
+
+    @Test
+    public void testAvgOverSlidingRowsFrameIsRecomputed() throws Exception {
+        assertEvaluate("avg(x) over(order by x rows between 1 preceding and current row)",
+            contains(1.0, 1.5, 2.5, 3.5),
+            Collections.singletonMap(new ColumnIdent("x"), 0),
+            new Object[]{1},
+            new Object[]{2},
+            new Object[]{3},
+            new Object[]{4});
+    }
+
+    @Test
+    public void testSumOverRangeFrameWithOffsets() throws Exception {
+        assertEvaluate("sum(x) over(order by x range between 1 preceding and 1 following)",
+            contains(5L, 5L, 5L, 9L, 9L),
+            Collections.singletonMap(new ColumnIdent("x"), 0),
+            new Object[]{1},
+            new Object[]{2},
+            new Object[]{2},
+            new Object[]{4},
+            new Object[]{5});
+    }
+
+    @Test
+    public void testSumOverRangeFrameWithOffsetAndDescendingOrder() throws Exception {
+        assertEvaluate("sum(x) over(order by x desc range between current row and 1 following)",
+            contains(5L, 3L, 1L),
+            Collections.singletonMap(new ColumnIdent("x"), 0),
+            new Object[]{1},
+            new Object[]{3},
+            new Object[]{2});
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+
+package io.crate.execution.engine.window;
+
+import io.crate.Streamer;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.breaker.RowAccountingWithEstimators;
+import io.crate.breaker.ScopedRamAccounting;
+import io.crate.data.BatchIterator;
+import io.crate.data.BatchIterators;
+import io.crate.data.InMemoryBatchIterator;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.sort.OrderingByPosition;
+import io.crate.metadata.FunctionIdent;
+import io.crate.metadata.FunctionInfo;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import org.apache.logging.log4j.LogManager;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static io.crate.data.SentinelRow.SENTINEL;
+import static org.hamcrest.Matchers.is;
+
+public class SpillableWindowRowsTest extends CrateUnitTest {
+
+    private static final int NUM_PARTITIONS = 50;
+
+    private Path spillPath;
+    private RamAccountingContext ramAccountingContext;
+
+    @Before
+    public void setUpSpillPath() throws Exception {
+        spillPath = createTempDir();
+        ramAccountingContext = new RamAccountingContext(
+            "test",
+            new MemoryCircuitBreaker(
+                new ByteSizeValue(100, ByteSizeUnit.MB), 1.0, LogManager.getLogger(SpillableWindowRowsTest.class))
+        );
+    }
+
+    private SpillableWindowRows createWindowRows(double spillThreshold) {
+        return new SpillableWindowRows(
+            new RowAccountingWithEstimators(
+                List.of(DataTypes.INTEGER, DataTypes.INTEGER), new ScopedRamAccounting(ramAccountingContext), 32),
+            ramAccountingContext,
+            spillThreshold,
+            spillPath,
+            new Streamer[]{DataTypes.INTEGER.streamer(), DataTypes.INTEGER.streamer()},
+            cells -> Objects.hashCode(cells[0]),
+            1
+        );
+    }
+
+    private List<Object[]> computeRowNumbers(SpillableWindowRows windowRows, List<Row> rows) throws Exception {
+        // window: partition by IC0, order by IC1
+        BatchIterator<Row> iterator = WindowFunctionBatchIterator.ofSpillableRows(
+            InMemoryBatchIterator.of(rows, SENTINEL),
+            windowRows,
+            OrderingByPosition.arrayOrdering(0, false, false),
+            OrderingByPosition.arrayOrdering(1, false, false),
+            WindowFrameBounds.DEFAULT,
+            2,
+            () -> 1,
+            Runnable::run,
+            List.of(rowNumberWindowFunction()),
+            List.of(),
+            new Input[][]{new Input[0]}
+        );
+        List<Object[]> result = BatchIterators
+            .collect(iterator, Collectors.mapping(Row::materialize, Collectors.toList()))
+            .get(10, TimeUnit.SECONDS);
+        iterator.close();
+        return result;
+    }
+
+    private static List<Row> randomRows(int count) {
+        List<Row> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(new RowN(new Object[]{randomIntBetween(0, NUM_PARTITIONS - 1), i}));
+        }
+        Collections.shuffle(rows, random());
+        return rows;
+    }
+
+    private static void assertRowNumbersArePerPartition(List<Object[]> result, int expectedNumRows) {
+        assertThat(result.size(), is(expectedNumRows));
+        int[] rowNumbers = new int[NUM_PARTITIONS];
+        int[] lastOrderValue = new int[NUM_PARTITIONS];
+        for (Object[] row : result) {
+            int partition = (int) row[0];
+            int orderValue = (int) row[1];
+            rowNumbers[partition]++;
+            assertThat(row[2], is(rowNumbers[partition]));
+            if (rowNumbers[partition] > 1) {
+                assertThat(orderValue > lastOrderValue[partition], is(true));
+            }
+            lastOrderValue[partition] = orderValue;
+        }
+    }
+
+    private void assertSpillPathIsEmpty() throws Exception {
+        try (Stream<Path> files = Files.list(spillPath)) {
+            assertThat(files.count(), is(0L));
+        }
+    }
+
+    @Test
+    public void testRowsArePartitionedIntoSpillFilesAndComputedPerFile() throws Exception {
+        SpillableWindowRows windowRows = createWindowRows(0.0d);   // spill every time the spill check is done
+
+        List<Object[]> result = computeRowNumbers(windowRows, randomRows(5_000));
+
+        assertThat(windowRows.spilled(), is(true));
+        assertRowNumbersArePerPartition(result, 5_000);
+        assertThat(ramAccountingContext.totalBytes(), is(0L));
+        assertSpillPathIsEmpty();
+    }
+
+    @Test
+    public void testRowsAreComputedInMemoryIfThresholdIsNotReached() throws Exception {
+        SpillableWindowRows windowRows = createWindowRows(1.0d);
+
+        List<Object[]> result = computeRowNumbers(windowRows, randomRows(2_000));
+
+        assertThat(windowRows.spilled(), is(false));
+        assertRowNumbersArePerPartition(result, 2_000);
+        assertSpillPathIsEmpty();
+    }
+
+    private static WindowFunction rowNumberWindowFunction() {
+        return new WindowFunction() {
+            @Override
+            public Object execute(int idxInPartition,
+                                  WindowFrameState currentFrame,
+                                  List<? extends CollectExpression<Row, ?>> expressions,
+                                  Input... args) {
+                return idxInPartition + 1;
+            }
+
+            @Override
+            public FunctionInfo info() {
+                return new FunctionInfo(
+                    new FunctionIdent("row_number", Collections.emptyList()),
+                    DataTypes.INTEGER);
+            }
+        };
+    }
+}
@@ -25,6 +25,7 @@ package io.crate.execution.engine.window;
 import com.google.common.collect.Lists;
 import io.crate.breaker.RamAccountingContext;
 import io.crate.breaker.RowAccountingWithEstimators;
+import io.crate.breaker.ScopedRamAccounting;
 import io.crate.collections.Lists2;
 import io.crate.data.BatchIterator;
 import io.crate.data.Input;
@@ -106,6 +107,62 @@ public class WindowBatchIteratorTest {
         tester.verifyResultAndEdgeCaseBehaviour(expectedRowNumberResult);
     }
 
+    @Test
+    public void testStreamingWindowBatchIteratorComputesOnePartitionAtATime() throws Exception {
+        List<Integer> sortedValues = Arrays.asList(1, 1, 2, 2, 2, 3, null, null);
+        List<Object[]> expectedResult = Arrays.asList(
+            $(1, 1),
+            $(1, 2),
+            $(2, 1),
+            $(2, 2),
+            $(2, 3),
+            $(3, 1),
+            $(null, 1),
+            $(null, 2)
+        );
+        BatchIteratorTester tester = new BatchIteratorTester(
+            () -> WindowFunctionBatchIterator.ofSortedSource(
+                new BatchSimulatingIterator<>(TestingBatchIterators.ofValues(sortedValues), 3, 3, null),
+                new IgnoreRowAccounting(),
+                OrderingByPosition.arrayOrdering(0, false, false),
+                null,
+                WindowFrameBounds.DEFAULT,
+                1,
+                Collections.singletonList(rowNumberWindowFunction()),
+                Collections.emptyList(),
+                new Input[0])
+        );
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    @Test
+    public void testStreamingWindowBatchIteratorReleasesMemoryOfEmittedPartitions() {
+        BatchIterator<Row> iterator = WindowFunctionBatchIterator.ofSortedSource(
+            TestingBatchIterators.ofValues(Arrays.asList(1, 1, 2, 2, 2)),
+            new RowAccountingWithEstimators(
+                List.of(DataTypes.INTEGER), new ScopedRamAccounting(ramAccountingContext), 32),
+            OrderingByPosition.arrayOrdering(0, false, false),
+            null,
+            WindowFrameBounds.DEFAULT,
+            1,
+            List.of(rowNumberWindowFunction()),
+            List.of(),
+            new Input[][]{new Input[0]}
+        );
+        // 48 bytes per integer, the first row of the next partition is not accounted until it is buffered
+        assertThat(iterator.moveNext(), is(true));
+        assertThat(ramAccountingContext.totalBytes(), is(96L));
+        assertThat(iterator.moveNext(), is(true));
+        assertThat(iterator.moveNext(), is(true));
+        assertThat(iterator.currentElement().get(0), is(2));
+        assertThat(ramAccountingContext.totalBytes(), is(144L));
+        while (iterator.moveNext()) {
+            // consume remaining rows
+        }
+        assertThat(ramAccountingContext.totalBytes(), is(0L));
+        iterator.close();
+    }
+
     @Test
     public void testFrameBoundsEmptyWindow() throws Exception {
         var rows = IntStream.range(0, 10).mapToObj(i -> new Object[]{i, null}).collect(Collectors.toList());
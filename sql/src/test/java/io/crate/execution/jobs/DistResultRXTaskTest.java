@@ -53,10 +53,13 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.hamcrest.Matchers.arrayContainingInAnyOrder;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -263,6 +266,39 @@ public class DistResultRXTaskTest extends CrateUnitTest {
         batchConsumer.getResult();
     }
 
+    @Test
+    public void testPagesInFlightAreForwardedInTheOrderOfTheirPageIdx() throws Exception {
+        TestingRowConsumer batchConsumer = new TestingRowConsumer();
+        DistResultRXTask ctx = getPageDownstreamContext(batchConsumer, PassThroughPagingIterator.oneShot(), 1);
+        PageBucketReceiver bucketReceiver = ctx.getBucketReceiver((byte) 0);
+        assertThat(bucketReceiver, notNullValue());
+        assertThat(bucketReceiver.pageCredits(), greaterThan(1));
+
+        PageResultListener listener0 = mock(PageResultListener.class);
+        PageResultListener listener1 = mock(PageResultListener.class);
+        PageResultListener listener2 = mock(PageResultListener.class);
+        bucketReceiver.setBucket(
+            0, 2, new CollectionBucket(Collections.singletonList(new Object[] { "c" })), true, listener2);
+        bucketReceiver.setBucket(
+            0, 1, new CollectionBucket(Collections.singletonList(new Object[] { "b" })), false, listener1);
+
+        // a page which can be buffered is acknowledged right away, the last page is answered by the downstream
+        verify(listener1, times(1)).needMore(true);
+        verify(listener2, never()).needMore(anyBoolean());
+
+        bucketReceiver.setBucket(
+            0, 0, new CollectionBucket(Collections.singletonList(new Object[] { "a" })), false, listener0);
+
+        List<Object[]> result = batchConsumer.getResult();
+        assertThat(TestingHelpers.printedTable(new CollectionBucket(result)),
+            is("a\n" +
+               "b\n" +
+               "c\n"));
+        verify(listener0, times(1)).needMore(true);
+        verify(listener1, times(1)).needMore(true);
+        verify(listener2, times(1)).needMore(false);
+    }
+
     private static class CheckPageResultListener implements PageResultListener {
 
         private boolean needMoreResult;
@@ -32,6 +32,8 @@ import io.crate.types.SetType;
 import org.elasticsearch.index.mapper.KeywordFieldMapper;
 import org.junit.Test;
 
+import java.util.Arrays;
+
 import static org.hamcrest.Matchers.instanceOf;
 
 public class LuceneReferenceResolverTest extends CrateUnitTest {
@@ -75,4 +77,14 @@ public class LuceneReferenceResolverTest extends CrateUnitTest {
         assertThat(luceneReferenceResolver.getImplementation(primaryTerm),
                    instanceOf(PrimaryTermCollectorExpression.class));
     }
+
+    @Test
+    public void testGetImplementationForObjectSubColumnUsesDocValues() {
+        Reference subColumnRef = new Reference(
+            new ReferenceIdent(
+                new RelationName("s", "t"), "payload", Arrays.asList("device", "type")),
+            RowGranularity.DOC, DataTypes.STRING, null
+        );
+        assertThat(luceneReferenceResolver.getImplementation(subColumnRef), instanceOf(BytesRefColumnReference.class));
+    }
 }
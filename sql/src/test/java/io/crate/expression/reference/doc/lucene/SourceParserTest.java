@@ -0,0 +1,105 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.expression.reference.doc.lucene;
+
+import io.crate.test.integration.CrateUnitTest;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+
+public class SourceParserTest extends CrateUnitTest {
+
+    private static final BytesArray SOURCE = new BytesArray(
+        "{" +
+        "  \"x\": 10," +
+        "  \"obj\": {\"a\": 1, \"b\": {\"c\": \"foo\"}, \"d\": [1, 2]}," +
+        "  \"objs\": [{\"a\": 1, \"b\": 2}, {\"a\": 3, \"b\": 4}, [5, 6], 7]," +
+        "  \"y\": \"bar\"" +
+        "}");
+
+    private static Object extract(Map<String, Object> source, String... path) {
+        return SourceLookup.extractValue(source, Arrays.asList(path), 0);
+    }
+
+    @Test
+    public void testParsedMapOnlyContainsRegisteredPaths() {
+        SourceParser parser = new SourceParser();
+        parser.register(Arrays.asList("obj", "b", "c"));
+        parser.register(Collections.singletonList("y"));
+
+        Map<String, Object> source = parser.parse(SOURCE);
+
+        assertThat(source.toString(), is("{obj={b={c=foo}}, y=bar}"));
+    }
+
+    @Test
+    public void testValuesOfRegisteredPathsAreEqualToValuesOfFullSource() {
+        List<List<String>> paths = Arrays.asList(
+            Collections.singletonList("x"),
+            Arrays.asList("obj", "d"),
+            Arrays.asList("obj", "b"),
+            Arrays.asList("objs", "a"),
+            Arrays.asList("x", "not_an_object"),
+            Collections.singletonList("missing")
+        );
+        SourceParser parser = new SourceParser();
+        for (List<String> path : paths) {
+            parser.register(path);
+        }
+        Map<String, Object> source = parser.parse(SOURCE);
+        Map<String, Object> fullSource = XContentHelper.convertToMap(SOURCE, false, XContentType.JSON).v2();
+        for (List<String> path : paths) {
+            String[] pathArray = path.toArray(new String[0]);
+            assertThat(extract(source, pathArray), is(extract(fullSource, pathArray)));
+        }
+    }
+
+    @Test
+    public void testRegisteringParentPathIncludesWholeSubTree() {
+        SourceParser parser = new SourceParser();
+        parser.register(Arrays.asList("obj", "b", "c"));
+        parser.register(Collections.singletonList("obj"));
+
+        assertThat(parser.covers(Arrays.asList("obj", "a")), is(true));
+        assertThat(parser.covers(Collections.singletonList("x")), is(false));
+        assertThat(parser.parse(SOURCE).toString(), is("{obj={a=1, b={c=foo}, d=[1, 2]}}"));
+    }
+
+    @Test
+    public void testEmptyPathRegistersFullSource() {
+        SourceParser parser = new SourceParser();
+        parser.register(Collections.singletonList("x"));
+        parser.register(Collections.emptyList());
+
+        assertThat(parser.coversFullSource(), is(true));
+        assertThat(parser.parse(SOURCE), is(XContentHelper.convertToMap(SOURCE, false, XContentType.JSON).v2()));
+    }
+}
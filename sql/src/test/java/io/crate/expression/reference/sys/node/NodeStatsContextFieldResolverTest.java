@@ -23,6 +23,7 @@
 package io.crate.expression.reference.sys.node;
 
 import com.google.common.collect.ImmutableSet;
+import io.crate.action.sql.StatementCacheStats;
 import io.crate.execution.engine.collect.NestableCollectExpression;
 import io.crate.metadata.ColumnIdent;
 import io.crate.metadata.expressions.RowCollectExpressionFactory;
@@ -82,6 +83,7 @@ public class NodeStatsContextFieldResolverTest {
             mock(ThreadPool.class),
             new ExtendedNodeInfo(),
             () -> new ConnectionStats(2L, 4L),
+            () -> new StatementCacheStats(3L, 10L, 5L, 2L),
             () -> postgresAddress,
             () -> 12L,
             () -> 1L
@@ -146,6 +148,23 @@ public class NodeStatsContextFieldResolverTest {
         assertThat(open.value(), is(12L));
     }
 
+    @Test
+    public void testStatementCacheStatsCanBeRetrieved() {
+        NodeStatsContext statsContext = resolver.forTopColumnIdents(
+            Collections.singletonList(SysNodesTableInfo.Columns.STATEMENT_CACHE));
+        RowCollectExpressionFactory<NodeStatsContext> expressionFactory =
+            SysNodesTableInfo.expressions().get(SysNodesTableInfo.Columns.STATEMENT_CACHE);
+        NestableCollectExpression<NodeStatsContext, ?> expression = expressionFactory.create();
+
+        NestableCollectExpression hits = (NestableCollectExpression) expression.getChild("hits");
+        hits.setNextRow(statsContext);
+        assertThat(hits.value(), is(10L));
+
+        NestableCollectExpression misses = (NestableCollectExpression) expression.getChild("misses");
+        misses.setNextRow(statsContext);
+        assertThat(misses.value(), is(5L));
+    }
+
     @Test
     public void testColumnIdentsResolution() {
         NodeStatsContext context = resolver.forTopColumnIdents(ImmutableSet.of(
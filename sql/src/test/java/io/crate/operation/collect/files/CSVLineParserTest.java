@@ -1,5 +1,6 @@
 package io.crate.operation.collect.files;
 
+import org.apache.lucene.util.BytesRef;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -60,7 +61,7 @@ public class CSVLineParserTest {
         subjectUnderTest.parseHeader(bufferedReader);
         result = subjectUnderTest.parse("GER,Germany\n");
 
-        assertThat(result, is("{\"Country\":\"Germany\",\"Code\":\"GER\"}".getBytes(StandardCharsets.UTF_8)));
+        assertThat(result, is("{\"Code\":\"GER\",\"Country\":\"Germany\"}".getBytes(StandardCharsets.UTF_8)));
     }
 
     @Test
@@ -70,7 +71,7 @@ public class CSVLineParserTest {
         subjectUnderTest.parseHeader(bufferedReader);
         result = subjectUnderTest.parse("GER,Germany\n");
 
-        assertThat(result, is("{\"Country\":\"Germany\",\"Code\":\"GER\"}".getBytes(StandardCharsets.UTF_8)));
+        assertThat(result, is("{\"Code\":\"GER\",\"Country\":\"Germany\"}".getBytes(StandardCharsets.UTF_8)));
     }
 
     @Test
@@ -90,7 +91,7 @@ public class CSVLineParserTest {
         subjectUnderTest.parseHeader(bufferedReader);
         result = subjectUnderTest.parse(",");
 
-        assertThat(result, is("{\"Country\":\"\",\"Code\":\"\"}".getBytes(StandardCharsets.UTF_8)));
+        assertThat(result, is("{\"Code\":\"\",\"Country\":\"\"}".getBytes(StandardCharsets.UTF_8)));
     }
 
     @Test
@@ -100,7 +101,7 @@ public class CSVLineParserTest {
         subjectUnderTest.parseHeader(bufferedReader);
         result = subjectUnderTest.parse("GER,Germany\n");
 
-        assertThat(result, is("{\"Coun, try\":\"Germany\",\"Code\":\"GER\"}".getBytes(StandardCharsets.UTF_8)));
+        assertThat(result, is("{\"Code\":\"GER\",\"Coun, try\":\"Germany\"}".getBytes(StandardCharsets.UTF_8)));
     }
 
     @Test
@@ -110,7 +111,7 @@ public class CSVLineParserTest {
         subjectUnderTest.parseHeader(bufferedReader);
         result = subjectUnderTest.parse("GER,,Berlin\n");
 
-        assertThat(result, is("{\"Country\":\"\",\"City\":\"Berlin\",\"Code\":\"GER\"}".getBytes(StandardCharsets.UTF_8)));
+        assertThat(result, is("{\"Code\":\"GER\",\"Country\":\"\",\"City\":\"Berlin\"}".getBytes(StandardCharsets.UTF_8)));
     }
 
     @Test
@@ -120,7 +121,7 @@ public class CSVLineParserTest {
         subjectUnderTest.parseHeader(bufferedReader);
         result = subjectUnderTest.parse("GER,Germany\n");
 
-        assertThat(result, is("{\"Country\":\"Germany\",\"Code\":\"GER\"}".getBytes(StandardCharsets.UTF_8)));
+        assertThat(result, is("{\"Code\":\"GER\",\"Country\":\"Germany\"}".getBytes(StandardCharsets.UTF_8)));
     }
 
     @Test
@@ -130,7 +131,7 @@ public class CSVLineParserTest {
         subjectUnderTest.parseHeader(bufferedReader);
         result = subjectUnderTest.parse("GER        ,Germany\n");
 
-        assertThat(result, is("{\"Country\":\"Germany\",\"Code\":\"GER\"}".getBytes(StandardCharsets.UTF_8)));
+        assertThat(result, is("{\"Code\":\"GER\",\"Country\":\"Germany\"}".getBytes(StandardCharsets.UTF_8)));
     }
 
     @Test
@@ -140,7 +141,7 @@ public class CSVLineParserTest {
         subjectUnderTest.parseHeader(bufferedReader);
         result = subjectUnderTest.parse("GER,Germany\n");
 
-        assertThat(result, is("{\"Country\":\"Germany\",\"Code\":\"GER\"}".getBytes(StandardCharsets.UTF_8)));
+        assertThat(result, is("{\"Code\":\"GER\",\"Country\":\"Germany\"}".getBytes(StandardCharsets.UTF_8)));
     }
 
     @Test
@@ -150,6 +151,27 @@ public class CSVLineParserTest {
         subjectUnderTest.parseHeader(bufferedReader);
         result = subjectUnderTest.parse("GER,               Germany\n");
 
-        assertThat(result, is("{\"Country\":\"Germany\",\"Code\":\"GER\"}".getBytes(StandardCharsets.UTF_8)));
+        assertThat(result, is("{\"Code\":\"GER\",\"Country\":\"Germany\"}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void parse_givenQuotedValueWithEscapedQuote_thenParsesLineCorrectly() throws IOException {
+        String header = "Code,Country\n";
+        BufferedReader bufferedReader = new BufferedReader(new StringReader(header));
+        subjectUnderTest.parseHeader(bufferedReader);
+        result = subjectUnderTest.parse("GER, \"The \"\"Federal\"\", Republic\"\n");
+
+        assertThat(result, is("{\"Code\":\"GER\",\"Country\":\"The \\\"Federal\\\", Republic\"}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void parse_givenBytesOfLine_thenParsesOnlyTheLine() throws IOException {
+        String header = "Code,Country\n";
+        BufferedReader bufferedReader = new BufferedReader(new StringReader(header));
+        subjectUnderTest.parseHeader(bufferedReader);
+        byte[] lines = "GER,Germany\r\nAUT,Austria\n".getBytes(StandardCharsets.UTF_8);
+        BytesRef json = subjectUnderTest.parse(lines, 13, 11);
+
+        assertThat(json.utf8ToString(), is("{\"Code\":\"AUT\",\"Country\":\"Austria\"}"));
     }
 }
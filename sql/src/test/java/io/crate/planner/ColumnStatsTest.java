@@ -0,0 +1,119 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.planner;
+
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class ColumnStatsTest extends CrateUnitTest {
+
+    @Test
+    public void testStatsOfEmptySample() {
+        ColumnStats<Integer> stats = ColumnStats.fromSample(List.of(), DataTypes.INTEGER, 0);
+        assertThat(stats.nullFraction(), is(0.0));
+        assertThat(stats.approxDistinct(), is(0.0));
+        assertThat(stats.mostCommonValues().isEmpty(), is(true));
+        assertThat(stats.histogram().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testNullFractionAndMostCommonValues() {
+        List<Integer> samples = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            samples.add(1);
+        }
+        for (int i = 0; i < 25; i++) {
+            samples.add(null);
+        }
+        for (int i = 0; i < 25; i++) {
+            samples.add(100 + i);
+        }
+        ColumnStats<Integer> stats = ColumnStats.fromSample(samples, DataTypes.INTEGER, samples.size());
+
+        assertThat(stats.nullFraction(), is(0.25));
+        assertThat(stats.approxDistinct(), is(26.0));
+        assertThat(stats.mostCommonValues(), contains(1));
+        assertThat(stats.mostCommonFrequencies()[0], is(0.5));
+
+        assertThat(stats.selectivityOfEq(1), is(0.5));
+        assertThat(stats.selectivityOfEq(null), is(0.25));
+        assertThat(stats.selectivityOfEq(110), closeTo(0.01, 0.0001));
+    }
+
+    @Test
+    public void testHistogramOfUniqueValues() {
+        List<Integer> samples = new ArrayList<>();
+        for (int i = 1000; i >= 0; i--) {
+            samples.add(i);
+        }
+        ColumnStats<Integer> stats = ColumnStats.fromSample(samples, DataTypes.INTEGER, 10_000);
+
+        assertThat(stats.mostCommonValues().isEmpty(), is(true));
+        // all sampled values are unique, so the column is assumed to be unique
+        assertThat(stats.approxDistinct(), is(10_000.0));
+        List<Integer> histogram = stats.histogram();
+        assertThat(histogram.size(), is(ColumnStats.MAX_HISTOGRAM_BUCKETS + 1));
+        assertThat(histogram.get(0), is(0));
+        assertThat(histogram.get(50), is(500));
+        assertThat(histogram.get(ColumnStats.MAX_HISTOGRAM_BUCKETS), is(1000));
+    }
+
+    @Test
+    public void testDistinctEstimateIsExtrapolated() {
+        // 100 sampled values, 10 of them unique, the remaining 90 are 30 values occurring 3 times each
+        double estimate = ColumnStats.estimateDistinct(100, 40, 10, 10_000);
+        assertThat(estimate, closeTo(44.39, 0.01));
+        assertThat(ColumnStats.estimateDistinct(100, 40, 10, 100), is(40.0));
+    }
+
+    @Test
+    public void testStreaming() throws IOException {
+        List<Integer> samples = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            samples.add(i % 3 == 0 ? 1 : i);
+        }
+        samples.add(null);
+        ColumnStats<Integer> stats = ColumnStats.fromSample(samples, DataTypes.INTEGER, 1000);
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        stats.writeTo(out);
+        ColumnStats<Integer> streamed = new ColumnStats<>(out.bytes().streamInput());
+
+        assertThat(streamed.type(), is(DataTypes.INTEGER));
+        assertThat(streamed.nullFraction(), is(stats.nullFraction()));
+        assertThat(streamed.approxDistinct(), is(stats.approxDistinct()));
+        assertThat(streamed.mostCommonValues(), is(stats.mostCommonValues()));
+        assertThat(streamed.mostCommonFrequencies(), is(stats.mostCommonFrequencies()));
+        assertThat(streamed.histogram(), is(stats.histogram()));
+    }
+}
@@ -58,6 +58,8 @@ import io.crate.metadata.Reference;
 import io.crate.metadata.RelationName;
 import io.crate.metadata.Routing;
 import io.crate.metadata.RowGranularity;
+import io.crate.planner.distribution.DistributionInfo;
+import io.crate.planner.distribution.DistributionType;
 import io.crate.planner.node.dql.Collect;
 import io.crate.planner.node.dql.CountPlan;
 import io.crate.planner.node.dql.QueryThenFetch;
@@ -840,6 +842,56 @@ public class SelectPlannerTest extends CrateDummyClusterServiceUnitTest {
         assertThat(collect.nodeIds().size(), is(2));
     }
 
+    @Test
+    public void testWindowFunctionsAreDistributedByAllPartitionByValues() {
+        Merge localMerge = e.plan("select sum(ints) OVER (partition by awesome, name) from users");
+        Merge distMerge = (Merge) localMerge.subPlan();
+        Collect collect = (Collect) distMerge.subPlan();
+        RoutedCollectPhase collectPhase = (RoutedCollectPhase) collect.collectPhase();
+        List<Symbol> toCollect = collectPhase.toCollect();
+        DistributionInfo distributionInfo = collectPhase.distributionInfo();
+        assertThat(distributionInfo.distributionType(), is(DistributionType.MODULO));
+        assertThat(distributionInfo.distributeByColumns().length, is(2));
+        assertThat(toCollect.get(distributionInfo.distributeByColumns()[0]), isReference("awesome"));
+        assertThat(toCollect.get(distributionInfo.distributeByColumns()[1]), isReference("name"));
+    }
+
+    @Test
+    public void testWindowFunctionPartitionByFunctionIsEvaluatedBeforeDistribution() {
+        Merge localMerge = e.plan("select sum(ints) OVER (partition by ints % 10) from users");
+        Merge distMerge = (Merge) localMerge.subPlan();
+        Collect collect = (Collect) distMerge.subPlan();
+        RoutedCollectPhase collectPhase = (RoutedCollectPhase) collect.collectPhase();
+        assertThat(collectPhase.projections(), contains(instanceOf(EvalProjection.class)));
+        EvalProjection eval = (EvalProjection) collectPhase.projections().get(0);
+        int distributeBy = collectPhase.distributionInfo().distributeByColumn();
+        assertThat(distributeBy, is(collectPhase.toCollect().size()));
+        assertThat(eval.outputs().get(distributeBy), isFunction("modulus"));
+    }
+
+    @Test
+    public void testWindowFunctionsAreComputedOnSortedSourceIfCollectCanSort() {
+        Merge localMerge = e.plan("select sum(ints) OVER (partition by awesome order by id) from users");
+        Merge distMerge = (Merge) localMerge.subPlan();
+        WindowAggProjection windowAgg = (WindowAggProjection) distMerge.mergePhase().projections().get(0);
+        assertThat(windowAgg.sourceIsSorted(), is(true));
+        assertThat(distMerge.mergePhase().orderByPositions(), notNullValue());
+
+        Collect collect = (Collect) distMerge.subPlan();
+        RoutedCollectPhase collectPhase = (RoutedCollectPhase) collect.collectPhase();
+        assertThat(collectPhase.orderBy(), notNullValue());
+    }
+
+    @Test
+    public void testWindowFunctionsAreComputedOnUnsortedSourceIfCollectCannotSort() {
+        // analyzed columns cannot be sorted on the lucene level
+        Merge localMerge = e.plan("select count(*) OVER (partition by text) from users");
+        Merge distMerge = (Merge) localMerge.subPlan();
+        WindowAggProjection windowAgg = (WindowAggProjection) distMerge.mergePhase().projections().get(0);
+        assertThat(windowAgg.sourceIsSorted(), is(false));
+        assertThat(distMerge.mergePhase().orderByPositions(), nullValue());
+    }
+
     @Test
     public void testSeqNoAndPrimaryTermFilteringRequirePrimaryKey() {
         expectedException.expect(VersioninigValidationException.class);
@@ -23,12 +23,30 @@
 package io.crate.planner;
 
 import com.carrotsearch.hppc.ObjectObjectMap;
+import io.crate.action.sql.ResultReceiver;
 import io.crate.action.sql.SQLOperations;
 import io.crate.action.sql.Session;
 import io.crate.data.RowN;
+import io.crate.execution.engine.collect.stats.Samples;
+import io.crate.execution.engine.collect.stats.TransportAnalyzeAction;
+import io.crate.metadata.ColumnIdent;
+import io.crate.metadata.Reference;
+import io.crate.metadata.ReferenceIdent;
 import io.crate.metadata.RelationName;
+import io.crate.metadata.RowGranularity;
+import io.crate.metadata.Schemas;
+import io.crate.metadata.doc.DocSchemaInfo;
+import io.crate.metadata.doc.DocTableInfo;
+import io.crate.metadata.table.SchemaInfo;
+import io.crate.metadata.table.TableInfo;
 import io.crate.plugin.SQLPlugin;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
+import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
@@ -38,6 +56,8 @@ import org.junit.Test;
 import org.mockito.Answers;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -51,6 +71,7 @@ import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.anyObject;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -70,8 +91,9 @@ public class TableStatsServiceTest extends CrateDummyClusterServiceUnitTest {
             Settings.builder().put(TableStatsService.STATS_SERVICE_REFRESH_INTERVAL_SETTING.getKey(), 0).build(),
             THREAD_POOL,
             clusterService,
-            new TableStats(),
-            mock(SQLOperations.class, Answers.RETURNS_MOCKS.get()));
+            mock(Schemas.class),
+            mock(SQLOperations.class, Answers.RETURNS_MOCKS.get()),
+            () -> mock(TransportAnalyzeAction.class));
 
         assertThat(statsService.refreshInterval,
             is(TimeValue.timeValueMinutes(0)));
@@ -82,8 +104,9 @@ public class TableStatsServiceTest extends CrateDummyClusterServiceUnitTest {
             Settings.EMPTY,
             THREAD_POOL,
             clusterService,
-            new TableStats(),
-            mock(SQLOperations.class, Answers.RETURNS_MOCKS.get()));
+            mock(Schemas.class),
+            mock(SQLOperations.class, Answers.RETURNS_MOCKS.get()),
+            () -> mock(TransportAnalyzeAction.class));
 
         assertThat(statsService.refreshInterval,
             is(TableStatsService.STATS_SERVICE_REFRESH_INTERVAL_SETTING.getDefault()));
@@ -150,8 +173,9 @@ public class TableStatsServiceTest extends CrateDummyClusterServiceUnitTest {
             Settings.EMPTY,
             THREAD_POOL,
             clusterService,
-            new TableStats(),
-            sqlOperations
+            mock(Schemas.class),
+            sqlOperations,
+            () -> mock(TransportAnalyzeAction.class)
         );
         statsService.run();
 
@@ -171,11 +195,109 @@ public class TableStatsServiceTest extends CrateDummyClusterServiceUnitTest {
             Settings.EMPTY,
             THREAD_POOL,
             clusterService,
-            new TableStats(),
-            sqlOperations
+            mock(Schemas.class),
+            sqlOperations,
+            () -> mock(TransportAnalyzeAction.class)
         );
 
         statsService.run();
         verify(session, times(0)).sync();
     }
+
+    @Test
+    public void testStatsAreOnlyComputedByMasterNode() {
+        DiscoveryNode localNode = new DiscoveryNode("n1", buildNewFakeTransportAddress(), Version.CURRENT);
+        DiscoveryNode masterNode = new DiscoveryNode("n2", buildNewFakeTransportAddress(), Version.CURRENT);
+        ClusterState state = ClusterState.builder(ClusterName.DEFAULT)
+            .nodes(DiscoveryNodes.builder()
+                .add(localNode)
+                .add(masterNode)
+                .localNodeId(localNode.getId())
+                .masterNodeId(masterNode.getId()))
+            .build();
+        ClusterService clusterService = mock(ClusterService.class);
+        when(clusterService.localNode()).thenReturn(localNode);
+        when(clusterService.state()).thenReturn(state);
+        when(clusterService.getClusterSettings()).thenReturn(this.clusterService.getClusterSettings());
+        SQLOperations sqlOperations = mock(SQLOperations.class);
+        Session session = mock(Session.class);
+        when(sqlOperations.newSystemSession()).thenReturn(session);
+
+        TableStatsService statsService = new TableStatsService(
+            Settings.EMPTY,
+            THREAD_POOL,
+            clusterService,
+            mock(Schemas.class),
+            sqlOperations,
+            () -> mock(TransportAnalyzeAction.class)
+        );
+
+        statsService.run();
+        verify(session, times(0)).quickExec(anyString(), any(), any(), any());
+    }
+
+    @Test
+    public void testPeriodicRefreshOnlyCollectsColumnStatsIfEnabled() {
+        RelationName relationName = new RelationName("doc", "t1");
+        Reference column = new Reference(
+            new ReferenceIdent(relationName, new ColumnIdent("x")), RowGranularity.DOC, DataTypes.INTEGER, null);
+        Reference partitionColumn = new Reference(
+            new ReferenceIdent(relationName, new ColumnIdent("p")), RowGranularity.PARTITION, DataTypes.INTEGER, null);
+        DocTableInfo table = mock(DocTableInfo.class);
+        when(table.ident()).thenReturn(relationName);
+        when(table.columns()).thenReturn(List.of(column, partitionColumn));
+        when(table.partitionedBy()).thenReturn(List.of(partitionColumn.column()));
+        DocSchemaInfo schema = mock(DocSchemaInfo.class);
+        when(schema.getTables()).thenReturn(List.<TableInfo>of(table));
+        Schemas schemas = mock(Schemas.class);
+        when(schemas.iterator()).thenAnswer(invocation -> List.<SchemaInfo>of(schema).iterator());
+
+        SQLOperations sqlOperations = mock(SQLOperations.class);
+        Session session = mock(Session.class);
+        when(sqlOperations.newSystemSession()).thenReturn(session);
+        doAnswer(invocation -> {
+            ((ResultReceiver) invocation.getArguments()[2]).allFinished(false);
+            return null;
+        }).when(session).quickExec(anyString(), any(), any(), any());
+
+        TransportAnalyzeAction analyzeAction = mock(TransportAnalyzeAction.class);
+        when(analyzeAction.fetchSamples(any(), any(), anyInt()))
+            .thenReturn(CompletableFuture.completedFuture(new Samples(List.of(), 0)));
+        when(analyzeAction.publish(any())).thenReturn(CompletableFuture.completedFuture(1L));
+
+        TableStatsService statsService = new TableStatsService(
+            Settings.EMPTY,
+            THREAD_POOL,
+            clusterService,
+            schemas,
+            sqlOperations,
+            () -> analyzeAction
+        );
+        statsService.run();
+        verify(analyzeAction, times(1)).publish(any());
+        verify(analyzeAction, times(0)).fetchSamples(any(), any(), anyInt());
+
+        ClusterSettings clusterSettings = clusterService.getClusterSettings();
+        clusterSettings.applySettings(Settings.builder()
+            .put(TableStatsService.STATS_SERVICE_COLUMN_STATS_SETTING.getKey(), true).build());
+        statsService.run();
+        verify(analyzeAction, times(2)).publish(any());
+        verify(analyzeAction, times(1)).fetchSamples(relationName, List.of(column), TableStatsService.SAMPLE_SIZE);
+
+        clusterSettings.applySettings(Settings.EMPTY);
+    }
+
+    @Test
+    public void testSamplesToColumnStatsConversion() {
+        RelationName relationName = new RelationName("doc", "t1");
+        Reference column = new Reference(
+            new ReferenceIdent(relationName, new ColumnIdent("x")), RowGranularity.DOC, DataTypes.INTEGER, null);
+        List<Object[]> records = List.of(new Object[]{1}, new Object[]{1}, new Object[]{null}, new Object[]{2});
+
+        Map<ColumnIdent, ColumnStats> stats =
+            TableStatsService.toColumnStats(List.of(column), new Samples(records, 4), 4);
+
+        ColumnStats columnStats = stats.get(new ColumnIdent("x"));
+        assertThat(columnStats.nullFraction(), is(0.25));
+    }
 }
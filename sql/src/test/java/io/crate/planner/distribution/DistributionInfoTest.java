@@ -26,6 +26,7 @@ import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.junit.Test;
 
+import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
 
 public class DistributionInfoTest extends CrateUnitTest {
@@ -55,4 +56,18 @@ public class DistributionInfoTest extends CrateUnitTest {
 
         assertThat(streamed, equalTo(distributionInfo));
     }
+
+    @Test
+    public void testStreamingWithMultipleDistributeByColumns() throws Exception {
+        DistributionInfo distributionInfo = new DistributionInfo(DistributionType.MODULO, new int[] { 2, 0 });
+
+        BytesStreamOutput out = new BytesStreamOutput(10);
+        distributionInfo.writeTo(out);
+
+        StreamInput in = out.bytes().streamInput();
+        DistributionInfo streamed = DistributionInfo.fromStream(in);
+
+        assertThat(streamed, equalTo(distributionInfo));
+        assertThat(streamed.distributeByColumn(), is(2));
+    }
 }
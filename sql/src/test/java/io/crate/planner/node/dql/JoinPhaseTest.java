@@ -138,12 +138,15 @@ public class JoinPhaseTest extends CrateUnitTest {
             2,
             3,
             Sets.newHashSet("node1", "node2"),
+            JoinType.LEFT,
             joinCondition,
             Arrays.asList(Literal.of("testLeft"), Literal.of(10)),
             Arrays.asList(Literal.of("testRight"), Literal.of(20)),
             Arrays.asList(DataTypes.STRING, DataTypes.INTEGER),
+            Arrays.asList(DataTypes.LONG, DataTypes.STRING, DataTypes.INTEGER),
             111,
-            222);
+            222,
+            1);
 
         BytesStreamOutput output = new BytesStreamOutput();
         node.writeTo(output);
@@ -166,7 +169,9 @@ public class JoinPhaseTest extends CrateUnitTest {
         assertThat(node.numLeftOutputs(), is(node2.numLeftOutputs()));
         assertThat(node.numRightOutputs(), is(node2.numRightOutputs()));
         assertThat(node.leftOutputTypes(), is(node2.leftOutputTypes()));
+        assertThat(node.rightOutputTypes(), is(node2.rightOutputTypes()));
         assertThat(node.estimatedRowSizeForLeft(), is(node2.estimatedRowSizeForLeft()));
         assertThat(node.numberOfRowsForLeft(), is(node2.numberOfRowsForLeft()));
+        assertThat(node2.runtimeFilterColumn(), is(1));
     }
 }
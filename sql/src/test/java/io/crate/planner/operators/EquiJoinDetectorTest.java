@@ -72,15 +72,25 @@ public class EquiJoinDetectorTest extends CrateUnitTest {
     }
 
     @Test
-    public void testNotPossibleIfNotAnInnerJoin() {
+    public void testNotPossibleOnCrossJoin() {
         assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.CROSS, null), is(false));
+    }
 
+    @Test
+    public void testPossibleOnOuterSemiAndAntiJoinsContainingEqCondition() {
         Symbol joinCondition = SQL_EXPRESSIONS.asSymbol("t1.x = t2.y");
+        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.LEFT, joinCondition), is(true));
+        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.RIGHT, joinCondition), is(true));
+        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.FULL, joinCondition), is(true));
+        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.ANTI, joinCondition), is(true));
+        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.SEMI, joinCondition), is(true));
+    }
+
+    @Test
+    public void testNotPossibleOnOuterJoinWithoutAnyEqCondition() {
+        Symbol joinCondition = SQL_EXPRESSIONS.asSymbol("t1.x > t2.y");
         assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.LEFT, joinCondition), is(false));
-        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.RIGHT, joinCondition), is(false));
         assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.FULL, joinCondition), is(false));
-        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.ANTI, joinCondition), is(false));
-        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.SEMI, joinCondition), is(false));
     }
 
     @Test
@@ -31,7 +31,11 @@ import org.junit.Test;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.ToDoubleFunction;
 
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
@@ -80,4 +84,56 @@ public class JoinOrderingTest {
         );
         assertThat(qualifiedNames, contains(T3.T1, T3.T2, T3.T3));
     }
+
+    private static ToDoubleFunction<Collection<QualifiedName>> rowsOf(Map<Set<QualifiedName>, Double> rows) {
+        return names -> rows.get(new HashSet<>(names));
+    }
+
+    private static Map<Set<QualifiedName>, Double> threeWayJoinRows() {
+        // t1: 1_000_000, t2: 10, t3: 1_000 rows; t1.a = t2.b AND t2.b = t3.c
+        Map<Set<QualifiedName>, Double> rows = new HashMap<>();
+        rows.put(ImmutableSet.of(T3.T1), 1_000_000d);
+        rows.put(ImmutableSet.of(T3.T2), 10d);
+        rows.put(ImmutableSet.of(T3.T3), 1_000d);
+        rows.put(ImmutableSet.of(T3.T1, T3.T2), 1_000_000d);
+        rows.put(ImmutableSet.of(T3.T2, T3.T3), 1_000d);
+        rows.put(ImmutableSet.of(T3.T1, T3.T3), 1_000_000_000d);
+        rows.put(ImmutableSet.of(T3.T1, T3.T2, T3.T3), 100_000_000d);
+        return rows;
+    }
+
+    @Test
+    public void testOrderByCostStartsWithSmallestIntermediateResult() {
+        Collection<QualifiedName> qualifiedNames = JoinOrdering.orderByCost(
+            Arrays.asList(T3.T1, T3.T2, T3.T3),
+            rowsOf(threeWayJoinRows())
+        );
+        assertThat(qualifiedNames, contains(T3.T2, T3.T3, T3.T1));
+    }
+
+    @Test
+    public void testOrderByCostKeepsOriginalOrderOnTies() {
+        Map<Set<QualifiedName>, Double> rows = new HashMap<>();
+        rows.put(ImmutableSet.of(T3.T1), 10d);
+        rows.put(ImmutableSet.of(T3.T2), 10d);
+        rows.put(ImmutableSet.of(T3.T3), 10d);
+        rows.put(ImmutableSet.of(T3.T1, T3.T2), 10d);
+        rows.put(ImmutableSet.of(T3.T2, T3.T3), 10d);
+        rows.put(ImmutableSet.of(T3.T1, T3.T3), 10d);
+        rows.put(ImmutableSet.of(T3.T1, T3.T2, T3.T3), 10d);
+        Collection<QualifiedName> qualifiedNames = JoinOrdering.orderByCost(
+            Arrays.asList(T3.T1, T3.T2, T3.T3),
+            rowsOf(rows)
+        );
+        assertThat(qualifiedNames, contains(T3.T1, T3.T2, T3.T3));
+    }
+
+    @Test
+    public void testOrderByCostGreedy() {
+        Collection<QualifiedName> qualifiedNames = JoinOrdering.orderByCostGreedy(
+            Arrays.asList(T3.T1, T3.T2, T3.T3),
+            rowsOf(threeWayJoinRows())
+        );
+        assertThat(qualifiedNames, contains(T3.T2, T3.T3, T3.T1));
+    }
 }
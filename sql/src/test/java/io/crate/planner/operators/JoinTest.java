@@ -40,6 +40,7 @@ import io.crate.planner.TableStats;
 import io.crate.planner.node.dql.Collect;
 import io.crate.planner.node.dql.QueryThenFetch;
 import io.crate.planner.node.dql.join.Join;
+import io.crate.planner.node.dql.join.JoinType;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
 import io.crate.testing.SQLExecutor;
 import io.crate.testing.T3;
@@ -52,6 +53,7 @@ import org.junit.Test;
 import java.io.IOException;
 import java.util.Collections;
 
+import static io.crate.testing.SymbolMatchers.isInputColumn;
 import static io.crate.testing.TestingHelpers.getFunctions;
 import static io.crate.testing.TestingHelpers.isSQL;
 import static org.hamcrest.Matchers.hasItem;
@@ -59,6 +61,8 @@ import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class JoinTest extends CrateDummyClusterServiceUnitTest {
 
@@ -215,6 +219,71 @@ public class JoinTest extends CrateDummyClusterServiceUnitTest {
             is("[IC{1, bigint}, IC{2, bigint}, IC{0, bigint}]"));
     }
 
+    @Test
+    public void testHashJoin_LeftJoinTablesAreNotSwitchedWhenRightBiggerThanLeft() {
+        MultiSourceSelect mss = e.normalize("select users.name, locations.id " +
+                                            "from users " +
+                                            "left join locations on users.id = locations.id");
+
+        TableStats tableStats = new TableStats();
+        ObjectObjectHashMap<RelationName, TableStats.Stats> rowCountByTable = new ObjectObjectHashMap<>();
+        rowCountByTable.put(TableDefinitions.USER_TABLE_IDENT, new TableStats.Stats(10, 0));
+        rowCountByTable.put(TableDefinitions.TEST_DOC_LOCATIONS_TABLE_IDENT, new TableStats.Stats(100, 0));
+        tableStats.updateTableStats(rowCountByTable);
+
+        LogicalPlan operator = createLogicalPlan(mss, tableStats);
+        assertThat(operator, instanceOf(HashJoin.class));
+        assertThat(((HashJoin) operator).joinType(), is(JoinType.LEFT));
+
+        Join join = buildJoin(operator);
+        // The rows of the left side without a match must be emitted, so it must stay the build (left) side
+        assertThat(join.joinPhase().joinType(), is(JoinType.LEFT));
+        assertThat(join.joinPhase().leftMergePhase().inputTypes(), Matchers.contains(DataTypes.LONG, DataTypes.LONG));
+        assertThat(join.joinPhase().rightMergePhase().inputTypes(), Matchers.contains(DataTypes.LONG));
+    }
+
+    @Test
+    public void testHashJoin_RightJoinIsExecutedAsLeftJoinWithSwitchedTables() {
+        MultiSourceSelect mss = e.normalize("select users.name, locations.id " +
+                                            "from users " +
+                                            "right join locations on users.id = locations.id");
+
+        TableStats tableStats = new TableStats();
+        ObjectObjectHashMap<RelationName, TableStats.Stats> rowCountByTable = new ObjectObjectHashMap<>();
+        rowCountByTable.put(TableDefinitions.USER_TABLE_IDENT, new TableStats.Stats(100, 0));
+        rowCountByTable.put(TableDefinitions.TEST_DOC_LOCATIONS_TABLE_IDENT, new TableStats.Stats(10, 0));
+        tableStats.updateTableStats(rowCountByTable);
+
+        LogicalPlan operator = createLogicalPlan(mss, tableStats);
+        assertThat(operator, instanceOf(HashJoin.class));
+        assertThat(((HashJoin) operator).joinType(), is(JoinType.RIGHT));
+
+        Join join = buildJoin(operator);
+        assertThat(join.joinPhase().joinType(), is(JoinType.LEFT));
+        assertThat(join.joinPhase().leftMergePhase().inputTypes(), Matchers.contains(DataTypes.LONG));
+        assertThat(join.joinPhase().rightMergePhase().inputTypes(), Matchers.contains(DataTypes.LONG, DataTypes.LONG));
+    }
+
+    @Test
+    public void testHashJoin_RuntimeFilterIsCreatedFromLeftJoinKeyIfUnmatchedRightRowsAreNotEmitted() {
+        TableStats tableStats = new TableStats();
+        ObjectObjectHashMap<RelationName, TableStats.Stats> rowCountByTable = new ObjectObjectHashMap<>();
+        rowCountByTable.put(TableDefinitions.USER_TABLE_IDENT, new TableStats.Stats(100, 0));
+        rowCountByTable.put(TableDefinitions.TEST_DOC_LOCATIONS_TABLE_IDENT, new TableStats.Stats(10, 0));
+        tableStats.updateTableStats(rowCountByTable);
+
+        Join join = plan(e.normalize("select users.name, locations.id " +
+                                     "from users " +
+                                     "join locations on users.id = locations.id"), tableStats);
+        HashJoinPhase joinPhase = (HashJoinPhase) join.joinPhase();
+        assertThat(joinPhase.leftJoinConditionInputs().get(0), isInputColumn(joinPhase.runtimeFilterColumn()));
+
+        join = plan(e.normalize("select users.name, locations.id " +
+                                "from users " +
+                                "full join locations on users.id = locations.id"), tableStats);
+        assertThat(((HashJoinPhase) join.joinPhase()).runtimeFilterColumn(), is(-1));
+    }
+
     @Test
     public void testMultipleHashJoins() {
         MultiSourceSelect mss = e.normalize("select * " +
@@ -232,11 +301,63 @@ public class JoinTest extends CrateDummyClusterServiceUnitTest {
         assertThat(((Join)join.left()).joinPhase(), instanceOf(HashJoinPhase.class));
     }
 
+    @Test
+    public void testJoinsAreOrderedByEstimatedCost() {
+        MultiSourceSelect mss = e.normalize("select * " +
+                                            "from t1 inner join t2 on t1.a = t2.b " +
+                                            "inner join t3 on t3.c = t2.b");
+        TableStats tableStats = new TableStats();
+        ObjectObjectHashMap<RelationName, TableStats.Stats> stats = new ObjectObjectHashMap<>();
+        stats.put(T3.T1_INFO.ident(), new TableStats.Stats(1_000_000, 0));
+        stats.put(T3.T2_INFO.ident(), new TableStats.Stats(10, 0));
+        stats.put(T3.T3_INFO.ident(), new TableStats.Stats(1_000, 0));
+        tableStats.updateTableStats(stats);
+
+        // t2 join t3 results in 1_000 rows, t1 join t2 in 1_000_000 rows, so t2 and t3 are joined first
+        LogicalPlan operator = createLogicalPlan(mss, tableStats);
+        assertThat(operator, instanceOf(HashJoin.class));
+        HashJoin hashJoin = (HashJoin) operator;
+        assertThat(hashJoin.rhs.baseTables().get(0).tableInfo().ident(), is(T3.T1_INFO.ident()));
+        assertThat(hashJoin.lhs.numExpectedRows(), is(1_000L));
+        assertThat(hashJoin.numExpectedRows(), is(100_000_000L));
+
+        Join join = buildJoin(operator);
+        assertThat(join.estimatedRows(), is(100_000_000L));
+        assertThat(join.cost(), is(100_001_000L));
+    }
+
+    @Test
+    public void testJoinsAreNotOrderedByCostWithoutTableStats() {
+        MultiSourceSelect mss = e.normalize("select * " +
+                                            "from t1 inner join t2 on t1.a = t2.b " +
+                                            "inner join t3 on t3.c = t2.b");
+        LogicalPlan operator = createLogicalPlan(mss, new TableStats());
+        HashJoin hashJoin = (HashJoin) operator;
+        assertThat(hashJoin.rhs.baseTables().get(0).tableInfo().ident(), is(T3.T3_INFO.ident()));
+        assertThat(buildJoin(operator).cost(), is(-1L));
+    }
+
+    @Test
+    public void testHashJoinBroadcastsRightSideOnlyIfItIsSmallEnough() {
+        LogicalPlan left = mock(LogicalPlan.class);
+        LogicalPlan right = mock(LogicalPlan.class);
+        when(left.numExpectedRows()).thenReturn(1_000_000L);
+        when(right.numExpectedRows()).thenReturn(1_000L);
+        assertThat(HashJoin.isBroadcastCheaper(left, right, 1), is(false));
+        assertThat(HashJoin.isBroadcastCheaper(left, right, 3), is(true));
+
+        when(right.numExpectedRows()).thenReturn(600_000L);
+        assertThat(HashJoin.isBroadcastCheaper(left, right, 3), is(false));
+
+        when(right.numExpectedRows()).thenReturn(-1L);
+        assertThat(HashJoin.isBroadcastCheaper(left, right, 3), is(false));
+    }
+
     @Test
     public void testMixedHashJoinNestedLoop() {
         MultiSourceSelect mss = e.normalize("select * " +
                                             "from t1 inner join t2 on t1.a = t2.b " +
-                                            "left join t3 on t3.c = t2.b");
+                                            "left join t3 on t3.c > t2.b");
 
         LogicalPlan operator = createLogicalPlan(mss, new TableStats());
         assertThat(operator, instanceOf(NestedLoopJoin.class));
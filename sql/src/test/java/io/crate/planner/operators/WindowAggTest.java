@@ -24,6 +24,7 @@ package io.crate.planner.operators;
 
 import io.crate.analyze.OrderBy;
 import io.crate.analyze.WindowDefinition;
+import io.crate.exceptions.UnsupportedFeatureException;
 import io.crate.expression.symbol.Symbol;
 import io.crate.expression.symbol.WindowFunction;
 import io.crate.planner.TableStats;
@@ -119,6 +120,34 @@ public class WindowAggTest extends CrateDummyClusterServiceUnitTest {
         assertThat(orderBy.orderBySymbols(), contains(isField("y"), isField("x")));
     }
 
+    @Test
+    public void testSlidingRowsFrameIsPlanned() {
+        LogicalPlan plan = plan("select sum(x) over (order by x rows between 1 preceding and 1 following) from t1");
+        assertThat(plan, instanceOf(FetchOrEval.class));
+    }
+
+    @Test
+    public void testFrameStartCannotBeUnboundedFollowing() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("Frame start cannot be UNBOUNDED FOLLOWING");
+        plan("select sum(x) over (order by x rows between unbounded following and unbounded following) from t1");
+    }
+
+    @Test
+    public void testFrameStartingWithFollowingCannotEndWithCurrentRow() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("Frame starting from following row cannot have preceding rows");
+        plan("select sum(x) over (order by x rows between 1 following and current row) from t1");
+    }
+
+    @Test
+    public void testRangeFrameWithOffsetRequiresSingleOrderByColumn() {
+        expectedException.expect(UnsupportedFeatureException.class);
+        expectedException.expectMessage(
+            "RANGE frames with PRECEDING or FOLLOWING offsets require exactly one ORDER BY column");
+        plan("select sum(x) over (order by x, y range between 1 preceding and current row) from t1");
+    }
+
     private WindowDefinition wd(String expression) {
         Symbol symbol = expressions.asSymbol(expression);
         assertThat(symbol, instanceOf(WindowFunction.class));
@@ -25,6 +25,7 @@ package io.crate.protocols.postgres;
 import io.crate.action.sql.BaseResultReceiver;
 import io.crate.action.sql.Session;
 import io.crate.action.sql.SessionContext;
+import io.crate.action.sql.StatementCache;
 import io.crate.analyze.AnalyzedStatement;
 import io.crate.data.Row;
 import io.crate.data.RowConsumer;
@@ -80,6 +81,7 @@ public class BatchPortalTest extends CrateDummyClusterServiceUnitTest {
         Session session = new Session(
             sqlExecutor.analyzer,
             planner,
+            new StatementCache(Settings.EMPTY),
             new JobsLogs(() -> false),
             false,
             executor,
@@ -24,6 +24,7 @@ package io.crate.protocols.postgres;
 
 import io.crate.action.sql.SQLOperations;
 import io.crate.action.sql.Session;
+import io.crate.action.sql.StatementCache;
 import io.crate.auth.AlwaysOKNullAuthentication;
 import io.crate.auth.Authentication;
 import io.crate.auth.AuthenticationMethod;
@@ -85,6 +86,7 @@ public class PostgresWireProtocolTest extends CrateDummyClusterServiceUnitTest {
         sqlOperations = new SQLOperations(
             e.analyzer,
             e.planner,
+            new StatementCache(Settings.EMPTY),
             () -> mock(DependencyCarrier.class),
             new JobsLogs(() -> true),
             Settings.EMPTY,
@@ -0,0 +1,139 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package org.elasticsearch.index.mapper;
+
+import io.crate.Constants;
+import io.crate.test.integration.CrateUnitTest;
+import org.apache.lucene.index.IndexableField;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.CompressedXContent;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.MapperTestUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class DocumentParserTest extends CrateUnitTest {
+
+    private static final String INDEX = "my_index";
+    private static final String TYPE = Constants.DEFAULT_MAPPING_TYPE;
+
+    private static final String[] FIELD_NAMES = new String[] {"id", "name", "title", "value", "ts", "flag", "addr"};
+
+    private DocumentMapper mapper;
+
+    @Before
+    public void setUpMapper() throws Exception {
+        // @formatter:off
+        String mapping = Strings.toString(XContentFactory.jsonBuilder()
+            .startObject()
+                .startObject(TYPE)
+                    .startObject("properties")
+                        .startObject("id").field("type", "integer").endObject()
+                        .startObject("name")
+                            .field("type", "keyword")
+                            .field("copy_to", "name_ft")
+                        .endObject()
+                        .startObject("name_ft").field("type", "text").endObject()
+                        .startObject("title").field("type", "text").endObject()
+                        .startObject("value").field("type", "double").endObject()
+                        .startObject("ts")
+                            .field("type", "date")
+                            .field("format", "epoch_millis||strict_date_optional_time")
+                        .endObject()
+                        .startObject("flag").field("type", "boolean").endObject()
+                        .startObject("addr").field("type", "ip").endObject()
+                    .endObject()
+                .endObject()
+            .endObject());
+        // @formatter:on
+        MapperService mapperService = MapperTestUtils.newMapperService(
+            NamedXContentRegistry.EMPTY, createTempDir(), Settings.EMPTY, INDEX);
+        mapper = mapperService.documentMapperParser().parse(TYPE, new CompressedXContent(mapping));
+    }
+
+    private static BytesReference source(String[] fieldNames, Object[] values) throws Exception {
+        XContentBuilder builder = XContentFactory.jsonBuilder().startObject();
+        for (int i = 0; i < fieldNames.length; i++) {
+            builder.field(fieldNames[i], values[i]);
+        }
+        return BytesReference.bytes(builder.endObject());
+    }
+
+    private static List<String> fields(ParsedDocument doc) {
+        assertThat(doc.docs().size(), is(1));
+        return doc.docs().get(0).getFields().stream()
+            .map(IndexableField::toString)
+            .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testDocumentFromFieldValuesHasTheSameFieldsAsTheParsedSource() throws Exception {
+        Object[] values = new Object[] {1, "Arthur", "Hitchhiker's guide", 42.5d, 1546300800000L, true, "127.0.0.1"};
+        BytesReference source = source(FIELD_NAMES, values);
+
+        ParsedDocument parsed = mapper.parse(new SourceToParse(INDEX, TYPE, "1", source, XContentType.JSON));
+        ParsedDocument fromValues = mapper.parse(
+            new SourceToParse(INDEX, TYPE, "1", source, XContentType.JSON, null, FIELD_NAMES, values));
+
+        assertThat(fromValues.dynamicMappingsUpdate(), nullValue());
+        assertThat(fromValues.source(), is(parsed.source()));
+        assertThat(fields(fromValues), is(fields(parsed)));
+    }
+
+    @Test
+    public void testNullFieldValuesCreateNoFields() throws Exception {
+        Object[] values = new Object[] {1, null, null, null, null, null, null};
+        BytesReference source = source(FIELD_NAMES, values);
+
+        ParsedDocument parsed = mapper.parse(new SourceToParse(INDEX, TYPE, "1", source, XContentType.JSON));
+        ParsedDocument fromValues = mapper.parse(
+            new SourceToParse(INDEX, TYPE, "1", source, XContentType.JSON, null, FIELD_NAMES, values));
+
+        assertThat(fields(fromValues), is(fields(parsed)));
+    }
+
+    @Test
+    public void testUnmappedFieldFallsBackToParsingTheSource() throws Exception {
+        String[] fieldNames = new String[] {"id", "unknown"};
+        Object[] values = new Object[] {1, "foo"};
+        BytesReference source = source(fieldNames, values);
+
+        ParsedDocument doc = mapper.parse(
+            new SourceToParse(INDEX, TYPE, "1", source, XContentType.JSON, null, fieldNames, values));
+
+        assertThat(doc.dynamicMappingsUpdate(), notNullValue());
+        assertThat(doc.docs().get(0).getField("unknown"), notNullValue());
+    }
+}